@@ -0,0 +1,163 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates state schemas and expressions used by benchmarks
+ */
+final class BenchmarkData {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String[] OPERATORS = {">", ">=", "<", "<=", "!=", "=="};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param properties Number of properties, every third one is a STRING and every fifth one a
+     * BOOLEAN, the rest are INTEGER
+     * @return Flat state schema
+     */
+    static StateSchema schema(int properties) {
+        StringBuilder json = new StringBuilder("{\"definition\":{\"type\":\"OBJECT\",\"properties\":{");
+        for (int i = 0; i < properties; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(BenchmarkData.propertyName(i)).append("\":{\"type\":\"")
+                    .append(BenchmarkData.propertyType(i)).append("\"}");
+        }
+        json.append("}}}");
+
+        try {
+            return MAPPER.readValue(json.toString(), StateSchema.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param clauses Number of comparisons joined with {@code &&} and {@code ||}
+     * @param depth Number of parentheses around every comparison
+     * @param properties Number of properties in the schema the expression refers to
+     * @return Valid expression
+     */
+    static String expression(int clauses, int depth, int properties) {
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < clauses; i++) {
+            if (i > 0) {
+                expression.append(i % 2 == 0 ? " && " : " || ");
+            }
+            int property = (int) ((i * 2654435761L) % properties);
+            expression.append("(".repeat(depth))
+                    .append(BenchmarkData.clause(property, i))
+                    .append(")".repeat(depth));
+        }
+
+        return expression.toString();
+    }
+
+    /**
+     * @param properties Number of properties of the schema
+     * @param seed Seed of generated values
+     * @return State document with a value for every property of {@link #schema(int)}
+     */
+    static byte[] document(int properties, int seed) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < properties; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(BenchmarkData.propertyName(i)).append("\":");
+            switch (BenchmarkData.propertyType(i)) {
+                case "STRING":
+                    json.append("\"value").append((i + seed) % 7).append('"');
+                    break;
+                case "BOOLEAN":
+                    json.append((i + seed) % 2 == 0);
+                    break;
+                default:
+                    json.append((i * 31 + seed) % 100);
+            }
+        }
+        json.append('}');
+
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Distinct expressions, each with a few clauses
+     */
+    static List<String> expressions(int count, int properties) {
+        List<String> expressions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expressions.add(BenchmarkData.clause(i % properties, i) + " && "
+                    + BenchmarkData.clause((i + 1) % properties, i + 1));
+        }
+
+        return expressions;
+    }
+
+    /**
+     * @param clauses Number of clauses of every expression
+     * @param properties Number of properties clauses refer to, few properties make many
+     * expressions compare the same property more than once
+     * @return Random expressions of clauses joined with {@code &&} and {@code ||}, with constants
+     * below 100
+     */
+    static List<String> expressions(int count, int clauses, int properties, long seed) {
+        Random random = new Random(seed);
+        List<String> expressions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder expression = new StringBuilder();
+            for (int c = 0; c < clauses; c++) {
+                if (c > 0) {
+                    expression.append(random.nextInt(4) == 0 ? " || " : " && ");
+                }
+                expression.append(BenchmarkData.clause(random.nextInt(properties),
+                        random.nextInt(100)));
+            }
+            expressions.add(expression.toString());
+        }
+
+        return expressions;
+    }
+
+    private static String clause(int property, int seed) {
+        String path = "$." + BenchmarkData.propertyName(property);
+        switch (BenchmarkData.propertyType(property)) {
+            case "STRING":
+                return path + (seed % 2 == 0 ? " == " : " != ") + "\"value" + seed + "\"";
+            case "BOOLEAN":
+                return path + (seed % 2 == 0 ? " == true" : " != false");
+            default:
+                return path + " " + OPERATORS[seed % OPERATORS.length] + " " + seed;
+        }
+    }
+
+    /**
+     * @return Property name with letters, an underscore and digits, i.e. {@code p_123}, as paths
+     * of real schemas have, so path scanning walks the schema trie past all of them
+     */
+    private static String propertyName(int index) {
+        return "p_" + index;
+    }
+
+    private static String propertyType(int index) {
+        if (index % 3 == 0) {
+            return "STRING";
+        }
+        if (index % 5 == 0) {
+            return "BOOLEAN";
+        }
+
+        return "INTEGER";
+    }
+}
@@ -0,0 +1,79 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.expression.Expression;
+import com.dnevi.expression.validator.expression.ExpressionAnalyzer;
+import com.dnevi.expression.validator.expression.Lexer;
+import com.dnevi.expression.validator.expression.Parser;
+import com.dnevi.expression.validator.expression.StatePathResolver;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interval analysis of an imported rule set, parsed in advance. Rules over few properties compare
+ * the same property repeatedly, so many of them are dead or have redundant clauses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionAnalyzerBenchmark {
+    private static final int PROPERTIES = 100;
+
+    @Param({"100000"})
+    private int rules;
+
+    @Param({"4"})
+    private int clauses;
+
+    @Param({"3", "30"})
+    private int paths;
+
+    private Expression[] trees;
+
+    @Setup
+    public void setup() {
+        StateSchema schema = BenchmarkData.schema(PROPERTIES);
+        StatePathResolver pathResolver = new StatePathResolver(schema, true);
+        List<String> expressions = BenchmarkData.expressions(this.rules, this.clauses, this.paths,
+                42);
+
+        this.trees = new Expression[expressions.size()];
+        for (int i = 0; i < this.trees.length; i++) {
+            var validatorContext = new ValidatorContext();
+            this.trees[i] = new Parser(new Lexer(expressions.get(i), validatorContext)
+                    .scanTokens(), pathResolver, validatorContext).parse();
+        }
+    }
+
+    /**
+     * @return Number of rules which never or always match
+     */
+    @Benchmark
+    public int analyze() {
+        int fixedCount = 0;
+        for (Expression tree : this.trees) {
+            if (ExpressionAnalyzer.analyze(tree).getSatisfiability()
+                    != ExpressionAnalyzer.Satisfiability.SOMETIMES) {
+                fixedCount++;
+            }
+        }
+
+        return fixedCount;
+    }
+}
@@ -0,0 +1,70 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.cache.ExpressionCache;
+import com.dnevi.expression.validator.expression.ExpressionValidator;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ValidationOutcome;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionValidatorBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int clauses;
+
+    @Param({"0", "8"})
+    private int depth;
+
+    @Param({"10", "1000", "100000"})
+    private int properties;
+
+    private StateSchema schema;
+    private String expression;
+    private ExpressionValidator validator;
+    private ExpressionValidator cachedValidator;
+
+    @Setup
+    public void setup() {
+        this.schema = BenchmarkData.schema(this.properties);
+        this.expression = BenchmarkData.expression(this.clauses, this.depth, this.properties);
+        this.validator = new ExpressionValidator();
+        this.cachedValidator = new ExpressionValidator(new ExpressionCache(1_000, 1_000_000));
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return this.validator.validate(this.expression, this.schema);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return this.validator.isValid(this.expression, this.schema);
+    }
+
+    @Benchmark
+    public ValidationOutcome checkCached() {
+        return this.cachedValidator.check(this.expression, this.schema);
+    }
+
+    @Benchmark
+    public ValidationOutcome checkStreaming() {
+        return this.validator.checkStreaming(this.expression, this.schema);
+    }
+}
@@ -0,0 +1,64 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.expression.Expression;
+import com.dnevi.expression.validator.expression.Interpreter;
+import com.dnevi.expression.validator.expression.Lexer;
+import com.dnevi.expression.validator.expression.Parser;
+import com.dnevi.expression.validator.expression.Program;
+import com.dnevi.expression.validator.expression.ProgramCompiler;
+import com.dnevi.expression.validator.expression.ProgramEvaluator;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int clauses;
+
+    @Param({"0", "8"})
+    private int depth;
+
+    private Expression expression;
+    private Program program;
+    private ProgramEvaluator evaluator;
+
+    @Setup
+    public void setup() {
+        StateSchema schema = BenchmarkData.schema(100);
+        String expression = BenchmarkData.expression(this.clauses, this.depth, 100);
+        var validatorContext = new ValidatorContext();
+        this.expression = new Parser(new Lexer(expression, validatorContext).scanTokens(), schema,
+                validatorContext).parse();
+        this.program = ProgramCompiler.compile(this.expression);
+        this.evaluator = new ProgramEvaluator();
+    }
+
+    @Benchmark
+    public boolean interpret() {
+        return new Interpreter(new ValidatorContext()).interpret(this.expression);
+    }
+
+    @Benchmark
+    public boolean evaluateProgram() {
+        return this.evaluator.evaluate(this.program);
+    }
+}
@@ -0,0 +1,65 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.expression.Expression;
+import com.dnevi.expression.validator.expression.Lexer;
+import com.dnevi.expression.validator.expression.Parser;
+import com.dnevi.expression.validator.expression.StatePathResolver;
+import com.dnevi.expression.validator.expression.Token;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recursive descent against precedence climbing on a deeply nested expression, one clause inside
+ * many parentheses, and on a wide one, many clauses without parentheses
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IterativeParserBenchmark {
+    private static final int PROPERTIES = 100;
+
+    @Param({"deep", "wide"})
+    private String shape;
+
+    @Param({"1000"})
+    private int size;
+
+    private StatePathResolver pathResolver;
+    private List<Token> tokens;
+
+    @Setup
+    public void setup() {
+        this.pathResolver = new StatePathResolver(BenchmarkData.schema(PROPERTIES), true);
+        String expression = "deep".equals(this.shape)
+                ? BenchmarkData.expression(1, this.size, PROPERTIES)
+                : BenchmarkData.expression(this.size, 0, PROPERTIES);
+        this.tokens = new Lexer(expression, new ValidatorContext()).scanTokens();
+    }
+
+    @Benchmark
+    public Expression recursive() {
+        return new Parser(this.tokens, this.pathResolver, new ValidatorContext()).parse();
+    }
+
+    @Benchmark
+    public Expression iterative() {
+        return new Parser(this.tokens, this.pathResolver, new ValidatorContext())
+                .parseIteratively();
+    }
+}
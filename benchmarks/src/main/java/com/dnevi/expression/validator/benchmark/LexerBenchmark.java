@@ -0,0 +1,56 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.expression.Lexer;
+import com.dnevi.expression.validator.expression.Token;
+import com.dnevi.expression.validator.expression.TokenBuffer;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int clauses;
+
+    @Param({"0", "8"})
+    private int depth;
+
+    private String expression;
+    private Lexer rangeLexer;
+    private TokenBuffer buffer;
+
+    @Setup
+    public void setup() {
+        this.expression = BenchmarkData.expression(this.clauses, this.depth, 100);
+        this.rangeLexer = new Lexer(new ValidatorContext());
+        this.buffer = new TokenBuffer();
+    }
+
+    @Benchmark
+    public List<Token> scanTokens() {
+        return new Lexer(this.expression, new ValidatorContext()).scanTokens();
+    }
+
+    @Benchmark
+    public TokenBuffer scanRanges() {
+        return this.rangeLexer.scanTokens(this.expression, this.buffer);
+    }
+}
@@ -0,0 +1,92 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.expression.ExpressionValidator;
+import com.dnevi.expression.validator.schema.StateSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation of an import where every fifth expression is malformed, half of them with an
+ * unclosed parenthesis and half with an unknown identifier
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MalformedExpressionBenchmark {
+
+    @Param({"1000"})
+    private int count;
+
+    private StateSchema schema;
+    private List<String> expressions;
+    private ExpressionValidator validator;
+    private ExpressionValidator throwingValidator;
+
+    @Setup
+    public void setup() {
+        this.schema = BenchmarkData.schema(100);
+        this.expressions = new ArrayList<>(BenchmarkData.expressions(this.count, 3, 100, 42));
+        for (int i = 0; i < this.count; i += 5) {
+            this.expressions.set(i, i % 10 == 0 ? "(" + this.expressions.get(i)
+                    : this.expressions.get(i) + " && $.name != John");
+        }
+        this.validator = new ExpressionValidator();
+        this.throwingValidator = new ExpressionValidator(null, true);
+    }
+
+    @Benchmark
+    public int reportErrors() {
+        int validCount = 0;
+        for (String expression : this.expressions) {
+            if (this.validator.check(expression, this.schema).isValid()) {
+                validCount++;
+            }
+        }
+
+        return validCount;
+    }
+
+    @Benchmark
+    public int verdictOnly() {
+        int validCount = 0;
+        for (String expression : this.expressions) {
+            if (this.validator.isValid(expression, this.schema)) {
+                validCount++;
+            }
+        }
+
+        return validCount;
+    }
+
+    @Benchmark
+    public int throwExceptions() {
+        int validCount = 0;
+        for (String expression : this.expressions) {
+            try {
+                if (this.throwingValidator.check(expression, this.schema).isValid()) {
+                    validCount++;
+                }
+            } catch (RuntimeException e) {
+                // Malformed expression
+            }
+        }
+
+        return validCount;
+    }
+}
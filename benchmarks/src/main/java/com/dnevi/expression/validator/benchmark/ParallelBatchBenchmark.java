@@ -0,0 +1,67 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.expression.BatchResult;
+import com.dnevi.expression.validator.expression.BatchValidator;
+import com.dnevi.expression.validator.expression.ParallelBatchValidator;
+import com.dnevi.expression.validator.schema.StateSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of batch validation from one to N cores. Compare {@link #parallel()} for each thread
+ * count against the {@link #sequential()} baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ParallelBatchBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    @Param({"10000"})
+    private int expressions;
+
+    private StateSchema schema;
+    private List<String> batch;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        this.schema = BenchmarkData.schema(1_000);
+        this.batch = BenchmarkData.expressions(this.expressions, 1_000);
+        this.pool = new ForkJoinPool(this.threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Benchmark
+    public BatchResult sequential() {
+        return new BatchValidator(this.schema).validateAll(this.batch);
+    }
+
+    @Benchmark
+    public BatchResult parallel() {
+        return new ParallelBatchValidator(this.schema, this.pool, null).validateAll(this.batch);
+    }
+}
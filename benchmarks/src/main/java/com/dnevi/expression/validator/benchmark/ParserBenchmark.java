@@ -0,0 +1,86 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.expression.Expression;
+import com.dnevi.expression.validator.expression.Lexer;
+import com.dnevi.expression.validator.expression.Parser;
+import com.dnevi.expression.validator.expression.Token;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser construction resolves every JSON_PATH against the schema, so {@link #construct()}
+ * measures path resolution and {@link #constructAndParse()} adds recursive descent on top of it.
+ * {@link #parse(Prepared)} measures recursive descent alone on a parser constructed before every
+ * invocation. Such setup adds reading the clock around every invocation, which is noticeable only
+ * for the shortest expressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int clauses;
+
+    @Param({"0", "8"})
+    private int depth;
+
+    @Param({"10", "1000", "100000"})
+    private int properties;
+
+    private StateSchema schema;
+    private List<Token> tokens;
+
+    @Setup
+    public void setup() {
+        this.schema = BenchmarkData.schema(this.properties);
+        String expression = BenchmarkData.expression(this.clauses, this.depth, this.properties);
+        this.tokens = new Lexer(expression, new ValidatorContext()).scanTokens();
+    }
+
+    @Benchmark
+    public Parser construct() {
+        return new Parser(this.tokens, this.schema, new ValidatorContext());
+    }
+
+    @Benchmark
+    public Expression constructAndParse() {
+        return new Parser(this.tokens, this.schema, new ValidatorContext()).parse();
+    }
+
+    @Benchmark
+    public Expression parse(Prepared prepared) {
+        return prepared.parser.parse();
+    }
+
+    /**
+     * Parser with resolved paths, which parses only once
+     */
+    @State(Scope.Thread)
+    public static class Prepared {
+        private Parser parser;
+
+        @Setup(Level.Invocation)
+        public void setup(ParserBenchmark benchmark) {
+            this.parser = new Parser(benchmark.tokens, benchmark.schema, new ValidatorContext());
+        }
+    }
+}
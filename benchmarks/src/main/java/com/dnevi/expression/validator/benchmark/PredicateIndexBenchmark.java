@@ -0,0 +1,74 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.evaluation.PredicateIndex;
+import com.dnevi.expression.validator.evaluation.RuleSet;
+import com.dnevi.expression.validator.evaluation.StateValues;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching of already extracted values against rules over a few paths with different constants,
+ * linearly and through the predicate index
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicateIndexBenchmark {
+    private static final int PROPERTIES = 100;
+
+    @Param({"2000", "20000"})
+    private int rules;
+
+    @Param({"10"})
+    private int paths;
+
+    private RuleSet ruleSet;
+    private PredicateIndex index;
+    private StateValues values;
+
+    @Setup
+    public void setup() throws IOException {
+        StateSchema schema = BenchmarkData.schema(PROPERTIES);
+        this.ruleSet = RuleSet.compile(BenchmarkData.expressions(this.rules, this.paths), schema);
+        this.index = PredicateIndex.build(this.ruleSet);
+
+        this.values = new StateValues(this.ruleSet.getExtractor().getSlotCount());
+        try (JsonParser parser = new JsonFactory()
+                .createParser(BenchmarkData.document(PROPERTIES, 1))) {
+            this.ruleSet.getExtractor().extract(parser, this.values);
+        }
+    }
+
+    @Benchmark
+    public BitSet linear() {
+        BitSet matches = new BitSet(this.rules);
+        this.ruleSet.evaluate(this.values, matches);
+        return matches;
+    }
+
+    @Benchmark
+    public BitSet indexed() {
+        BitSet matches = new BitSet(this.rules);
+        this.index.evaluate(this.values, matches);
+        return matches;
+    }
+}
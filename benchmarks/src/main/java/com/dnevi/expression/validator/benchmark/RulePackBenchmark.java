@@ -0,0 +1,67 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.evaluation.RulePack;
+import com.dnevi.expression.validator.evaluation.RuleSet;
+import com.dnevi.expression.validator.schema.StateSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time of a rule set, read from a precompiled rule pack compared with compiling every
+ * rule from its expression
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulePackBenchmark {
+    private static final int PROPERTIES = 100;
+
+    @Param({"10000", "150000"})
+    private int rules;
+
+    private StateSchema schema;
+    private List<String> expressions;
+    private Path pack;
+
+    @Setup
+    public void setup() throws IOException {
+        this.schema = BenchmarkData.schema(PROPERTIES);
+        this.expressions = BenchmarkData.expressions(this.rules, 3, PROPERTIES, 42);
+        this.pack = Files.createTempFile("rules", ".pack");
+        RulePack.write(RuleSet.compile(this.expressions, this.schema), this.pack);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.pack);
+    }
+
+    @Benchmark
+    public RuleSet compile() {
+        return RuleSet.compile(this.expressions, this.schema);
+    }
+
+    @Benchmark
+    public RuleSet readPack() throws IOException {
+        return RulePack.read(this.pack, this.schema);
+    }
+}
@@ -0,0 +1,70 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.evaluation.RuleSet;
+import com.dnevi.expression.validator.evaluation.StateEvaluator;
+import com.dnevi.expression.validator.schema.StateSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of many rules against one document with shared path extraction, compared with
+ * evaluating every rule on its own
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleSetBenchmark {
+    private static final int PROPERTIES = 100;
+
+    @Param({"300", "2000"})
+    private int rules;
+
+    private RuleSet ruleSet;
+    private StateEvaluator[] evaluators;
+    private byte[] document;
+
+    @Setup
+    public void setup() {
+        StateSchema schema = BenchmarkData.schema(PROPERTIES);
+        List<String> expressions = BenchmarkData.expressions(this.rules, PROPERTIES);
+        this.ruleSet = RuleSet.compile(expressions, schema);
+        this.evaluators = new StateEvaluator[expressions.size()];
+        for (int i = 0; i < this.evaluators.length; i++) {
+            this.evaluators[i] = StateEvaluator.compile(expressions.get(i), schema);
+        }
+        this.document = BenchmarkData.document(PROPERTIES, 1);
+    }
+
+    @Benchmark
+    public BitSet ruleSet() {
+        return this.ruleSet.evaluate(this.document);
+    }
+
+    @Benchmark
+    public BitSet eachRule() {
+        BitSet matches = new BitSet(this.evaluators.length);
+        for (int i = 0; i < this.evaluators.length; i++) {
+            if (this.evaluators[i].evaluate(this.document)) {
+                matches.set(i);
+            }
+        }
+
+        return matches;
+    }
+}
@@ -0,0 +1,90 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.evaluation.RuleSet;
+import com.dnevi.expression.validator.evaluation.StateBlock;
+import com.dnevi.expression.validator.schema.StateSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of a rule set over newline delimited documents, block by block over columns compared
+ * with document by document. One operation evaluates all {@value #DOCUMENTS} documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateBlockBenchmark {
+    private static final int PROPERTIES = 100;
+    private static final int DOCUMENTS = 4096;
+
+    @Param({"300", "2000"})
+    private int rules;
+
+    @Param({"256", "4096"})
+    private int blockSize;
+
+    private RuleSet ruleSet;
+    private StateBlock block;
+    private byte[] lines;
+
+    @Setup
+    public void setup() {
+        StateSchema schema = BenchmarkData.schema(PROPERTIES);
+        List<String> expressions = BenchmarkData.expressions(this.rules, 3, PROPERTIES, 42);
+        this.ruleSet = RuleSet.compile(expressions, schema);
+        this.block = new StateBlock(this.ruleSet.getExtractor(), this.blockSize);
+
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            lines.writeBytes(BenchmarkData.document(PROPERTIES, i));
+            lines.write('\n');
+        }
+        this.lines = lines.toByteArray();
+    }
+
+    @Benchmark
+    public int blocks() {
+        int matches = 0;
+        int offset = 0;
+        while (offset < this.lines.length) {
+            this.block.clear();
+            offset = this.block.addLines(this.lines, offset, this.lines.length - offset);
+            for (BitSet selection : this.ruleSet.evaluate(this.block)) {
+                matches += selection.cardinality();
+            }
+        }
+
+        return matches;
+    }
+
+    @Benchmark
+    public int documents() {
+        int matches = 0;
+        int start = 0;
+        for (int i = 0; i < this.lines.length; i++) {
+            if (this.lines[i] == '\n') {
+                matches += this.ruleSet.evaluate(this.lines, start, i - start).cardinality();
+                start = i + 1;
+            }
+        }
+
+        return matches;
+    }
+}
@@ -0,0 +1,82 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.evaluation.StateEvaluator;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of one expression against state documents, by the condition tree and by the condition
+ * compiled to bytecode, compared with only reading the document into a JSON tree
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateEvaluatorBenchmark {
+    private static final int DOCUMENTS = 64;
+
+    @Param({"10", "100", "1000"})
+    private int properties;
+
+    @Param({"1", "10"})
+    private int clauses;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private StateEvaluator evaluator;
+    private StateEvaluator promoted;
+    private byte[][] documents;
+    private int next;
+
+    @Setup
+    public void setup() {
+        StateSchema schema = BenchmarkData.schema(this.properties);
+        this.evaluator = StateEvaluator
+                .compile(BenchmarkData.expression(this.clauses, 0, this.properties), schema);
+        this.documents = new byte[DOCUMENTS][];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            this.documents[i] = BenchmarkData.document(this.properties, i);
+        }
+
+        this.promoted = this.evaluator.promoting(1);
+        this.promoted.evaluate(this.documents[0]);
+        ForkJoinPool.commonPool().awaitQuiescence(1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public boolean evaluate() {
+        return this.evaluator.evaluate(this.nextDocument());
+    }
+
+    @Benchmark
+    public boolean evaluatePromoted() {
+        return this.promoted.evaluate(this.nextDocument());
+    }
+
+    @Benchmark
+    public JsonNode readTree() throws IOException {
+        return this.mapper.readTree(this.nextDocument());
+    }
+
+    private byte[] nextDocument() {
+        this.next = (this.next + 1) & (DOCUMENTS - 1);
+        return this.documents[this.next];
+    }
+}
@@ -0,0 +1,86 @@
+package com.dnevi.expression.validator.benchmark;
+
+import com.dnevi.expression.validator.evaluation.ArrayColumn;
+import com.dnevi.expression.validator.evaluation.StateEvaluator;
+import com.dnevi.expression.validator.expression.TokenType;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of wildcard paths over documents with many array items, compared with reading the
+ * document into a JSON tree and with the column aggregation alone
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WildcardBenchmark {
+    private static final String SCHEMA = "{\"definition\":{\"type\":\"OBJECT\",\"properties\":"
+            + "{\"items\":{\"type\":\"ARRAY\",\"items\":{\"type\":\"OBJECT\",\"properties\":"
+            + "{\"price\":{\"type\":\"NUMBER\"},\"quantity\":{\"type\":\"INTEGER\"}}}}}}}";
+
+    @Param({"10", "100", "1000"})
+    private int items;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private StateEvaluator any;
+    private StateEvaluator all;
+    private byte[] document;
+    private ArrayColumn column;
+
+    @Setup
+    public void setup() throws IOException {
+        StateSchema schema = this.mapper.readValue(SCHEMA, StateSchema.class);
+        // Neither is decided before the last item
+        this.any = StateEvaluator.compile("$.items[*].price > 999", schema);
+        this.all = StateEvaluator.compile("$.items[all].quantity >= 1", schema);
+
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        this.column = new ArrayColumn();
+        for (int i = 0; i < this.items; i++) {
+            double price = (i * 37) % 1000 + 0.5;
+            json.append(i > 0 ? "," : "").append("{\"price\":").append(price)
+                    .append(",\"quantity\":").append(1 + i % 5).append('}');
+            this.column.addNumber(price);
+        }
+        this.document = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public boolean evaluateAny() {
+        return this.any.evaluate(this.document);
+    }
+
+    @Benchmark
+    public boolean evaluateAll() {
+        return this.all.evaluate(this.document);
+    }
+
+    @Benchmark
+    public JsonNode readTree() throws IOException {
+        return this.mapper.readTree(this.document);
+    }
+
+    @Benchmark
+    public int countColumn() {
+        return this.column.count(TokenType.GREATER, 999);
+    }
+}
@@ -1,29 +1,161 @@
 package com.dnevi.expression.validator;
 
-import com.dnevi.expression.validator.expression.ExpressionValidator;
+import com.dnevi.expression.validator.evaluation.NdjsonEvaluator;
+import com.dnevi.expression.validator.evaluation.RuleSet;
 import com.dnevi.expression.validator.schema.StateSchema;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
+/**
+ * Command line evaluation of rules against newline delimited state documents.
+ *
+ * <pre>
+ * java -jar validator.jar -s schema.json -r rules.txt [-o matches.tsv] [-t threads] a.ndjson ...
+ * </pre>
+ *
+ * <p>
+ * The rules file holds one expression per line, blank lines and lines starting with {@code #} are
+ * skipped, and rules are numbered from 0 in the order of the file. For every document matching at
+ * least one rule a line {@code <file>\t<offset>\t<rules>} is written, see {@link NdjsonEvaluator}.
+ * </p>
+ */
 @Slf4j
 public class ValidatorApplication {
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    public static void main(String[] args) {
+        System.exit(ValidatorApplication.run(args, System.out));
+    }
 
     /**
-     * Example use of expression validator. To do - Implement CLI arguments parser.
+     * Method will evaluate rules against files given by arguments
+     *
+     * @param args Command line arguments
+     * @param standardOutput Output used when no output file is given
+     * @return Exit code, 0 on success, 1 for invalid arguments and 2 if evaluation failed
      */
-    public static void main(String[] args) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        InputStream inputStream = ValidatorApplication.class
-                .getResourceAsStream("json-schema-classpath");
-        StateSchema schema = mapper.readValue(inputStream, new TypeReference<>() {
-        });
-
-        var expression = "A valid json schema expression.";
-        var validator = new ExpressionValidator();
-        validator.validate(expression, schema);
+    static int run(String[] args, OutputStream standardOutput) {
+        Options options = ValidatorApplication.options();
+        CommandLine line;
+        try {
+            line = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            log.error(e.getMessage());
+            ValidatorApplication.printHelp(options);
+            return 1;
+        }
+        if (line.hasOption("help") || line.getArgList().isEmpty()) {
+            ValidatorApplication.printHelp(options);
+            return line.hasOption("help") ? 0 : 1;
+        }
+
+        int threads;
+        try {
+            threads = line.hasOption("threads") ? Integer.parseInt(line.getOptionValue("threads"))
+                    : Runtime.getRuntime().availableProcessors();
+        } catch (NumberFormatException e) {
+            threads = 0;
+        }
+        if (threads <= 0) {
+            log.error("Number of threads '{}' is not a positive integer.",
+                    line.getOptionValue("threads"));
+            return 1;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            StateSchema schema = ValidatorApplication.readSchema(
+                    Paths.get(line.getOptionValue("schema")));
+            List<String> rules = ValidatorApplication.readRules(
+                    Paths.get(line.getOptionValue("rules")));
+            RuleSet ruleSet = RuleSet.compile(rules, schema);
+            NdjsonEvaluator evaluator = new NdjsonEvaluator(ruleSet, executor, threads);
+
+            try (OutputStream output = ValidatorApplication.output(line, standardOutput)) {
+                for (String file : line.getArgList()) {
+                    evaluator.evaluate(Paths.get(file), output);
+                }
+            }
+            log.info("Evaluated {} rules against {} documents, {} matching and {} invalid.",
+                    ruleSet.size(), evaluator.getDocumentCount(), evaluator.getMatchingCount(),
+                    evaluator.getInvalidCount());
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            log.error("Evaluation failed. {}", e.getMessage());
+            return 2;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Options options() {
+        Options options = new Options();
+        options.addOption(Option.builder("s").longOpt("schema").hasArg().argName("file")
+                .required().desc("State schema JSON file").build());
+        options.addOption(Option.builder("r").longOpt("rules").hasArg().argName("file")
+                .required().desc("Rules file, one expression per line").build());
+        options.addOption(Option.builder("o").longOpt("output").hasArg().argName("file")
+                .desc("Output file of matching documents, standard output by default").build());
+        options.addOption(Option.builder("t").longOpt("threads").hasArg().argName("count")
+                .desc("Number of evaluation threads, available processors by default").build());
+        options.addOption(Option.builder("h").longOpt("help").desc("Print this help").build());
+
+        return options;
+    }
+
+    private static void printHelp(Options options) {
+        new HelpFormatter().printHelp("validator [options] <ndjson file>...", options);
+    }
+
+    private static StateSchema readSchema(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return new ObjectMapper().readValue(input, new TypeReference<>() {
+            });
+        }
+    }
+
+    private static List<String> readRules(Path file) throws IOException {
+        return Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+                .map(String::strip)
+                .filter(rule -> !rule.isEmpty() && !rule.startsWith("#"))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return Buffered output, closing it does not close the standard output
+     */
+    private static OutputStream output(CommandLine line, OutputStream standardOutput)
+            throws IOException {
+        if (line.hasOption("output")) {
+            return new BufferedOutputStream(Files.newOutputStream(
+                    Paths.get(line.getOptionValue("output"))), OUTPUT_BUFFER_SIZE);
+        }
+
+        return new BufferedOutputStream(standardOutput, OUTPUT_BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                this.flush();
+            }
+        };
     }
 }
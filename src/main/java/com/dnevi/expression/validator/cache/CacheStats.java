@@ -0,0 +1,42 @@
+package com.dnevi.expression.validator.cache;
+
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of {@link ExpressionCache} counters
+ */
+@Getter
+public class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    /**
+     * Number of cached expressions whose evaluator is compiled to bytecode
+     */
+    private final long promotionCount;
+    private final long size;
+    private final long weight;
+
+    CacheStats(long hitCount, long missCount, long evictionCount, long promotionCount, long size,
+            long weight) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.promotionCount = promotionCount;
+        this.size = size;
+        this.weight = weight;
+    }
+
+    /**
+     * @return Ratio of hits to all lookups, or 1.0 if there were no lookups yet
+     */
+    public double hitRate() {
+        long requestCount = this.hitCount + this.missCount;
+        return requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount;
+    }
+
+    public String toString() {
+        return String.format("hits=%d, misses=%d, evictions=%d, promotions=%d, size=%d, weight=%d",
+                hitCount, missCount, evictionCount, promotionCount, size, weight);
+    }
+}
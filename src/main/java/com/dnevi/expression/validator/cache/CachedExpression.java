@@ -0,0 +1,67 @@
+package com.dnevi.expression.validator.cache;
+
+import com.dnevi.expression.validator.evaluation.StateEvaluator;
+import com.dnevi.expression.validator.expression.Expression;
+import com.dnevi.expression.validator.expression.Token;
+import com.dnevi.expression.validator.validation.ValidationOutcome;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compiled artifacts of one expression validated against one {@link
+ * com.dnevi.expression.validator.schema.StateSchema}: scanned tokens, parsed syntax tree and the
+ * final verdict together with collected validation errors.
+ *
+ * <p>
+ * An entry may also keep the {@link StateEvaluator} of the expression, whose adaptive plan learns
+ * from all documents evaluated through this entry. Once it evaluated enough documents, the plan is
+ * promoted to bytecode, see {@link ExpressionCache#getPromotionThreshold()}, and the generated
+ * class is unloaded together with this entry.
+ * </p>
+ */
+@Getter
+public class CachedExpression {
+    private final String expression;
+    private final List<Token> tokens;
+    private final Expression syntaxTree;
+    private final ValidationOutcome outcome;
+    private volatile StateEvaluator evaluator;
+
+    public CachedExpression(String expression, List<Token> tokens, Expression syntaxTree,
+            ValidationOutcome outcome) {
+        this.expression = expression;
+        this.tokens = Collections.unmodifiableList(tokens);
+        this.syntaxTree = syntaxTree;
+        this.outcome = outcome;
+    }
+
+    /**
+     * @return Whether the evaluator kept in this entry is promoted to bytecode
+     */
+    public boolean isPromoted() {
+        StateEvaluator evaluator = this.evaluator;
+        return evaluator != null && evaluator.isPromoted();
+    }
+
+    /**
+     * Method will return evaluator kept in this entry, or compile and keep it if there is none. If
+     * the compiler throws, nothing is kept.
+     */
+    public StateEvaluator computeEvaluatorIfAbsent(Supplier<StateEvaluator> compiler) {
+        StateEvaluator evaluator = this.evaluator;
+        if (evaluator != null) {
+            return evaluator;
+        }
+
+        synchronized (this) {
+            if (this.evaluator == null) {
+                this.evaluator = compiler.get();
+            }
+
+            return this.evaluator;
+        }
+    }
+}
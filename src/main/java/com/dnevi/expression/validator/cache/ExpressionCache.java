@@ -0,0 +1,322 @@
+package com.dnevi.expression.validator.cache;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded, concurrent cache of {@link CachedExpression} artifacts keyed by expression text and
+ * {@link StateSchema#getFingerprint()}.
+ *
+ * <p>
+ * Entries are spread over independently locked segments, each one keeping its entries in least
+ * recently used order. A segment evicts its oldest entries as soon as it exceeds its share of
+ * either the maximum size or the maximum weight.
+ * </p>
+ *
+ * <p>
+ * Optionally, the {@link com.dnevi.expression.validator.evaluation.StateEvaluator} kept by an
+ * entry compiles its condition to generated bytecode once it evaluated as many documents as the
+ * promotion threshold, see {@link CachedExpression#isPromoted()}.
+ * </p>
+ */
+public class ExpressionCache {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final ToIntFunction<CachedExpression> weigher;
+    private final long promotionThreshold;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Creates cache which weighs entries by expression length and number of scanned tokens
+     *
+     * @param maximumSize Maximum number of cached expressions
+     * @param maximumWeight Maximum total weight of cached expressions
+     */
+    public ExpressionCache(long maximumSize, long maximumWeight) {
+        this(maximumSize, maximumWeight,
+                e -> e.getExpression().length() + e.getTokens().size());
+    }
+
+    /**
+     * @param maximumSize Maximum number of cached expressions
+     * @param maximumWeight Maximum total weight of cached expressions
+     * @param weigher Function which computes weight of a single cached expression
+     */
+    public ExpressionCache(long maximumSize, long maximumWeight,
+            ToIntFunction<CachedExpression> weigher) {
+        this(maximumSize, maximumWeight, weigher, 0);
+    }
+
+    /**
+     * @param maximumSize Maximum number of cached expressions
+     * @param maximumWeight Maximum total weight of cached expressions
+     * @param weigher Function which computes weight of a single cached expression
+     * @param promotionThreshold Number of evaluated documents after which the evaluator of an
+     * expression is compiled to bytecode, or 0 to never compile
+     */
+    public ExpressionCache(long maximumSize, long maximumWeight,
+            ToIntFunction<CachedExpression> weigher, long promotionThreshold) {
+        if (maximumSize <= 0 || maximumWeight <= 0) {
+            throw new IllegalArgumentException("Cache size and weight must be positive.");
+        }
+        if (promotionThreshold < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Promotion threshold must not be negative, was %d.", promotionThreshold));
+        }
+
+        int segmentCount = (int) Math.min(MAX_SEGMENTS, Math.min(maximumSize, maximumWeight));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment(
+                    Math.max(1L, maximumSize / segmentCount),
+                    Math.max(1L, maximumWeight / segmentCount));
+        }
+        this.weigher = Objects.requireNonNull(weigher);
+        this.promotionThreshold = promotionThreshold;
+    }
+
+    /**
+     * Method will return cached artifacts or compile and cache them on a miss. The loader runs
+     * outside of any lock, so two threads missing on the same key may both compile it; the first
+     * stored result wins. If the loader throws, nothing is cached.
+     *
+     * @param expression Expression text
+     * @param stateSchema Schema the expression is validated against
+     * @param loader Compiles expression on a cache miss
+     * @return Cached or freshly compiled artifacts
+     */
+    public CachedExpression get(String expression, StateSchema stateSchema,
+            Supplier<CachedExpression> loader) {
+        return this.get(expression, stateSchema, false, loader);
+    }
+
+    /**
+     * Variant of {@link #get(String, StateSchema, Supplier)} for expressions interpreted in
+     * short-circuit mode, whose outcomes are cached apart from the default ones
+     *
+     * @param shortCircuit Whether the loader interprets the expression in short-circuit mode
+     */
+    public CachedExpression get(String expression, StateSchema stateSchema, boolean shortCircuit,
+            Supplier<CachedExpression> loader) {
+        Key key = new Key(expression, stateSchema.getFingerprint(), shortCircuit);
+        Segment segment = this.segmentFor(key);
+
+        CachedExpression cached = segment.get(key);
+        if (cached != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+            CachedExpression compiled = loader.get();
+            cached = segment.putIfAbsent(key, compiled, this.weigher.applyAsInt(compiled));
+        }
+
+        return cached;
+    }
+
+    /**
+     * @return Cached artifacts or null if the expression is not cached for the schema
+     */
+    public CachedExpression getIfPresent(String expression, StateSchema stateSchema) {
+        return this.getIfPresent(expression, stateSchema, false);
+    }
+
+    /**
+     * @param shortCircuit Whether the expression was interpreted in short-circuit mode
+     * @return Cached artifacts or null if the expression is not cached for the schema and mode
+     */
+    public CachedExpression getIfPresent(String expression, StateSchema stateSchema,
+            boolean shortCircuit) {
+        Key key = new Key(expression, stateSchema.getFingerprint(), shortCircuit);
+        CachedExpression cached = this.segmentFor(key).get(key);
+        if (cached == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+
+        return cached;
+    }
+
+    /**
+     * Method will discard all expressions compiled against the schema, i.e. a schema which is no
+     * longer used. Entries are keyed by content, so the schema may also be a copy of the discarded
+     * one with the same fingerprint.
+     *
+     * @param stateSchema Schema whose expressions are discarded
+     */
+    public void invalidate(StateSchema stateSchema) {
+        this.invalidate(stateSchema.getFingerprint());
+    }
+
+    /**
+     * Method will discard expressions compiled against the previous schema when it is replaced by
+     * a reloaded one. If the content of the schema did not change, both have the same fingerprint
+     * and entries stay valid, so nothing is discarded.
+     *
+     * @param previous Schema used before the reload
+     * @param reloaded Schema used after the reload
+     */
+    public void invalidate(StateSchema previous, StateSchema reloaded) {
+        if (previous.getFingerprint() != reloaded.getFingerprint()) {
+            this.invalidate(previous.getFingerprint());
+        }
+    }
+
+    private void invalidate(long fingerprint) {
+        for (Segment segment : this.segments) {
+            segment.removeIf(fingerprint);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return Number of documents an evaluator kept by an entry evaluates before it is compiled to
+     * bytecode, or 0 if it is never compiled
+     */
+    public long getPromotionThreshold() {
+        return this.promotionThreshold;
+    }
+
+    public CacheStats stats() {
+        long size = 0;
+        long weight = 0;
+        long promotionCount = 0;
+        for (Segment segment : this.segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+                weight += segment.weight;
+                for (Entry entry : segment.entries.values()) {
+                    if (entry.value.isPromoted()) {
+                        promotionCount++;
+                    }
+                }
+            }
+        }
+
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(),
+                promotionCount, size, weight);
+    }
+
+    private Segment segmentFor(Key key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return this.segments[Math.floorMod(hash, this.segments.length)];
+    }
+
+    private final class Segment {
+        private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maximumSize;
+        private final long maximumWeight;
+        private long weight;
+
+        private Segment(long maximumSize, long maximumWeight) {
+            this.maximumSize = maximumSize;
+            this.maximumWeight = maximumWeight;
+        }
+
+        private synchronized CachedExpression get(Key key) {
+            Entry entry = entries.get(key);
+            return entry == null ? null : entry.value;
+        }
+
+        private synchronized CachedExpression putIfAbsent(Key key, CachedExpression value,
+                int entryWeight) {
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                return existing.value;
+            }
+
+            entries.put(key, new Entry(value, entryWeight));
+            weight += entryWeight;
+            this.evict();
+
+            return value;
+        }
+
+        private synchronized void removeIf(long fingerprint) {
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> entry = iterator.next();
+                if (entry.getKey().fingerprint == fingerprint) {
+                    weight -= entry.getValue().weight;
+                    iterator.remove();
+                }
+            }
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            weight = 0;
+        }
+
+        private void evict() {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while ((entries.size() > maximumSize || weight > maximumWeight)
+                    && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                weight -= eldest.weight;
+                iterator.remove();
+                evictionCount.increment();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final CachedExpression value;
+        private final int weight;
+
+        private Entry(CachedExpression value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Key {
+        private final String expression;
+        private final long fingerprint;
+        private final boolean shortCircuit;
+        private final int hash;
+
+        private Key(String expression, long fingerprint, boolean shortCircuit) {
+            this.expression = Objects.requireNonNull(expression);
+            this.fingerprint = fingerprint;
+            this.shortCircuit = shortCircuit;
+            this.hash = 31 * (31 * expression.hashCode() + Long.hashCode(fingerprint))
+                    + Boolean.hashCode(shortCircuit);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return fingerprint == key.fingerprint && shortCircuit == key.shortCircuit
+                    && expression.equals(key.expression);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
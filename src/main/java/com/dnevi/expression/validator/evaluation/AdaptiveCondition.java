@@ -0,0 +1,173 @@
+package com.dnevi.expression.validator.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Chain of {@code &&} or {@code ||} operands which reorders itself by observed cost and
+ * selectivity.
+ *
+ * <p>
+ * Both operators are commutative for conditions, which have no side effects, so operands may run
+ * in any order. Every operand counts how often it ran, how often it decided the result, a false
+ * operand of {@code &&} or a true operand of {@code ||}, and how many comparisons it cost. Every
+ * {@value #REORDER_INTERVAL} evaluations the operands are sorted by cost per decided result, so
+ * cheap operands which usually decide run first, and counters are halved to follow drifting
+ * documents.
+ * </p>
+ *
+ * <p>
+ * Counters are updated without synchronization, so under concurrent evaluation some updates are
+ * lost and statistics are approximate. The order itself is replaced atomically, results are always
+ * exact.
+ * </p>
+ */
+public final class AdaptiveCondition extends Condition {
+    static final int REORDER_INTERVAL = 1024;
+
+    private final boolean and;
+    private final Condition[] operands;
+    private final long[] runCounts;
+    private final long[] decisionCounts;
+    private final long[] costSums;
+    private volatile int[] order;
+    private long evaluationCount;
+    private long costSum;
+
+    private AdaptiveCondition(boolean and, Condition[] operands) {
+        this.and = and;
+        this.operands = operands;
+        this.runCounts = new long[operands.length];
+        this.decisionCounts = new long[operands.length];
+        this.costSums = new long[operands.length];
+        this.order = new int[operands.length];
+        Arrays.setAll(this.order, i -> i);
+    }
+
+    /**
+     * Method will replace every chain of {@code &&} or {@code ||} in the condition tree with an
+     * adaptive one. Conditions nested in operands of comparisons are kept as they are.
+     *
+     * @return Condition with the same results as given one
+     */
+    public static Condition adapt(Condition condition) {
+        if (!(condition instanceof And) && !(condition instanceof Or)) {
+            return condition;
+        }
+
+        boolean and = condition instanceof And;
+        List<Condition> operands = new ArrayList<>();
+        AdaptiveCondition.flatten(condition, and, operands);
+
+        return new AdaptiveCondition(and, operands.stream()
+                .map(AdaptiveCondition::adapt)
+                .toArray(Condition[]::new));
+    }
+
+    private static void flatten(Condition condition, boolean and, List<Condition> operands) {
+        if (and && condition instanceof And) {
+            AdaptiveCondition.flatten(((And) condition).getLeft(), true, operands);
+            AdaptiveCondition.flatten(((And) condition).getRight(), true, operands);
+        } else if (!and && condition instanceof Or) {
+            AdaptiveCondition.flatten(((Or) condition).getLeft(), false, operands);
+            AdaptiveCondition.flatten(((Or) condition).getRight(), false, operands);
+        } else {
+            operands.add(condition);
+        }
+    }
+
+    public boolean isAnd() {
+        return this.and;
+    }
+
+    /**
+     * @return Operands in the order they currently run
+     */
+    public List<Condition> getOperands() {
+        return Collections.unmodifiableList(Arrays.stream(this.order)
+                .mapToObj(i -> this.operands[i])
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public boolean test(StateValues values) {
+        return (this.run(values) & 1) != 0;
+    }
+
+    /**
+     * @return Comparisons run shifted left by one, with the result in the lowest bit
+     */
+    private long run(StateValues values) {
+        int[] order = this.order;
+        boolean result = this.and;
+        long cost = 0;
+        for (int i : order) {
+            long run = AdaptiveCondition.run(this.operands[i], values);
+            boolean isTrue = (run & 1) != 0;
+
+            this.runCounts[i]++;
+            this.costSums[i] += run >>> 1;
+            cost += run >>> 1;
+            if (isTrue != this.and) {
+                this.decisionCounts[i]++;
+                result = isTrue;
+                break;
+            }
+        }
+
+        this.costSum += cost;
+        if (++this.evaluationCount % REORDER_INTERVAL == 0) {
+            this.reorder(order);
+        }
+
+        return cost << 1 | (result ? 1 : 0);
+    }
+
+    private static long run(Condition condition, StateValues values) {
+        if (condition instanceof AdaptiveCondition) {
+            return ((AdaptiveCondition) condition).run(values);
+        }
+
+        return 1L << 1 | (condition.test(values) ? 1 : 0);
+    }
+
+    private void reorder(int[] order) {
+        double[] ranks = new double[this.operands.length];
+        for (int i = 0; i < ranks.length; i++) {
+            double cost = this.runCounts[i] == 0 ? 1.0 : (double) this.costSums[i]
+                    / this.runCounts[i];
+            // Laplace smoothing keeps operands which never ran, or never decided, comparable
+            double decisionRate = (this.decisionCounts[i] + 1.0) / (this.runCounts[i] + 2.0);
+            ranks[i] = cost / decisionRate;
+
+            this.runCounts[i] /= 2;
+            this.decisionCounts[i] /= 2;
+            this.costSums[i] /= 2;
+        }
+
+        // Stable sort keeps the current order of operands with equal rank
+        this.order = Arrays.stream(order)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> ranks[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * @return Average number of comparisons one evaluation runs
+     */
+    public double getAverageCost() {
+        long evaluationCount = this.evaluationCount;
+        return evaluationCount == 0 ? 0 : (double) this.costSum / evaluationCount;
+    }
+
+    public String toString() {
+        return this.getOperands().stream()
+                .map(Condition::toString)
+                .collect(Collectors.joining(this.and ? " && " : " || ", "(", ")"));
+    }
+}
@@ -0,0 +1,359 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.expression.TokenType;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Values of one wildcard state path, i.e. {@code $.orders[*].total}, extracted from one state
+ * document in document order.
+ *
+ * <p>
+ * Numbers and booleans, as 1 and 0, are stored in a primitive {@code double[]} column, strings in
+ * a {@code String[]} one. Null is {@code NaN} in a number column, which is never extracted as a
+ * value, so comparisons with null are false without checking a separate null mask. Items which
+ * lack the selected field are not part of the column, as in JSON path, while JSON nulls are.
+ * </p>
+ *
+ * <p>
+ * Integers which a double does not hold exactly, see {@link StateValues#isLong(int)}, are kept in
+ * a {@code long[]} column next to the {@code double[]} one, which is 0 for other values. Columns
+ * with such integers, and comparisons with such constants, count values exactly one by one.
+ * </p>
+ *
+ * <p>
+ * Aggregations over numbers run as counted loops without branches or early exits, which the JIT
+ * compiles into vector instructions. {@link #any}, {@link #atLeast} and {@link #all} run them on
+ * blocks of {@value #BLOCK_SIZE} values and stop after the first block which decides the result.
+ * </p>
+ *
+ * <p>
+ * Instances are reused between documents through {@link #clear()} and are not thread-safe.
+ * </p>
+ */
+public final class ArrayColumn {
+    static final int BLOCK_SIZE = 256;
+
+    private double[] numbers = new double[0];
+    // Empty until the first long is added, then as long as numbers
+    private long[] longs = new long[0];
+    private String[] strings = new String[0];
+    private int size;
+    private int longCount;
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return Value of a number or boolean column, {@code NaN} for null
+     */
+    public double getNumber(int index) {
+        return this.numbers[index];
+    }
+
+    /**
+     * @return Value of a string column
+     */
+    public String getString(int index) {
+        return this.strings[index];
+    }
+
+    /**
+     * Method will remove all values
+     */
+    public void clear() {
+        Arrays.fill(this.strings, 0, Math.min(this.size, this.strings.length), null);
+        if (this.longCount > 0) {
+            Arrays.fill(this.longs, 0, this.size, 0);
+            this.longCount = 0;
+        }
+        this.size = 0;
+    }
+
+    /**
+     * @param value Number, 1 or 0 of a boolean, or {@code NaN} for null
+     */
+    public void addNumber(double value) {
+        if (this.size == this.numbers.length) {
+            this.numbers = Arrays.copyOf(this.numbers, Math.max(16, this.size * 2));
+            if (this.longs.length > 0) {
+                this.longs = Arrays.copyOf(this.longs, this.numbers.length);
+            }
+        }
+        this.numbers[this.size++] = value;
+    }
+
+    /**
+     * @param value Integer of a number column, kept as a long if a double does not hold it exactly
+     */
+    public void addLong(long value) {
+        int index = this.size;
+        this.addNumber(value);
+        if (StateValues.isLong(value)) {
+            if (this.longs.length < this.numbers.length) {
+                this.longs = Arrays.copyOf(this.longs, this.numbers.length);
+            }
+            this.longs[index] = value;
+            this.longCount++;
+        }
+    }
+
+    public void addString(String value) {
+        if (this.size == this.strings.length) {
+            this.strings = Arrays.copyOf(this.strings, Math.max(16, this.size * 2));
+        }
+        this.strings[this.size++] = value;
+    }
+
+    /**
+     * Method will replace values of this column with values of other one
+     */
+    void copy(ArrayColumn other) {
+        this.clear();
+        if (this.numbers.length < other.numbers.length) {
+            this.numbers = new double[other.numbers.length];
+        }
+        if (this.strings.length < other.strings.length) {
+            this.strings = new String[other.strings.length];
+        }
+        System.arraycopy(other.numbers, 0, this.numbers, 0, Math.min(other.size,
+                other.numbers.length));
+        System.arraycopy(other.strings, 0, this.strings, 0, Math.min(other.size,
+                other.strings.length));
+        if ((this.longs.length > 0 || other.longCount > 0)
+                && this.longs.length < this.numbers.length) {
+            this.longs = Arrays.copyOf(this.longs, this.numbers.length);
+        }
+        if (other.longCount > 0) {
+            System.arraycopy(other.longs, 0, this.longs, 0, other.size);
+        }
+        this.size = other.size;
+        this.longCount = other.longCount;
+    }
+
+    /**
+     * @param operator Comparison or equality operator
+     * @param constant Number, 1 or 0 of a boolean, or {@code NaN} for null
+     * @return Number of values {@code v} for which {@code v <operator> constant} is true
+     */
+    public int count(TokenType operator, double constant) {
+        return this.count(0, this.size, operator, constant, 0);
+    }
+
+    /**
+     * @param constant Integer, compared exactly also if a double does not hold it
+     * @return Number of values {@code v} for which {@code v <operator> constant} is true
+     */
+    public int count(TokenType operator, long constant) {
+        return this.count(0, this.size, operator, constant, constant);
+    }
+
+    /**
+     * @return Whether {@code v <operator> constant} is true for any value of the column
+     */
+    public boolean any(TokenType operator, double constant) {
+        return this.atLeast(operator, constant, 1);
+    }
+
+    /**
+     * @return Whether {@code v <operator> constant} is true for at least the minimum number of
+     * values of the column
+     */
+    public boolean atLeast(TokenType operator, double constant, int minimum) {
+        return this.atLeast(operator, constant, 0, minimum);
+    }
+
+    /**
+     * @param constant Integer, compared exactly also if a double does not hold it
+     * @return Whether {@code v <operator> constant} is true for at least the minimum number of
+     * values of the column
+     */
+    public boolean atLeast(TokenType operator, long constant, int minimum) {
+        return this.atLeast(operator, constant, constant, minimum);
+    }
+
+    /**
+     * @return Whether {@code v <operator> constant} is true for all values of the column, which
+     * holds for an empty column
+     */
+    public boolean all(TokenType operator, double constant) {
+        return this.all(operator, constant, 0);
+    }
+
+    /**
+     * @param constant Integer, compared exactly also if a double does not hold it
+     * @return Whether {@code v <operator> constant} is true for all values of the column, which
+     * holds for an empty column
+     */
+    public boolean all(TokenType operator, long constant) {
+        return this.all(operator, constant, constant);
+    }
+
+    private boolean atLeast(TokenType operator, double constant, long longConstant,
+            int minimum) {
+        int count = 0;
+        for (int from = 0; from < this.size && count < minimum; from += BLOCK_SIZE) {
+            int to = Math.min(from + BLOCK_SIZE, this.size);
+            count += this.count(from, to, operator, constant, longConstant);
+        }
+
+        return count >= minimum;
+    }
+
+    private boolean all(TokenType operator, double constant, long longConstant) {
+        for (int from = 0; from < this.size; from += BLOCK_SIZE) {
+            int to = Math.min(from + BLOCK_SIZE, this.size);
+            if (this.count(from, to, operator, constant, longConstant) < to - from) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param operator {@link TokenType#EQUAL_EQUAL} or {@link TokenType#BANG_EQUAL}
+     * @param constant String, or null
+     * @return Number of values of a string column equal, or not equal, to the constant
+     */
+    public int count(TokenType operator, String constant) {
+        boolean negated = operator == TokenType.BANG_EQUAL;
+        int count = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (Objects.equals(this.strings[i], constant) != negated) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @param longConstant Exact value of a constant which a double does not hold, any other value
+     * otherwise, i.e. 0
+     */
+    private int count(int from, int to, TokenType operator, double constant, long longConstant) {
+        if ((this.longCount == 0 && !StateValues.isLong(longConstant))
+                || Double.isNaN(constant)) {
+            return ArrayColumn.count(this.numbers, from, to, operator, constant);
+        }
+
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            count += this.compareLong(i, operator, constant, longConstant) ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return Whether {@code v <operator> constant} is true for the value, compared exactly
+     */
+    private boolean compareLong(int index, TokenType operator, double constant,
+            long longConstant) {
+        double value = this.numbers[index];
+        if (Double.isNaN(value)) {
+            return operator == TokenType.BANG_EQUAL;
+        }
+
+        boolean valueLong = this.longCount > 0 && StateValues.isLong(this.longs[index]);
+        boolean constantLong = StateValues.isLong(longConstant);
+        int order;
+        if (valueLong && constantLong) {
+            order = Long.compare(this.longs[index], longConstant);
+        } else if (valueLong) {
+            order = Condition.Comparison.order(this.longs[index], constant);
+        } else if (constantLong) {
+            order = -Condition.Comparison.order(longConstant, value);
+        } else {
+            order = value < constant ? -1 : value > constant ? 1 : 0;
+        }
+
+        return operator == TokenType.BANG_EQUAL ? order != 0
+                : Condition.Comparison.matches(operator, order);
+    }
+
+    private static int count(double[] values, int from, int to, TokenType operator,
+            double constant) {
+        if (Double.isNaN(constant)) {
+            return operator == TokenType.EQUAL_EQUAL ? ArrayColumn.countNull(values, from, to)
+                    : operator == TokenType.BANG_EQUAL
+                    ? to - from - ArrayColumn.countNull(values, from, to) : 0;
+        }
+
+        switch (operator) {
+            case GREATER:
+                return ArrayColumn.countGreater(values, from, to, constant);
+            case GREATER_EQUAL:
+                return ArrayColumn.countGreaterEqual(values, from, to, constant);
+            case LESS:
+                return ArrayColumn.countLess(values, from, to, constant);
+            case LESS_EQUAL:
+                return ArrayColumn.countLessEqual(values, from, to, constant);
+            case EQUAL_EQUAL:
+                return ArrayColumn.countEqual(values, from, to, constant);
+            case BANG_EQUAL:
+                return to - from - ArrayColumn.countEqual(values, from, to, constant);
+            default:
+                return 0;
+        }
+    }
+
+    // One loop per operator keeps the loop bodies free of branches the JIT could not vectorize
+
+    private static int countGreater(double[] values, int from, int to, double constant) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            count += values[i] > constant ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    private static int countGreaterEqual(double[] values, int from, int to, double constant) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            count += values[i] >= constant ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    private static int countLess(double[] values, int from, int to, double constant) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            count += values[i] < constant ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    private static int countLessEqual(double[] values, int from, int to, double constant) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            count += values[i] <= constant ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    private static int countEqual(double[] values, int from, int to, double constant) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            count += values[i] == constant ? 1 : 0;
+        }
+
+        return count;
+    }
+
+    private static int countNull(double[] values, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            count += values[i] != values[i] ? 1 : 0;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,357 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.expression.TokenType;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates a {@link Condition} over all rows of a {@link StateBlock} at once.
+ *
+ * <p>
+ * The result of every subcondition is a selection bitmap with one bit per row. Comparisons and
+ * equalities run as loops over columns of the block and mask rows in which an operand is null,
+ * {@code &&} and {@code ||} combine bitmaps of their operands word by word. The right operand of
+ * {@code &&} is not evaluated if no row is selected by the left one, and that of {@code ||} if all
+ * rows are. Rows with integers which a double does not hold exactly, see {@link
+ * StateValues#isLong(int)}, are compared again exactly. Results follow {@link Condition#test(StateValues)} for every row.
+ * </p>
+ */
+final class BlockEvaluator {
+    private final StateBlock block;
+    private final int size;
+    private final int words;
+
+    BlockEvaluator(StateBlock block) {
+        this.block = block;
+        this.size = block.size();
+        this.words = StateBlock.words(this.size);
+    }
+
+    /**
+     * @return Bitmap of rows for which the condition is true
+     */
+    long[] select(Condition condition) {
+        if (condition instanceof Condition.And) {
+            Condition.And and = (Condition.And) condition;
+            long[] left = this.select(and.getLeft());
+            return this.isNone(left) ? left : BlockEvaluator.and(left,
+                    this.select(and.getRight()));
+        }
+        if (condition instanceof Condition.Or) {
+            Condition.Or or = (Condition.Or) condition;
+            long[] left = this.select(or.getLeft());
+            return this.isAll(left) ? left : BlockEvaluator.or(left, this.select(or.getRight()));
+        }
+        if (condition instanceof Condition.Comparison) {
+            Condition.Comparison comparison = (Condition.Comparison) condition;
+            return this.compare(this.vector(comparison.getLeft()), comparison.getOperator(),
+                    this.vector(comparison.getRight()));
+        }
+        if (condition instanceof Condition.Equality) {
+            Condition.Equality equality = (Condition.Equality) condition;
+            long[] equal = this.equal(this.vector(equality.getLeft()),
+                    this.vector(equality.getRight()));
+            return equality.isNegated() ? this.not(equal) : equal;
+        }
+        if (condition instanceof Condition.Truth) {
+            Vector operand = this.vector(((Condition.Truth) condition).getOperand());
+            return this.compare(operand, TokenType.EQUAL_EQUAL, Vector.constant(1));
+        }
+        if (condition instanceof Condition.Fixed) {
+            return ((Condition.Fixed) condition).isValue() ? this.all() : new long[this.words];
+        }
+        if (condition instanceof Condition.Quantified) {
+            Condition.Quantified quantified = (Condition.Quantified) condition;
+            int column = quantified.getColumn().getColumn();
+            long[] selection = new long[this.words];
+            for (int row = 0; row < this.size; row++) {
+                if (quantified.test(this.block.getColumn(column, row))) {
+                    selection[row >>> 6] |= 1L << row;
+                }
+            }
+            return selection;
+        }
+        if (condition instanceof AdaptiveCondition) {
+            AdaptiveCondition adaptive = (AdaptiveCondition) condition;
+            long[] selection = adaptive.isAnd() ? this.all() : new long[this.words];
+            for (Condition operand : adaptive.getOperands()) {
+                selection = adaptive.isAnd() ? BlockEvaluator.and(selection, this.select(operand))
+                        : BlockEvaluator.or(selection, this.select(operand));
+            }
+            return selection;
+        }
+
+        throw new IllegalArgumentException(
+                String.format("Unknown condition '%s'.", condition.getClass().getSimpleName()));
+    }
+
+    private Vector vector(Operand operand) {
+        if (operand instanceof Operand.Path) {
+            int slot = ((Operand.Path) operand).getSlot();
+            return new Vector(this.block.getKind(slot), this.block.getNumbers(slot),
+                    this.block.getLongNumbers(slot), this.block.getLongs(slot),
+                    this.block.getStrings(slot), this.block.getNulls(slot), null);
+        }
+        if (operand instanceof Operand.Constant) {
+            return new Vector(operand.getDeclaredKind(), null, null, null, null, null,
+                    (Operand.Constant) operand);
+        }
+        if (operand instanceof Operand.Result) {
+            long[] selection = this.select(((Operand.Result) operand).getCondition());
+            double[] numbers = new double[this.size];
+            for (int row = 0; row < this.size; row++) {
+                numbers[row] = (selection[row >>> 6] >>> row) & 1;
+            }
+            return new Vector(StateValues.BOOLEAN, numbers, null, null, null, null, null);
+        }
+
+        throw new IllegalArgumentException(String.format("Operand '%s' has no single value.",
+                operand));
+    }
+
+    /**
+     * @param operator Comparison operator or {@link TokenType#EQUAL_EQUAL} of numbers
+     */
+    private long[] compare(Vector left, TokenType operator, Vector right) {
+        if (left.constant != null && right.constant == null) {
+            return this.compare(right, BlockEvaluator.flip(operator), left);
+        }
+
+        long[] selection = new long[this.words];
+        if (left.constant != null) {
+            return BlockEvaluator.compare(left, operator, right, 0) ? this.all() : selection;
+        }
+        if (right.constant != null && !right.constant.isLong()) {
+            BlockEvaluator.compare(left.numbers, operator, right.constant.getNumber(), this.size,
+                    selection);
+            if (left.longs != null) {
+                // Rows which the double comparison may have got wrong
+                for (int i = 0; i < this.words; i++) {
+                    for (long word = left.longs[i]; word != 0; word &= word - 1) {
+                        int row = (i << 6) + Long.numberOfTrailingZeros(word);
+                        selection[i] = BlockEvaluator.compare(left, operator, right, row)
+                                ? selection[i] | 1L << row : selection[i] & ~(1L << row);
+                    }
+                }
+            }
+        } else {
+            for (int row = 0; row < this.size; row++) {
+                if (BlockEvaluator.compare(left, operator, right, row)) {
+                    selection[row >>> 6] |= 1L << row;
+                }
+            }
+        }
+
+        BlockEvaluator.andNot(selection, left.nulls);
+        return BlockEvaluator.andNot(selection, right.nulls);
+    }
+
+    /**
+     * @return Result of the comparison of numbers in the row, exact also for longs
+     */
+    private static boolean compare(Vector left, TokenType operator, Vector right, int row) {
+        boolean leftLong = left.isLong(row);
+        boolean rightLong = right.isLong(row);
+        if (!leftLong && !rightLong) {
+            return Condition.Comparison.compare(operator, left.number(row), right.number(row));
+        }
+
+        int order;
+        if (leftLong && rightLong) {
+            order = Long.compare(left.longNumber(row), right.longNumber(row));
+        } else if (leftLong) {
+            order = Condition.Comparison.order(left.longNumber(row), right.number(row));
+        } else {
+            order = -Condition.Comparison.order(right.longNumber(row), left.number(row));
+        }
+
+        return Condition.Comparison.matches(operator, order);
+    }
+
+    // One loop per operator packs results into words without branches in the loop bodies
+
+    private static void compare(double[] values, TokenType operator, double constant, int size,
+            long[] selection) {
+        switch (operator) {
+            case GREATER:
+                for (int row = 0; row < size; row++) {
+                    selection[row >>> 6] |= (values[row] > constant ? 1L : 0L) << row;
+                }
+                break;
+            case GREATER_EQUAL:
+                for (int row = 0; row < size; row++) {
+                    selection[row >>> 6] |= (values[row] >= constant ? 1L : 0L) << row;
+                }
+                break;
+            case LESS:
+                for (int row = 0; row < size; row++) {
+                    selection[row >>> 6] |= (values[row] < constant ? 1L : 0L) << row;
+                }
+                break;
+            case LESS_EQUAL:
+                for (int row = 0; row < size; row++) {
+                    selection[row >>> 6] |= (values[row] <= constant ? 1L : 0L) << row;
+                }
+                break;
+            default:
+                for (int row = 0; row < size; row++) {
+                    selection[row >>> 6] |= (values[row] == constant ? 1L : 0L) << row;
+                }
+                break;
+        }
+    }
+
+    /**
+     * @return Rows in which both operands are null, or of the same kind and equal
+     */
+    private long[] equal(Vector left, Vector right) {
+        if (left.kind == StateValues.NULL || right.kind == StateValues.NULL) {
+            Vector other = left.kind == StateValues.NULL ? right : left;
+            if (other.constant != null) {
+                return other.kind == StateValues.NULL ? this.all() : new long[this.words];
+            }
+            return other.nulls == null ? new long[this.words]
+                    : Arrays.copyOf(other.nulls, this.words);
+        }
+        if (left.constant != null && right.constant == null) {
+            return this.equal(right, left);
+        }
+
+        long[] selection;
+        if (left.kind != StateValues.STRING) {
+            selection = this.compare(left, TokenType.EQUAL_EQUAL, right);
+        } else {
+            selection = new long[this.words];
+            for (int row = 0; row < this.size; row++) {
+                String value = right.constant != null ? right.constant.getString()
+                        : right.strings[row];
+                if (left.strings[row] != null && left.strings[row].equals(value)) {
+                    selection[row >>> 6] |= 1L << row;
+                }
+            }
+        }
+        if (left.nulls != null && right.nulls != null) {
+            for (int i = 0; i < this.words; i++) {
+                selection[i] |= left.nulls[i] & right.nulls[i];
+            }
+        }
+
+        return selection;
+    }
+
+    private long[] all() {
+        long[] selection = new long[this.words];
+        Arrays.fill(selection, -1L);
+        if ((this.size & 63) != 0) {
+            selection[this.words - 1] = (1L << this.size) - 1;
+        }
+
+        return selection;
+    }
+
+    private long[] not(long[] selection) {
+        long[] all = this.all();
+        for (int i = 0; i < this.words; i++) {
+            all[i] &= ~selection[i];
+        }
+
+        return all;
+    }
+
+    private boolean isNone(long[] selection) {
+        for (long word : selection) {
+            if (word != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isAll(long[] selection) {
+        return Arrays.equals(selection, this.all());
+    }
+
+    private static long[] and(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] &= right[i];
+        }
+
+        return left;
+    }
+
+    private static long[] or(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] |= right[i];
+        }
+
+        return left;
+    }
+
+    private static long[] andNot(long[] selection, long[] nulls) {
+        if (nulls != null) {
+            for (int i = 0; i < selection.length; i++) {
+                selection[i] &= ~nulls[i];
+            }
+        }
+
+        return selection;
+    }
+
+    private static TokenType flip(TokenType operator) {
+        switch (operator) {
+            case GREATER:
+                return TokenType.LESS;
+            case GREATER_EQUAL:
+                return TokenType.LESS_EQUAL;
+            case LESS:
+                return TokenType.GREATER;
+            case LESS_EQUAL:
+                return TokenType.GREATER_EQUAL;
+            default:
+                return operator;
+        }
+    }
+
+    /**
+     * Column of an operand with its null bitmap, or a constant
+     */
+    private static final class Vector {
+        private final byte kind;
+        private final double[] numbers;
+        private final long[] longNumbers;
+        private final long[] longs;
+        private final String[] strings;
+        private final long[] nulls;
+        private final Operand.Constant constant;
+
+        private Vector(byte kind, double[] numbers, long[] longNumbers, long[] longs,
+                String[] strings, long[] nulls, Operand.Constant constant) {
+            this.kind = kind;
+            this.numbers = numbers;
+            this.longNumbers = longNumbers;
+            this.longs = longs;
+            this.strings = strings;
+            this.nulls = nulls;
+            this.constant = constant;
+        }
+
+        private static Vector constant(double number) {
+            return new Vector(StateValues.NUMBER, null, null, null, null, null,
+                    new Operand.Constant(StateValues.NUMBER, number, null));
+        }
+
+        private double number(int row) {
+            return this.constant != null ? this.constant.getNumber() : this.numbers[row];
+        }
+
+        private boolean isLong(int row) {
+            return this.constant != null ? this.constant.isLong()
+                    : this.longs != null && (this.longs[row >>> 6] >>> row & 1) != 0;
+        }
+
+        private long longNumber(int row) {
+            return this.constant != null ? this.constant.getLong() : this.longNumbers[row];
+        }
+    }
+}
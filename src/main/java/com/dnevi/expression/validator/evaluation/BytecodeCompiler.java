@@ -0,0 +1,341 @@
+package com.dnevi.expression.validator.evaluation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compiles a {@link Condition} tree to a JVM class extending {@link CompiledCondition}, so the JIT
+ * can inline the whole condition at its call site.
+ *
+ * <p>
+ * {@code &&} and {@code ||} become branches of the generated method, in the current order of
+ * operands of an {@link AdaptiveCondition}. Every other condition is a leaf, called from a call
+ * site of its own, which sees only one class of condition and can inline it. Once compiled, an
+ * adaptive condition no longer reorders its operands.
+ * </p>
+ *
+ * <p>
+ * Classes are generated in version 49, which is verified by type inference and so needs no stack
+ * map frames for branches. Every class is defined in its own class loader which is referenced
+ * only by the class itself. Once the compiled condition is no longer reachable, i.e. after its
+ * expression is evicted from the expression cache, the class and its loader can be unloaded.
+ * </p>
+ */
+public final class BytecodeCompiler {
+    private static final String PACKAGE = "com/dnevi/expression/validator/evaluation/";
+    private static final String CLASS_PREFIX = PACKAGE + "GeneratedCondition$";
+    private static final String CONDITION = "L" + PACKAGE + "Condition;";
+    // Branch offsets are signed 16 bit numbers
+    private static final int MAX_CODE_LENGTH = Short.MAX_VALUE;
+    private static final int CLASS_VERSION = 49;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int ICONST_1 = 0x04;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int AALOAD = 0x32;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int GOTO = 0xa7;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+
+    // Constant pool indexes, see writeConstantPool
+    private static final int THIS_CLASS = 2;
+    private static final int SUPER_CLASS = 4;
+    private static final int INIT_NAME = 5;
+    private static final int INIT_DESCRIPTOR = 6;
+    private static final int SUPER_INIT = 8;
+    private static final int TEST_NAME = 9;
+    private static final int TEST_DESCRIPTOR = 10;
+    private static final int CODE_ATTRIBUTE = 11;
+    private static final int LEAVES_FIELD = 15;
+    private static final int TEST_METHOD = 19;
+    private static final int CONSTANT_POOL_COUNT = 20;
+
+    // Every leaf takes at most 12 bytes, every operator 7 bytes
+    private static final int LEAF_LENGTH = 12;
+    private static final int OPERATOR_LENGTH = 7;
+
+    private static final AtomicLong CLASS_COUNTER = new AtomicLong();
+
+    private BytecodeCompiler() {
+    }
+
+    /**
+     * @return Whether the condition fits into a single JVM method
+     */
+    public static boolean isCompilable(Condition condition) {
+        return BytecodeCompiler.codeLength(condition) + 1 <= MAX_CODE_LENGTH;
+    }
+
+    /**
+     * Method will generate, define and instantiate a class evaluating the condition
+     *
+     * @param condition Compiled expression, see {@link #isCompilable(Condition)}
+     * @return Instance of the generated class with the same results as given condition
+     */
+    public static CompiledCondition compile(Condition condition) {
+        if (!BytecodeCompiler.isCompilable(condition)) {
+            throw new IllegalArgumentException(String.format(
+                    "Condition of %d bytes is too large for bytecode compilation.",
+                    BytecodeCompiler.codeLength(condition)));
+        }
+
+        List<Condition> leaves = new ArrayList<>();
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        code.writeBytes(BytecodeCompiler.code(condition, leaves));
+        code.write(IRETURN);
+
+        String className = CLASS_PREFIX + CLASS_COUNTER.incrementAndGet();
+        byte[] classFile = BytecodeCompiler.generate(className, code.toByteArray());
+
+        try {
+            Class<?> type = new ConditionClassLoader()
+                    .define(className.replace('/', '.'), classFile);
+            return (CompiledCondition) type
+                    .getDeclaredConstructor(Condition.class, Condition[].class)
+                    .newInstance(condition, leaves.toArray(new Condition[0]));
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException
+                | InvocationTargetException e) {
+            throw new IllegalStateException("Generated condition class is not valid.", e);
+        }
+    }
+
+    private static int codeLength(Condition condition) {
+        if (condition instanceof Condition.And) {
+            return OPERATOR_LENGTH + BytecodeCompiler.codeLength(((Condition.And) condition)
+                    .getLeft()) + BytecodeCompiler.codeLength(((Condition.And) condition)
+                    .getRight());
+        }
+        if (condition instanceof Condition.Or) {
+            return OPERATOR_LENGTH + BytecodeCompiler.codeLength(((Condition.Or) condition)
+                    .getLeft()) + BytecodeCompiler.codeLength(((Condition.Or) condition)
+                    .getRight());
+        }
+        if (condition instanceof AdaptiveCondition) {
+            List<Condition> operands = ((AdaptiveCondition) condition).getOperands();
+            int length = (operands.size() - 1) * OPERATOR_LENGTH;
+            for (Condition operand : operands) {
+                length += BytecodeCompiler.codeLength(operand);
+            }
+
+            return length;
+        }
+
+        return LEAF_LENGTH;
+    }
+
+    /**
+     * @param leaves Receives leaves of the condition, indexed by the generated code
+     * @return Code which pushes result of the condition
+     */
+    private static byte[] code(Condition condition, List<Condition> leaves) {
+        if (condition instanceof Condition.And) {
+            Condition.And and = (Condition.And) condition;
+            return BytecodeCompiler.logical(true, BytecodeCompiler.code(and.getLeft(), leaves),
+                    BytecodeCompiler.code(and.getRight(), leaves));
+        }
+        if (condition instanceof Condition.Or) {
+            Condition.Or or = (Condition.Or) condition;
+            return BytecodeCompiler.logical(false, BytecodeCompiler.code(or.getLeft(), leaves),
+                    BytecodeCompiler.code(or.getRight(), leaves));
+        }
+        if (condition instanceof AdaptiveCondition) {
+            AdaptiveCondition adaptive = (AdaptiveCondition) condition;
+            return BytecodeCompiler.chain(adaptive.isAnd(), adaptive.getOperands(), leaves);
+        }
+        if (condition instanceof Condition.Fixed) {
+            return new byte[]{(byte) (((Condition.Fixed) condition).isValue() ? ICONST_1
+                    : ICONST_0)};
+        }
+
+        return BytecodeCompiler.leaf(condition, leaves);
+    }
+
+    private static byte[] chain(boolean and, List<Condition> operands, List<Condition> leaves) {
+        byte[] first = BytecodeCompiler.code(operands.get(0), leaves);
+        if (operands.size() == 1) {
+            return first;
+        }
+
+        return BytecodeCompiler.logical(and, first,
+                BytecodeCompiler.chain(and, operands.subList(1, operands.size()), leaves));
+    }
+
+    /**
+     * Method will join code of both operands, so the right one runs only if the left one does not
+     * decide the result: a false left operand of {@code &&} or a true left operand of {@code ||}
+     */
+    private static byte[] logical(boolean and, byte[] left, byte[] right) {
+        ByteArrayOutputStream code = new ByteArrayOutputStream(
+                left.length + right.length + OPERATOR_LENGTH);
+        code.writeBytes(left);
+        // Jumps over the right operand and the goto to the decided result
+        BytecodeCompiler.writeBranch(code, and ? IFEQ : IFNE, 3 + right.length + 3);
+        code.writeBytes(right);
+        // Jumps over the decided result
+        BytecodeCompiler.writeBranch(code, GOTO, 3 + 1);
+        code.write(and ? ICONST_0 : ICONST_1);
+
+        return code.toByteArray();
+    }
+
+    /**
+     * @return Code which calls {@code this.leaves[index].test(values)}
+     */
+    private static byte[] leaf(Condition condition, List<Condition> leaves) {
+        int index = leaves.size();
+        leaves.add(condition);
+
+        ByteArrayOutputStream code = new ByteArrayOutputStream(LEAF_LENGTH);
+        code.write(ALOAD_0);
+        BytecodeCompiler.writeIndexed(code, GETFIELD, LEAVES_FIELD);
+        if (index <= 5) {
+            code.write(ICONST_0 + index);
+        } else if (index <= Byte.MAX_VALUE) {
+            code.write(BIPUSH);
+            code.write(index);
+        } else {
+            BytecodeCompiler.writeIndexed(code, SIPUSH, index);
+        }
+        code.write(AALOAD);
+        code.write(ALOAD_1);
+        BytecodeCompiler.writeIndexed(code, INVOKEVIRTUAL, TEST_METHOD);
+
+        return code.toByteArray();
+    }
+
+    private static void writeBranch(ByteArrayOutputStream code, int opcode, int offset) {
+        BytecodeCompiler.writeIndexed(code, opcode, offset);
+    }
+
+    private static void writeIndexed(ByteArrayOutputStream code, int opcode, int index) {
+        code.write(opcode);
+        code.write(index >>> 8);
+        code.write(index);
+    }
+
+    private static byte[] generate(String className, byte[] testCode) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            BytecodeCompiler.writeConstantPool(out, className);
+
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(THIS_CLASS);
+            out.writeShort(SUPER_CLASS);
+            out.writeShort(0);
+            out.writeShort(0);
+
+            out.writeShort(2);
+            BytecodeCompiler.writeMethod(out, INIT_NAME, INIT_DESCRIPTOR, 3, 3,
+                    new byte[]{(byte) ALOAD_0, (byte) ALOAD_1, (byte) ALOAD_2,
+                            (byte) INVOKESPECIAL, 0, (byte) SUPER_INIT, (byte) RETURN});
+            BytecodeCompiler.writeMethod(out, TEST_NAME, TEST_DESCRIPTOR, 2, 2, testCode);
+
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int maxStack,
+            int maxLocals, byte[] code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+
+        out.writeShort(CODE_ATTRIBUTE);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static void writeConstantPool(DataOutputStream out, String className)
+            throws IOException {
+        out.writeShort(CONSTANT_POOL_COUNT);
+        BytecodeCompiler.writeUtf8(out, className);                                   // 1
+        BytecodeCompiler.writeReference(out, CONSTANT_CLASS, 1);                      // 2
+        BytecodeCompiler.writeUtf8(out, PACKAGE + "CompiledCondition");               // 3
+        BytecodeCompiler.writeReference(out, CONSTANT_CLASS, 3);                      // 4
+        BytecodeCompiler.writeUtf8(out, "<init>");                                    // 5
+        BytecodeCompiler.writeUtf8(out, "(" + CONDITION + "[" + CONDITION + ")V");    // 6
+        BytecodeCompiler.writeReferences(out, CONSTANT_NAME_AND_TYPE, 5, 6);          // 7
+        BytecodeCompiler.writeReferences(out, CONSTANT_METHODREF, 4, 7);              // 8
+        BytecodeCompiler.writeUtf8(out, "test");                                      // 9
+        BytecodeCompiler.writeUtf8(out, "(L" + PACKAGE + "StateValues;)Z");           // 10
+        BytecodeCompiler.writeUtf8(out, "Code");                                      // 11
+        BytecodeCompiler.writeUtf8(out, "leaves");                                    // 12
+        BytecodeCompiler.writeUtf8(out, "[" + CONDITION);                             // 13
+        BytecodeCompiler.writeReferences(out, CONSTANT_NAME_AND_TYPE, 12, 13);        // 14
+        BytecodeCompiler.writeReferences(out, CONSTANT_FIELDREF, 4, 14);              // 15
+        BytecodeCompiler.writeUtf8(out, PACKAGE + "Condition");                       // 16
+        BytecodeCompiler.writeReference(out, CONSTANT_CLASS, 16);                     // 17
+        BytecodeCompiler.writeReferences(out, CONSTANT_NAME_AND_TYPE, 9, 10);         // 18
+        BytecodeCompiler.writeReferences(out, CONSTANT_METHODREF, 17, 18);            // 19
+    }
+
+    private static void writeUtf8(DataOutputStream out, String value) throws IOException {
+        out.writeByte(CONSTANT_UTF8);
+        out.writeUTF(value);
+    }
+
+    private static void writeReference(DataOutputStream out, int tag, int index)
+            throws IOException {
+        out.writeByte(tag);
+        out.writeShort(index);
+    }
+
+    private static void writeReferences(DataOutputStream out, int tag, int first, int second)
+            throws IOException {
+        out.writeByte(tag);
+        out.writeShort(first);
+        out.writeShort(second);
+    }
+
+    /**
+     * Class loader holding exactly one generated class
+     */
+    private static final class ConditionClassLoader extends ClassLoader {
+
+        private ConditionClassLoader() {
+            super(CompiledCondition.class.getClassLoader());
+        }
+
+        private Class<?> define(String name, byte[] classFile) {
+            return this.defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.dnevi.expression.validator.evaluation;
+
+import lombok.Getter;
+
+/**
+ * Values of a wildcard state path in a column, compiled into a {@link Condition.Quantified}
+ * together with the constant it is compared with. Unlike an {@link Operand} it has no single
+ * value.
+ */
+@Getter
+public final class Column {
+    private final int column;
+    private final String path;
+    private final byte declaredKind;
+    private final boolean all;
+    private final int minimum;
+
+    /**
+     * @param all Whether all values have to match, as for {@code [all]}
+     * @param minimum Number of values which have to match otherwise, 1 for {@code [*]} and 3 for
+     * {@code [3+]}
+     */
+    Column(int column, String path, byte declaredKind, boolean all, int minimum) {
+        this.column = column;
+        this.path = path;
+        this.declaredKind = declaredKind;
+        this.all = all;
+        this.minimum = minimum;
+    }
+
+    public String toString() {
+        return this.path;
+    }
+}
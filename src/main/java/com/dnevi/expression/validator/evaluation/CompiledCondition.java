@@ -0,0 +1,27 @@
+package com.dnevi.expression.validator.evaluation;
+
+/**
+ * Condition compiled to JVM bytecode by {@link BytecodeCompiler}. Generated subclasses evaluate
+ * {@code &&} and {@code ||} with branches of their own method and call {@link Condition#test} of
+ * every other condition, their leaves, from a call site of its own.
+ */
+public abstract class CompiledCondition extends Condition {
+    protected final Condition[] leaves;
+    private final Condition source;
+
+    protected CompiledCondition(Condition source, Condition[] leaves) {
+        this.source = source;
+        this.leaves = leaves;
+    }
+
+    /**
+     * @return Condition the class was generated from
+     */
+    public Condition getSource() {
+        return this.source;
+    }
+
+    public String toString() {
+        return this.source.toString();
+    }
+}
@@ -0,0 +1,343 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.expression.TokenType;
+import lombok.Getter;
+
+/**
+ * Compiled boolean expression evaluated against values of one state document.
+ *
+ * <p>
+ * Unlike {@link com.dnevi.expression.validator.expression.Interpreter}, which checks types of an
+ * expression, conditions compute its actual result:
+ * </p>
+ * <ul>
+ * <li>{@code <, <=, >, >=} are true only if both values are numbers</li>
+ * <li>numbers are compared exactly, also integers which a double does not hold exactly, see
+ * {@link StateValues#isLong(int)}</li>
+ * <li>{@code ==} is true if both values are of the same kind and equal, or both are null.
+ * Missing paths are null</li>
+ * <li>{@code &&} and {@code ||} short-circuit</li>
+ * <li>an expression folded into {@code true} or {@code false} at compile time is {@link Fixed}</li>
+ * <li>a comparison of a wildcard path, i.e. {@code $.orders[*].total > 100}, is {@link
+ * Quantified}</li>
+ * </ul>
+ */
+public abstract class Condition {
+
+    public abstract boolean test(StateValues values);
+
+    @Getter
+    public static final class Comparison extends Condition {
+        private final Operand left;
+        private final TokenType operator;
+        private final Operand right;
+
+        Comparison(Operand left, TokenType operator, Operand right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(StateValues values) {
+            if (this.left.kind(values) != StateValues.NUMBER
+                    || this.right.kind(values) != StateValues.NUMBER) {
+                return false;
+            }
+
+            if (this.left.isLong(values) || this.right.isLong(values)) {
+                return Comparison.compareLong(this.operator, this.left, this.right, values);
+            }
+
+            return Comparison.compare(this.operator, this.left.number(values),
+                    this.right.number(values));
+        }
+
+        /**
+         * @return Result of comparing numbers of which at least one is held exactly only as a long
+         */
+        static boolean compareLong(TokenType operator, Operand left, Operand right,
+                StateValues values) {
+            int order;
+            if (left.isLong(values) && right.isLong(values)) {
+                order = Long.compare(left.longNumber(values), right.longNumber(values));
+            } else if (left.isLong(values)) {
+                order = Comparison.order(left.longNumber(values), right.number(values));
+            } else {
+                order = -Comparison.order(right.longNumber(values), left.number(values));
+            }
+
+            return Comparison.matches(operator, order);
+        }
+
+        /**
+         * @return Negative, zero or positive number as the integer is exactly lower than, equal to
+         * or greater than the double, which is not {@code NaN}
+         */
+        static int order(long left, double right) {
+            if (right >= 0x1p63) {
+                return -1;
+            }
+            if (right < -0x1p63) {
+                return 1;
+            }
+
+            double floor = Math.floor(right);
+            long integer = (long) floor;
+            if (left != integer) {
+                return left < integer ? -1 : 1;
+            }
+
+            return floor == right ? 0 : -1;
+        }
+
+        /**
+         * @param order Result of comparing the left operand with the right one, see {@link
+         * #order(long, double)}
+         */
+        static boolean matches(TokenType operator, int order) {
+            switch (operator) {
+                case GREATER:
+                    return order > 0;
+                case GREATER_EQUAL:
+                    return order >= 0;
+                case LESS:
+                    return order < 0;
+                case LESS_EQUAL:
+                    return order <= 0;
+                case EQUAL_EQUAL:
+                    return order == 0;
+                default:
+                    return false;
+            }
+        }
+
+        static boolean compare(TokenType operator, double left, double right) {
+            switch (operator) {
+                case GREATER:
+                    return left > right;
+                case GREATER_EQUAL:
+                    return left >= right;
+                case LESS:
+                    return left < right;
+                case LESS_EQUAL:
+                    return left <= right;
+                case EQUAL_EQUAL:
+                    return left == right;
+                default:
+                    return false;
+            }
+        }
+
+        public String toString() {
+            return String.format("%s %s %s", this.left, this.symbol(), this.right);
+        }
+
+        private String symbol() {
+            switch (this.operator) {
+                case GREATER:
+                    return ">";
+                case GREATER_EQUAL:
+                    return ">=";
+                case LESS:
+                    return "<";
+                default:
+                    return "<=";
+            }
+        }
+    }
+
+    @Getter
+    public static final class Equality extends Condition {
+        private final Operand left;
+        private final boolean negated;
+        private final Operand right;
+
+        Equality(Operand left, boolean negated, Operand right) {
+            this.left = left;
+            this.negated = negated;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(StateValues values) {
+            return this.isEqual(values) != this.negated;
+        }
+
+        private boolean isEqual(StateValues values) {
+            byte kind = this.left.kind(values);
+            if (kind != this.right.kind(values)) {
+                return false;
+            }
+
+            switch (kind) {
+                case StateValues.NUMBER:
+                    if (this.left.isLong(values) || this.right.isLong(values)) {
+                        return Comparison.compareLong(TokenType.EQUAL_EQUAL, this.left,
+                                this.right, values);
+                    }
+                    return this.left.number(values) == this.right.number(values);
+                case StateValues.BOOLEAN:
+                    return this.left.number(values) == this.right.number(values);
+                case StateValues.STRING:
+                    return this.left.string(values).equals(this.right.string(values));
+                default:
+                    return true;
+            }
+        }
+
+        public String toString() {
+            return String.format("%s %s %s", this.left, this.negated ? "!=" : "==", this.right);
+        }
+    }
+
+    @Getter
+    public static final class And extends Condition {
+        private final Condition left;
+        private final Condition right;
+
+        And(Condition left, Condition right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(StateValues values) {
+            return this.left.test(values) && this.right.test(values);
+        }
+
+        public String toString() {
+            return String.format("(%s && %s)", this.left, this.right);
+        }
+    }
+
+    @Getter
+    public static final class Or extends Condition {
+        private final Condition left;
+        private final Condition right;
+
+        Or(Condition left, Condition right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(StateValues values) {
+            return this.left.test(values) || this.right.test(values);
+        }
+
+        public String toString() {
+            return String.format("(%s || %s)", this.left, this.right);
+        }
+    }
+
+    /**
+     * Comparison or equality of all values of a wildcard path with a constant. It is true if it
+     * holds for any value of a {@code [*]} path, for all values of an {@code [all]} path, or for
+     * at least three values of a {@code [3+]} path, see {@link ArrayColumn}.
+     */
+    @Getter
+    public static final class Quantified extends Condition {
+        private final Column column;
+        private final TokenType operator;
+        private final Operand.Constant constant;
+
+        /**
+         * @param operator Comparison, {@link TokenType#EQUAL_EQUAL} or {@link
+         * TokenType#BANG_EQUAL}, with the column as its left operand
+         */
+        Quantified(Column column, TokenType operator, Operand.Constant constant) {
+            this.column = column;
+            this.operator = operator;
+            this.constant = constant;
+        }
+
+        @Override
+        public boolean test(StateValues values) {
+            return this.test(values.getColumn(this.column.getColumn()));
+        }
+
+        boolean test(ArrayColumn column) {
+            if (this.column.getDeclaredKind() == StateValues.STRING) {
+                int count = column.count(this.operator, this.constant.getString());
+                return this.column.isAll() ? count == column.size()
+                        : count >= this.column.getMinimum();
+            }
+
+            if (this.constant.isLong()) {
+                return this.column.isAll() ? column.all(this.operator, this.constant.getLong())
+                        : column.atLeast(this.operator, this.constant.getLong(),
+                                this.column.getMinimum());
+            }
+
+            double constant = this.constant.getKind() == StateValues.NULL ? Double.NaN
+                    : this.constant.getNumber();
+            return this.column.isAll() ? column.all(this.operator, constant)
+                    : column.atLeast(this.operator, constant, this.column.getMinimum());
+        }
+
+        public String toString() {
+            return String.format("%s %s %s", this.column, this.symbol(), this.constant);
+        }
+
+        private String symbol() {
+            switch (this.operator) {
+                case GREATER:
+                    return ">";
+                case GREATER_EQUAL:
+                    return ">=";
+                case LESS:
+                    return "<";
+                case LESS_EQUAL:
+                    return "<=";
+                case EQUAL_EQUAL:
+                    return "==";
+                default:
+                    return "!=";
+            }
+        }
+    }
+
+    /**
+     * Boolean operand used as a condition, i.e. {@code $.employed} in {@code $.employed && true}
+     */
+    @Getter
+    public static final class Truth extends Condition {
+        private final Operand operand;
+
+        Truth(Operand operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean test(StateValues values) {
+            return this.operand.kind(values) == StateValues.BOOLEAN
+                    && this.operand.number(values) != 0;
+        }
+
+        public String toString() {
+            return this.operand.toString();
+        }
+    }
+
+    /**
+     * Verdict known at compile time, i.e. of {@code $.age > 5 || true}
+     */
+    @Getter
+    public static final class Fixed extends Condition {
+        private final boolean value;
+
+        Fixed(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(StateValues values) {
+            return this.value;
+        }
+
+        public String toString() {
+            return String.valueOf(this.value);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.expression.Expression;
+import com.dnevi.expression.validator.expression.Expression.Binary;
+import com.dnevi.expression.validator.expression.Expression.Grouping;
+import com.dnevi.expression.validator.expression.Expression.Literal;
+import com.dnevi.expression.validator.expression.Expression.Logical;
+import com.dnevi.expression.validator.expression.Token;
+import com.dnevi.expression.validator.expression.TokenType;
+import com.dnevi.expression.validator.schema.StatePath;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles a parsed syntax tree into a {@link Condition}. State paths are registered in a {@link
+ * StatePathExtractor}, possibly shared by many conditions, and read from their slots.
+ *
+ * <p>
+ * Operands are type checked while compiling: comparison operands have to be numbers, equality
+ * operands of the same type or null, and logical operands booleans.
+ * </p>
+ *
+ * <p>
+ * Wildcard paths are registered as columns and may only be compared with literals, which compiles
+ * into a {@link Condition.Quantified}, or be used as a condition if they are booleans. A path may
+ * not mix {@code [*]}, {@code [all]} and counts such as {@code [3+]}.
+ * </p>
+ */
+public class ConditionCompiler implements Expression.Visitor<Operand> {
+    private final StatePathExtractor extractor;
+
+    ConditionCompiler(StatePathExtractor extractor) {
+        this.extractor = extractor;
+    }
+
+    /**
+     * @param expression Syntax tree of an expression parsed without errors
+     * @param extractor Extractor in which state paths of the expression are registered
+     * @return Condition reading state paths from slots of the extractor
+     * @throws IllegalArgumentException if operands are not of the expected types
+     */
+    public static Condition compile(Expression expression, StatePathExtractor extractor) {
+        ConditionCompiler compiler = new ConditionCompiler(extractor);
+        return compiler.toCondition(compiler.compileNode(expression));
+    }
+
+    @Override
+    public Operand visitLiteralExpr(Literal expr) {
+        Token token = expr.getToken();
+        if (token.getLiteral() instanceof StatePath) {
+            StatePath statePath = (StatePath) token.getLiteral();
+            byte kind = kindOf(expr.getValue());
+            if (statePath.isWildcard()) {
+                // Compared wildcard paths are compiled by visitBinaryExpr, this one is a condition
+                Column column = this.column(statePath, kind);
+                if (kind != StateValues.BOOLEAN) {
+                    throw ConditionCompiler.notComparedWithLiteral(column);
+                }
+                return new Operand.Result(new Condition.Quantified(column, TokenType.EQUAL_EQUAL,
+                        new Operand.Constant(StateValues.BOOLEAN, 1, null)));
+            }
+            return new Operand.Path(this.extractor.register(statePath, kind), statePath.getPath(),
+                    kind);
+        }
+
+        switch (expr.getValue()) {
+            case NUMBER:
+                return ConditionCompiler.number(token.getLexeme());
+            case STRING:
+                return new Operand.Constant(StateValues.STRING, 0, (String) token.getLiteral());
+            case TRUE:
+                return new Operand.Constant(StateValues.BOOLEAN, 1, null);
+            case FALSE:
+                return new Operand.Constant(StateValues.BOOLEAN, 0, null);
+            default:
+                return new Operand.Constant(StateValues.NULL, 0, null);
+        }
+    }
+
+    /**
+     * @return Constant of an integer literal as a long, so that literals which a double does not
+     * hold exactly are compared exactly, or of any other literal as a double
+     */
+    private static Operand.Constant number(String lexeme) {
+        if (lexeme.indexOf('.') < 0) {
+            try {
+                return new Operand.Constant(Long.parseLong(lexeme));
+            } catch (NumberFormatException e) {
+                // Larger than a long, compared as a double.
+            }
+        }
+
+        return new Operand.Constant(StateValues.NUMBER, Double.parseDouble(lexeme), null);
+    }
+
+    @Override
+    public Operand visitGroupingExpr(Grouping expr) {
+        return this.compileNode(expr.getExpression());
+    }
+
+    @Override
+    public Operand visitBinaryExpr(Binary expr) {
+        Column leftColumn = this.columnOf(expr.getLeft());
+        Column rightColumn = this.columnOf(expr.getRight());
+        Operand left = leftColumn == null ? this.compileNode(expr.getLeft()) : null;
+        Operand right = rightColumn == null ? this.compileNode(expr.getRight()) : null;
+        byte leftKind = leftColumn != null ? leftColumn.getDeclaredKind()
+                : left.getDeclaredKind();
+        byte rightKind = rightColumn != null ? rightColumn.getDeclaredKind()
+                : right.getDeclaredKind();
+
+        TokenType operator = expr.getOperator().getType();
+        switch (operator) {
+            case GREATER:
+            case GREATER_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+                if (leftKind != StateValues.NUMBER || rightKind != StateValues.NUMBER) {
+                    throw new IllegalArgumentException(String.format(
+                            "Operands of '%s' are not numbers.", expr.getOperator().getLexeme()));
+                }
+                if (leftColumn != null || rightColumn != null) {
+                    return new Operand.Result(ConditionCompiler.quantify(leftColumn, left,
+                            operator, rightColumn, right));
+                }
+                return new Operand.Result(new Condition.Comparison(left, operator, right));
+            case BANG_EQUAL:
+            case EQUAL_EQUAL:
+                if (leftKind != rightKind && leftKind != StateValues.NULL
+                        && rightKind != StateValues.NULL) {
+                    throw new IllegalArgumentException(String.format(
+                            "Operands of '%s' are not of the same type.",
+                            expr.getOperator().getLexeme()));
+                }
+                if (leftColumn != null || rightColumn != null) {
+                    return new Operand.Result(ConditionCompiler.quantify(leftColumn, left,
+                            operator, rightColumn, right));
+                }
+                return new Operand.Result(
+                        new Condition.Equality(left, operator == TokenType.BANG_EQUAL, right));
+            default:
+                throw new IllegalArgumentException(
+                        String.format("Unknown binary operator '%s'.", operator));
+        }
+    }
+
+    @Override
+    public Operand visitLogicalExpr(Logical expr) {
+        Condition left = this.toCondition(this.compileNode(expr.getLeft()));
+        Condition right = this.toCondition(this.compileNode(expr.getRight()));
+
+        return new Operand.Result(expr.getOperator().getType() == TokenType.OR
+                ? new Condition.Or(left, right)
+                : new Condition.And(left, right));
+    }
+
+    private Operand compileNode(Expression expr) {
+        if (expr == null) {
+            throw new IllegalArgumentException("Incomplete expression can not be compiled.");
+        }
+
+        return expr.accept(this);
+    }
+
+    private Condition toCondition(Operand operand) {
+        if (operand instanceof Operand.Result) {
+            return ((Operand.Result) operand).getCondition();
+        }
+        if (operand instanceof Operand.Constant
+                && operand.getDeclaredKind() == StateValues.BOOLEAN) {
+            return new Condition.Fixed(((Operand.Constant) operand).getNumber() != 0);
+        }
+        if (operand.getDeclaredKind() != StateValues.BOOLEAN) {
+            throw new IllegalArgumentException(
+                    String.format("Operand '%s' is not a boolean.", operand));
+        }
+        return new Condition.Truth(operand);
+    }
+
+    /**
+     * @return Column of the expression if it is a wildcard path, possibly in parentheses, or null
+     */
+    private Column columnOf(Expression expr) {
+        while (expr instanceof Grouping) {
+            expr = ((Grouping) expr).getExpression();
+        }
+        if (!(expr instanceof Literal)
+                || !(((Literal) expr).getToken().getLiteral() instanceof StatePath)) {
+            return null;
+        }
+
+        StatePath statePath = (StatePath) ((Literal) expr).getToken().getLiteral();
+        return statePath.isWildcard()
+                ? this.column(statePath, kindOf(((Literal) expr).getValue()))
+                : null;
+    }
+
+    private Column column(StatePath statePath, byte kind) {
+        List<String> wildcards = statePath.getSegments().stream()
+                .filter(StatePath::isWildcard)
+                .distinct()
+                .collect(Collectors.toList());
+        if (wildcards.size() > 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Path '%s' mixes '%s' and '%s'.", statePath.getPath(), wildcards.get(0),
+                    wildcards.get(1)));
+        }
+
+        int minimum = StatePath.minimumOf(wildcards.get(0));
+        return new Column(this.extractor.registerColumn(statePath, kind), statePath.getPath(),
+                kind, minimum < 0, Math.max(minimum, 0));
+    }
+
+    /**
+     * @param leftColumn Column of the left operand, or null if it is compiled into left
+     * @param rightColumn Column of the right operand, or null if it is compiled into right
+     * @return Condition with the column as its left operand
+     */
+    private static Condition quantify(Column leftColumn, Operand left, TokenType operator,
+            Column rightColumn, Operand right) {
+        if (leftColumn != null && right instanceof Operand.Constant) {
+            return new Condition.Quantified(leftColumn, operator, (Operand.Constant) right);
+        }
+        if (rightColumn != null && left instanceof Operand.Constant) {
+            return new Condition.Quantified(rightColumn, flip(operator),
+                    (Operand.Constant) left);
+        }
+
+        throw ConditionCompiler.notComparedWithLiteral(leftColumn != null ? leftColumn
+                : rightColumn);
+    }
+
+    private static IllegalArgumentException notComparedWithLiteral(Column column) {
+        return new IllegalArgumentException(String.format(
+                "Path '%s' selects all items of an array and can only be compared with a literal.",
+                column));
+    }
+
+    /**
+     * @return Operator of the same comparison with swapped operands
+     */
+    private static TokenType flip(TokenType operator) {
+        switch (operator) {
+            case GREATER:
+                return TokenType.LESS;
+            case GREATER_EQUAL:
+                return TokenType.LESS_EQUAL;
+            case LESS:
+                return TokenType.GREATER;
+            case LESS_EQUAL:
+                return TokenType.GREATER_EQUAL;
+            default:
+                return operator;
+        }
+    }
+
+    /**
+     * @param type Schema type of a state path as resolved by the parser
+     */
+    private static byte kindOf(TokenType type) {
+        switch (type) {
+            case NUMBER:
+                return StateValues.NUMBER;
+            case STRING:
+                return StateValues.STRING;
+            default:
+                return StateValues.BOOLEAN;
+        }
+    }
+}
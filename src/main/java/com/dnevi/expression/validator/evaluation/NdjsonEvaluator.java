@@ -0,0 +1,232 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.exception.InvalidStateDocumentException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates a {@link RuleSet} against files of newline delimited state documents.
+ *
+ * <p>
+ * A file is read through {@link FileChannel#map} in chunks of {@value #CHUNK_SIZE} bytes, each
+ * ending at the last record boundary it contains, so records are never copied onto the heap or
+ * split between chunks. A record longer than a chunk widens its chunk. Chunks are evaluated by
+ * tasks on the executor, {@link StateBlock} by block, and at most two chunks per thread are in
+ * flight, so memory stays bounded for files of any size.
+ * </p>
+ *
+ * <p>
+ * For every document matching at least one rule a line {@code <file>\t<offset>\t<rules>} is
+ * written, where offset is the byte offset of the document in the file and rules are the comma
+ * separated indexes of matching rules. Lines are written in the order of documents. Invalid
+ * documents are logged and counted, blank lines are skipped.
+ * </p>
+ */
+@Slf4j
+public class NdjsonEvaluator {
+    static final int CHUNK_SIZE = 64 << 20;
+    static final int BLOCK_SIZE = 4096;
+
+    private final RuleSet ruleSet;
+    private final Executor executor;
+    private final int threads;
+    private final int chunkSize;
+    private final ThreadLocal<StateBlock> blocks;
+    private final AtomicLong documentCount = new AtomicLong();
+    private final AtomicLong invalidCount = new AtomicLong();
+    private final AtomicLong matchingCount = new AtomicLong();
+
+    /**
+     * @param ruleSet Rules to evaluate
+     * @param executor Executor running evaluation of chunks
+     * @param threads Number of threads of the executor
+     */
+    public NdjsonEvaluator(RuleSet ruleSet, Executor executor, int threads) {
+        this(ruleSet, executor, threads, CHUNK_SIZE);
+    }
+
+    NdjsonEvaluator(RuleSet ruleSet, Executor executor, int threads, int chunkSize) {
+        this.ruleSet = ruleSet;
+        this.executor = executor;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        this.blocks = ThreadLocal.withInitial(
+                () -> new StateBlock(ruleSet.getExtractor(), BLOCK_SIZE));
+    }
+
+    /**
+     * Method will evaluate all documents of the file and write lines of matching ones
+     *
+     * @param file File of newline delimited state documents
+     * @param output Output receiving lines of matching documents, it is neither flushed nor closed
+     */
+    public void evaluate(Path file, OutputStream output) throws IOException {
+        byte[] name = (file.toString() + '\t').getBytes(StandardCharsets.UTF_8);
+        Deque<CompletableFuture<byte[]>> chunks = new ArrayDeque<>();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                ByteBuffer chunk = this.map(channel, position, size);
+                long offset = position;
+                chunks.add(CompletableFuture.supplyAsync(
+                        () -> this.evaluateChunk(chunk, offset, name), this.executor));
+                position += chunk.remaining();
+
+                if (chunks.size() >= 2 * this.threads) {
+                    NdjsonEvaluator.write(chunks.poll(), output);
+                }
+            }
+            while (!chunks.isEmpty()) {
+                NdjsonEvaluator.write(chunks.poll(), output);
+            }
+        } finally {
+            chunks.forEach(c -> c.cancel(false));
+        }
+    }
+
+    public long getDocumentCount() {
+        return this.documentCount.get();
+    }
+
+    public long getInvalidCount() {
+        return this.invalidCount.get();
+    }
+
+    /**
+     * @return Number of documents matching at least one rule
+     */
+    public long getMatchingCount() {
+        return this.matchingCount.get();
+    }
+
+    /**
+     * @return Mapped chunk starting at the position and ending after its last newline, or at the
+     * end of the file
+     */
+    private ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        long length = Math.min(this.chunkSize, size - position);
+        while (true) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (position + length == size) {
+                return buffer;
+            }
+
+            for (int i = (int) length - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return buffer.limit(i + 1);
+                }
+            }
+            if (length == Integer.MAX_VALUE) {
+                throw new IOException(String.format(
+                        "Record at offset %d is longer than %d bytes.", position, length));
+            }
+            length = Math.min(Math.min(2 * length, Integer.MAX_VALUE), size - position);
+        }
+    }
+
+    private byte[] evaluateChunk(ByteBuffer chunk, long offset, byte[] name) {
+        StateBlock block = this.blocks.get();
+        long[] offsets = new long[block.capacity()];
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        block.clear();
+
+        int start = 0;
+        int limit = chunk.limit();
+        while (start < limit) {
+            int end = start;
+            while (end < limit && chunk.get(end) != '\n') {
+                end++;
+            }
+
+            if (!NdjsonEvaluator.isBlank(chunk, start, end)) {
+                try {
+                    block.add(chunk.duplicate().position(start).limit(end));
+                    offsets[block.size() - 1] = offset + start;
+                } catch (InvalidStateDocumentException e) {
+                    this.invalidCount.incrementAndGet();
+                    log.warn("Document at offset {} is skipped. {}", offset + start,
+                            e.getMessage());
+                }
+                if (block.isFull()) {
+                    this.writeMatches(block, offsets, name, output);
+                    block.clear();
+                }
+            }
+            start = end + 1;
+        }
+        this.writeMatches(block, offsets, name, output);
+        block.clear();
+
+        return output.toByteArray();
+    }
+
+    private void writeMatches(StateBlock block, long[] offsets, byte[] name,
+            ByteArrayOutputStream output) {
+        BitSet[] selections = this.ruleSet.evaluate(block);
+        StringBuilder[] rules = new StringBuilder[block.size()];
+        for (int rule = 0; rule < selections.length; rule++) {
+            BitSet selection = selections[rule];
+            for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1)) {
+                if (rules[row] == null) {
+                    rules[row] = new StringBuilder();
+                } else {
+                    rules[row].append(',');
+                }
+                rules[row].append(rule);
+            }
+        }
+
+        int matching = 0;
+        for (int row = 0; row < rules.length; row++) {
+            if (rules[row] != null) {
+                matching++;
+                output.writeBytes(name);
+                output.writeBytes(String.format("%d\t%s\n", offsets[row], rules[row])
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        this.documentCount.addAndGet(block.size());
+        this.matchingCount.addAndGet(matching);
+    }
+
+    private static boolean isBlank(ByteBuffer chunk, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = chunk.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void write(CompletableFuture<byte[]> chunk, OutputStream output)
+            throws IOException {
+        try {
+            output.write(chunk.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.dnevi.expression.validator.evaluation;
+
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of {@link RuleNetwork} counters
+ */
+@Getter
+public class NetworkStats {
+    private final int ruleCount;
+    private final int nodeCount;
+    private final long referenceCount;
+    // Slots values of a document are sized by, including released ones which are not reused yet
+    private final int slotCount;
+    private final long evaluationCount;
+    private final long savedEvaluationCount;
+
+    NetworkStats(int ruleCount, int nodeCount, long referenceCount, int slotCount,
+            long evaluationCount, long savedEvaluationCount) {
+        this.ruleCount = ruleCount;
+        this.nodeCount = nodeCount;
+        this.referenceCount = referenceCount;
+        this.slotCount = slotCount;
+        this.evaluationCount = evaluationCount;
+        this.savedEvaluationCount = savedEvaluationCount;
+    }
+
+    /**
+     * @return Ratio of nodes of all rule trees to shared nodes of the network, or 1.0 if the
+     * network is empty
+     */
+    public double sharingRatio() {
+        return this.nodeCount == 0 ? 1.0 : (double) this.referenceCount / this.nodeCount;
+    }
+
+    public String toString() {
+        return String.format(
+                "rules=%d, nodes=%d, references=%d, slots=%d, evaluations=%d, saved=%d",
+                ruleCount, nodeCount, referenceCount, slotCount, evaluationCount,
+                savedEvaluationCount);
+    }
+}
@@ -0,0 +1,222 @@
+package com.dnevi.expression.validator.evaluation;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Value of a compiled expression operand read from {@link StateValues}
+ */
+public abstract class Operand {
+
+    /**
+     * @return Kind of the value known at compile time, values read from a document may still be
+     * {@link StateValues#NULL}
+     */
+    public abstract byte getDeclaredKind();
+
+    /**
+     * @return Kind of the value, i.e. {@link StateValues#NUMBER}
+     */
+    public abstract byte kind(StateValues values);
+
+    /**
+     * @return Value of a NUMBER, or 1 and 0 for a BOOLEAN
+     */
+    public abstract double number(StateValues values);
+
+    /**
+     * @return Whether the value is a NUMBER which is held exactly only by {@link
+     * #longNumber(StateValues)}, see {@link StateValues#isLong(int)}
+     */
+    public abstract boolean isLong(StateValues values);
+
+    /**
+     * @return Exact value of a NUMBER for which {@link #isLong(StateValues)} is true
+     */
+    public abstract long longNumber(StateValues values);
+
+    /**
+     * @return Value of a STRING
+     */
+    public abstract String string(StateValues values);
+
+    /**
+     * Value of a state path extracted into a slot
+     */
+    @Getter
+    public static final class Path extends Operand {
+        private final int slot;
+        private final String path;
+        private final byte declaredKind;
+
+        Path(int slot, String path, byte declaredKind) {
+            this.slot = slot;
+            this.path = path;
+            this.declaredKind = declaredKind;
+        }
+
+        @Override
+        public byte kind(StateValues values) {
+            return values.getKind(this.slot);
+        }
+
+        @Override
+        public double number(StateValues values) {
+            return values.getNumber(this.slot);
+        }
+
+        @Override
+        public boolean isLong(StateValues values) {
+            return values.isLong(this.slot);
+        }
+
+        @Override
+        public long longNumber(StateValues values) {
+            return values.getLong(this.slot);
+        }
+
+        @Override
+        public String string(StateValues values) {
+            return values.getString(this.slot);
+        }
+
+        public String toString() {
+            return this.path;
+        }
+    }
+
+    /**
+     * Literal value of the expression
+     */
+    @Getter
+    public static final class Constant extends Operand {
+        private final byte kind;
+        private final double number;
+        @Getter(AccessLevel.NONE)
+        private final boolean isLong;
+        @Getter(AccessLevel.NONE)
+        private final long longNumber;
+        private final String string;
+
+        Constant(byte kind, double number, String string) {
+            this.kind = kind;
+            this.number = number;
+            this.isLong = false;
+            this.longNumber = 0;
+            this.string = string;
+        }
+
+        /**
+         * @param number Integer NUMBER, kept as a long if a double may not hold it exactly
+         */
+        Constant(long number) {
+            this.kind = StateValues.NUMBER;
+            this.number = number;
+            this.isLong = StateValues.isLong(number);
+            this.longNumber = number;
+            this.string = null;
+        }
+
+        /**
+         * @return Whether the constant is a NUMBER which is held exactly only by {@link
+         * #getLong()}
+         */
+        public boolean isLong() {
+            return this.isLong;
+        }
+
+        public long getLong() {
+            return this.longNumber;
+        }
+
+        @Override
+        public byte getDeclaredKind() {
+            return this.kind;
+        }
+
+        @Override
+        public byte kind(StateValues values) {
+            return this.kind;
+        }
+
+        @Override
+        public double number(StateValues values) {
+            return this.number;
+        }
+
+        @Override
+        public boolean isLong(StateValues values) {
+            return this.isLong;
+        }
+
+        @Override
+        public long longNumber(StateValues values) {
+            return this.longNumber;
+        }
+
+        @Override
+        public String string(StateValues values) {
+            return this.string;
+        }
+
+        public String toString() {
+            switch (this.kind) {
+                case StateValues.NUMBER:
+                    return this.isLong ? String.valueOf(this.longNumber)
+                            : String.valueOf(this.number);
+                case StateValues.STRING:
+                    return '"' + this.string + '"';
+                case StateValues.BOOLEAN:
+                    return String.valueOf(this.number != 0);
+                default:
+                    return "null";
+            }
+        }
+    }
+
+    /**
+     * BOOLEAN result of a nested condition, i.e. {@code ($.age > 60) == true}
+     */
+    @Getter
+    public static final class Result extends Operand {
+        private final Condition condition;
+
+        Result(Condition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        public byte getDeclaredKind() {
+            return StateValues.BOOLEAN;
+        }
+
+        @Override
+        public byte kind(StateValues values) {
+            return StateValues.BOOLEAN;
+        }
+
+        @Override
+        public double number(StateValues values) {
+            return this.condition.test(values) ? 1 : 0;
+        }
+
+        @Override
+        public boolean isLong(StateValues values) {
+            return false;
+        }
+
+        @Override
+        public long longNumber(StateValues values) {
+            return 0;
+        }
+
+        @Override
+        public String string(StateValues values) {
+            return null;
+        }
+
+        public String toString() {
+            return this.condition.toString();
+        }
+    }
+}
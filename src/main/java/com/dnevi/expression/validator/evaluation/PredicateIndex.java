@@ -0,0 +1,686 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.exception.InvalidStateDocumentException;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Index of atomic predicates of a {@link RuleSet}, i.e. {@code $.age > 60} or {@code $.name ==
+ * "John"}.
+ *
+ * <p>
+ * Distinct predicates are grouped by state path, operator and constant type. Predicates of a group
+ * get consecutive ids ordered by their constants, so all predicates of a numeric group which
+ * match a value form one range found by binary search, and string equalities are found in a hash
+ * map. Matching predicates of a document are collected in a bit set with a range operation per
+ * group, which costs O(groups * log predicates) instead of evaluating every predicate.
+ * </p>
+ *
+ * <p>
+ * Rules which are a single predicate are kept by their group in the order of the predicates, so
+ * the position found by binary search selects the matching ones as a prefix or suffix of them,
+ * which costs O(groups * log predicates + matching rules) without looking at other rules.
+ * </p>
+ *
+ * <p>
+ * Other rules are combined from bits of their predicates with word level bit set operations. Every
+ * predicate of such rules keeps a mask of the rules which are a conjunction of predicates
+ * containing it, and a mask of the rules which are a disjunction of predicates containing it, both
+ * as the non-zero words of a bit set. Conjunctive rules match unless a mask of a predicate which
+ * does not match removes them, and disjunctive rules match if a mask of a matching predicate adds
+ * them, which costs O(rules / 64 + occurrences of predicates in these rules) word operations.
+ * Other rules, i.e. {@code ($.age > 60 || $.employed) && $.name == "John"},
+ * are tested by walking their {@code &&} and {@code ||} over predicate bits, and parts of a rule
+ * which are not a predicate over one path and a constant, i.e. {@code $.age > $.position}, are
+ * evaluated as conditions.
+ * </p>
+ */
+public class PredicateIndex {
+    private static final int GREATER = 0;
+    private static final int GREATER_EQUAL = 1;
+    private static final int LESS = 2;
+    private static final int LESS_EQUAL = 3;
+    private static final int EQUAL = 4;
+    private static final int NOT_EQUAL = 5;
+
+    private final RuleSet ruleSet;
+    private final Group[] groups;
+    private final int ruleCount;
+    private final long[] conjunctive;
+    // Masks of predicates of rules with more than one predicate only
+    private final Mask[] conjunctiveMasks;
+    private final Mask[] disjunctiveMasks;
+    private final int[] walked;
+    private final Formula[] formulas;
+    private final int predicateCount;
+    private final int residualCount;
+    private final ThreadLocal<StateValues> values;
+
+    private PredicateIndex(RuleSet ruleSet, Group[] groups, long[] conjunctive,
+            Mask[] conjunctiveMasks, Mask[] disjunctiveMasks, int[] walked,
+            Formula[] formulas, int predicateCount, int residualCount) {
+        this.ruleSet = ruleSet;
+        this.groups = groups;
+        this.ruleCount = ruleSet.size();
+        this.conjunctive = conjunctive;
+        this.conjunctiveMasks = conjunctiveMasks;
+        this.disjunctiveMasks = disjunctiveMasks;
+        this.walked = walked;
+        this.formulas = formulas;
+        this.predicateCount = predicateCount;
+        this.residualCount = residualCount;
+        this.values = ThreadLocal.withInitial(ruleSet.getExtractor()::newValues);
+    }
+
+    /**
+     * @param ruleSet Compiled rules
+     * @return Index matching the same rules as the rule set
+     */
+    public static PredicateIndex build(RuleSet ruleSet) {
+        Map<Predicate, Predicate> predicates = new LinkedHashMap<>();
+        Formula[] formulas = new Formula[ruleSet.size()];
+        int[] residualCount = new int[1];
+        for (int i = 0; i < formulas.length; i++) {
+            formulas[i] = PredicateIndex.toFormula(ruleSet.getCondition(i), predicates,
+                    residualCount);
+        }
+
+        Map<List<Object>, List<Predicate>> grouped = new LinkedHashMap<>();
+        for (Predicate predicate : predicates.values()) {
+            grouped.computeIfAbsent(
+                    Arrays.asList(predicate.slot, predicate.operator, predicate.kind),
+                    k -> new ArrayList<>()).add(predicate);
+        }
+
+        Group[] groups = new Group[grouped.size()];
+        int id = 0;
+        int g = 0;
+        for (List<Predicate> members : grouped.values()) {
+            groups[g++] = new Group(members, id);
+            id += members.size();
+        }
+
+        long[] conjunctive = new long[(formulas.length + 63) >>> 6];
+        Map<Integer, List<Integer>> singleRules = new HashMap<>();
+        Map<Integer, List<Integer>> conjunctiveRules = new HashMap<>();
+        Map<Integer, List<Integer>> disjunctiveRules = new HashMap<>();
+        List<Integer> walked = new ArrayList<>();
+        List<Predicate> members = new ArrayList<>();
+        for (int rule = 0; rule < formulas.length; rule++) {
+            Map<Integer, List<Integer>> rules;
+            members.clear();
+            if (PredicateIndex.collect(formulas[rule], And.class, members)) {
+                if (members.stream().allMatch(member -> member == members.get(0))) {
+                    singleRules.computeIfAbsent(members.get(0).id, k -> new ArrayList<>())
+                            .add(rule);
+                    continue;
+                }
+                conjunctive[rule >>> 6] |= 1L << rule;
+                rules = conjunctiveRules;
+            } else {
+                members.clear();
+                if (PredicateIndex.collect(formulas[rule], Or.class, members)) {
+                    rules = disjunctiveRules;
+                } else {
+                    walked.add(rule);
+                    continue;
+                }
+            }
+
+            for (Predicate member : members) {
+                rules.computeIfAbsent(member.id, k -> new ArrayList<>()).add(rule);
+            }
+        }
+
+        for (Group group : groups) {
+            group.setRules(singleRules);
+        }
+
+        return new PredicateIndex(ruleSet, groups, conjunctive,
+                PredicateIndex.toMasks(conjunctiveRules),
+                PredicateIndex.toMasks(disjunctiveRules),
+                walked.stream().mapToInt(Integer::intValue).toArray(), formulas, id,
+                residualCount[0]);
+    }
+
+    private static Mask[] toMasks(Map<Integer, List<Integer>> rules) {
+        return rules.entrySet().stream()
+                .map(entry -> new Mask(entry.getKey(), entry.getValue()))
+                .toArray(Mask[]::new);
+    }
+
+    /**
+     * Method will collect predicates of a formula which combines only predicates with one operator
+     *
+     * @return True if the formula is a predicate or predicates combined only with the operator
+     */
+    private static boolean collect(Formula formula, Class<? extends Formula> operator,
+            List<Predicate> predicates) {
+        if (formula instanceof Predicate) {
+            predicates.add((Predicate) formula);
+            return true;
+        }
+        if (formula instanceof And && operator == And.class) {
+            And and = (And) formula;
+            return PredicateIndex.collect(and.left, operator, predicates)
+                    && PredicateIndex.collect(and.right, operator, predicates);
+        }
+        if (formula instanceof Or && operator == Or.class) {
+            Or or = (Or) formula;
+            return PredicateIndex.collect(or.left, operator, predicates)
+                    && PredicateIndex.collect(or.right, operator, predicates);
+        }
+
+        return false;
+    }
+
+    public RuleSet getRuleSet() {
+        return this.ruleSet;
+    }
+
+    /**
+     * @return Number of distinct indexed predicates
+     */
+    public int getPredicateCount() {
+        return this.predicateCount;
+    }
+
+    /**
+     * @return Number of conditions which are not indexed and are evaluated on their own
+     */
+    public int getResidualCount() {
+        return this.residualCount;
+    }
+
+    /**
+     * @return Number of rules which are not combined with bit set operations and are tested by
+     * walking their {@code &&} and {@code ||}
+     */
+    public int getWalkedCount() {
+        return this.walked.length;
+    }
+
+    /**
+     * @return Indexes of rules matching the document
+     */
+    public BitSet evaluate(byte[] document) {
+        try (JsonParser parser = StateEvaluator.JSON_FACTORY.createParser(document)) {
+            StateValues values = this.values.get();
+            this.ruleSet.getExtractor().extract(parser, values);
+
+            BitSet matches = new BitSet(this.ruleCount);
+            this.evaluate(values, matches);
+            return matches;
+        } catch (IOException e) {
+            throw new InvalidStateDocumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param values Values extracted by the extractor of the rule set
+     * @param matches Bit set which receives indexes of matching rules, other bits are not cleared
+     */
+    public void evaluate(StateValues values, BitSet matches) {
+        BitSet predicates = new BitSet(this.predicateCount);
+        long[] rules = this.conjunctive.clone();
+        for (Group group : this.groups) {
+            group.match(values, predicates, rules);
+        }
+
+        for (Mask mask : this.conjunctiveMasks) {
+            if (!predicates.get(mask.predicate)) {
+                mask.clear(rules);
+            }
+        }
+        for (Mask mask : this.disjunctiveMasks) {
+            if (predicates.get(mask.predicate)) {
+                mask.set(rules);
+            }
+        }
+
+        for (int rule : this.walked) {
+            if (this.formulas[rule].test(predicates, values)) {
+                rules[rule >>> 6] |= 1L << rule;
+            }
+        }
+        matches.or(BitSet.valueOf(rules));
+    }
+
+    private static Formula toFormula(Condition condition, Map<Predicate, Predicate> predicates,
+            int[] residualCount) {
+        if (condition instanceof Condition.And) {
+            Condition.And and = (Condition.And) condition;
+            return new And(toFormula(and.getLeft(), predicates, residualCount),
+                    toFormula(and.getRight(), predicates, residualCount));
+        }
+        if (condition instanceof Condition.Or) {
+            Condition.Or or = (Condition.Or) condition;
+            return new Or(toFormula(or.getLeft(), predicates, residualCount),
+                    toFormula(or.getRight(), predicates, residualCount));
+        }
+
+        Predicate predicate = PredicateIndex.toPredicate(condition);
+        if (predicate == null) {
+            residualCount[0]++;
+            return new Residual(condition);
+        }
+
+        return predicates.computeIfAbsent(predicate, p -> p);
+    }
+
+    /**
+     * @return Predicate over one state path and a constant, or null if the condition is not one
+     * or its constant is an integer which a double does not hold exactly
+     */
+    private static Predicate toPredicate(Condition condition) {
+        Predicate predicate = PredicateIndex.toIndexable(condition);
+        return predicate != null && !predicate.isLong ? predicate : null;
+    }
+
+    private static Predicate toIndexable(Condition condition) {
+        if (condition instanceof Condition.Comparison) {
+            Condition.Comparison comparison = (Condition.Comparison) condition;
+            int operator = PredicateIndex.operatorOf(comparison);
+            if (comparison.getLeft() instanceof Operand.Path
+                    && comparison.getRight() instanceof Operand.Constant) {
+                return new Predicate((Operand.Path) comparison.getLeft(), operator,
+                        (Operand.Constant) comparison.getRight());
+            }
+            if (comparison.getLeft() instanceof Operand.Constant
+                    && comparison.getRight() instanceof Operand.Path) {
+                return new Predicate((Operand.Path) comparison.getRight(),
+                        PredicateIndex.flip(operator), (Operand.Constant) comparison.getLeft());
+            }
+        } else if (condition instanceof Condition.Equality) {
+            Condition.Equality equality = (Condition.Equality) condition;
+            int operator = equality.isNegated() ? NOT_EQUAL : EQUAL;
+            if (equality.getLeft() instanceof Operand.Path
+                    && equality.getRight() instanceof Operand.Constant) {
+                return new Predicate((Operand.Path) equality.getLeft(), operator,
+                        (Operand.Constant) equality.getRight());
+            }
+            if (equality.getLeft() instanceof Operand.Constant
+                    && equality.getRight() instanceof Operand.Path) {
+                return new Predicate((Operand.Path) equality.getRight(), operator,
+                        (Operand.Constant) equality.getLeft());
+            }
+        } else if (condition instanceof Condition.Truth) {
+            Operand operand = ((Condition.Truth) condition).getOperand();
+            if (operand instanceof Operand.Path) {
+                return new Predicate(((Operand.Path) operand).getSlot(), EQUAL,
+                        StateValues.BOOLEAN, 1, null);
+            }
+        }
+
+        return null;
+    }
+
+    private static int operatorOf(Condition.Comparison comparison) {
+        switch (comparison.getOperator()) {
+            case GREATER:
+                return GREATER;
+            case GREATER_EQUAL:
+                return GREATER_EQUAL;
+            case LESS:
+                return LESS;
+            default:
+                return LESS_EQUAL;
+        }
+    }
+
+    /**
+     * @return Operator with swapped operands, i.e. {@code 60 < $.age} is {@code $.age > 60}
+     */
+    private static int flip(int operator) {
+        switch (operator) {
+            case GREATER:
+                return LESS;
+            case GREATER_EQUAL:
+                return LESS_EQUAL;
+            case LESS:
+                return GREATER;
+            default:
+                return GREATER_EQUAL;
+        }
+    }
+
+    /**
+     * Predicates of one state path with the same operator and constant type
+     */
+    private static final class Group {
+        private final int slot;
+        private final int operator;
+        private final byte kind;
+        private final int start;
+        private final int count;
+        private final double[] numbers;
+        private final Map<String, Integer> strings;
+        // Rules which are a single predicate of the group, ordered like the predicates, those of
+        // the i-th predicate from ruleOffsets[i] to ruleOffsets[i + 1]
+        private int[] ruleOffsets;
+        private int[] rules;
+
+        private Group(List<Predicate> members, int start) {
+            Predicate first = members.get(0);
+            this.slot = first.slot;
+            this.operator = first.operator;
+            this.kind = first.kind;
+            this.start = start;
+            this.count = members.size();
+
+            if (this.kind == StateValues.STRING) {
+                this.numbers = null;
+                this.strings = new HashMap<>();
+                for (Predicate member : members) {
+                    member.id = start + this.strings.size();
+                    this.strings.put(member.string, member.id);
+                }
+            } else {
+                members.sort(Comparator.comparingDouble(p -> p.number));
+                this.numbers = new double[members.size()];
+                this.strings = null;
+                for (int i = 0; i < members.size(); i++) {
+                    this.numbers[i] = members.get(i).number;
+                    members.get(i).id = start + i;
+                }
+            }
+        }
+
+        /**
+         * @param singleRules Rules which are a single predicate by the id of the predicate
+         */
+        private void setRules(Map<Integer, List<Integer>> singleRules) {
+            this.ruleOffsets = new int[this.count + 1];
+            List<Integer> rules = new ArrayList<>();
+            for (int i = 0; i < this.count; i++) {
+                rules.addAll(singleRules.getOrDefault(this.start + i, List.of()));
+                this.ruleOffsets[i + 1] = rules.size();
+            }
+            this.rules = rules.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * Method will set bits of matching predicates and of matching rules which are a single
+         * predicate of the group
+         */
+        private void match(StateValues values, BitSet predicates, long[] rules) {
+            byte kind = values.getKind(this.slot);
+            switch (this.operator) {
+                case GREATER:
+                    if (kind == StateValues.NUMBER) {
+                        this.select(0, this.countBelow(values, false), predicates, rules);
+                    }
+                    break;
+                case GREATER_EQUAL:
+                    if (kind == StateValues.NUMBER) {
+                        this.select(0, this.countBelow(values, true), predicates, rules);
+                    }
+                    break;
+                case LESS:
+                    if (kind == StateValues.NUMBER) {
+                        this.select(this.countBelow(values, true), this.count, predicates,
+                                rules);
+                    }
+                    break;
+                case LESS_EQUAL:
+                    if (kind == StateValues.NUMBER) {
+                        this.select(this.countBelow(values, false), this.count, predicates,
+                                rules);
+                    }
+                    break;
+                case EQUAL:
+                    int equal = kind == this.kind ? this.find(values) : -1;
+                    if (equal >= 0) {
+                        this.select(equal, equal + 1, predicates, rules);
+                    }
+                    break;
+                default:
+                    int excluded = kind == this.kind ? this.find(values) : -1;
+                    if (excluded < 0) {
+                        this.select(0, this.count, predicates, rules);
+                    } else {
+                        this.select(0, excluded, predicates, rules);
+                        this.select(excluded + 1, this.count, predicates, rules);
+                    }
+            }
+        }
+
+        /**
+         * Method will select predicates of the group from the first to the last one, exclusive,
+         * and rules which are one of them
+         */
+        private void select(int from, int to, BitSet predicates, long[] rules) {
+            if (from >= to) {
+                return;
+            }
+
+            predicates.set(this.start + from, this.start + to);
+            for (int i = this.ruleOffsets[from]; i < this.ruleOffsets[to]; i++) {
+                int rule = this.rules[i];
+                rules[rule >>> 6] |= 1L << rule;
+            }
+        }
+
+        /**
+         * @return Number of constants lower than the NUMBER of the slot, or lower or equal if
+         * inclusive
+         */
+        private int countBelow(StateValues values, boolean inclusive) {
+            return values.isLong(this.slot)
+                    ? this.countBelowLong(values.getLong(this.slot), inclusive)
+                    : this.countBelow(values.getNumber(this.slot) + 0.0, inclusive);
+        }
+
+        /**
+         * @return Number of constants lower than the value, or lower or equal if inclusive
+         */
+        private int countBelow(double value, boolean inclusive) {
+            int low = 0;
+            int high = this.numbers.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                double constant = this.numbers[middle];
+                if (constant < value || (inclusive && constant == value)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        /**
+         * @return Number of constants exactly lower than the integer, or lower or equal if
+         * inclusive
+         */
+        private int countBelowLong(long value, boolean inclusive) {
+            int low = 0;
+            int high = this.numbers.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int order = Condition.Comparison.order(value, this.numbers[middle]);
+                if (order > 0 || (inclusive && order == 0)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        /**
+         * @return Position in the group of the predicate whose constant equals the value, or -1
+         */
+        private int find(StateValues values) {
+            switch (this.kind) {
+                case StateValues.NULL:
+                    return 0;
+                case StateValues.STRING:
+                    Integer id = this.strings.get(values.getString(this.slot));
+                    return id != null ? id - this.start : -1;
+                default:
+                    int index = this.countBelow(values, false);
+                    if (index == this.count) {
+                        return -1;
+                    }
+                    boolean equal = values.isLong(this.slot)
+                            ? Condition.Comparison.order(values.getLong(this.slot),
+                                    this.numbers[index]) == 0
+                            : this.numbers[index] == values.getNumber(this.slot);
+                    return equal ? index : -1;
+            }
+        }
+    }
+
+    /**
+     * Rules containing a predicate, kept as the non-zero words of a bit set of rule indexes so
+     * combining costs the number of words the rules span rather than the number of all rules
+     */
+    private static final class Mask {
+        private final int predicate;
+        private final int[] words;
+        private final long[] bits;
+
+        /**
+         * @param predicate Id of the predicate
+         * @param rules Ascending indexes of rules, an index may repeat
+         */
+        private Mask(int predicate, List<Integer> rules) {
+            this.predicate = predicate;
+            int[] words = new int[rules.size()];
+            long[] bits = new long[rules.size()];
+            int count = 0;
+            for (int rule : rules) {
+                if (count == 0 || words[count - 1] != rule >>> 6) {
+                    words[count++] = rule >>> 6;
+                }
+                bits[count - 1] |= 1L << rule;
+            }
+
+            this.words = Arrays.copyOf(words, count);
+            this.bits = Arrays.copyOf(bits, count);
+        }
+
+        private void set(long[] rules) {
+            for (int i = 0; i < this.words.length; i++) {
+                rules[this.words[i]] |= this.bits[i];
+            }
+        }
+
+        private void clear(long[] rules) {
+            for (int i = 0; i < this.words.length; i++) {
+                rules[this.words[i]] &= ~this.bits[i];
+            }
+        }
+    }
+
+    private abstract static class Formula {
+
+        abstract boolean test(BitSet predicates, StateValues values);
+    }
+
+    private static final class Predicate extends Formula {
+        private final int slot;
+        private final int operator;
+        private final byte kind;
+        private final double number;
+        private final String string;
+        private boolean isLong;
+        private int id;
+
+        private Predicate(Operand.Path path, int operator, Operand.Constant constant) {
+            this(path.getSlot(), operator, constant.getKind(), constant.getNumber(),
+                    constant.getString());
+            this.isLong = constant.isLong();
+        }
+
+        private Predicate(int slot, int operator, byte kind, double number, String string) {
+            this.slot = slot;
+            this.operator = operator;
+            this.kind = kind;
+            // Normalizes -0.0, which is equal to 0.0 for == but not for sorting
+            this.number = number + 0.0;
+            this.string = string;
+        }
+
+        @Override
+        boolean test(BitSet predicates, StateValues values) {
+            return predicates.get(this.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Predicate)) {
+                return false;
+            }
+            Predicate predicate = (Predicate) o;
+            return this.slot == predicate.slot && this.operator == predicate.operator
+                    && this.kind == predicate.kind
+                    && Double.compare(this.number, predicate.number) == 0
+                    && Objects.equals(this.string, predicate.string);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.slot, this.operator, this.kind, this.number, this.string);
+        }
+    }
+
+    private static final class And extends Formula {
+        private final Formula left;
+        private final Formula right;
+
+        private And(Formula left, Formula right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(BitSet predicates, StateValues values) {
+            return this.left.test(predicates, values) && this.right.test(predicates, values);
+        }
+    }
+
+    private static final class Or extends Formula {
+        private final Formula left;
+        private final Formula right;
+
+        private Or(Formula left, Formula right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(BitSet predicates, StateValues values) {
+            return this.left.test(predicates, values) || this.right.test(predicates, values);
+        }
+    }
+
+    private static final class Residual extends Formula {
+        private final Condition condition;
+
+        private Residual(Condition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        boolean test(BitSet predicates, StateValues values) {
+            return this.condition.test(values);
+        }
+    }
+}
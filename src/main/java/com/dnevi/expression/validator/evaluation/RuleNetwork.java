@@ -0,0 +1,396 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.exception.InvalidStateDocumentException;
+import com.dnevi.expression.validator.exception.UnevaluableExpressionException;
+import com.dnevi.expression.validator.expression.StatePathResolver;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Rules compiled into one network of shared nodes.
+ *
+ * <p>
+ * Condition trees of all rules are hash-consed into a directed acyclic graph: structurally equal
+ * subtrees, i.e. {@code $.employed == true} repeated in hundreds of rules, become one node. While
+ * a document is evaluated, the result of every node is remembered, so a shared node is evaluated at
+ * most once per document no matter how many rules use it. Operands of {@code &&} and {@code ||}
+ * are shared regardless of their order.
+ * </p>
+ *
+ * <p>
+ * Rules are added and removed one by one. Nodes are reference counted and released once no rule
+ * uses them, together with state paths no other node reads. Indexes of removed rules, nodes and
+ * paths are reused by rules added later. Evaluations run concurrently, modifications wait for
+ * running evaluations.
+ * </p>
+ */
+public class RuleNetwork {
+    private static final byte UNKNOWN = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+
+    private final StatePathResolver pathResolver;
+    private final StatePathExtractor extractor = new StatePathExtractor();
+    private final Map<List<Object>, Node> nodesByKey = new HashMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private final List<Node> rules = new ArrayList<>();
+    private final List<String> expressions = new ArrayList<>();
+    private final Deque<Integer> freeRules = new ArrayDeque<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder evaluationCount = new LongAdder();
+    private final LongAdder savedEvaluationCount = new LongAdder();
+    // Values of every thread, replaced once rules added later register more paths
+    private final ThreadLocal<StateValues> values = new ThreadLocal<>();
+    private int ruleCount;
+    private long referenceCount;
+
+    public RuleNetwork(StateSchema stateSchema) {
+        this.pathResolver = new StatePathResolver(stateSchema, true);
+    }
+
+    /**
+     * @param expression Rule to add
+     * @return Index of the rule in evaluation results, possibly one of a removed rule
+     * @throws UnevaluableExpressionException if the rule is not valid
+     */
+    public int addRule(String expression) {
+        this.lock.writeLock().lock();
+        try {
+            Condition condition;
+            try {
+                condition = StateEvaluator.compile(expression, this.pathResolver, this.extractor);
+            } catch (RuntimeException e) {
+                // Paths the rule registered before it failed are not read by any node
+                this.extractor.releaseUnreferenced();
+                throw e;
+            }
+            Node root = this.intern(condition);
+
+            int rule = this.freeRules.isEmpty() ? this.rules.size() : this.freeRules.pop();
+            if (rule == this.rules.size()) {
+                this.rules.add(root);
+                this.expressions.add(expression);
+            } else {
+                this.rules.set(rule, root);
+                this.expressions.set(rule, expression);
+            }
+            this.ruleCount++;
+            this.referenceCount += root.size;
+
+            return rule;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method will remove rule and release nodes no other rule uses. Indexes of other rules do not
+     * change, the index of the removed rule is given to the next added rule.
+     *
+     * @return Whether the rule existed
+     */
+    public boolean removeRule(int rule) {
+        this.lock.writeLock().lock();
+        try {
+            if (rule < 0 || rule >= this.rules.size() || this.rules.get(rule) == null) {
+                return false;
+            }
+
+            Node root = this.rules.set(rule, null);
+            this.expressions.set(rule, null);
+            this.freeRules.push(rule);
+            this.ruleCount--;
+            this.referenceCount -= root.size;
+            this.release(root);
+
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Expression of the rule, or null if it was removed
+     */
+    public String getExpression(int rule) {
+        this.lock.readLock().lock();
+        try {
+            return this.expressions.get(rule);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Indexes of rules matching the document
+     */
+    public BitSet evaluate(byte[] document) {
+        this.lock.readLock().lock();
+        try (JsonParser parser = StateEvaluator.JSON_FACTORY.createParser(document)) {
+            StateValues values = this.values.get();
+            if (values == null || !this.extractor.fits(values)) {
+                values = this.extractor.newValues();
+                this.values.set(values);
+            }
+            this.extractor.extract(parser, values);
+
+            return this.evaluateLocked(values);
+        } catch (IOException e) {
+            throw new InvalidStateDocumentException(e.getMessage(), e);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public NetworkStats stats() {
+        this.lock.readLock().lock();
+        try {
+            return new NetworkStats(this.ruleCount, this.nodesByKey.size(), this.referenceCount,
+                    this.extractor.getSlotCount(), this.evaluationCount.sum(),
+                    this.savedEvaluationCount.sum());
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private BitSet evaluateLocked(StateValues values) {
+        Evaluation evaluation = new Evaluation(values, new byte[this.nodes.size()]);
+        BitSet matches = new BitSet(this.rules.size());
+        for (int i = 0; i < this.rules.size(); i++) {
+            Node root = this.rules.get(i);
+            if (root != null && evaluation.test(root)) {
+                matches.set(i);
+            }
+        }
+
+        this.evaluationCount.add(evaluation.evaluationCount);
+        this.savedEvaluationCount.add(evaluation.savedEvaluationCount);
+        return matches;
+    }
+
+    /**
+     * @return Shared node of the condition, referenced once more
+     */
+    private Node intern(Condition condition) {
+        Node left = null;
+        Node right = null;
+        List<Object> key;
+        if (condition instanceof Condition.And || condition instanceof Condition.Or) {
+            boolean isAnd = condition instanceof Condition.And;
+            left = this.intern(isAnd ? ((Condition.And) condition).getLeft()
+                    : ((Condition.Or) condition).getLeft());
+            right = this.intern(isAnd ? ((Condition.And) condition).getRight()
+                    : ((Condition.Or) condition).getRight());
+            key = Arrays.asList(isAnd ? "&&" : "||", Math.min(left.id, right.id),
+                    Math.max(left.id, right.id));
+        } else {
+            key = RuleNetwork.keyOf(condition);
+        }
+
+        Node node = this.nodesByKey.get(key);
+        if (node != null) {
+            // Children already hold references from the existing node
+            if (left != null) {
+                this.release(left);
+                this.release(right);
+            }
+            node.references++;
+            return node;
+        }
+
+        int id = this.freeIds.isEmpty() ? this.nodes.size() : this.freeIds.pop();
+        node = new Node(id, key, condition, left, right);
+        if (id == this.nodes.size()) {
+            this.nodes.add(node);
+        } else {
+            this.nodes.set(id, node);
+        }
+        this.nodesByKey.put(key, node);
+        if (left == null) {
+            this.reference(condition, true);
+        }
+
+        return node;
+    }
+
+    private void release(Node node) {
+        if (--node.references > 0) {
+            return;
+        }
+
+        this.nodesByKey.remove(node.key);
+        this.nodes.set(node.id, null);
+        this.freeIds.push(node.id);
+        if (node.left != null) {
+            this.release(node.left);
+            this.release(node.right);
+        } else {
+            this.reference(node.condition, false);
+        }
+    }
+
+    /**
+     * Method will acquire, or release, state paths read by the condition of a leaf node
+     */
+    private void reference(Condition condition, boolean acquire) {
+        if (condition instanceof Condition.Comparison) {
+            Condition.Comparison comparison = (Condition.Comparison) condition;
+            this.reference(comparison.getLeft(), acquire);
+            this.reference(comparison.getRight(), acquire);
+        } else if (condition instanceof Condition.Equality) {
+            Condition.Equality equality = (Condition.Equality) condition;
+            this.reference(equality.getLeft(), acquire);
+            this.reference(equality.getRight(), acquire);
+        } else if (condition instanceof Condition.Truth) {
+            this.reference(((Condition.Truth) condition).getOperand(), acquire);
+        } else if (condition instanceof Condition.Quantified) {
+            int column = ((Condition.Quantified) condition).getColumn().getColumn();
+            if (acquire) {
+                this.extractor.acquireColumn(column);
+            } else {
+                this.extractor.releaseColumn(column);
+            }
+        } else if (condition instanceof Condition.And) {
+            this.reference(((Condition.And) condition).getLeft(), acquire);
+            this.reference(((Condition.And) condition).getRight(), acquire);
+        } else if (condition instanceof Condition.Or) {
+            this.reference(((Condition.Or) condition).getLeft(), acquire);
+            this.reference(((Condition.Or) condition).getRight(), acquire);
+        }
+    }
+
+    private void reference(Operand operand, boolean acquire) {
+        if (operand instanceof Operand.Path) {
+            int slot = ((Operand.Path) operand).getSlot();
+            if (acquire) {
+                this.extractor.acquire(slot);
+            } else {
+                this.extractor.release(slot);
+            }
+        } else if (operand instanceof Operand.Result) {
+            this.reference(((Operand.Result) operand).getCondition(), acquire);
+        }
+    }
+
+    /**
+     * @return Structural key of a condition which is not {@code &&} or {@code ||}
+     */
+    private static List<Object> keyOf(Condition condition) {
+        if (condition instanceof Condition.Comparison) {
+            Condition.Comparison comparison = (Condition.Comparison) condition;
+            return Arrays.asList(comparison.getOperator(), keyOf(comparison.getLeft()),
+                    keyOf(comparison.getRight()));
+        }
+        if (condition instanceof Condition.Equality) {
+            Condition.Equality equality = (Condition.Equality) condition;
+            return Arrays.asList(equality.isNegated() ? "!=" : "==", keyOf(equality.getLeft()),
+                    keyOf(equality.getRight()));
+        }
+        if (condition instanceof Condition.Truth) {
+            return Arrays.asList("truth", keyOf(((Condition.Truth) condition).getOperand()));
+        }
+        if (condition instanceof Condition.Fixed) {
+            return Arrays.asList("fixed", ((Condition.Fixed) condition).isValue());
+        }
+        if (condition instanceof Condition.Quantified) {
+            Condition.Quantified quantified = (Condition.Quantified) condition;
+            return Arrays.asList(quantified.getColumn().isAll() ? "all" : "any",
+                    quantified.getColumn().getMinimum(), quantified.getColumn().getColumn(),
+                    quantified.getOperator(),
+                    keyOf(quantified.getConstant()));
+        }
+        if (condition instanceof Condition.And) {
+            Condition.And and = (Condition.And) condition;
+            return Arrays.asList("&&", keyOf(and.getLeft()), keyOf(and.getRight()));
+        }
+        if (condition instanceof Condition.Or) {
+            Condition.Or or = (Condition.Or) condition;
+            return Arrays.asList("||", keyOf(or.getLeft()), keyOf(or.getRight()));
+        }
+
+        throw new IllegalArgumentException(
+                String.format("Unknown condition '%s'.", condition.getClass().getSimpleName()));
+    }
+
+    private static List<Object> keyOf(Operand operand) {
+        if (operand instanceof Operand.Path) {
+            return Arrays.asList("path", ((Operand.Path) operand).getSlot());
+        }
+        if (operand instanceof Operand.Constant) {
+            Operand.Constant constant = (Operand.Constant) operand;
+            return Arrays.asList("constant", constant.getKind(), constant.getNumber(),
+                    constant.isLong() ? constant.getLong() : null, constant.getString());
+        }
+
+        return Arrays.asList("result", keyOf(((Operand.Result) operand).getCondition()));
+    }
+
+    private static final class Node {
+        private final int id;
+        private final List<Object> key;
+        private final Condition condition;
+        private final Node left;
+        private final Node right;
+        private final int size;
+        private int references = 1;
+
+        private Node(int id, List<Object> key, Condition condition, Node left, Node right) {
+            this.id = id;
+            this.key = key;
+            this.condition = condition;
+            this.left = left;
+            this.right = right;
+            this.size = left == null ? 1 : 1 + left.size + right.size;
+        }
+    }
+
+    /**
+     * Results of nodes for one document
+     */
+    private static final class Evaluation {
+        private final StateValues values;
+        private final byte[] results;
+        private long evaluationCount;
+        private long savedEvaluationCount;
+
+        private Evaluation(StateValues values, byte[] results) {
+            this.values = values;
+            this.results = results;
+        }
+
+        private boolean test(Node node) {
+            byte result = this.results[node.id];
+            if (result != UNKNOWN) {
+                this.savedEvaluationCount++;
+                return result == TRUE;
+            }
+
+            this.evaluationCount++;
+            boolean isTrue;
+            if (node.left == null) {
+                isTrue = node.condition.test(this.values);
+            } else if (node.condition instanceof Condition.And) {
+                isTrue = this.test(node.left) && this.test(node.right);
+            } else {
+                isTrue = this.test(node.left) || this.test(node.right);
+            }
+
+            this.results[node.id] = isTrue ? TRUE : FALSE;
+            return isTrue;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.expression.TokenType;
+import com.dnevi.expression.validator.schema.StatePath;
+import com.dnevi.expression.validator.schema.StateSchema;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary file of a compiled {@link RuleSet}, which is read at startup instead of lexing, parsing
+ * and analysing every rule again.
+ *
+ * <p>
+ * A pack holds the fingerprint of the state schema the rules were compiled against, the rules
+ * themselves, the registered state paths in the order of their slots and columns, and the
+ * condition tree of every rule in prefix order. Paths and string literals are written once in a
+ * string table and referenced by index. Reading maps the file and rebuilds the rule set in a
+ * single pass over it.
+ * </p>
+ *
+ * <p>
+ * Packs are only valid for the schema they were compiled against. If the fingerprint of the schema
+ * given on reading differs, the rules of the pack are compiled again against it, see {@link
+ * StateSchema#getFingerprint()}.
+ * </p>
+ */
+@Slf4j
+public final class RulePack {
+    private static final int MAGIC = 0x52504b31;
+    private static final int VERSION = 5;
+
+    private static final byte COMPARISON = 1;
+    private static final byte EQUALITY = 2;
+    private static final byte AND = 3;
+    private static final byte OR = 4;
+    private static final byte QUANTIFIED = 5;
+    private static final byte TRUTH = 6;
+    private static final byte FIXED = 7;
+
+    private static final byte PATH = 1;
+    private static final byte CONSTANT = 2;
+    private static final byte RESULT = 3;
+    private static final byte LONG_CONSTANT = 4;
+
+    // Operators are written as stable codes, code of an operator is its index in this array
+    private static final TokenType[] OPERATORS = {null, TokenType.GREATER,
+            TokenType.GREATER_EQUAL, TokenType.LESS, TokenType.LESS_EQUAL, TokenType.EQUAL_EQUAL,
+            TokenType.BANG_EQUAL};
+
+    private RulePack() {
+    }
+
+    /**
+     * Method will write the rule set into a pack file, replacing an existing one
+     *
+     * @param ruleSet Rule set compiled by {@link RuleSet#compile}
+     * @param file Pack file
+     */
+    public static void write(RuleSet ruleSet, Path file) throws IOException {
+        StatePathExtractor extractor = ruleSet.getExtractor();
+        Writer writer = new Writer();
+        int[] slotPaths = extractor.getPaths().stream()
+                .mapToInt(path -> writer.string(path.getPath()))
+                .toArray();
+        int[] columnPaths = extractor.getColumnPaths().stream()
+                .mapToInt(path -> writer.string(path.getPath()))
+                .toArray();
+        for (int rule = 0; rule < ruleSet.size(); rule++) {
+            writer.condition(ruleSet.getCondition(rule));
+        }
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(ruleSet.getSchemaFingerprint());
+            output.writeInt(ruleSet.size());
+            for (int rule = 0; rule < ruleSet.size(); rule++) {
+                RulePack.writeString(output, ruleSet.getExpression(rule));
+            }
+            output.writeInt(writer.strings.size());
+            for (String string : writer.strings) {
+                RulePack.writeString(output, string);
+            }
+
+            output.writeInt(slotPaths.length);
+            for (int slot = 0; slot < slotPaths.length; slot++) {
+                output.writeInt(slotPaths[slot]);
+                output.writeByte(extractor.getKind(slot));
+            }
+            output.writeInt(columnPaths.length);
+            for (int column = 0; column < columnPaths.length; column++) {
+                output.writeInt(columnPaths[column]);
+                output.writeByte(extractor.getColumnKind(column));
+            }
+            writer.bytes.writeTo(output);
+        }
+    }
+
+    /**
+     * Method will read the rule set of a pack file, or compile its rules again if the pack was
+     * compiled against a different schema
+     *
+     * @param file Pack file written by {@link #write}
+     * @param stateSchema Schema of evaluated state documents
+     * @return Rule set equal to the one which was written
+     * @throws IOException if the file can not be read or is not a valid pack
+     * @throws com.dnevi.expression.validator.exception.UnevaluableExpressionException if rules are
+     * compiled again and any of them is not valid for the schema
+     */
+    public static RuleSet read(Path file, StateSchema stateSchema) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(String.format(
+                        "File '%s' is not a rule pack of version %d.", file, VERSION));
+            }
+            long fingerprint = buffer.getLong();
+            String[] expressions = new String[buffer.getInt()];
+            Arrays.setAll(expressions, i -> RulePack.readString(buffer));
+            List<String> rules = Collections.unmodifiableList(Arrays.asList(expressions));
+
+            if (fingerprint != stateSchema.getFingerprint()) {
+                log.info("Rule pack '{}' was compiled against a different schema, compiling {}"
+                        + " rules again.", file, expressions.length);
+                return RuleSet.compile(rules, stateSchema);
+            }
+
+            return new Reader(buffer).read(rules, fingerprint);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException
+                | NegativeArraySizeException | IllegalArgumentException e) {
+            throw new IOException(String.format("Rule pack '%s' is not valid.", file), e);
+        }
+    }
+
+    private static int operatorCode(TokenType operator) {
+        for (int code = 1; code < OPERATORS.length; code++) {
+            if (OPERATORS[code] == operator) {
+                return code;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format(
+                "Operator '%s' can not be written to a rule pack.", operator));
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        if (string == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes condition trees, collecting paths and string literals into the string table
+     */
+    private static final class Writer {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream output = new DataOutputStream(this.bytes);
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private int string(String string) {
+            if (string == null) {
+                return -1;
+            }
+
+            return this.indexes.computeIfAbsent(string, s -> {
+                this.strings.add(s);
+                return this.strings.size() - 1;
+            });
+        }
+
+        private void condition(Condition condition) throws IOException {
+            if (condition instanceof Condition.Comparison) {
+                Condition.Comparison comparison = (Condition.Comparison) condition;
+                this.output.writeByte(COMPARISON);
+                this.operand(comparison.getLeft());
+                this.output.writeByte(RulePack.operatorCode(comparison.getOperator()));
+                this.operand(comparison.getRight());
+            } else if (condition instanceof Condition.Equality) {
+                Condition.Equality equality = (Condition.Equality) condition;
+                this.output.writeByte(EQUALITY);
+                this.operand(equality.getLeft());
+                this.output.writeBoolean(equality.isNegated());
+                this.operand(equality.getRight());
+            } else if (condition instanceof Condition.And) {
+                this.output.writeByte(AND);
+                this.condition(((Condition.And) condition).getLeft());
+                this.condition(((Condition.And) condition).getRight());
+            } else if (condition instanceof Condition.Or) {
+                this.output.writeByte(OR);
+                this.condition(((Condition.Or) condition).getLeft());
+                this.condition(((Condition.Or) condition).getRight());
+            } else if (condition instanceof Condition.Quantified) {
+                Condition.Quantified quantified = (Condition.Quantified) condition;
+                this.output.writeByte(QUANTIFIED);
+                this.column(quantified.getColumn());
+                this.output.writeByte(RulePack.operatorCode(quantified.getOperator()));
+                this.operand(quantified.getConstant());
+            } else if (condition instanceof Condition.Truth) {
+                this.output.writeByte(TRUTH);
+                this.operand(((Condition.Truth) condition).getOperand());
+            } else if (condition instanceof Condition.Fixed) {
+                this.output.writeByte(FIXED);
+                this.output.writeBoolean(((Condition.Fixed) condition).isValue());
+            } else {
+                throw new IllegalArgumentException(String.format(
+                        "Condition '%s' can not be written to a rule pack.",
+                        condition.getClass().getSimpleName()));
+            }
+        }
+
+        private void column(Column column) throws IOException {
+            this.output.writeInt(column.getColumn());
+            this.output.writeInt(this.string(column.getPath()));
+            this.output.writeByte(column.getDeclaredKind());
+            this.output.writeBoolean(column.isAll());
+            this.output.writeInt(column.getMinimum());
+        }
+
+        private void operand(Operand operand) throws IOException {
+            if (operand instanceof Operand.Path) {
+                Operand.Path path = (Operand.Path) operand;
+                this.output.writeByte(PATH);
+                this.output.writeInt(path.getSlot());
+                this.output.writeInt(this.string(path.getPath()));
+                this.output.writeByte(path.getDeclaredKind());
+            } else if (operand instanceof Operand.Constant
+                    && ((Operand.Constant) operand).isLong()) {
+                this.output.writeByte(LONG_CONSTANT);
+                this.output.writeLong(((Operand.Constant) operand).getLong());
+            } else if (operand instanceof Operand.Constant) {
+                Operand.Constant constant = (Operand.Constant) operand;
+                this.output.writeByte(CONSTANT);
+                this.output.writeByte(constant.getKind());
+                this.output.writeDouble(constant.getNumber());
+                this.output.writeInt(this.string(constant.getString()));
+            } else {
+                this.output.writeByte(RESULT);
+                this.condition(((Operand.Result) operand).getCondition());
+            }
+        }
+    }
+
+    /**
+     * Reads sections of a pack which follow the rules, positioned at the string table
+     */
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private String[] strings;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private RuleSet read(List<String> expressions, long fingerprint) {
+            this.strings = new String[this.buffer.getInt()];
+            Arrays.setAll(this.strings, i -> RulePack.readString(this.buffer));
+
+            // Paths are registered in the order of their slots and columns, so indexes are equal
+            StatePathExtractor extractor = new StatePathExtractor();
+            int slotCount = this.buffer.getInt();
+            for (int slot = 0; slot < slotCount; slot++) {
+                StatePath path = new StatePath(this.string());
+                if (extractor.register(path, this.buffer.get()) != slot) {
+                    throw new IllegalArgumentException(String.format(
+                            "Path '%s' is registered twice.", path.getPath()));
+                }
+            }
+            int columnCount = this.buffer.getInt();
+            for (int column = 0; column < columnCount; column++) {
+                StatePath path = new StatePath(this.string());
+                if (extractor.registerColumn(path, this.buffer.get()) != column) {
+                    throw new IllegalArgumentException(String.format(
+                            "Path '%s' is registered twice.", path.getPath()));
+                }
+            }
+
+            Condition[] conditions = new Condition[expressions.size()];
+            for (int rule = 0; rule < conditions.length; rule++) {
+                conditions[rule] = this.condition();
+            }
+
+            return new RuleSet(expressions, conditions, extractor, fingerprint);
+        }
+
+        private Condition condition() {
+            byte tag = this.buffer.get();
+            switch (tag) {
+                case COMPARISON:
+                    return new Condition.Comparison(this.operand(), this.operator(),
+                            this.operand());
+                case EQUALITY:
+                    return new Condition.Equality(this.operand(), this.buffer.get() != 0,
+                            this.operand());
+                case AND:
+                    return new Condition.And(this.condition(), this.condition());
+                case OR:
+                    return new Condition.Or(this.condition(), this.condition());
+                case QUANTIFIED:
+                    return new Condition.Quantified(this.column(), this.operator(),
+                            (Operand.Constant) this.operand());
+                case TRUTH:
+                    return new Condition.Truth(this.operand());
+                case FIXED:
+                    return new Condition.Fixed(this.buffer.get() != 0);
+                default:
+                    throw new IllegalArgumentException(String.format(
+                            "Unknown condition tag %d.", tag));
+            }
+        }
+
+        private Column column() {
+            return new Column(this.buffer.getInt(), this.string(), this.buffer.get(),
+                    this.buffer.get() != 0, this.buffer.getInt());
+        }
+
+        private Operand operand() {
+            byte tag = this.buffer.get();
+            switch (tag) {
+                case PATH:
+                    return new Operand.Path(this.buffer.getInt(), this.string(),
+                            this.buffer.get());
+                case CONSTANT:
+                    return new Operand.Constant(this.buffer.get(), this.buffer.getDouble(),
+                            this.string());
+                case LONG_CONSTANT:
+                    return new Operand.Constant(this.buffer.getLong());
+                case RESULT:
+                    return new Operand.Result(this.condition());
+                default:
+                    throw new IllegalArgumentException(String.format(
+                            "Unknown operand tag %d.", tag));
+            }
+        }
+
+        private TokenType operator() {
+            byte code = this.buffer.get();
+            if (code <= 0 || code >= OPERATORS.length) {
+                throw new IllegalArgumentException(String.format(
+                        "Unknown operator code %d.", code));
+            }
+
+            return OPERATORS[code];
+        }
+
+        private String string() {
+            int index = this.buffer.getInt();
+            return index < 0 ? null : this.strings[index];
+        }
+    }
+}
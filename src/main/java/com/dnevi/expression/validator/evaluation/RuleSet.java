@@ -0,0 +1,220 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.exception.InvalidStateDocumentException;
+import com.dnevi.expression.validator.exception.UnevaluableExpressionException;
+import com.dnevi.expression.validator.expression.StatePathResolver;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Many rules evaluated together against one state document.
+ *
+ * <p>
+ * All rules share one {@link StatePathExtractor}, so the union of their state paths is extracted
+ * from a document in a single streaming pass, and every rule reads its paths from the shared
+ * {@link StateValues}. The result of an evaluation is a bit set with the indexes of matching
+ * rules.
+ * </p>
+ *
+ * <p>
+ * Rules which can never or always match, i.e. {@code $.age > 60 && $.age < 30}, are found while
+ * compiling, see {@link com.dnevi.expression.validator.expression.ExpressionAnalyzer}. They are
+ * reported by {@link #getNeverMatching()} and {@link #getAlwaysMatching()} and not evaluated.
+ * </p>
+ *
+ * <p>
+ * For many documents, i.e. archived ones, a {@link StateBlock} of documents is evaluated at once,
+ * rule by rule over columns of the block instead of document by document.
+ * </p>
+ *
+ * <p>
+ * A rule set is immutable and can be shared by all threads.
+ * </p>
+ */
+public class RuleSet {
+    private final List<String> expressions;
+    private final Condition[] conditions;
+    private final StatePathExtractor extractor;
+    private final long schemaFingerprint;
+    private final BitSet neverMatching = new BitSet();
+    private final BitSet alwaysMatching = new BitSet();
+    private final int[] evaluatedRules;
+    private final ThreadLocal<StateValues> values;
+
+    RuleSet(List<String> expressions, Condition[] conditions, StatePathExtractor extractor,
+            long schemaFingerprint) {
+        this.expressions = expressions;
+        this.conditions = conditions;
+        this.extractor = extractor;
+        this.schemaFingerprint = schemaFingerprint;
+        this.values = ThreadLocal.withInitial(extractor::newValues);
+
+        for (int i = 0; i < conditions.length; i++) {
+            if (!(conditions[i] instanceof Condition.Fixed)) {
+                continue;
+            }
+            if (((Condition.Fixed) conditions[i]).isValue()) {
+                this.alwaysMatching.set(i);
+            } else {
+                this.neverMatching.set(i);
+            }
+        }
+        this.evaluatedRules = IntStream.range(0, conditions.length)
+                .filter(i -> !(conditions[i] instanceof Condition.Fixed))
+                .toArray();
+    }
+
+    /**
+     * @param expressions Rules, indexed by their position
+     * @param stateSchema Schema of evaluated state documents
+     * @return Compiled rule set
+     * @throws UnevaluableExpressionException if any of the rules is not valid
+     */
+    public static RuleSet compile(List<String> expressions, StateSchema stateSchema) {
+        StatePathResolver pathResolver = new StatePathResolver(stateSchema, true);
+        StatePathExtractor extractor = new StatePathExtractor();
+        Condition[] conditions = new Condition[expressions.size()];
+        for (int i = 0; i < conditions.length; i++) {
+            conditions[i] = StateEvaluator.compile(expressions.get(i), pathResolver, extractor);
+        }
+
+        return new RuleSet(Collections.unmodifiableList(new ArrayList<>(expressions)), conditions,
+                extractor, stateSchema.getFingerprint());
+    }
+
+    public int size() {
+        return this.conditions.length;
+    }
+
+    public String getExpression(int rule) {
+        return this.expressions.get(rule);
+    }
+
+    public Condition getCondition(int rule) {
+        return this.conditions[rule];
+    }
+
+    /**
+     * @return Indexes of rules which can never match any document
+     */
+    public BitSet getNeverMatching() {
+        return (BitSet) this.neverMatching.clone();
+    }
+
+    /**
+     * @return Indexes of rules which match every document
+     */
+    public BitSet getAlwaysMatching() {
+        return (BitSet) this.alwaysMatching.clone();
+    }
+
+    /**
+     * @return Extractor of the union of state paths of all rules
+     */
+    public StatePathExtractor getExtractor() {
+        return this.extractor;
+    }
+
+    /**
+     * @return Fingerprint of the state schema the rules were compiled against, see {@link
+     * StateSchema#getFingerprint()}
+     */
+    public long getSchemaFingerprint() {
+        return this.schemaFingerprint;
+    }
+
+    /**
+     * @return Indexes of rules matching the document
+     */
+    public BitSet evaluate(byte[] document) {
+        return this.evaluate(document, 0, document.length);
+    }
+
+    public BitSet evaluate(byte[] document, int offset, int length) {
+        try (JsonParser parser = StateEvaluator.JSON_FACTORY.createParser(document, offset, length)) {
+            return this.evaluate(parser);
+        } catch (IOException e) {
+            throw new InvalidStateDocumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param document State document, the stream is not closed
+     */
+    public BitSet evaluate(InputStream document) {
+        try (JsonParser parser = StateEvaluator.JSON_FACTORY.createParser(document)) {
+            return this.evaluate(parser);
+        } catch (IOException e) {
+            throw new InvalidStateDocumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param document State document between position and limit of the buffer, the position is not
+     * changed
+     */
+    public BitSet evaluate(ByteBuffer document) {
+        if (document.hasArray()) {
+            return this.evaluate(document.array(), document.arrayOffset() + document.position(),
+                    document.remaining());
+        }
+
+        return this.evaluate(new ByteBufferBackedInputStream(document.duplicate()));
+    }
+
+    /**
+     * @param parser Parser positioned before the root object of a state document
+     */
+    public BitSet evaluate(JsonParser parser) {
+        StateValues values = this.values.get();
+        this.extractor.extract(parser, values);
+
+        BitSet matches = new BitSet(this.conditions.length);
+        this.evaluate(values, matches);
+        return matches;
+    }
+
+    /**
+     * Method will evaluate every rule over all documents of the block at once, see {@link
+     * StateBlock}
+     *
+     * @param block Block filled through {@link #getExtractor()}
+     * @return Selection bitmap of every rule, with bits set for indexes of matching documents
+     */
+    public BitSet[] evaluate(StateBlock block) {
+        BlockEvaluator evaluator = new BlockEvaluator(block);
+        BitSet[] selections = new BitSet[this.conditions.length];
+        for (int i = 0; i < selections.length; i++) {
+            selections[i] = BitSet.valueOf(evaluator.select(this.conditions[i]));
+        }
+
+        return selections;
+    }
+
+    /**
+     * Method will evaluate all rules against already extracted values
+     *
+     * @param values Values extracted by {@link #getExtractor()}
+     * @param matches Bit set which receives indexes of matching rules, other bits are not cleared
+     */
+    public void evaluate(StateValues values, BitSet matches) {
+        matches.or(this.alwaysMatching);
+
+        Condition[] conditions = this.conditions;
+        for (int i : this.evaluatedRules) {
+            if (conditions[i].test(values)) {
+                matches.set(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.exception.InvalidStateDocumentException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Values of state paths extracted from a block of state documents, stored by slot in columns.
+ *
+ * <p>
+ * Every slot of the {@link StatePathExtractor} has a primitive column of its kind, {@code
+ * double[]} for numbers and booleans, as 1 and 0, or {@code String[]}, and a null bitmap with one
+ * bit per document. Integers which a double does not hold exactly are also kept in a {@code
+ * long[]} column of the slot and marked in a bitmap, see {@link StateValues#isLong(int)}.
+ * Documents are rows of the block in the order they were added. Wildcard paths
+ * keep an {@link ArrayColumn} per row. A {@link RuleSet} evaluates every rule over the whole block
+ * at once, see {@link RuleSet#evaluate(StateBlock)}.
+ * </p>
+ *
+ * <p>
+ * The block is sized for the paths registered when it was created. Instances are reused between
+ * blocks through {@link #clear()} and are not thread-safe.
+ * </p>
+ */
+public final class StateBlock {
+    private final StatePathExtractor extractor;
+    private final int capacity;
+    private final StateValues values;
+    private final byte[] kinds;
+    private final double[][] numbers;
+    private final long[][] longNumbers;
+    private final long[][] longs;
+    private final String[][] strings;
+    private final long[][] nulls;
+    private final ArrayColumn[][] columns;
+    private int size;
+
+    /**
+     * @param extractor Extractor of paths of evaluated rules, i.e. {@link RuleSet#getExtractor()}
+     * @param capacity Maximum number of documents in the block
+     */
+    public StateBlock(StatePathExtractor extractor, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity of a block must be positive.");
+        }
+
+        int slotCount = extractor.getSlotCount();
+        this.extractor = extractor;
+        this.capacity = capacity;
+        this.values = new StateValues(slotCount, extractor.getColumnCount());
+        this.kinds = new byte[slotCount];
+        this.numbers = new double[slotCount][];
+        this.longNumbers = new long[slotCount][];
+        this.longs = new long[slotCount][];
+        this.strings = new String[slotCount][];
+        this.nulls = new long[slotCount][StateBlock.words(capacity)];
+        for (int slot = 0; slot < slotCount; slot++) {
+            this.kinds[slot] = extractor.getKind(slot);
+            if (this.kinds[slot] == StateValues.STRING) {
+                this.strings[slot] = new String[capacity];
+            } else {
+                this.numbers[slot] = new double[capacity];
+            }
+            if (this.kinds[slot] == StateValues.NUMBER) {
+                this.longNumbers[slot] = new long[capacity];
+                this.longs[slot] = new long[StateBlock.words(capacity)];
+            }
+        }
+        this.columns = new ArrayColumn[extractor.getColumnCount()][capacity];
+        for (ArrayColumn[] rows : this.columns) {
+            Arrays.setAll(rows, i -> new ArrayColumn());
+        }
+    }
+
+    /**
+     * @return Number of longs of a bitmap with one bit per document
+     */
+    static int words(int documents) {
+        return (documents + 63) >>> 6;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int capacity() {
+        return this.capacity;
+    }
+
+    public boolean isFull() {
+        return this.size == this.capacity;
+    }
+
+    /**
+     * Method will remove all documents
+     */
+    public void clear() {
+        for (String[] column : this.strings) {
+            if (column != null) {
+                Arrays.fill(column, 0, this.size, null);
+            }
+        }
+        for (long[] bitmap : this.nulls) {
+            Arrays.fill(bitmap, 0);
+        }
+        for (long[] bitmap : this.longs) {
+            if (bitmap != null) {
+                Arrays.fill(bitmap, 0);
+            }
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Method will extract the document and add it as the next row
+     *
+     * @throws InvalidStateDocumentException if the document is not a JSON object, it is not added
+     */
+    public void add(byte[] document, int offset, int length) {
+        try (JsonParser parser = StateEvaluator.JSON_FACTORY.createParser(document, offset,
+                length)) {
+            this.extractor.extract(parser, this.values);
+        } catch (IOException e) {
+            throw new InvalidStateDocumentException(e.getMessage(), e);
+        }
+
+        this.add(this.values);
+    }
+
+    /**
+     * Method will extract the document between position and limit of the buffer, i.e. a slice of a
+     * memory mapped file, and add it as the next row. The position is not changed.
+     *
+     * @throws InvalidStateDocumentException if the document is not a JSON object, it is not added
+     */
+    public void add(ByteBuffer document) {
+        if (document.hasArray()) {
+            this.add(document.array(), document.arrayOffset() + document.position(),
+                    document.remaining());
+            return;
+        }
+
+        try (JsonParser parser = StateEvaluator.JSON_FACTORY.createParser(
+                new ByteBufferBackedInputStream(document.duplicate()))) {
+            this.extractor.extract(parser, this.values);
+        } catch (IOException e) {
+            throw new InvalidStateDocumentException(e.getMessage(), e);
+        }
+
+        this.add(this.values);
+    }
+
+    /**
+     * Method will add newline delimited documents until the data ends or the block is full. Blank
+     * lines are skipped.
+     *
+     * @param data Complete lines of newline delimited JSON
+     * @return Offset after the last consumed line, {@code offset + length} if all were consumed
+     * @throws InvalidStateDocumentException if a line is not a JSON object, the rows of lines
+     * before it stay in the block
+     */
+    public int addLines(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int position = offset;
+        while (position < end && !this.isFull()) {
+            int lineEnd = position;
+            while (lineEnd < end && data[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            if (!StateBlock.isBlank(data, position, lineEnd)) {
+                this.add(data, position, lineEnd - position);
+            }
+            position = Math.min(lineEnd + 1, end);
+        }
+
+        return position;
+    }
+
+    /**
+     * Method will add already extracted values as the next row
+     *
+     * @param values Values extracted by the extractor of the block
+     */
+    public void add(StateValues values) {
+        if (this.isFull()) {
+            throw new IllegalStateException(String.format(
+                    "Block already holds %d documents.", this.capacity));
+        }
+
+        int row = this.size;
+        for (int slot = 0; slot < this.kinds.length; slot++) {
+            if (values.getKind(slot) != this.kinds[slot]) {
+                this.nulls[slot][row >>> 6] |= 1L << row;
+                if (this.numbers[slot] != null) {
+                    this.numbers[slot][row] = 0;
+                }
+            } else if (this.kinds[slot] == StateValues.STRING) {
+                this.strings[slot][row] = values.getString(slot);
+            } else {
+                this.numbers[slot][row] = values.getNumber(slot);
+                if (values.isLong(slot)) {
+                    this.longNumbers[slot][row] = values.getLong(slot);
+                    this.longs[slot][row >>> 6] |= 1L << row;
+                }
+            }
+        }
+        for (int column = 0; column < this.columns.length; column++) {
+            this.columns[column][row].copy(values.getColumn(column));
+        }
+        this.size++;
+    }
+
+    private static boolean isBlank(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] != ' ' && data[i] != '\t' && data[i] != '\r') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    byte getKind(int slot) {
+        return this.kinds[slot];
+    }
+
+    /**
+     * @return Column of a NUMBER or BOOLEAN slot, 0 in rows where it is null
+     */
+    double[] getNumbers(int slot) {
+        return this.numbers[slot];
+    }
+
+    /**
+     * @return Column of a NUMBER slot with exact values of rows marked by {@link #getLongs(int)}
+     */
+    long[] getLongNumbers(int slot) {
+        return this.longNumbers[slot];
+    }
+
+    /**
+     * @return Bitmap of rows in which a NUMBER slot is held exactly only as a long, null for other
+     * slots
+     */
+    long[] getLongs(int slot) {
+        return this.longs[slot];
+    }
+
+    /**
+     * @return Column of a STRING slot, null in rows where it is null
+     */
+    String[] getStrings(int slot) {
+        return this.strings[slot];
+    }
+
+    /**
+     * @return Bitmap of rows in which the slot is null
+     */
+    long[] getNulls(int slot) {
+        return this.nulls[slot];
+    }
+
+    ArrayColumn getColumn(int column, int row) {
+        return this.columns[column][row];
+    }
+}
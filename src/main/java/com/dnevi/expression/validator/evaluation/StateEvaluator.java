@@ -0,0 +1,287 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.cache.ExpressionCache;
+import com.dnevi.expression.validator.exception.InvalidStateDocumentException;
+import com.dnevi.expression.validator.exception.UnevaluableExpressionException;
+import com.dnevi.expression.validator.expression.Expression;
+import com.dnevi.expression.validator.expression.ExpressionOptimizer;
+import com.dnevi.expression.validator.expression.ExpressionValidator;
+import com.dnevi.expression.validator.expression.Lexer;
+import com.dnevi.expression.validator.expression.Parser;
+import com.dnevi.expression.validator.expression.StatePathResolver;
+import com.dnevi.expression.validator.expression.Token;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Evaluates one expression against state documents.
+ *
+ * <p>
+ * The expression is parsed against the {@link StateSchema}, type checked and compiled once. Every
+ * document is then read with a streaming parser which extracts only the state paths referenced by
+ * the expression, see {@link StatePathExtractor}, and the compiled {@link Condition} computes the
+ * result from the extracted values. No JSON tree is built.
+ * </p>
+ *
+ * <p>
+ * Before compiling, the syntax tree is simplified by {@link ExpressionOptimizer}. If it folds into
+ * a verdict known at compile time, documents are not read at all.
+ * </p>
+ *
+ * <p>
+ * An evaluator can be shared by all threads. An {@link #adaptive()} evaluator reorders operands of
+ * {@code &&} and {@code ||} as it learns which of them are cheap and decisive, see {@link
+ * AdaptiveCondition}. A {@link #promoting(long)} evaluator compiles its condition to bytecode in
+ * the background once it evaluated enough documents, see {@link BytecodeCompiler}, and keeps
+ * evaluating the condition as it is until the compiled one replaces it.
+ * </p>
+ *
+ * <p>
+ * Every thread extracts documents into {@link StateValues} of its own, which are reused between
+ * documents. Callers which manage threads themselves may pass values of their own to {@link
+ * #evaluate(JsonParser, StateValues)}.
+ * </p>
+ */
+@Getter
+public class StateEvaluator {
+    static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private final String expression;
+    private volatile Condition condition;
+    private final StatePathExtractor extractor;
+    @Getter(AccessLevel.NONE)
+    private final ThreadLocal<StateValues> values;
+    @Getter(AccessLevel.NONE)
+    private final long promotionThreshold;
+    @Getter(AccessLevel.NONE)
+    private final Executor promotionExecutor;
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean promotionStarted = new AtomicBoolean();
+    // Updated without synchronization like counters of AdaptiveCondition, see promote()
+    @Getter(AccessLevel.NONE)
+    private long evaluationCount;
+
+    private StateEvaluator(String expression, Condition condition, StatePathExtractor extractor) {
+        this(expression, condition, extractor, 0, null);
+    }
+
+    private StateEvaluator(String expression, Condition condition, StatePathExtractor extractor,
+            long promotionThreshold, Executor promotionExecutor) {
+        this.expression = expression;
+        this.condition = condition;
+        this.extractor = extractor;
+        this.values = ThreadLocal.withInitial(extractor::newValues);
+        this.promotionThreshold = promotionThreshold;
+        this.promotionExecutor = promotionExecutor;
+    }
+
+    /**
+     * @param expression Expression which is valid for the state schema
+     * @param stateSchema Schema of evaluated state documents
+     * @return Evaluator of the expression
+     * @throws UnevaluableExpressionException if the expression is not valid
+     */
+    public static StateEvaluator compile(String expression, StateSchema stateSchema) {
+        StatePathExtractor extractor = new StatePathExtractor();
+        Condition condition = StateEvaluator.compile(expression,
+                new StatePathResolver(stateSchema, false), extractor);
+
+        return new StateEvaluator(expression, condition, extractor);
+    }
+
+    /**
+     * Method will return adaptive evaluator kept in the cache entry of the expression, so all
+     * callers share one plan and the statistics it learned from. The plan is dropped together
+     * with the entry.
+     *
+     * @param expression Expression which is valid for the state schema
+     * @param stateSchema Schema of evaluated state documents
+     * @param expressionCache Cache keeping the plan
+     * @return Adaptive evaluator of the expression
+     * @throws UnevaluableExpressionException if the expression is not valid
+     */
+    public static StateEvaluator compile(String expression, StateSchema stateSchema,
+            ExpressionCache expressionCache) {
+        if (expression == null || expression.isEmpty()) {
+            throw new UnevaluableExpressionException(expression, "Expression is empty.");
+        }
+
+        return expressionCache
+                .get(expression, stateSchema,
+                        () -> ExpressionValidator.compile(expression, stateSchema))
+                .computeEvaluatorIfAbsent(() -> StateEvaluator.compile(expression, stateSchema)
+                        .adaptive()
+                        .promoting(expressionCache.getPromotionThreshold()));
+    }
+
+    /**
+     * @return Evaluator of the same expression which reorders operands of {@code &&} and {@code
+     * ||} by their observed cost and selectivity
+     */
+    public StateEvaluator adaptive() {
+        return new StateEvaluator(this.expression, AdaptiveCondition.adapt(this.condition),
+                this.extractor, this.promotionThreshold, this.promotionExecutor);
+    }
+
+    /**
+     * @param promotionThreshold Number of evaluated documents after which the condition is
+     * compiled to bytecode in the common fork join pool, or 0 to never compile
+     * @return Evaluator of the same expression which compiles its condition once it is hot
+     */
+    public StateEvaluator promoting(long promotionThreshold) {
+        return this.promoting(promotionThreshold, ForkJoinPool.commonPool());
+    }
+
+    StateEvaluator promoting(long promotionThreshold, Executor promotionExecutor) {
+        if (promotionThreshold < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Promotion threshold must not be negative, was %d.", promotionThreshold));
+        }
+
+        return new StateEvaluator(this.expression, this.condition, this.extractor,
+                promotionThreshold, promotionExecutor);
+    }
+
+    /**
+     * @return Whether the condition was replaced by one compiled to bytecode
+     */
+    public boolean isPromoted() {
+        return this.condition instanceof CompiledCondition;
+    }
+
+    /**
+     * Method will parse and type check expression and compile it into a condition reading its
+     * state paths from slots of given extractor
+     */
+    static Condition compile(String expression, StatePathResolver pathResolver,
+            StatePathExtractor extractor) {
+        if (expression == null || expression.isEmpty()) {
+            throw new UnevaluableExpressionException(expression, "Expression is empty.");
+        }
+
+        var validatorContext = new ValidatorContext();
+        Lexer lexer = new Lexer(expression, validatorContext,
+                pathResolver.getStateSchema().getPathTrie());
+        List<Token> tokens = lexer.scanTokens();
+        Expression expr = lexer.hasFailed() ? null
+                : new Parser(tokens, pathResolver, validatorContext)
+                        .parseIteratively(Parser.MAX_DEPTH);
+        if (validatorContext.getValidationResult().hasErrors() || expr == null) {
+            throw new UnevaluableExpressionException(expression, validatorContext
+                    .getValidationResult().getValidationErrors().stream()
+                    .map(ValidationError::getMessage)
+                    .findFirst()
+                    .orElse("Expression is not complete."));
+        }
+
+        try {
+            return ConditionCompiler.compile(ExpressionOptimizer.optimize(expr, pathResolver),
+                    extractor);
+        } catch (IllegalArgumentException e) {
+            throw new UnevaluableExpressionException(expression, e.getMessage());
+        }
+    }
+
+    public boolean evaluate(byte[] document) {
+        return this.evaluate(document, 0, document.length);
+    }
+
+    public boolean evaluate(byte[] document, int offset, int length) {
+        if (this.condition instanceof Condition.Fixed) {
+            return ((Condition.Fixed) this.condition).isValue();
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(document, offset, length)) {
+            return this.evaluate(parser);
+        } catch (IOException e) {
+            throw new InvalidStateDocumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param document State document, the stream is not closed
+     */
+    public boolean evaluate(InputStream document) {
+        if (this.condition instanceof Condition.Fixed) {
+            return ((Condition.Fixed) this.condition).isValue();
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(document)) {
+            return this.evaluate(parser);
+        } catch (IOException e) {
+            throw new InvalidStateDocumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param document State document between position and limit of the buffer, the position is not
+     * changed
+     */
+    public boolean evaluate(ByteBuffer document) {
+        if (document.hasArray()) {
+            return this.evaluate(document.array(), document.arrayOffset() + document.position(),
+                    document.remaining());
+        }
+
+        return this.evaluate(new ByteBufferBackedInputStream(document.duplicate()));
+    }
+
+    /**
+     * @param parser Parser positioned before the root object of a state document
+     */
+    public boolean evaluate(JsonParser parser) {
+        return this.evaluate(parser, this.values.get());
+    }
+
+    /**
+     * @param parser Parser positioned before the root object of a state document
+     * @param values Values the document is extracted into, i.e. created once per thread by {@link
+     * StatePathExtractor#newValues()} of {@link #getExtractor()}
+     * @throws IllegalArgumentException if the values have too few slots or columns
+     */
+    public boolean evaluate(JsonParser parser, StateValues values) {
+        if (!this.extractor.fits(values)) {
+            throw new IllegalArgumentException(String.format(
+                    "State values of %d slots and %d columns are smaller than the extractor.",
+                    values.size(), values.getColumnCount()));
+        }
+        this.extractor.extract(parser, values);
+
+        boolean result = this.condition.test(values);
+        if (this.promotionThreshold > 0 && ++this.evaluationCount == this.promotionThreshold) {
+            this.promote();
+        }
+
+        return result;
+    }
+
+    /**
+     * Method will compile the condition in the background. Counted evaluations may be lost under
+     * concurrent evaluation, but every count is reached by some evaluation, so a racing evaluation
+     * may only repeat the promotion, which runs once.
+     */
+    private void promote() {
+        Condition condition = this.condition;
+        if (!BytecodeCompiler.isCompilable(condition)
+                || !this.promotionStarted.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.promotionExecutor.execute(() -> this.condition = BytecodeCompiler.compile(condition));
+    }
+}
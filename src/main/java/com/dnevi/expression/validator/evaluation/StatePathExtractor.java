@@ -0,0 +1,654 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.exception.InvalidStateDocumentException;
+import com.dnevi.expression.validator.schema.StatePath;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Extracts values of registered state paths from a state document in a single streaming pass.
+ *
+ * <p>
+ * Registered paths form a tree of field names and array indices. Fields and array items of the
+ * document which are not part of the tree are skipped together with their whole subtrees, and
+ * extraction stops as soon as every registered path was found, so the rest of the document is
+ * never parsed. Values are coerced to
+ * the kind of their path, which is given by the {@link com.dnevi.expression.validator.schema
+ * .StateSchema}:
+ * </p>
+ * <ul>
+ * <li>{@link StateValues#NUMBER} - JSON numbers and numeric strings other than "NaN", integers
+ * which fit into a long are read exactly, see {@link StateValues#setLong(int, long)}</li>
+ * <li>{@link StateValues#STRING} - text of any JSON scalar</li>
+ * <li>{@link StateValues#BOOLEAN} - JSON booleans and strings "true" and "false"</li>
+ * </ul>
+ * Values which can not be coerced, objects and arrays are extracted as {@link StateValues#NULL}.
+ * Of duplicate fields only the first one is extracted.
+ *
+ * <p>
+ * Wildcard paths, i.e. {@code $.orders[*].total}, are registered as columns. Their tree node
+ * matches all items of the array and is copied into the nodes of indexed items, so one pass
+ * appends every selected value to its {@link ArrayColumn}, integers as longs. Documents with registered columns are
+ * always parsed to the end.
+ * </p>
+ *
+ * <p>
+ * Paths are registered while rules are compiled. Extraction itself does not modify the extractor,
+ * so one extractor can be shared by all threads.
+ * </p>
+ *
+ * <p>
+ * Owners which remove rules, i.e. {@link RuleNetwork}, count references of slots and columns, see
+ * {@link #acquire(int)}. A slot or column is released with its last reference, its branch of the
+ * tree is removed and its index is reused by the next registered path.
+ * </p>
+ */
+public class StatePathExtractor {
+    private static final int MAX_INDEX = 65_535;
+
+    private final Node root = new Node();
+    private final List<StatePath> paths = new ArrayList<>();
+    private final List<Byte> kinds = new ArrayList<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<Integer> references = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final List<StatePath> columnPaths = new ArrayList<>();
+    private final List<Byte> columnKinds = new ArrayList<>();
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final List<Integer> columnReferences = new ArrayList<>();
+    private final Deque<Integer> freeColumns = new ArrayDeque<>();
+
+    /**
+     * Method will register path or return slot of an already registered one. A new path has no
+     * references and may get the slot of a released one.
+     *
+     * @param statePath Path to extract
+     * @param kind Kind the value is coerced to, i.e. {@link StateValues#NUMBER}
+     * @return Slot of the path in {@link StateValues}
+     */
+    int register(StatePath statePath, byte kind) {
+        Integer existing = this.slots.get(statePath.getPath());
+        if (existing != null) {
+            return existing;
+        }
+
+        if (statePath.isWildcard()) {
+            throw new IllegalArgumentException(String.format(
+                    "Path '%s' selects all items of an array, not a single value.",
+                    statePath.getPath()));
+        }
+
+        Node node = this.root;
+        for (String segment : statePath.getSegments()) {
+            node = StatePath.isSubscript(segment)
+                    ? node.element(StatePathExtractor.indexOf(segment))
+                    : node.children.computeIfAbsent(segment, f -> new Node());
+        }
+
+        int slot = this.freeSlots.isEmpty() ? this.paths.size() : this.freeSlots.pop();
+        node.slot = slot;
+        node.kind = kind;
+        StatePathExtractor.put(this.paths, slot, statePath);
+        StatePathExtractor.put(this.kinds, slot, kind);
+        StatePathExtractor.put(this.references, slot, 0);
+        this.slots.put(statePath.getPath(), slot);
+
+        return slot;
+    }
+
+    /**
+     * Method will register wildcard path or return column of an already registered one. Paths
+     * which differ only by {@code [*]}, {@code [all]} and counts such as {@code [3+]} share a
+     * column.
+     *
+     * @param statePath Path with at least one wildcard
+     * @param kind Kind values are coerced to, i.e. {@link StateValues#NUMBER}
+     * @return Column of the path in {@link StateValues}
+     */
+    int registerColumn(StatePath statePath, byte kind) {
+        String key = StatePathExtractor.columnKey(statePath);
+        Integer existing = this.columns.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        // Values of items go to both the wildcard node and to the nodes of indexed items
+        List<Node> nodes = List.of(this.root);
+        for (String segment : statePath.getSegments()) {
+            List<Node> next = new ArrayList<>();
+            for (Node node : nodes) {
+                if (StatePath.isWildcard(segment)) {
+                    next.add(node.items());
+                    Arrays.stream(node.elements).filter(e -> e != null).forEach(next::add);
+                } else if (StatePath.isSubscript(segment)) {
+                    next.add(node.element(StatePathExtractor.indexOf(segment)));
+                } else {
+                    next.add(node.children.computeIfAbsent(segment, f -> new Node()));
+                }
+            }
+            nodes = next;
+        }
+
+        int column = this.freeColumns.isEmpty() ? this.columnPaths.size()
+                : this.freeColumns.pop();
+        for (Node node : nodes) {
+            node.addColumn(column, kind);
+        }
+        StatePathExtractor.put(this.columnPaths, column, statePath);
+        StatePathExtractor.put(this.columnKinds, column, kind);
+        StatePathExtractor.put(this.columnReferences, column, 0);
+        this.columns.put(key, column);
+
+        return column;
+    }
+
+    private static String columnKey(StatePath statePath) {
+        return statePath.getSegments().stream()
+                .map(segment -> StatePath.isWildcard(segment) ? StatePath.WILDCARD : segment)
+                .collect(Collectors.joining(".", "$.", ""));
+    }
+
+    private static <T> void put(List<T> list, int index, T value) {
+        if (index == list.size()) {
+            list.add(value);
+        } else {
+            list.set(index, value);
+        }
+    }
+
+    /**
+     * Method will add a reference to a registered slot
+     */
+    void acquire(int slot) {
+        this.references.set(slot, this.references.get(slot) + 1);
+    }
+
+    /**
+     * Method will remove a reference to the slot and release it with its last one
+     */
+    void release(int slot) {
+        int references = this.references.get(slot) - 1;
+        this.references.set(slot, references);
+        if (references <= 0) {
+            this.releaseSlot(slot);
+        }
+    }
+
+    /**
+     * Method will add a reference to a registered column
+     */
+    void acquireColumn(int column) {
+        this.columnReferences.set(column, this.columnReferences.get(column) + 1);
+    }
+
+    /**
+     * Method will remove a reference to the column and release it with its last one
+     */
+    void releaseColumn(int column) {
+        int references = this.columnReferences.get(column) - 1;
+        this.columnReferences.set(column, references);
+        if (references <= 0) {
+            this.releaseColumnPath(column);
+        }
+    }
+
+    /**
+     * Method will release all slots and columns without references, i.e. registered by a rule
+     * which then failed to compile
+     */
+    void releaseUnreferenced() {
+        for (int slot = 0; slot < this.paths.size(); slot++) {
+            if (this.paths.get(slot) != null && this.references.get(slot) == 0) {
+                this.releaseSlot(slot);
+            }
+        }
+        for (int column = 0; column < this.columnPaths.size(); column++) {
+            if (this.columnPaths.get(column) != null && this.columnReferences.get(column) == 0) {
+                this.releaseColumnPath(column);
+            }
+        }
+    }
+
+    private void releaseSlot(int slot) {
+        StatePath statePath = this.paths.set(slot, null);
+        this.slots.remove(statePath.getPath());
+        StatePathExtractor.remove(this.root, statePath.getSegments(), 0, slot, -1);
+        this.freeSlots.push(slot);
+    }
+
+    private void releaseColumnPath(int column) {
+        StatePath statePath = this.columnPaths.set(column, null);
+        this.columns.remove(StatePathExtractor.columnKey(statePath));
+        StatePathExtractor.remove(this.root, statePath.getSegments(), 0, -1, column);
+        this.freeColumns.push(column);
+    }
+
+    /**
+     * Method will remove the slot or the column from nodes of the segments below the node, and
+     * nodes which are left empty
+     *
+     * @return Whether the node is empty
+     */
+    private static boolean remove(Node node, List<String> segments, int index, int slot,
+            int column) {
+        if (index == segments.size()) {
+            if (slot >= 0 && node.slot == slot) {
+                node.slot = -1;
+            }
+            if (column >= 0) {
+                node.removeColumn(column);
+            }
+            return node.isEmpty();
+        }
+
+        String segment = segments.get(index);
+        if (StatePath.isWildcard(segment)) {
+            if (node.items != null
+                    && StatePathExtractor.remove(node.items, segments, index + 1, slot, column)) {
+                node.items = null;
+            }
+            for (int i = 0; i < node.elements.length; i++) {
+                if (node.elements[i] != null && StatePathExtractor.remove(node.elements[i],
+                        segments, index + 1, slot, column)) {
+                    node.elements[i] = null;
+                }
+            }
+        } else if (StatePath.isSubscript(segment)) {
+            int element = StatePathExtractor.indexOf(segment);
+            if (element < node.elements.length && node.elements[element] != null
+                    && StatePathExtractor.remove(node.elements[element], segments, index + 1,
+                    slot, column)) {
+                node.elements[element] = null;
+            }
+        } else {
+            Node child = node.children.get(segment);
+            if (child != null
+                    && StatePathExtractor.remove(child, segments, index + 1, slot, column)) {
+                node.children.remove(segment);
+            }
+        }
+        node.trimElements();
+
+        return node.isEmpty();
+    }
+
+    private static int indexOf(String subscript) {
+        String digits = subscript.substring(1, subscript.length() - 1);
+        if (digits.length() > String.valueOf(MAX_INDEX).length()
+                || Integer.parseInt(digits) > MAX_INDEX) {
+            throw new IllegalArgumentException(String.format(
+                    "Array index %s is larger than %d.", digits, MAX_INDEX));
+        }
+
+        return Integer.parseInt(digits);
+    }
+
+    /**
+     * @return Number of slots, including released ones which are not reused yet
+     */
+    public int getSlotCount() {
+        return this.paths.size();
+    }
+
+    /**
+     * @return Registered paths in the order of their slots, null for released slots
+     */
+    public List<StatePath> getPaths() {
+        return Collections.unmodifiableList(this.paths);
+    }
+
+    public byte getKind(int slot) {
+        return this.kinds.get(slot);
+    }
+
+    /**
+     * @return Number of columns, including released ones which are not reused yet
+     */
+    public int getColumnCount() {
+        return this.columnPaths.size();
+    }
+
+    /**
+     * @return Registered wildcard paths in the order of their columns, null for released columns
+     */
+    public List<StatePath> getColumnPaths() {
+        return Collections.unmodifiableList(this.columnPaths);
+    }
+
+    public byte getColumnKind(int column) {
+        return this.columnKinds.get(column);
+    }
+
+    /**
+     * @return Slot of the path, or -1 if the path is not registered
+     */
+    public int getSlot(String path) {
+        return this.slots.getOrDefault(path, -1);
+    }
+
+    /**
+     * @return Empty values with a slot for every registered path and a column for every registered
+     * wildcard path, to be reused between documents
+     */
+    public StateValues newValues() {
+        return new StateValues(this.getSlotCount(), this.getColumnCount());
+    }
+
+    /**
+     * @return Whether the values have room for all registered paths, i.e. because they were created
+     * by {@link #newValues()} before more paths were registered
+     */
+    public boolean fits(StateValues values) {
+        return values.size() >= this.getSlotCount()
+                && values.getColumnCount() >= this.getColumnCount();
+    }
+
+    /**
+     * Method will clear given values and fill them from the document
+     *
+     * @param parser Parser positioned before the root object of a state document
+     * @param values Values with at least {@link #getSlotCount()} slots and {@link
+     * #getColumnCount()} columns
+     */
+    public void extract(JsonParser parser, StateValues values) {
+        values.clear();
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidStateDocumentException("Root is not a JSON object.");
+            }
+            if (!this.root.children.isEmpty()) {
+                this.readObject(parser, this.root, values);
+            }
+        } catch (IOException e) {
+            throw new InvalidStateDocumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return Whether all registered paths were extracted and parsing can stop
+     */
+    private boolean readObject(JsonParser parser, Node node, StateValues values)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Node child = node.children.get(parser.getCurrentName());
+            JsonToken token = parser.nextToken();
+
+            if (child == null) {
+                parser.skipChildren();
+            } else if (child.isLeaf()) {
+                if (this.readValue(parser, token, child, values)) {
+                    return true;
+                }
+            } else if (this.readContainer(parser, token, child, values)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return Whether all registered paths were extracted and parsing can stop
+     */
+    private boolean readArray(JsonParser parser, Node node, StateValues values)
+            throws IOException {
+        int index = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            Node child = index < node.elements.length && node.elements[index] != null
+                    ? node.elements[index] : node.items;
+            index++;
+
+            if (child == null) {
+                parser.skipChildren();
+            } else if (child.isLeaf()) {
+                if (this.readValue(parser, token, child, values)) {
+                    return true;
+                }
+            } else if (this.readContainer(parser, token, child, values)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Method will read an object or an array which contains registered paths, or skip any other
+     * value
+     *
+     * @return Whether all registered paths were extracted and parsing can stop
+     */
+    private boolean readContainer(JsonParser parser, JsonToken token, Node node,
+            StateValues values) throws IOException {
+        if (token == JsonToken.START_OBJECT && !node.children.isEmpty()) {
+            return this.readObject(parser, node, values);
+        }
+        if (token == JsonToken.START_ARRAY && (node.elements.length > 0 || node.items != null)) {
+            return this.readArray(parser, node, values);
+        }
+
+        parser.skipChildren();
+        return false;
+    }
+
+    private boolean readValue(JsonParser parser, JsonToken token, Node node, StateValues values)
+            throws IOException {
+        if (node.slot >= 0 && values.markExtracted(node.slot)) {
+            this.readSlot(parser, token, node, values);
+        }
+        for (int i = 0; i < node.columns.length; i++) {
+            ArrayColumn column = values.getColumn(node.columns[i]);
+            if (node.columnKinds[i] == StateValues.STRING) {
+                column.addString(StatePathExtractor.toText(parser, token));
+            } else if (node.columnKinds[i] == StateValues.NUMBER) {
+                long integer = StatePathExtractor.toLong(parser, token);
+                if (integer != Long.MIN_VALUE) {
+                    column.addLong(integer);
+                } else {
+                    column.addNumber(StatePathExtractor.toNumber(parser, token));
+                }
+            } else {
+                column.addNumber(StatePathExtractor.toBoolean(parser, token));
+            }
+        }
+        parser.skipChildren();
+
+        return this.columnPaths.size() == this.freeColumns.size()
+                && values.getExtractedCount() == this.paths.size() - this.freeSlots.size();
+    }
+
+    private void readSlot(JsonParser parser, JsonToken token, Node node, StateValues values)
+            throws IOException {
+        switch (node.kind) {
+            case StateValues.NUMBER:
+                long integer = StatePathExtractor.toLong(parser, token);
+                if (integer != Long.MIN_VALUE) {
+                    values.setLong(node.slot, integer);
+                    break;
+                }
+                double number = StatePathExtractor.toNumber(parser, token);
+                if (!Double.isNaN(number)) {
+                    values.setNumber(node.slot, number);
+                }
+                break;
+            case StateValues.STRING:
+                String text = StatePathExtractor.toText(parser, token);
+                if (text != null) {
+                    values.setString(node.slot, text);
+                }
+                break;
+            case StateValues.BOOLEAN:
+                double value = StatePathExtractor.toBoolean(parser, token);
+                if (!Double.isNaN(value)) {
+                    values.setBoolean(node.slot, value != 0);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return Integer which fits into a long, or {@link Long#MIN_VALUE}, which a double holds
+     * exactly, if the value is not one
+     */
+    private static long toLong(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT
+                && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Long.parseLong(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                // Not an integer, coerced as a double.
+            }
+        }
+
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * @return Number, or {@code NaN} if the value can not be coerced
+     */
+    private static double toNumber(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Double.parseDouble(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                // Not a number, left as null.
+            }
+        }
+
+        return Double.NaN;
+    }
+
+    /**
+     * @return Text of a scalar, or null
+     */
+    private static String toText(JsonParser parser, JsonToken token) throws IOException {
+        return token.isScalarValue() && token != JsonToken.VALUE_NULL ? parser.getText() : null;
+    }
+
+    /**
+     * @return 1 for true, 0 for false, or {@code NaN} if the value can not be coerced
+     */
+    private static double toBoolean(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+            return token == JsonToken.VALUE_TRUE ? 1 : 0;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText();
+            if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
+                return "true".equalsIgnoreCase(text) ? 1 : 0;
+            }
+        }
+
+        return Double.NaN;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private Node[] elements = new Node[0];
+        private Node items;
+        private int slot = -1;
+        private byte kind;
+        private int[] columns = new int[0];
+        private byte[] columnKinds = new byte[0];
+
+        private boolean isLeaf() {
+            return this.slot >= 0 || this.columns.length > 0;
+        }
+
+        private boolean isEmpty() {
+            return !this.isLeaf() && this.children.isEmpty() && this.items == null
+                    && this.elements.length == 0;
+        }
+
+        /**
+         * Method will drop released nodes at the end of the indexed items
+         */
+        private void trimElements() {
+            int length = this.elements.length;
+            while (length > 0 && this.elements[length - 1] == null) {
+                length--;
+            }
+            if (length < this.elements.length) {
+                this.elements = Arrays.copyOf(this.elements, length);
+            }
+        }
+
+        /**
+         * @return Node of the indexed item, a new one starts as a copy of the wildcard node
+         */
+        private Node element(int index) {
+            if (index >= this.elements.length) {
+                this.elements = Arrays.copyOf(this.elements, index + 1);
+            }
+            if (this.elements[index] == null) {
+                this.elements[index] = this.items == null ? new Node() : this.items.copy();
+            }
+
+            return this.elements[index];
+        }
+
+        private Node items() {
+            if (this.items == null) {
+                this.items = new Node();
+            }
+
+            return this.items;
+        }
+
+        private void addColumn(int column, byte kind) {
+            this.columns = Arrays.copyOf(this.columns, this.columns.length + 1);
+            this.columnKinds = Arrays.copyOf(this.columnKinds, this.columnKinds.length + 1);
+            this.columns[this.columns.length - 1] = column;
+            this.columnKinds[this.columnKinds.length - 1] = kind;
+        }
+
+        private void removeColumn(int column) {
+            for (int i = 0; i < this.columns.length; i++) {
+                if (this.columns[i] == column) {
+                    int last = this.columns.length - 1;
+                    System.arraycopy(this.columns, i + 1, this.columns, i, last - i);
+                    System.arraycopy(this.columnKinds, i + 1, this.columnKinds, i, last - i);
+                    this.columns = Arrays.copyOf(this.columns, last);
+                    this.columnKinds = Arrays.copyOf(this.columnKinds, last);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return Copy of the columns under this node, without any slots
+         */
+        private Node copy() {
+            Node copy = new Node();
+            this.children.forEach((name, child) -> copy.children.put(name, child.copy()));
+            copy.elements = Arrays.stream(this.elements)
+                    .map(e -> e == null ? null : e.copy())
+                    .toArray(Node[]::new);
+            copy.items = this.items == null ? null : this.items.copy();
+            copy.columns = this.columns.clone();
+            copy.columnKinds = this.columnKinds.clone();
+
+            return copy;
+        }
+    }
+}
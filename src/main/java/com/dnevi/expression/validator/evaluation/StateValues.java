@@ -0,0 +1,163 @@
+package com.dnevi.expression.validator.evaluation;
+
+import java.util.Arrays;
+
+/**
+ * Values of state paths extracted from one state document, stored by slot in primitive arrays.
+ * Booleans are stored as numbers 1 and 0. Missing values and JSON nulls are both of kind {@link
+ * #NULL}. Values of wildcard paths are stored by column in {@link ArrayColumn}s.
+ *
+ * <p>
+ * Integers are stored as doubles too, which hold them exactly only up to 2<sup>53</sup>. Larger
+ * ones are also kept as longs, see {@link #isLong(int)}, so they are compared exactly.
+ * </p>
+ *
+ * <p>
+ * Instances are reused between documents through {@link #clear()} and are not thread-safe.
+ * </p>
+ */
+public class StateValues {
+    public static final byte NULL = 0;
+    public static final byte NUMBER = 1;
+    public static final byte STRING = 2;
+    public static final byte BOOLEAN = 3;
+    // Largest magnitude up to which doubles hold every integer exactly
+    static final long MAX_EXACT_LONG = 1L << 53;
+
+    private final byte[] kinds;
+    private final double[] numbers;
+    private final long[] longs;
+    private final boolean[] isLong;
+    private final String[] strings;
+    private final boolean[] extracted;
+    private final ArrayColumn[] columns;
+    private int extractedCount;
+
+    public StateValues(int slotCount) {
+        this(slotCount, 0);
+    }
+
+    public StateValues(int slotCount, int columnCount) {
+        this.kinds = new byte[slotCount];
+        this.numbers = new double[slotCount];
+        this.longs = new long[slotCount];
+        this.isLong = new boolean[slotCount];
+        this.strings = new String[slotCount];
+        this.extracted = new boolean[slotCount];
+        this.columns = new ArrayColumn[columnCount];
+        Arrays.setAll(this.columns, i -> new ArrayColumn());
+    }
+
+    /**
+     * Method will reset all slots to {@link #NULL} and empty all columns
+     */
+    public void clear() {
+        Arrays.fill(this.kinds, NULL);
+        Arrays.fill(this.isLong, false);
+        Arrays.fill(this.strings, null);
+        Arrays.fill(this.extracted, false);
+        this.extractedCount = 0;
+        for (ArrayColumn column : this.columns) {
+            column.clear();
+        }
+    }
+
+    public int size() {
+        return this.kinds.length;
+    }
+
+    public int getColumnCount() {
+        return this.columns.length;
+    }
+
+    public ArrayColumn getColumn(int column) {
+        return this.columns[column];
+    }
+
+    public byte getKind(int slot) {
+        return this.kinds[slot];
+    }
+
+    public double getNumber(int slot) {
+        return this.numbers[slot];
+    }
+
+    /**
+     * @return Whether the slot is a NUMBER which is an integer larger than 2<sup>53</sup> in
+     * magnitude, whose exact value is returned by {@link #getLong(int)}
+     */
+    public boolean isLong(int slot) {
+        return this.isLong[slot];
+    }
+
+    public long getLong(int slot) {
+        return this.longs[slot];
+    }
+
+    public String getString(int slot) {
+        return this.strings[slot];
+    }
+
+    public boolean getBoolean(int slot) {
+        return this.kinds[slot] == BOOLEAN && this.numbers[slot] != 0;
+    }
+
+    /**
+     * @return Whether the slot was found in the document, possibly as JSON null
+     */
+    public boolean isExtracted(int slot) {
+        return this.extracted[slot];
+    }
+
+    /**
+     * @return Number of slots found in the document, including JSON nulls
+     */
+    public int getExtractedCount() {
+        return this.extractedCount;
+    }
+
+    public void setNumber(int slot, double value) {
+        this.kinds[slot] = NUMBER;
+        this.numbers[slot] = value;
+        this.isLong[slot] = false;
+    }
+
+    public void setLong(int slot, long value) {
+        this.kinds[slot] = NUMBER;
+        this.numbers[slot] = value;
+        this.longs[slot] = value;
+        this.isLong[slot] = StateValues.isLong(value);
+    }
+
+    public void setString(int slot, String value) {
+        this.kinds[slot] = STRING;
+        this.strings[slot] = value;
+        this.isLong[slot] = false;
+    }
+
+    public void setBoolean(int slot, boolean value) {
+        this.kinds[slot] = BOOLEAN;
+        this.numbers[slot] = value ? 1 : 0;
+        this.isLong[slot] = false;
+    }
+
+    /**
+     * @return Whether a double may not hold the integer exactly
+     */
+    static boolean isLong(long value) {
+        return value > MAX_EXACT_LONG || value < -MAX_EXACT_LONG;
+    }
+
+    /**
+     * @return False if the slot was already extracted, i.e. from a duplicate field
+     */
+    boolean markExtracted(int slot) {
+        if (this.extracted[slot]) {
+            return false;
+        }
+
+        this.extracted[slot] = true;
+        this.extractedCount++;
+        return true;
+    }
+}
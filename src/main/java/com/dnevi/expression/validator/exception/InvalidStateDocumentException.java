@@ -0,0 +1,12 @@
+package com.dnevi.expression.validator.exception;
+
+public class InvalidStateDocumentException extends RuntimeException {
+
+    public InvalidStateDocumentException(String reason) {
+        super(String.format("State document is not valid. %s", reason));
+    }
+
+    public InvalidStateDocumentException(String reason, Throwable cause) {
+        super(String.format("State document is not valid. %s", reason), cause);
+    }
+}
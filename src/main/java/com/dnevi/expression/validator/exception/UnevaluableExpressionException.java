@@ -0,0 +1,8 @@
+package com.dnevi.expression.validator.exception;
+
+public class UnevaluableExpressionException extends RuntimeException {
+
+    public UnevaluableExpressionException(String expression, String reason) {
+        super(String.format("Expression '%s' can not be evaluated. %s", expression, reason));
+    }
+}
@@ -0,0 +1,50 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.validation.ValidationOutcome;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcomes of a batch validation in the order of input expressions, together with batch
+ * throughput figures
+ */
+@Getter
+public class BatchResult {
+    private final List<ValidationOutcome> outcomes;
+    private final int distinctCount;
+    private final long elapsedNanos;
+
+    BatchResult(List<ValidationOutcome> outcomes, int distinctCount, long elapsedNanos) {
+        this.outcomes = Collections.unmodifiableList(outcomes);
+        this.distinctCount = distinctCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getTotalCount() {
+        return this.outcomes.size();
+    }
+
+    public long getInvalidCount() {
+        return this.outcomes.stream().filter(o -> !o.isValid()).count();
+    }
+
+    /**
+     * @return Number of validated expressions per second, including duplicates
+     */
+    public double getThroughput() {
+        if (this.elapsedNanos == 0) {
+            return 0.0;
+        }
+
+        return this.getTotalCount() * (double) TimeUnit.SECONDS.toNanos(1) / this.elapsedNanos;
+    }
+
+    public String toString() {
+        return String.format("%d expressions (%d distinct, %d invalid) in %d ms, %.0f expressions/s",
+                this.getTotalCount(), distinctCount, this.getInvalidCount(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), this.getThroughput());
+    }
+}
@@ -0,0 +1,79 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ErrorCode;
+import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ValidationOutcome;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Validates many expressions against one {@link StateSchema}.
+ *
+ * <p>
+ * Identical expressions are validated only once and all expressions of a batch share one
+ * memoizing {@link StatePathResolver}, so the cost of a batch is proportional to the number of
+ * distinct expressions and paths. An expression which fails with an exception does not abort the
+ * batch - the exception message is reported as its validation error instead.
+ * </p>
+ */
+@Slf4j
+public class BatchValidator {
+    private final StateSchema stateSchema;
+
+    public BatchValidator(StateSchema stateSchema) {
+        this.stateSchema = stateSchema;
+    }
+
+    /**
+     * @param expressions Expressions to validate
+     * @return Outcomes in the order of given expressions
+     */
+    public BatchResult validateAll(Collection<String> expressions) {
+        return this.validateAll(expressions.stream());
+    }
+
+    /**
+     * @param expressions Expressions to validate, consumed in encounter order
+     * @return Outcomes in the order of given expressions
+     */
+    public BatchResult validateAll(Stream<String> expressions) {
+        long start = System.nanoTime();
+        StatePathResolver pathResolver = new StatePathResolver(this.stateSchema, true);
+        Map<String, ValidationOutcome> distinct = new HashMap<>();
+        List<ValidationOutcome> outcomes = new ArrayList<>();
+
+        expressions.sequential().forEachOrdered(expression -> outcomes.add(distinct
+                .computeIfAbsent(expression, e -> BatchValidator.validate(e, pathResolver))));
+
+        BatchResult result = new BatchResult(outcomes, distinct.size(), System.nanoTime() - start);
+        log.debug("Validated {}", result);
+
+        return result;
+    }
+
+    static ValidationOutcome validate(String expression, StatePathResolver pathResolver) {
+        try {
+            return ExpressionValidator.compile(expression, pathResolver).getOutcome();
+        } catch (RuntimeException e) {
+            return BatchValidator.failed(e);
+        }
+    }
+
+    /**
+     * @return Invalid outcome reporting the failure of validation as its error
+     */
+    static ValidationOutcome failed(Throwable e) {
+        var validatorContext = new ValidatorContext();
+        validatorContext.addError(new ValidationError(ErrorCode.VALIDATION_FAILED,
+                e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+        return new ValidationOutcome(false, validatorContext);
+    }
+}
@@ -1,5 +1,7 @@
 package com.dnevi.expression.validator.expression;
 
+import lombok.Getter;
+
 public abstract class Expression {
     public interface Visitor<R> {
         R visitBinaryExpr(Binary expr);
@@ -11,7 +13,8 @@ public abstract class Expression {
         R visitLogicalExpr(Logical expr);
     }
 
-    static class Binary extends Expression {
+    @Getter
+    public static class Binary extends Expression {
         final Expression left;
         final Token operator;
         final Expression right;
@@ -22,37 +25,46 @@ public abstract class Expression {
             this.right = right;
         }
 
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitBinaryExpr(this);
         }
     }
 
 
-    static class Grouping extends Expression {
+    @Getter
+    public static class Grouping extends Expression {
         final Expression expression;
 
         Grouping(Expression expression) {
             this.expression = expression;
         }
 
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitGroupingExpr(this);
         }
     }
 
-    static class Literal extends Expression {
+    /**
+     * Literal value or JSON_PATH replaced by its schema type. The token of a JSON_PATH carries its
+     * {@link com.dnevi.expression.validator.schema.StatePath} as literal.
+     */
+    @Getter
+    public static class Literal extends Expression {
         final TokenType value;
+        final Token token;
 
-        Literal(TokenType value) {
+        Literal(TokenType value, Token token) {
             this.value = value;
+            this.token = token;
         }
 
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitLiteralExpr(this);
         }
     }
 
-    static class Logical extends Expression {
+    @Getter
+    public static class Logical extends Expression {
         final Expression left;
         final Token operator;
         final Expression right;
@@ -63,10 +75,10 @@ public abstract class Expression {
             this.right = right;
         }
 
-        <R> R accept(Visitor<R> visitor) {
+        public <R> R accept(Visitor<R> visitor) {
             return visitor.visitLogicalExpr(this);
         }
     }
 
-    abstract <R> R accept(Visitor<R> visitor);
+    public abstract <R> R accept(Visitor<R> visitor);
 }
@@ -0,0 +1,358 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.expression.Expression.Binary;
+import com.dnevi.expression.validator.expression.Expression.Grouping;
+import com.dnevi.expression.validator.expression.Expression.Literal;
+import com.dnevi.expression.validator.expression.Expression.Logical;
+import com.dnevi.expression.validator.schema.StatePath;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds expressions which can never or always be true, without evaluating them.
+ *
+ * <p>
+ * Every comparison of a state path with a constant is interpreted as the set of values of the path
+ * for which it is true: an interval of numbers, a finite or cofinite set of strings, or a subset
+ * of booleans, each possibly with null. Operands of a chain of {@code &&} which constrain the same
+ * path intersect their sets, operands of {@code ||} unite them. An empty set means the chain is
+ * never true, a set of all values means it is always true, i.e. {@code $.age > 60 && $.age < 30}
+ * and {@code $.age > 60 || $.age <= 60 || $.age == null}. Operands whose set contains, for {@code
+ * &&}, or is contained in, for {@code ||}, the other operands on the same path are redundant and
+ * removed, i.e. {@code $.age > 30} in {@code $.age > 60 && $.age > 30}.
+ * </p>
+ *
+ * <p>
+ * Operands which compare two paths or combine several paths are not interpreted, so the analysis
+ * never reports a false verdict but may miss some. Results follow {@link
+ * com.dnevi.expression.validator.evaluation.Condition} semantics and the tree has to be type
+ * checked first, see {@link ExpressionOptimizer}, otherwise removed operands could hide type
+ * errors.
+ * </p>
+ */
+public class ExpressionAnalyzer {
+
+    public enum Satisfiability {
+        NEVER,
+        SOMETIMES,
+        ALWAYS
+    }
+
+    private ExpressionAnalyzer() {
+    }
+
+    /**
+     * @param expression Type checked syntax tree
+     * @return Satisfiability of the expression with its simplified syntax tree
+     */
+    public static Analysis analyze(Expression expression) {
+        Fact fact = ExpressionAnalyzer.analyzeNode(expression);
+        Expression simplified = fact.satisfiability == Satisfiability.SOMETIMES ? fact.expression
+                : ExpressionOptimizer.literal(fact.satisfiability == Satisfiability.ALWAYS);
+
+        return new Analysis(fact.satisfiability, simplified, fact.removedCount);
+    }
+
+    private static Fact analyzeNode(Expression expression) {
+        if (expression instanceof Grouping) {
+            Grouping grouping = (Grouping) expression;
+            Fact inner = ExpressionAnalyzer.analyzeNode(grouping.expression);
+            return inner.expression == grouping.expression ? inner.with(grouping)
+                    : inner.with(new Grouping(inner.expression));
+        }
+        if (expression instanceof Logical) {
+            return ExpressionAnalyzer.analyzeChain((Logical) expression);
+        }
+        if (expression instanceof Binary) {
+            return ExpressionAnalyzer.analyzeComparison((Binary) expression);
+        }
+        if (expression instanceof Literal) {
+            Literal literal = (Literal) expression;
+            if (pathOperand(literal) != null) {
+                return literal.value == TokenType.BOOLEAN ? Fact.of(literal, pathOf(literal),
+                        ValueSet.Booleans.of(true, true)) : Fact.unknown(literal);
+            }
+            if (literal.value == TokenType.TRUE || literal.value == TokenType.FALSE) {
+                return new Fact(literal, literal.value == TokenType.TRUE ? Satisfiability.ALWAYS
+                        : Satisfiability.NEVER, null, null, 0);
+            }
+        }
+
+        return Fact.unknown(expression);
+    }
+
+    /**
+     * Method will interpret comparison of a state path with a constant, other comparisons are
+     * unknown
+     */
+    private static Fact analyzeComparison(Binary binary) {
+        TokenType operator = binary.operator.getType();
+        Literal path = pathOperand(binary.left);
+        Expression constant = binary.right;
+        if (path == null) {
+            path = pathOperand(binary.right);
+            constant = binary.left;
+            operator = flip(operator);
+        }
+        while (constant instanceof Grouping) {
+            constant = ((Grouping) constant).expression;
+        }
+        if (path == null || !(constant instanceof Literal)
+                || ((Literal) constant).token.getLiteral() instanceof StatePath) {
+            return Fact.unknown(binary);
+        }
+
+        ValueSet set = ExpressionAnalyzer.valuesOf(path.value, operator, (Literal) constant);
+        return set == null ? Fact.unknown(binary) : Fact.of(binary, pathOf(path), set);
+    }
+
+    /**
+     * @return Values of a path of given type for which the comparison with constant is true, or
+     * null if types of operands do not match
+     */
+    private static ValueSet valuesOf(TokenType type, TokenType operator, Literal constant) {
+        boolean isEquality = operator == TokenType.EQUAL_EQUAL || operator == TokenType.BANG_EQUAL;
+        boolean equal = operator == TokenType.EQUAL_EQUAL;
+        if (isEquality && constant.value == TokenType.NIL) {
+            switch (type) {
+                case NUMBER:
+                    return ValueSet.Numbers.nil(equal);
+                case STRING:
+                    return ValueSet.Strings.of(equal, null);
+                case BOOLEAN:
+                    return ValueSet.Booleans.of(equal, null);
+                default:
+                    return null;
+            }
+        }
+
+        if (type == TokenType.NUMBER && constant.value == TokenType.NUMBER) {
+            return ValueSet.Numbers.of(operator,
+                    Double.parseDouble(constant.token.getLexeme()));
+        }
+        if (!isEquality) {
+            return null;
+        }
+        if (type == TokenType.STRING && constant.value == TokenType.STRING) {
+            return ValueSet.Strings.of(equal, (String) constant.token.getLiteral());
+        }
+        if (type == TokenType.BOOLEAN
+                && (constant.value == TokenType.TRUE || constant.value == TokenType.FALSE)) {
+            return ValueSet.Booleans.of(equal, constant.value == TokenType.TRUE);
+        }
+
+        return null;
+    }
+
+    /**
+     * Method will analyze operands of a chain of the same logical operator together
+     */
+    private static Fact analyzeChain(Logical logical) {
+        boolean isAnd = logical.operator.getType() == TokenType.AND;
+        // Operand which decides the result of the chain, and neutral one which can be dropped
+        Satisfiability decisive = isAnd ? Satisfiability.NEVER : Satisfiability.ALWAYS;
+        Satisfiability neutral = isAnd ? Satisfiability.ALWAYS : Satisfiability.NEVER;
+
+        List<Expression> operands = new ArrayList<>();
+        ExpressionAnalyzer.flatten(logical, logical.operator.getType(), operands);
+
+        List<Fact> facts = new ArrayList<>(operands.size());
+        Map<String, List<Fact>> factsByPath = new HashMap<>();
+        int removedCount = 0;
+        for (Expression operand : operands) {
+            Fact fact = ExpressionAnalyzer.analyzeNode(operand);
+            removedCount += fact.removedCount;
+            if (fact.satisfiability == decisive) {
+                return new Fact(logical, decisive, null, null, removedCount);
+            }
+            if (fact.satisfiability == neutral) {
+                removedCount++;
+                continue;
+            }
+
+            facts.add(fact);
+            if (fact.path != null) {
+                factsByPath.computeIfAbsent(fact.path, p -> new ArrayList<>()).add(fact);
+            }
+        }
+
+        for (List<Fact> sameFacts : factsByPath.values()) {
+            ValueSet combined = ExpressionAnalyzer.combine(sameFacts, null, isAnd);
+            if (isAnd ? combined.isEmpty() : combined.isFull()) {
+                return new Fact(logical, decisive, null, null, removedCount);
+            }
+
+            for (int i = sameFacts.size() - 1; i >= 0 && sameFacts.size() > 1; i--) {
+                Fact fact = sameFacts.get(i);
+                ValueSet others = ExpressionAnalyzer.combine(sameFacts, fact, isAnd);
+                if (isAnd ? others.isSubsetOf(fact.set) : fact.set.isSubsetOf(others)) {
+                    sameFacts.remove(i);
+                    facts.remove(fact);
+                    removedCount++;
+                }
+            }
+        }
+
+        if (facts.isEmpty()) {
+            return new Fact(logical, neutral, null, null, removedCount);
+        }
+
+        Expression expression = ExpressionAnalyzer.rebuild(logical, operands, facts);
+        if (factsByPath.size() == 1 && factsByPath.values().iterator().next().size()
+                == facts.size()) {
+            String path = factsByPath.keySet().iterator().next();
+            return Fact.of(expression, path,
+                    ExpressionAnalyzer.combine(facts, null, isAnd)).removed(removedCount);
+        }
+
+        return Fact.unknown(expression).removed(removedCount);
+    }
+
+    private static void flatten(Expression expression, TokenType operator,
+            List<Expression> operands) {
+        Expression inner = expression;
+        while (inner instanceof Grouping) {
+            inner = ((Grouping) inner).expression;
+        }
+
+        if (inner instanceof Logical && ((Logical) inner).operator.getType() == operator) {
+            ExpressionAnalyzer.flatten(((Logical) inner).left, operator, operands);
+            ExpressionAnalyzer.flatten(((Logical) inner).right, operator, operands);
+        } else {
+            operands.add(expression);
+        }
+    }
+
+    /**
+     * @return Intersection, or union, of sets of all facts except the skipped one
+     */
+    private static ValueSet combine(List<Fact> facts, Fact skipped, boolean intersect) {
+        ValueSet combined = null;
+        for (Fact fact : facts) {
+            if (fact == skipped) {
+                continue;
+            }
+
+            combined = combined == null ? fact.set
+                    : intersect ? combined.intersect(fact.set) : combined.union(fact.set);
+        }
+
+        return combined;
+    }
+
+    /**
+     * @return Original chain if no operand was simplified or removed, otherwise a new chain of
+     * remaining operands
+     */
+    private static Expression rebuild(Logical logical, List<Expression> operands,
+            List<Fact> facts) {
+        boolean isUnchanged = facts.size() == operands.size();
+        for (int i = 0; isUnchanged && i < facts.size(); i++) {
+            isUnchanged = facts.get(i).expression == operands.get(i);
+        }
+        if (isUnchanged) {
+            return logical;
+        }
+
+        Expression expression = facts.get(0).expression;
+        for (int i = 1; i < facts.size(); i++) {
+            expression = new Logical(expression, logical.operator, facts.get(i).expression);
+        }
+
+        return expression;
+    }
+
+    private static Literal pathOperand(Expression expression) {
+        while (expression instanceof Grouping) {
+            expression = ((Grouping) expression).expression;
+        }
+
+        return expression instanceof Literal
+                && ((Literal) expression).token.getLiteral() instanceof StatePath
+                && !((StatePath) ((Literal) expression).token.getLiteral()).isWildcard()
+                ? (Literal) expression : null;
+    }
+
+    private static String pathOf(Literal literal) {
+        return ((StatePath) literal.token.getLiteral()).getPath();
+    }
+
+    /**
+     * @return Operator of the same comparison with swapped operands
+     */
+    private static TokenType flip(TokenType operator) {
+        switch (operator) {
+            case GREATER:
+                return TokenType.LESS;
+            case GREATER_EQUAL:
+                return TokenType.LESS_EQUAL;
+            case LESS:
+                return TokenType.GREATER;
+            case LESS_EQUAL:
+                return TokenType.GREATER_EQUAL;
+            default:
+                return operator;
+        }
+    }
+
+    /**
+     * Satisfiability of an expression, whose simplified tree is true exactly for given values of
+     * one path, or for which no such path is known
+     */
+    private static final class Fact {
+        private final Expression expression;
+        private final Satisfiability satisfiability;
+        private final String path;
+        private final ValueSet set;
+        private final int removedCount;
+
+        private Fact(Expression expression, Satisfiability satisfiability, String path,
+                ValueSet set, int removedCount) {
+            this.expression = expression;
+            this.satisfiability = satisfiability;
+            this.path = path;
+            this.set = set;
+            this.removedCount = removedCount;
+        }
+
+        private static Fact of(Expression expression, String path, ValueSet set) {
+            Satisfiability satisfiability = set.isEmpty() ? Satisfiability.NEVER
+                    : set.isFull() ? Satisfiability.ALWAYS : Satisfiability.SOMETIMES;
+            return new Fact(expression, satisfiability, path, set, 0);
+        }
+
+        private static Fact unknown(Expression expression) {
+            return new Fact(expression, Satisfiability.SOMETIMES, null, null, 0);
+        }
+
+        private Fact with(Expression expression) {
+            return new Fact(expression, this.satisfiability, this.path, this.set,
+                    this.removedCount);
+        }
+
+        private Fact removed(int removedCount) {
+            return new Fact(this.expression, this.satisfiability, this.path, this.set,
+                    removedCount);
+        }
+    }
+
+    /**
+     * Result of {@link #analyze(Expression)}
+     */
+    @Getter
+    public static class Analysis {
+        private final Satisfiability satisfiability;
+        private final Expression expression;
+        private final int removedCount;
+
+        Analysis(Satisfiability satisfiability, Expression expression, int removedCount) {
+            this.satisfiability = satisfiability;
+            this.expression = expression;
+            this.removedCount = removedCount;
+        }
+    }
+}
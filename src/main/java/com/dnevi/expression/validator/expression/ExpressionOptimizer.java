@@ -0,0 +1,298 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.expression.Expression.Binary;
+import com.dnevi.expression.validator.expression.Expression.Grouping;
+import com.dnevi.expression.validator.expression.Expression.Literal;
+import com.dnevi.expression.validator.expression.Expression.Logical;
+import com.dnevi.expression.validator.schema.BooleanSchema;
+import com.dnevi.expression.validator.schema.IntegerSchema;
+import com.dnevi.expression.validator.schema.NumberSchema;
+import com.dnevi.expression.validator.schema.Schema;
+import com.dnevi.expression.validator.schema.StatePath;
+import com.dnevi.expression.validator.schema.StringSchema;
+
+/**
+ * Simplifies a parsed syntax tree before it is compiled for evaluation.
+ *
+ * <p>
+ * State paths whose schema pins a {@code const} value are replaced by that value, which assumes
+ * evaluated documents conform to the schema. Comparisons and equalities of constants are then
+ * computed, {@code &&} and {@code ||} with a constant operand are collapsed, i.e. {@code $.age > 5
+ * || true} becomes {@code true}, and {@code (a > b) == true} becomes {@code a > b}. An expression
+ * may fold into a single {@code true} or {@code false} literal, a verdict known at compile time.
+ * Wildcard paths are never replaced, as they select any number of values.
+ * A type checked tree is then simplified by {@link ExpressionAnalyzer}, which also finds rules
+ * that can never or always be true.
+ * </p>
+ *
+ * <p>
+ * Results follow {@link com.dnevi.expression.validator.evaluation.Condition} semantics, not the
+ * type checks of {@link Interpreter}. Subtrees with operands of wrong types are never folded, so
+ * their type errors are still reported when compiled.
+ * </p>
+ */
+public class ExpressionOptimizer implements Expression.Visitor<ExpressionOptimizer.Folded> {
+    private final StatePathResolver pathResolver;
+
+    ExpressionOptimizer(StatePathResolver pathResolver) {
+        this.pathResolver = pathResolver;
+    }
+
+    /**
+     * @param expression Syntax tree parsed without errors, or null
+     * @param pathResolver Resolver of state paths of the expression
+     * @return Simplified syntax tree, or given one if nothing could be simplified
+     */
+    public static Expression optimize(Expression expression, StatePathResolver pathResolver) {
+        if (expression == null) {
+            return null;
+        }
+
+        Folded folded = new ExpressionOptimizer(pathResolver).fold(expression);
+        if (folded.kind != TokenType.BOOLEAN || folded.constant) {
+            return folded.expression;
+        }
+
+        return ExpressionAnalyzer.analyze(folded.expression).getExpression();
+    }
+
+    @Override
+    public Folded visitLiteralExpr(Literal expr) {
+        if (!(expr.token.getLiteral() instanceof StatePath)) {
+            return new Folded(expr, ExpressionOptimizer.kindOf(expr.value), true);
+        }
+        // A wildcard path selects no value of an empty array, whatever the schema pins
+        if (((StatePath) expr.token.getLiteral()).isWildcard()) {
+            return new Folded(expr, ExpressionOptimizer.kindOf(expr.value), false);
+        }
+
+        Literal constant = this.pathResolver.resolve(expr.token.getLexeme())
+                .map(ExpressionOptimizer::constantOf)
+                .orElse(null);
+        if (constant == null) {
+            return new Folded(expr, ExpressionOptimizer.kindOf(expr.value), false);
+        }
+
+        return new Folded(constant, ExpressionOptimizer.kindOf(constant.value), true);
+    }
+
+    @Override
+    public Folded visitGroupingExpr(Grouping expr) {
+        Folded inner = this.fold(expr.expression);
+        if (inner.expression instanceof Literal) {
+            return inner;
+        }
+        if (inner.expression == expr.expression) {
+            return new Folded(expr, inner.kind, false);
+        }
+
+        return new Folded(new Grouping(inner.expression), inner.kind, false);
+    }
+
+    @Override
+    public Folded visitBinaryExpr(Binary expr) {
+        Folded left = this.fold(expr.left);
+        Folded right = this.fold(expr.right);
+        Expression folded = left.expression == expr.left && right.expression == expr.right ? expr
+                : new Binary(left.expression, expr.operator, right.expression);
+
+        switch (expr.operator.getType()) {
+            case GREATER:
+            case GREATER_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+                if (left.kind != TokenType.NUMBER || right.kind != TokenType.NUMBER) {
+                    return new Folded(folded, null, false);
+                }
+                if (left.constant && right.constant) {
+                    return ExpressionOptimizer.verdict(ExpressionOptimizer.compare(
+                            expr.operator.getType(), number(left), number(right)));
+                }
+                return new Folded(folded, TokenType.BOOLEAN, false);
+            case BANG_EQUAL:
+            case EQUAL_EQUAL:
+                return this.foldEquality(expr.operator.getType() == TokenType.BANG_EQUAL, left,
+                        right, folded);
+            default:
+                return new Folded(folded, null, false);
+        }
+    }
+
+    @Override
+    public Folded visitLogicalExpr(Logical expr) {
+        Folded left = this.fold(expr.left);
+        Folded right = this.fold(expr.right);
+        if (left.kind != TokenType.BOOLEAN || right.kind != TokenType.BOOLEAN) {
+            return new Folded(left.expression == expr.left && right.expression == expr.right ? expr
+                    : new Logical(left.expression, expr.operator, right.expression), null, false);
+        }
+
+        // A true operand of || and a false operand of && decide the result, the other is neutral
+        TokenType decisive = expr.operator.getType() == TokenType.OR ? TokenType.TRUE
+                : TokenType.FALSE;
+        if (left.constant) {
+            return left.literal().getValue() == decisive ? left : right;
+        }
+        if (right.constant) {
+            return right.literal().getValue() == decisive ? right : left;
+        }
+        if (left.expression == expr.left && right.expression == expr.right) {
+            return new Folded(expr, TokenType.BOOLEAN, false);
+        }
+
+        return new Folded(new Logical(left.expression, expr.operator, right.expression),
+                TokenType.BOOLEAN, false);
+    }
+
+    private Folded foldEquality(boolean negated, Folded left, Folded right, Expression folded) {
+        if (left.kind == null || right.kind == null || (left.kind != right.kind
+                && left.kind != TokenType.NIL && right.kind != TokenType.NIL)) {
+            return new Folded(folded, null, false);
+        }
+
+        if (left.constant && right.constant) {
+            return ExpressionOptimizer.verdict(ExpressionOptimizer.isEqual(left, right) != negated);
+        }
+
+        // Results of comparisons are never null, so comparing them with a boolean is redundant
+        if (left.constant && left.kind == TokenType.BOOLEAN && isResult(right.expression)
+                && (left.literal().getValue() == TokenType.TRUE) != negated) {
+            return right;
+        }
+        if (right.constant && right.kind == TokenType.BOOLEAN && isResult(left.expression)
+                && (right.literal().getValue() == TokenType.TRUE) != negated) {
+            return left;
+        }
+
+        return new Folded(folded, TokenType.BOOLEAN, false);
+    }
+
+    private Folded fold(Expression expression) {
+        if (expression == null) {
+            return new Folded(null, null, false);
+        }
+
+        return expression.accept(this);
+    }
+
+    private static boolean isResult(Expression expression) {
+        while (expression instanceof Grouping) {
+            expression = ((Grouping) expression).expression;
+        }
+
+        return expression instanceof Binary || expression instanceof Logical;
+    }
+
+    private static boolean isEqual(Folded left, Folded right) {
+        if (left.kind != right.kind) {
+            return false;
+        }
+
+        switch (left.kind) {
+            case NUMBER:
+                return number(left) == number(right);
+            case STRING:
+                return left.literal().getToken().getLiteral()
+                        .equals(right.literal().getToken().getLiteral());
+            case BOOLEAN:
+                return left.literal().getValue() == right.literal().getValue();
+            default:
+                return true;
+        }
+    }
+
+    private static boolean compare(TokenType operator, double left, double right) {
+        switch (operator) {
+            case GREATER:
+                return left > right;
+            case GREATER_EQUAL:
+                return left >= right;
+            case LESS:
+                return left < right;
+            default:
+                return left <= right;
+        }
+    }
+
+    private static double number(Folded folded) {
+        return Double.parseDouble(folded.literal().getToken().getLexeme());
+    }
+
+    private static Folded verdict(boolean value) {
+        return new Folded(ExpressionOptimizer.literal(value), TokenType.BOOLEAN, true);
+    }
+
+    /**
+     * @return {@code true} or {@code false} literal
+     */
+    static Literal literal(boolean value) {
+        TokenType type = value ? TokenType.TRUE : TokenType.FALSE;
+        return new Literal(type, new Token(type, String.valueOf(value), null));
+    }
+
+    /**
+     * @return Literal of the {@code const} value pinned by the schema, or null if there is none
+     */
+    private static Literal constantOf(Schema schema) {
+        if (schema instanceof BooleanSchema && ((BooleanSchema) schema).getConstant() != null) {
+            return ExpressionOptimizer.literal(((BooleanSchema) schema).getConstant());
+        }
+
+        Number number = null;
+        if (schema instanceof IntegerSchema) {
+            number = ((IntegerSchema) schema).getConstant();
+        } else if (schema instanceof NumberSchema) {
+            number = ((NumberSchema) schema).getConstant();
+        }
+        if (number != null) {
+            return new Literal(TokenType.NUMBER,
+                    new Token(TokenType.NUMBER, String.valueOf(number.doubleValue()), null));
+        }
+
+        if (schema instanceof StringSchema && ((StringSchema) schema).getConstant() != null) {
+            String constant = ((StringSchema) schema).getConstant();
+            return new Literal(TokenType.STRING,
+                    new Token(TokenType.STRING, "\"" + constant + "\"", constant));
+        }
+
+        return null;
+    }
+
+    /**
+     * @return Kind of values of a literal, or null if it has none
+     */
+    private static TokenType kindOf(TokenType type) {
+        switch (type) {
+            case NUMBER:
+            case STRING:
+            case NIL:
+                return type;
+            case TRUE:
+            case FALSE:
+            case BOOLEAN:
+                return TokenType.BOOLEAN;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Simplified subtree with the kind of its values, or null kind if its operands are of wrong
+     * types. A constant subtree is a literal.
+     */
+    static final class Folded {
+        private final Expression expression;
+        private final TokenType kind;
+        private final boolean constant;
+
+        private Folded(Expression expression, TokenType kind, boolean constant) {
+            this.expression = expression;
+            this.kind = kind;
+            this.constant = constant;
+        }
+
+        private Literal literal() {
+            return (Literal) this.expression;
+        }
+    }
+}
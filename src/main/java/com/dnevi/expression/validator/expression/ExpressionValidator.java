@@ -1,21 +1,88 @@
 package com.dnevi.expression.validator.expression;
 
+import com.dnevi.expression.validator.cache.CachedExpression;
+import com.dnevi.expression.validator.cache.ExpressionCache;
 import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ErrorCode;
 import com.dnevi.expression.validator.validation.ValidationBubble;
 import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ValidationOutcome;
 import com.dnevi.expression.validator.validation.ValidationResult;
 import com.dnevi.expression.validator.validation.ValidatorContext;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
 
+/**
+ * Validates expressions against a {@link StateSchema}.
+ *
+ * <p>
+ * {@link #check(String, StateSchema)} is stateless and thread-safe, so a single instance can be
+ * shared by all threads. {@link #validate(String, StateSchema)} additionally remembers the result
+ * of the last call for {@link ValidationBubble} and should not be shared.
+ * </p>
+ *
+ * <p>
+ * Malformed expressions are reported as validation errors with their {@link ErrorCode} and
+ * position. A validator created in compatibility mode instead throws {@link
+ * com.dnevi.expression.validator.exception.InvalidExpressionException} for unbalanced parentheses
+ * and {@link com.dnevi.expression.validator.exception.UnknownExpressionTypeException} for unknown
+ * identifiers, as earlier versions did.
+ * </p>
+ *
+ * <p>
+ * A validator created in short-circuit mode lets a single operand of {@code &&} and {@code ||}
+ * decide the verdict, see {@link Interpreter}. Its outcomes are cached apart from the ones of the
+ * default mode.
+ * </p>
+ */
 @Slf4j
 public class ExpressionValidator implements ValidationBubble {
+    private final ExpressionCache expressionCache;
+    private final boolean throwing;
+    private final boolean shortCircuit;
     private ValidationResult validationResult;
 
+    public ExpressionValidator() {
+        this(null);
+    }
+
+    /**
+     * @param expressionCache Cache of compiled expressions shared between validators, or null to
+     * compile every expression on each call
+     */
+    public ExpressionValidator(ExpressionCache expressionCache) {
+        this(expressionCache, false);
+    }
+
+    /**
+     * @param expressionCache Cache of compiled expressions shared between validators, or null to
+     * compile every expression on each call
+     * @param throwing Whether unbalanced parentheses and unknown identifiers are thrown as
+     * exceptions instead of being reported as validation errors
+     */
+    public ExpressionValidator(ExpressionCache expressionCache, boolean throwing) {
+        this(expressionCache, throwing, false);
+    }
+
+    /**
+     * @param expressionCache Cache of compiled expressions shared between validators, or null to
+     * compile every expression on each call
+     * @param throwing Whether unbalanced parentheses and unknown identifiers are thrown as
+     * exceptions instead of being reported as validation errors
+     * @param shortCircuit Whether a single operand of {@code &&} and {@code ||} decides the
+     * verdict
+     */
+    public ExpressionValidator(ExpressionCache expressionCache, boolean throwing,
+            boolean shortCircuit) {
+        this.expressionCache = expressionCache;
+        this.throwing = throwing;
+        this.shortCircuit = shortCircuit;
+    }
+
     /**
      * Method will scan expression and convert each character to list of {@link Token}, parse
-     * scanned tokens using recursive descent parser and at the end evaluate expression in
+     * scanned tokens using precedence climbing parser and at the end evaluate expression in
      * Interpreter
      *
      * @param expression A valid Json Schema expression
@@ -23,29 +90,175 @@ public class ExpressionValidator implements ValidationBubble {
      * @return Result of interpreted expression represented as a boolean value
      */
     public boolean validate(String expression, StateSchema stateSchema) {
+        ValidationOutcome outcome = this.check(expression, stateSchema);
+        this.validationResult = outcome.getValidationResult();
+
+        return outcome.isValid();
+    }
+
+    /**
+     * Thread-safe variant of {@link #validate(String, StateSchema)} which does not keep any state
+     * between calls
+     *
+     * @param expression A valid Json Schema expression
+     * @param stateSchema Current input state schema
+     * @return Verdict of interpreted expression with its validation errors
+     */
+    public ValidationOutcome check(String expression, StateSchema stateSchema) {
+        if (this.expressionCache == null || expression == null) {
+            return this.rethrow(expression, ExpressionValidator.compile(expression,
+                    new StatePathResolver(stateSchema, false), new ValidatorContext(),
+                    this.shortCircuit).getOutcome());
+        }
+
+        return this.rethrow(expression, this.expressionCache
+                .get(expression, stateSchema, this.shortCircuit,
+                        () -> ExpressionValidator.compile(expression,
+                                new StatePathResolver(stateSchema, false), new ValidatorContext(),
+                                this.shortCircuit))
+                .getOutcome());
+    }
+
+    /**
+     * Thread-safe variant of {@link #check(String, StateSchema)} which pulls tokens from the lexer
+     * only as the parser needs them and stops at the first validation error, without scanning the
+     * rest of the expression. Unbalanced parentheses are reported as validation errors. Outcomes
+     * are not cached.
+     *
+     * @param expression A valid Json Schema expression
+     * @param stateSchema Current input state schema
+     * @return Verdict of interpreted expression with the first validation error, if any
+     */
+    public ValidationOutcome checkStreaming(String expression, StateSchema stateSchema) {
         var validatorContext = new ValidatorContext();
         if (expression == null || expression.isEmpty()) {
-            validatorContext.addError(new ValidationError("Malformed expression %s."));
+            ExpressionValidator.addEmptyExpressionError(validatorContext);
+            return new ValidationOutcome(false, validatorContext);
         }
 
-        Lexer lexer = new Lexer(expression, validatorContext);
+        TokenStream tokens = new Lexer(validatorContext, stateSchema.getPathTrie())
+                .stream(expression);
+        Parser parser = new Parser(tokens, new StatePathResolver(stateSchema, false),
+                validatorContext);
+        Expression expr = parser.parseIteratively(Parser.MAX_DEPTH);
+        if (validatorContext.getValidationResult().hasErrors()) {
+            return this.rethrow(expression, new ValidationOutcome(false, validatorContext));
+        }
+
+        Interpreter interpreter = new Interpreter(validatorContext, this.shortCircuit);
+        return new ValidationOutcome(interpreter.interpret(expr), validatorContext);
+    }
+
+    /**
+     * Method will scan, parse and interpret expression into artifacts kept by {@link
+     * ExpressionCache}
+     */
+    public static CachedExpression compile(String expression, StateSchema stateSchema) {
+        return ExpressionValidator
+                .compile(expression, new StatePathResolver(stateSchema, false));
+    }
+
+    /**
+     * Verdict-only variant of {@link #check(String, StateSchema)}. Validation errors are counted
+     * but not collected, so neither errors nor their messages are created. Outcomes already in the
+     * cache are reused, new ones are not cached.
+     *
+     * @param expression A valid Json Schema expression
+     * @param stateSchema Current input state schema
+     * @return Verdict of interpreted expression
+     */
+    public boolean isValid(String expression, StateSchema stateSchema) {
+        if (this.throwing) {
+            return this.check(expression, stateSchema).isValid();
+        }
+        if (this.expressionCache != null && expression != null) {
+            CachedExpression cached = this.expressionCache
+                    .getIfPresent(expression, stateSchema, this.shortCircuit);
+            if (cached != null) {
+                return cached.getOutcome().isValid();
+            }
+        }
+
+        return ExpressionValidator.compile(expression, new StatePathResolver(stateSchema, false),
+                ValidatorContext.verdictOnly(), this.shortCircuit).getOutcome().isValid();
+    }
+
+    /**
+     * Method will scan, parse and interpret expression with its own {@link ValidatorContext}, so
+     * it can run concurrently with other compilations sharing the same path resolver.
+     */
+    static CachedExpression compile(String expression, StatePathResolver pathResolver) {
+        return ExpressionValidator.compile(expression, pathResolver, new ValidatorContext(),
+                false);
+    }
+
+    private static CachedExpression compile(String expression, StatePathResolver pathResolver,
+            ValidatorContext validatorContext, boolean shortCircuit) {
+        if (expression == null || expression.isEmpty()) {
+            ExpressionValidator.addEmptyExpressionError(validatorContext);
+            return new CachedExpression(expression, List.of(), null,
+                    new ValidationOutcome(false, validatorContext));
+        }
+
+        Lexer lexer = new Lexer(expression, validatorContext,
+                pathResolver.getStateSchema().getPathTrie());
         List<Token> tokens = lexer.scanTokens();
+        if (lexer.hasFailed()) {
+            return new CachedExpression(expression, tokens, null,
+                    new ValidationOutcome(false, validatorContext));
+        }
 
-        Parser parser = new Parser(tokens, stateSchema, validatorContext);
-        Expression expr = parser.parse();
-        if (expr == null) {
-            validatorContext.addError(new ValidationError("Malformed expression %s."));
+        Parser parser = new Parser(tokens, pathResolver, validatorContext);
+        Expression expr = parser.parseIteratively(Parser.MAX_DEPTH);
+        if (expr == null && !validatorContext.getValidationResult()
+                .hasError(ErrorCode.EXPRESSION_TOO_DEEP)) {
+            validatorContext.addError(ErrorCode.INCOMPLETE_EXPRESSION, null, 0,
+                    expression.length());
+        }
+        // Operands missing from the syntax tree would fail the interpreter, and too deep trees
+        // would overflow its call stack
+        if (ExpressionValidator.isIncomplete(validatorContext)) {
+            return new CachedExpression(expression, tokens, expr,
+                    new ValidationOutcome(false, validatorContext));
         }
 
-        Interpreter interpreter = new Interpreter(validatorContext);
+        Interpreter interpreter = new Interpreter(validatorContext, shortCircuit);
         var isValid = interpreter.interpret(expr);
 
-        var results = validatorContext.getValidationResult();
-        if (results.hasErrors()) {
-            this.validationResult = results;
+        return new CachedExpression(expression, tokens, expr,
+                new ValidationOutcome(isValid, validatorContext));
+    }
+
+    private static void addEmptyExpressionError(ValidatorContext validatorContext) {
+        validatorContext.addError(ErrorCode.EMPTY_EXPRESSION, null, 0, 0);
+    }
+
+    private static boolean isIncomplete(ValidatorContext validatorContext) {
+        ValidationResult result = validatorContext.getValidationResult();
+        return result.hasError(ErrorCode.EXPECTED_EXPRESSION)
+                || result.hasError(ErrorCode.INCOMPLETE_EXPRESSION)
+                || result.hasError(ErrorCode.EXPRESSION_TOO_DEEP);
+    }
+
+    /**
+     * Method will throw the first error which stopped scanning of the expression in
+     * compatibility mode
+     *
+     * @return Given outcome
+     */
+    private ValidationOutcome rethrow(String expression, ValidationOutcome outcome) {
+        if (!this.throwing) {
+            return outcome;
+        }
+
+        for (ValidationError error : outcome.getValidationErrors()) {
+            RuntimeException exception = Lexer.toException(expression, error);
+            if (exception != null) {
+                throw exception;
+            }
         }
 
-        return isValid;
+        return outcome;
     }
 
     @Override
@@ -6,21 +6,45 @@ import com.dnevi.expression.validator.expression.Expression.Binary;
 import com.dnevi.expression.validator.expression.Expression.Grouping;
 import com.dnevi.expression.validator.expression.Expression.Literal;
 import com.dnevi.expression.validator.expression.Expression.Logical;
-import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ErrorCode;
 import com.dnevi.expression.validator.validation.ValidatorContext;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Class evaluates expression using the Visitor Pattern
  *
+ * <p>
+ * By default both operands of {@code &&} and {@code ||} are always evaluated and both operators
+ * require neither operand to be false. In short-circuit mode {@code ||} is true if either operand
+ * is, and a false operand of {@code &&} or a true operand of {@code ||} decides the result. Both
+ * operands are still type checked in either mode and their errors reported, only the verdict is
+ * short-circuited.
+ * </p>
+ *
+ * <p>
+ * Each {@link ErrorCode} is reported at most once per {@link #interpret(Expression)}, at the
+ * operator where it was found first.
+ * </p>
+ *
  * @see <a href="https://en.wikipedia.org/wiki/Visitor_pattern">The Visitor Pattern</a>
  */
 @Slf4j
 public class Interpreter implements Expression.Visitor<TokenType> {
     private ValidatorContext validatorContext;
+    private final boolean shortCircuit;
+    private long reportedCodes;
 
     public Interpreter(ValidatorContext validatorContext) {
+        this(validatorContext, false);
+    }
+
+    /**
+     * @param shortCircuit Whether a single operand of {@code &&} and {@code ||} decides the
+     * result, see {@link Interpreter}
+     */
+    public Interpreter(ValidatorContext validatorContext, boolean shortCircuit) {
         this.validatorContext = validatorContext;
+        this.shortCircuit = shortCircuit;
     }
 
     /**
@@ -29,13 +53,14 @@ public class Interpreter implements Expression.Visitor<TokenType> {
      * @return {@link TokenType} enum values TRUE or FALSE represented as {@link Boolean} values
      */
     public boolean interpret(Expression expression) {
+        this.reportedCodes = 0;
         try {
             TokenType value = this.evaluate(expression);
 
             return value.equals(TokenType.TRUE);
         } catch (ParseExpressionException e) {
-            this.addError(String.format("Malformed expression. Interpreter could not evaluate %s.",
-                    e.getLocalizedMessage()));
+            this.validatorContext.addError(ErrorCode.UNEVALUABLE_EXPRESSION,
+                    e.getLocalizedMessage(), -1, 0);
         }
 
         return false;
@@ -52,11 +77,34 @@ public class Interpreter implements Expression.Visitor<TokenType> {
 
     @Override
     public TokenType visitLogicalExpr(Logical expr) {
+        if (this.shortCircuit) {
+            return this.evaluateShortCircuit(expr);
+        }
+
         TokenType left = this.evaluate(expr.left);
         TokenType right = this.evaluate(expr.right);
 
-        return (this.isBoolean(left, right) && this.isTruth(left, right)) ? TokenType.TRUE
-                : TokenType.FALSE;
+        return (this.isBoolean(expr.operator, left, right) && this.isTruth(left, right))
+                ? TokenType.TRUE : TokenType.FALSE;
+    }
+
+    /**
+     * Method will type check both operands and decide the result by either of them. Boolean state
+     * paths are neither true nor false, so they never decide it.
+     */
+    private TokenType evaluateShortCircuit(Logical expr) {
+        TokenType left = this.evaluate(expr.left);
+        TokenType right = this.evaluate(expr.right);
+        if (!this.isBoolean(expr.operator, left, right)) {
+            return TokenType.FALSE;
+        }
+        if (expr.operator.getType() == TokenType.OR) {
+            return left == TokenType.FALSE && right == TokenType.FALSE ? TokenType.FALSE
+                    : TokenType.TRUE;
+        }
+
+        return left == TokenType.FALSE || right == TokenType.FALSE ? TokenType.FALSE
+                : TokenType.TRUE;
     }
 
     @Override
@@ -96,8 +144,7 @@ public class Interpreter implements Expression.Visitor<TokenType> {
         if (TokenType.getAllOperators().contains(operator.getType())) {
             var isValidOperand = left.equals(TokenType.NUMBER) && right.equals(TokenType.NUMBER);
             if (!isValidOperand) {
-                this.validatorContext.addError(new ValidationError(
-                        "The operators <, <=, > and >= can only be used for an INTEGER and NUMBER types."));
+                this.addError(ErrorCode.NUMBER_OPERATORS, operator);
             }
 
             return isValidOperand;
@@ -114,44 +161,43 @@ public class Interpreter implements Expression.Visitor<TokenType> {
     private boolean validateAllOperands(Token operator,
             TokenType left, TokenType right) {
         if (TokenType.getBooleanAndStringOperators().contains(operator.getType())) {
-            if (isStringOrNull(left, right)) {
+            if (isStringOrNull(operator, left, right)) {
                 return true;
 
-            } else if (isBoolean(left, right)) {
+            } else if (isBoolean(operator, left, right)) {
                 return true;
-            } else return isNumber(left, right);
+            } else return isNumber(operator, left, right);
         }
 
         return false;
     }
 
-    private boolean isStringOrNull(TokenType left, TokenType right) {
+    private boolean isStringOrNull(Token operator, TokenType left, TokenType right) {
         var isStringOrNull = ((left.equals(TokenType.STRING) || left.equals(TokenType.NIL)) &&
                 (right.equals(TokenType.STRING) || right.equals(TokenType.NIL)));
         if (!isStringOrNull) {
-            this.validatorContext.addError(new ValidationError(
-                    "The operators != and == can only be used for a string and null types."));
+            this.addError(ErrorCode.STRING_OR_NULL_OPERATORS, operator);
         }
 
         return isStringOrNull;
     }
 
-    private boolean isBoolean(TokenType left, TokenType right) {
+    private boolean isBoolean(Token operator, TokenType left, TokenType right) {
         var isBoolean = ((left.equals(TokenType.TRUE) || left.equals(TokenType.FALSE) || left
                 .equals(TokenType.BOOLEAN)) &&
                 (right.equals(TokenType.TRUE) || right.equals(TokenType.FALSE) || right
                         .equals(TokenType.BOOLEAN)));
         if (!isBoolean) {
-            this.validatorContext.addError(new ValidationError("Not a valid boolean."));
+            this.addError(ErrorCode.NOT_BOOLEAN, operator);
         }
 
         return isBoolean;
     }
 
-    private boolean isNumber(TokenType left, TokenType right) {
+    private boolean isNumber(Token operator, TokenType left, TokenType right) {
         var isNumber = left.equals(TokenType.NUMBER) && right.equals(TokenType.NUMBER);
         if (!isNumber) {
-            this.validatorContext.addError(new ValidationError("Not a valid number."));
+            this.addError(ErrorCode.NOT_NUMBER, operator);
         }
 
         return isNumber;
@@ -164,8 +210,18 @@ public class Interpreter implements Expression.Visitor<TokenType> {
         return !left.equals(TokenType.FALSE) && !right.equals(TokenType.FALSE);
     }
 
-    private void addError(String message) {
-        validatorContext.addError(
-                new ValidationError(message));
+    /**
+     * Method will report error at given operator, unless an error with the same code was already
+     * reported by this interpretation
+     */
+    private void addError(ErrorCode code, Token operator) {
+        long bit = 1L << code.ordinal();
+        if ((this.reportedCodes & bit) != 0) {
+            return;
+        }
+
+        this.reportedCodes |= bit;
+        validatorContext.addError(code, null, operator.getOffset(),
+                operator.getLexeme().length());
     }
 }
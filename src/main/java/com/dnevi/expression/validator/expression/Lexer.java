@@ -2,41 +2,186 @@ package com.dnevi.expression.validator.expression;
 
 import com.dnevi.expression.validator.exception.InvalidExpressionException;
 import com.dnevi.expression.validator.exception.UnknownExpressionTypeException;
+import com.dnevi.expression.validator.schema.PathTrie;
+import com.dnevi.expression.validator.schema.StatePath;
+import com.dnevi.expression.validator.validation.ErrorCode;
 import com.dnevi.expression.validator.validation.ValidationError;
 import com.dnevi.expression.validator.validation.ValidatorContext;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * Class performs the Lexical Analysis of expression
+ *
+ * <p>
+ * Tokens are scanned as (type, start, end) offsets into a {@link TokenBuffer}. A lexer created
+ * with {@link #Lexer(ValidatorContext)} can be reused with the same buffer for many expressions
+ * through {@link #scanTokens(String, TokenBuffer)}, which does not allocate for valid input, or
+ * pulled one token at a time through {@link #stream(String)}.
+ * </p>
+ *
+ * <p>
+ * Malformed input is reported to the {@link ValidatorContext} as {@link ValidationError}s with
+ * their {@link ErrorCode}, offset and length. Unbalanced parentheses and unknown identifiers stop
+ * scanning, see {@link #hasFailed()}. In compatibility mode both throw {@link
+ * InvalidExpressionException} and {@link UnknownExpressionTypeException} instead, which costs a
+ * stack trace per malformed expression.
+ * </p>
+ *
+ * <p>
+ * State paths consist of property names of letters, digits and underscores separated by dots,
+ * and array subscripts, i.e. {@code $.address.city}, {@code $.orders[0].total} or {@code
+ * $.orders[*].total}. A lexer created with the {@link PathTrie} of a schema resolves each path
+ * while scanning it, see {@link TokenBuffer#getSchema(int)}.
+ * </p>
  */
 public class Lexer {
-    private final List<Token> tokens = new ArrayList<>();
+    private TokenBuffer tokens = new TokenBuffer();
     private int start = 0;
     private int current = 0;
+    private boolean failed;
 
-    private final String expression;
+    private String expression;
     private ValidatorContext validatorContext;
+    private final boolean throwing;
+    private final PathTrie paths;
 
     public Lexer(String expression,
             ValidatorContext validatorContext) {
-        if (!this.isParenthesisMatch(expression)) {
-            throw new InvalidExpressionException(expression);
-        }
-        this.expression = expression;
+        this(expression, validatorContext, false);
+    }
+
+    /**
+     * @param throwing Whether unbalanced parentheses and unknown identifiers are thrown as
+     * exceptions, as in earlier versions, instead of being reported to the context
+     */
+    public Lexer(String expression,
+            ValidatorContext validatorContext, boolean throwing) {
+        this(expression, validatorContext, throwing, null);
+    }
+
+    /**
+     * @param paths Trie of the state schema which resolves state paths while they are scanned
+     */
+    public Lexer(String expression,
+            ValidatorContext validatorContext, PathTrie paths) {
+        this(expression, validatorContext, false, paths);
+    }
+
+    private Lexer(String expression,
+            ValidatorContext validatorContext, boolean throwing, PathTrie paths) {
+        this.validatorContext = validatorContext;
+        this.throwing = throwing;
+        this.paths = paths;
+        this.reset(expression, this.tokens);
+        this.checkParentheses();
+    }
+
+    /**
+     * Creates reusable lexer for {@link #scanTokens(String, TokenBuffer)}
+     *
+     * @param validatorContext Context collecting errors of all expressions scanned by this lexer
+     */
+    public Lexer(ValidatorContext validatorContext) {
+        this(validatorContext, false);
+    }
+
+    /**
+     * Creates reusable lexer for {@link #scanTokens(String, TokenBuffer)}
+     *
+     * @param validatorContext Context collecting errors of all expressions scanned by this lexer
+     * @param throwing Whether unbalanced parentheses and unknown identifiers are thrown as
+     * exceptions instead of being reported to the context
+     */
+    public Lexer(ValidatorContext validatorContext, boolean throwing) {
         this.validatorContext = validatorContext;
+        this.throwing = throwing;
+        this.paths = null;
+    }
+
+    /**
+     * Creates reusable lexer for {@link #scanTokens(String, TokenBuffer)}
+     *
+     * @param validatorContext Context collecting errors of all expressions scanned by this lexer
+     * @param paths Trie of the state schema which resolves state paths while they are scanned
+     */
+    public Lexer(ValidatorContext validatorContext, PathTrie paths) {
+        this.validatorContext = validatorContext;
+        this.throwing = false;
+        this.paths = paths;
     }
 
     public List<Token> scanTokens() {
-        while (!this.isAtEnd()) {
+        this.scan();
+        return tokens.toTokens();
+    }
+
+    /**
+     * Method will scan expression into given buffer without materializing lexemes
+     *
+     * @param expression Expression to scan
+     * @param buffer Buffer which is cleared and filled with scanned tokens
+     * @return Given buffer
+     */
+    public TokenBuffer scanTokens(String expression, TokenBuffer buffer) {
+        this.reset(expression, buffer);
+        this.checkParentheses();
+
+        this.scan();
+        return buffer;
+    }
+
+    /**
+     * Method will return stream which scans the next token only when it is pulled. Parentheses
+     * are not checked upfront, unbalanced ones are reported by the parser.
+     *
+     * @param expression Expression to scan
+     * @return Lazy stream of tokens ending with EOF
+     */
+    public TokenStream stream(String expression) {
+        this.reset(expression, new TokenBuffer());
+
+        return this::nextToken;
+    }
+
+    /**
+     * @return Whether scanning of the last expression stopped at an unbalanced parenthesis or an
+     * unknown identifier, so its tokens are incomplete
+     */
+    public boolean hasFailed() {
+        return this.failed;
+    }
+
+    private void reset(String expression, TokenBuffer buffer) {
+        this.expression = expression;
+        this.tokens = buffer;
+        this.start = 0;
+        this.current = 0;
+        this.failed = false;
+        buffer.reset(expression);
+    }
+
+    private Token nextToken() {
+        tokens.reset(expression);
+        while (tokens.size() == 0 && !this.failed && !this.isAtEnd()) {
+            start = this.getCurrent();
+            this.scanToken();
+        }
+
+        if (tokens.size() == 0) {
+            tokens.add(TokenType.EOF, this.getCurrent(), this.getCurrent());
+        }
+
+        return tokens.getToken(0);
+    }
+
+    private void scan() {
+        while (!this.failed && !this.isAtEnd()) {
             start = this.getCurrent();
             this.scanToken();
         }
 
-        tokens.add(new Token(TokenType.EOF, "", null));
-        return tokens;
+        tokens.add(TokenType.EOF, this.getCurrent(), this.getCurrent());
     }
 
     private void scanToken() {
@@ -90,19 +235,13 @@ public class Lexer {
                 } else if (this.isAlpha(c)) {
                     this.identifier();
                 } else {
-                    this.addError(String.format("Unexpected character '%s' in expression %s",
-                            c, expression));
+                    this.addError(ErrorCode.UNEXPECTED_CHARACTER, String.valueOf(c));
                 }
         }
     }
 
     private void addToken(TokenType type) {
-        this.addToken(type, null);
-    }
-
-    private void addToken(TokenType type, Object literal) {
-        String text = expression.substring(start, this.getCurrent());
-        tokens.add(new Token(type, text, literal));
+        tokens.add(type, start, this.getCurrent());
     }
 
     private boolean match(char expected) {
@@ -138,41 +277,39 @@ public class Lexer {
         }
 
         if (this.isAtEnd()) {
-            this.addError("Unterminated string.");
+            this.addError(ErrorCode.UNTERMINATED_STRING, null);
             return;
         }
 
         this.advance();
 
-        String value = expression.substring(start + 1, this.getCurrent() - 1);
-        this.addToken(TokenType.STRING, value);
+        this.addToken(TokenType.STRING);
     }
 
     private void identifier() {
-        String identifier;
-        StringBuilder sb = new StringBuilder();
-        sb.append(expression.charAt(this.getCurrent() - 1));
         while (this.isAlphaNumeric(this.peek())) {
-            sb.append(this.advance());
+            this.advance();
         }
-        identifier = sb.toString();
-
-        switch (identifier.toLowerCase()) {
-            case "false":
-                this.addToken(TokenType.FALSE);
-                break;
-            case "true":
-                this.addToken(TokenType.TRUE);
-                break;
-            case "null":
-                this.addToken(TokenType.NIL);
-                break;
-            default:
-                throw new UnknownExpressionTypeException(identifier, expression);
 
+        if (this.isKeyword("false")) {
+            this.addToken(TokenType.FALSE);
+        } else if (this.isKeyword("true")) {
+            this.addToken(TokenType.TRUE);
+        } else if (this.isKeyword("null")) {
+            this.addToken(TokenType.NIL);
+        } else {
+            this.fail(ErrorCode.UNKNOWN_TYPE, start, this.getCurrent() - start);
         }
     }
 
+    /**
+     * Case insensitive comparison of the current lexeme and a keyword
+     */
+    private boolean isKeyword(String keyword) {
+        return this.getCurrent() - start == keyword.length()
+                && expression.regionMatches(true, start, keyword, 0, keyword.length());
+    }
+
     private boolean isAlphaNumeric(char c) {
         return this.isAlpha(c) || this.isDigit(c);
     }
@@ -191,12 +328,70 @@ public class Lexer {
         addToken(TokenType.NUMBER);
     }
 
+    /**
+     * Method will scan the rest of a state path, walking the trie of the schema if there is one
+     */
     private void jsonPath() {
-        while (this.isAlpha(this.peek())) {
-            this.advance();
+        PathTrie.Node node = this.paths == null ? null : this.paths.getRoot();
+        node = this.propertyName(node);
+        while (true) {
+            if (this.peek() == '.' && this.isPathCharacter(this.peekNext())) {
+                this.advance();
+                node = this.propertyName(node);
+            } else if (this.peek() == '[' && this.subscript()) {
+                node = PathTrie.items(node);
+            } else {
+                break;
+            }
+        }
+
+        tokens.add(TokenType.JSON_PATH, start, this.getCurrent(), PathTrie.schemaOf(node));
+    }
+
+    /**
+     * @return Level of the scanned property in the trie, or null
+     */
+    private PathTrie.Node propertyName(PathTrie.Node node) {
+        while (this.isPathCharacter(this.peek())) {
+            node = PathTrie.next(node, this.advance());
+        }
+
+        return PathTrie.property(node);
+    }
+
+    /**
+     * Method will consume {@code [*]}, {@code [all]}, an index such as {@code [12]} or a count
+     * such as {@code [3+]}
+     *
+     * @return Whether a subscript was consumed
+     */
+    private boolean subscript() {
+        int end = this.getCurrent() + 1;
+        if (end < expression.length() && expression.charAt(end) == '*') {
+            end++;
+        } else if (expression.startsWith(StatePath.ALL_WILDCARD, this.getCurrent())) {
+            end += StatePath.ALL_WILDCARD.length() - 2;
+        } else {
+            while (end < expression.length() && this.isDigit(expression.charAt(end))) {
+                end++;
+            }
+            if (end > this.getCurrent() + 1 && end < expression.length()
+                    && expression.charAt(end) == '+') {
+                end++;
+            }
         }
 
-        this.addToken(TokenType.JSON_PATH);
+        if (end == this.getCurrent() + 1 || end >= expression.length()
+                || expression.charAt(end) != ']') {
+            return false;
+        }
+
+        current = end + 1;
+        return true;
+    }
+
+    private boolean isPathCharacter(char c) {
+        return this.isAlphaNumeric(c) || c == '_';
     }
 
     private char peek() {
@@ -227,34 +422,87 @@ public class Lexer {
         return this.getCurrent() >= expression.length();
     }
 
-    private void addError(String message) {
-        validatorContext.addError(
-                new ValidationError(message));
+    /**
+     * Method will report error spanning the current lexeme
+     */
+    private void addError(ErrorCode code, String subject) {
+        validatorContext.addError(code, subject, start, this.getCurrent() - start);
     }
 
-    private boolean isParenthesisMatch(String expression) {
-        Stack<Character> stack = new Stack<>();
+    /**
+     * Method will stop scanning at an error, or throw it in compatibility mode. The subject of the
+     * error is only created if the error is thrown or collected.
+     */
+    private void fail(ErrorCode code, int offset, int length) {
+        if (this.throwing) {
+            throw Lexer.toException(expression, new ValidationError(code, null, offset, length));
+        }
+
+        this.failed = true;
+        validatorContext.addError(code, code == ErrorCode.UNKNOWN_TYPE
+                && validatorContext.isCollecting() ? expression.substring(offset, offset + length)
+                : null, offset, length);
+    }
+
+    /**
+     * @return Exception thrown in compatibility mode for an error which stops scanning, or null
+     * for any other error
+     */
+    static RuntimeException toException(String expression, ValidationError error) {
+        if (error.getCode() == ErrorCode.UNBALANCED_PARENTHESES) {
+            return new InvalidExpressionException(expression);
+        }
+        if (error.getCode() == ErrorCode.UNKNOWN_TYPE) {
+            return new UnknownExpressionTypeException(expression.substring(error.getOffset(),
+                    error.getOffset() + error.getLength()), expression);
+        }
+
+        return null;
+    }
+
+    private void checkParentheses() {
+        int offset = Lexer.findUnmatchedParenthesis(expression);
+        if (offset >= 0) {
+            this.fail(ErrorCode.UNBALANCED_PARENTHESES, offset, 1);
+        }
+    }
+
+    /**
+     * @return Offset of the first closing parenthesis without an opening one, otherwise of the
+     * last opening parenthesis which is not closed, or -1 if parentheses are balanced
+     */
+    private static int findUnmatchedParenthesis(String expression) {
+        int depth = 0;
         for (int i = 0; i < expression.length(); i++) {
             char current = expression.charAt(i);
             if (current == '(') {
-                stack.push(current);
+                depth++;
             }
 
             if (current == ')') {
-                if (stack.isEmpty()) {
-                    return false;
+                if (depth == 0) {
+                    return i;
                 }
 
-                char last = stack.peek();
-                if (last == '(') {
-                    stack.pop();
-                } else {
-                    return false;
-                }
+                depth--;
             }
 
         }
 
-        return stack.isEmpty();
+        int closing = 0;
+        for (int i = expression.length() - 1; depth > 0 && i >= 0; i--) {
+            char current = expression.charAt(i);
+            if (current == ')') {
+                closing++;
+            } else if (current == '(') {
+                if (closing == 0) {
+                    return i;
+                }
+
+                closing--;
+            }
+        }
+
+        return -1;
     }
-}
\ No newline at end of file
+}
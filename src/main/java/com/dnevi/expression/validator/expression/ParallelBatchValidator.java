@@ -0,0 +1,170 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ErrorCode;
+import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ValidationOutcome;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Validates many expressions against one {@link StateSchema} in parallel.
+ *
+ * <p>
+ * Every distinct expression is scanned, parsed and interpreted as an independent task with its
+ * own {@link ValidatorContext}; tasks share only the read-only schema and a thread-safe
+ * memoizing {@link StatePathResolver}. Outcomes are returned in the order of input expressions.
+ * An expression whose task fails with any throwable, i.e. {@link StackOverflowError}, is reported
+ * as {@link ErrorCode#VALIDATION_FAILED}.
+ * </p>
+ *
+ * <p>
+ * Validation of a single expression is not interruptible. An expression which exceeds the
+ * expression timeout is reported as {@link ErrorCode#VALIDATION_TIMEOUT} at once, but its task
+ * keeps running on its worker thread until validation finishes and its result is discarded. In the
+ * same way cancelling a batch skips tasks which have not started yet and lets running ones finish.
+ * </p>
+ */
+@Slf4j
+public class ParallelBatchValidator {
+    private final StateSchema stateSchema;
+    private final Executor executor;
+    private final Duration expressionTimeout;
+
+    /**
+     * Creates validator running on the common fork/join pool without expression timeout
+     */
+    public ParallelBatchValidator(StateSchema stateSchema) {
+        this(stateSchema, ForkJoinPool.commonPool(), null);
+    }
+
+    /**
+     * @param stateSchema Current input state schema
+     * @param executor Executor running validation tasks
+     * @param expressionTimeout Maximum time to wait for a single expression, or null to wait
+     * without limit
+     */
+    public ParallelBatchValidator(StateSchema stateSchema, Executor executor,
+            Duration expressionTimeout) {
+        this.stateSchema = stateSchema;
+        this.executor = executor;
+        this.expressionTimeout = expressionTimeout;
+    }
+
+    /**
+     * Method will validate expressions and wait for the result
+     *
+     * @param expressions Expressions to validate
+     * @return Outcomes in the order of given expressions
+     */
+    public BatchResult validateAll(Collection<String> expressions) {
+        return this.submit(expressions).join();
+    }
+
+    /**
+     * Method will schedule validation of all distinct expressions. Cancelling the returned future
+     * cancels all validation tasks which have not started yet, running tasks are not interrupted.
+     * An expression which does not finish within the expression timeout is reported as invalid.
+     *
+     * @param expressions Expressions to validate
+     * @return Future outcomes in the order of given expressions, completed exceptionally if the
+     * executor rejects a task
+     */
+    public CompletableFuture<BatchResult> submit(Collection<String> expressions) {
+        long start = System.nanoTime();
+        StatePathResolver pathResolver = new StatePathResolver(this.stateSchema, true);
+        Map<String, CompletableFuture<ValidationOutcome>> distinct = new LinkedHashMap<>();
+        List<CompletableFuture<ValidationOutcome>> tasks = new ArrayList<>();
+
+        for (String expression : expressions) {
+            distinct.computeIfAbsent(expression, e -> {
+                CompletableFuture<ValidationOutcome> task = this.schedule(e, pathResolver);
+                tasks.add(task);
+                return this.timedOutAsInvalid(e, task);
+            });
+        }
+
+        CompletableFuture<BatchResult> result = CompletableFuture
+                .allOf(distinct.values().toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    List<ValidationOutcome> outcomes = new ArrayList<>(expressions.size());
+                    for (String expression : expressions) {
+                        outcomes.add(distinct.get(expression).join());
+                    }
+                    BatchResult batchResult = new BatchResult(outcomes, distinct.size(),
+                            System.nanoTime() - start);
+                    log.debug("Validated in parallel {}", batchResult);
+                    return batchResult;
+                });
+
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                tasks.forEach(t -> t.cancel(false));
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * The expression timeout starts when the task starts running, not when it is queued, so a
+     * long queue does not time out expressions which were never given a chance to run.
+     */
+    private CompletableFuture<ValidationOutcome> schedule(String expression,
+            StatePathResolver pathResolver) {
+        CompletableFuture<ValidationOutcome> task = new CompletableFuture<>();
+        try {
+            this.executor.execute(() -> {
+                if (task.isDone()) {
+                    return;
+                }
+                if (this.expressionTimeout != null) {
+                    task.orTimeout(this.expressionTimeout.toNanos(), TimeUnit.NANOSECONDS);
+                }
+                try {
+                    task.complete(BatchValidator.validate(expression, pathResolver));
+                } catch (Throwable e) {
+                    log.warn("Validation of expression failed. {}", e.toString());
+                    task.complete(BatchValidator.failed(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            task.completeExceptionally(e);
+        }
+
+        return task;
+    }
+
+    private CompletableFuture<ValidationOutcome> timedOutAsInvalid(String expression,
+            CompletableFuture<ValidationOutcome> task) {
+        if (this.expressionTimeout == null) {
+            return task;
+        }
+
+        return task.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (!(cause instanceof TimeoutException)) {
+                throw new CompletionException(cause);
+            }
+
+            var validatorContext = new ValidatorContext();
+            validatorContext.addError(new ValidationError(ErrorCode.VALIDATION_TIMEOUT,
+                    String.valueOf(this.expressionTimeout.toMillis())));
+            return new ValidationOutcome(false, validatorContext);
+        });
+    }
+}
@@ -2,12 +2,16 @@ package com.dnevi.expression.validator.expression;
 
 
 import com.dnevi.expression.validator.exception.InvalidStatePathTypeException;
+import com.dnevi.expression.validator.schema.ArraySchema;
+import com.dnevi.expression.validator.schema.ObjectSchema;
 import com.dnevi.expression.validator.schema.Schema;
 import com.dnevi.expression.validator.schema.StatePath;
 import com.dnevi.expression.validator.schema.StateSchema;
-import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ErrorCode;
 import com.dnevi.expression.validator.validation.ValidatorContext;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -26,20 +30,214 @@ import java.util.stream.Collectors;
  *                | "(" expression ")" ;
  * }
  * </pre>
+ *
+ * <p>
+ * Parser consumes tokens through a {@link TokenStream} with one token lookahead. A parser created
+ * from a stream pulls tokens lazily, resolves each JSON_PATH as it is pulled and stops at the
+ * first validation error without scanning the rest of the expression.
+ * </p>
+ *
+ * <p>
+ * {@link #parse()} descends recursively through every precedence level, so each parenthesis costs
+ * five nested calls and deeply nested expressions may overflow the call stack. {@link
+ * #parseIteratively()} builds the same tree, with the same validation errors, by precedence
+ * climbing over an explicit stack. Stages after parsing walk the tree recursively, so validation
+ * and evaluation parse with {@link #parseIteratively(int)} and reject trees deeper than {@link
+ * #MAX_DEPTH}.
+ * </p>
  */
 public class Parser {
-    private List<Token> tokens;
-    private int current = 0;
+    /**
+     * Deepest syntax tree which is validated or evaluated. Every level of {@code &&} and {@code ||}
+     * chains, comparisons and parentheses adds one.
+     */
+    public static final int MAX_DEPTH = 500;
+
+
+    private final TokenStream tokens;
+    private final boolean stopAtFirstError;
+    private final int initialErrorCount;
+    private Token lookahead;
+    private Token previous;
     private ValidatorContext validatorContext;
+    // Depth of the operand built last by parseIteratively
+    private int depth;
 
     public Parser(List<Token> tokens, StateSchema stateSchema,
             ValidatorContext validatorContext) {
+        this(tokens, new StatePathResolver(stateSchema, false), validatorContext);
+    }
+
+    /**
+     * @param tokens Scanned tokens
+     * @param pathResolver Resolver of JSON_PATH tokens, possibly shared with other parsers
+     * @param validatorContext Context collecting validation errors of this parser only
+     */
+    public Parser(List<Token> tokens, StatePathResolver pathResolver,
+            ValidatorContext validatorContext) {
         this.validatorContext = validatorContext;
-        this.tokens = this.mapStatePathTokens(tokens, stateSchema);
+        this.tokens = this.mapStatePathTokens(tokens, pathResolver).iterator()::next;
+        this.stopAtFirstError = false;
+        this.initialErrorCount = this.getErrorCount();
+    }
+
+    /**
+     * Creates streaming parser, i.e. over {@link Lexer#stream(String)}
+     *
+     * @param tokens Lazy stream of scanned tokens
+     * @param pathResolver Resolver of JSON_PATH tokens, possibly shared with other parsers
+     * @param validatorContext Context collecting validation errors of this parser only
+     */
+    public Parser(TokenStream tokens, StatePathResolver pathResolver,
+            ValidatorContext validatorContext) {
+        this.validatorContext = validatorContext;
+        this.tokens = () -> {
+            Token token = tokens.next();
+            if (!token.getType().equals(TokenType.JSON_PATH)) {
+                return token;
+            }
+            return this.replaceStatePathWithTokenType(token, pathResolver);
+        };
+        this.stopAtFirstError = true;
+        this.initialErrorCount = this.getErrorCount();
     }
 
     public Expression parse() {
-        return this.expression();
+        Expression expr = this.expression();
+
+        if (this.stopAtFirstError && !this.hasFailed() && !this.isAtEnd()) {
+            this.addError(ErrorCode.UNEXPECTED_TOKEN, this.peek());
+        }
+
+        return expr;
+    }
+
+    /**
+     * Method will parse tokens like {@link #parse()}, without recursion. Operands waiting for the
+     * right side of their operator, and open parentheses, are kept on a stack; an operator first
+     * reduces waiting operators of the same or higher precedence, which keeps operators left
+     * associative.
+     *
+     * @return Same syntax tree as {@link #parse()} would return
+     */
+    public Expression parseIteratively() {
+        return this.parseIteratively(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Method will parse tokens like {@link #parseIteratively()}, but stop once the syntax tree is
+     * deeper than given depth and report {@link ErrorCode#EXPRESSION_TOO_DEEP} at the next token
+     *
+     * @param maxDepth Maximum depth of the syntax tree, i.e. {@link #MAX_DEPTH}
+     * @return Same syntax tree as {@link #parse()} would return, or null if it is too deep
+     */
+    public Expression parseIteratively(int maxDepth) {
+        Deque<Pending> stack = new ArrayDeque<>();
+        Expression operand;
+        while (true) {
+            operand = null;
+            this.depth = 0;
+            while (!this.hasFailed()) {
+                operand = this.literal();
+                if (operand != null) {
+                    this.depth = 1;
+                    break;
+                }
+                if (!this.match(TokenType.LEFT_PAREN)) {
+                    this.addError(ErrorCode.EXPECTED_EXPRESSION, this.peek());
+                    break;
+                }
+                stack.push(Pending.GROUP);
+            }
+
+            int precedence = this.operatorPrecedence();
+            while (precedence < 0) {
+                operand = this.reduce(stack, operand, 0);
+                if (stack.isEmpty()) {
+                    break;
+                }
+
+                stack.pop();
+                this.consume();
+                operand = new Expression.Grouping(operand);
+                this.depth++;
+                if (this.depth > maxDepth) {
+                    return this.addDepthError(maxDepth);
+                }
+                precedence = this.operatorPrecedence();
+            }
+            if (precedence < 0) {
+                break;
+            }
+
+            operand = this.reduce(stack, operand, precedence);
+            if (this.depth > maxDepth) {
+                return this.addDepthError(maxDepth);
+            }
+            this.advance();
+            stack.push(new Pending(operand, this.previous(), precedence, this.depth));
+        }
+        if (this.depth > maxDepth) {
+            return this.addDepthError(maxDepth);
+        }
+
+        if (this.stopAtFirstError && !this.hasFailed() && !this.isAtEnd()) {
+            this.addError(ErrorCode.UNEXPECTED_TOKEN, this.peek());
+        }
+
+        return operand;
+    }
+
+    /**
+     * @return Precedence of the next token if it is a binary operator, otherwise -1
+     */
+    private int operatorPrecedence() {
+        if (this.hasFailed() || this.isAtEnd()) {
+            return -1;
+        }
+
+        switch (this.peek().getType()) {
+            case OR:
+                return 0;
+            case AND:
+                return 1;
+            case BANG_EQUAL:
+            case EQUAL_EQUAL:
+                return 2;
+            case GREATER:
+            case GREATER_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Method will combine waiting operands of given or higher precedence, up to the innermost open
+     * parenthesis, with the right operand, and update depth of the operand
+     */
+    private Expression reduce(Deque<Pending> stack, Expression right, int precedence) {
+        Expression expr = right;
+        while (!stack.isEmpty() && stack.peek() != Pending.GROUP
+                && stack.peek().precedence >= precedence) {
+            Pending pending = stack.pop();
+            expr = pending.precedence < 2
+                    ? new Expression.Logical(pending.left, pending.operator, expr)
+                    : new Expression.Binary(pending.left, pending.operator, expr);
+            this.depth = Math.max(pending.depth, this.depth) + 1;
+        }
+
+        return expr;
+    }
+
+    private Expression addDepthError(int maxDepth) {
+        Token token = this.peek();
+        this.validatorContext.addError(ErrorCode.EXPRESSION_TOO_DEEP, String.valueOf(maxDepth),
+                token.getOffset(), token.getLexeme().length());
+
+        return null;
     }
 
     private Expression expression() {
@@ -96,36 +294,75 @@ public class Parser {
     }
 
     private Expression primary() {
+        if (this.hasFailed()) {
+            return null;
+        }
+
+        Expression literal = this.literal();
+        if (literal != null) {
+            return literal;
+        }
+        if (this.match(TokenType.LEFT_PAREN)) {
+            Expression expr = this.expression();
+            this.consume();
+            return new Expression.Grouping(expr);
+        }
+
+        this.addError(ErrorCode.EXPECTED_EXPRESSION, this.peek());
+
+        return null;
+    }
+
+    /**
+     * @return Literal or JSON_PATH, or null if the next token is neither
+     */
+    private Expression literal() {
         if (this.match(TokenType.TRUE)) {
-            return new Expression.Literal(TokenType.TRUE);
+            return new Expression.Literal(TokenType.TRUE, previous());
         }
         if (this.match(TokenType.FALSE)) {
-            return new Expression.Literal(TokenType.FALSE);
+            return new Expression.Literal(TokenType.FALSE, previous());
         }
         if (this.match(TokenType.BOOLEAN)) {
-            return new Expression.Literal(TokenType.BOOLEAN);
+            return new Expression.Literal(TokenType.BOOLEAN, previous());
         }
         if (this.match(TokenType.NIL)) {
-            return new Expression.Literal(TokenType.NIL);
+            return new Expression.Literal(TokenType.NIL, previous());
         }
         if (this.match(TokenType.JSON_PATH)) {
-            return new Expression.Literal(previous().getType());
+            return new Expression.Literal(previous().getType(), previous());
         }
         if (this.match(TokenType.NUMBER, TokenType.STRING)) {
-            return new Expression.Literal(previous().getType());
+            return new Expression.Literal(previous().getType(), previous());
         }
-        if (this.match(TokenType.LEFT_PAREN)) {
-            Expression expr = this.expression();
-            this.consume();
-            return new Expression.Grouping(expr);
-        }
-
-        this.addError("Expect expression.");
 
         return null;
     }
 
+    /**
+     * Left operand waiting for the right side of its operator, or an open parenthesis
+     */
+    private static final class Pending {
+        private static final Pending GROUP = new Pending(null, null, -1, 0);
+
+        private final Expression left;
+        private final Token operator;
+        private final int precedence;
+        private final int depth;
+
+        private Pending(Expression left, Token operator, int precedence, int depth) {
+            this.left = left;
+            this.operator = operator;
+            this.precedence = precedence;
+            this.depth = depth;
+        }
+    }
+
     private boolean match(TokenType... types) {
+        if (this.hasFailed()) {
+            return false;
+        }
+
         for (TokenType type : types) {
             if (this.checkTokenType(type)) {
                 this.advance();
@@ -137,12 +374,16 @@ public class Parser {
     }
 
     private void consume() {
+        if (this.hasFailed()) {
+            return;
+        }
+
         if (this.checkTokenType(TokenType.RIGHT_PAREN)) {
             this.advance();
             return;
         }
 
-        this.addError("Expect ')' after expression.");
+        this.addError(ErrorCode.EXPECTED_RIGHT_PAREN, this.peek());
     }
 
     private boolean checkTokenType(TokenType type) {
@@ -151,7 +392,10 @@ public class Parser {
     }
 
     private void advance() {
-        if (!this.isAtEnd()) current++;
+        if (!this.isAtEnd()) {
+            previous = this.peek();
+            lookahead = null;
+        }
     }
 
     private boolean isAtEnd() {
@@ -159,11 +403,26 @@ public class Parser {
     }
 
     private Token peek() {
-        return tokens.get(current);
+        if (lookahead == null) {
+            lookahead = tokens.next();
+        }
+
+        return lookahead;
     }
 
     private Token previous() {
-        return tokens.get(current - 1);
+        return previous;
+    }
+
+    /**
+     * @return Whether a streaming parser has already reported an error, so it should stop
+     */
+    private boolean hasFailed() {
+        return this.stopAtFirstError && this.getErrorCount() > this.initialErrorCount;
+    }
+
+    private int getErrorCount() {
+        return this.validatorContext.getValidationResult().getErrorCount();
     }
 
     /**
@@ -176,56 +435,66 @@ public class Parser {
      * ((NUMBER) > NUMBER) && (NUMBER <= NUMBER)) - Interpreter knows how to interpret
      * }
      * </pre>
+     *
+     * The replaced token keeps its {@link StatePath} as literal, so the path can still be read
+     * from a state document. A path already resolved while it was scanned, see {@link
+     * Token#getSchema()}, is not resolved again.
      */
-    private List<Token> mapStatePathTokens(List<Token> tokens, StateSchema stateSchema) {
+    private List<Token> mapStatePathTokens(List<Token> tokens, StatePathResolver pathResolver) {
         return tokens.stream()
                 .map(t -> {
                     if (!t.getType().equals(TokenType.JSON_PATH)) {
                         return t;
                     }
-                    return this.replaceStatePathWithTokenType(t, stateSchema);
+                    return this.replaceStatePathWithTokenType(t, pathResolver);
                 })
                 .collect(Collectors.toList());
     }
 
-    private Token replaceStatePathWithTokenType(Token token, StateSchema stateSchema) {
-        Optional<Schema> optionalSchema = this
-                .getStateSchema(new StatePath(token.getLexeme()), stateSchema);
+    private Token replaceStatePathWithTokenType(Token token, StatePathResolver pathResolver) {
+        Optional<Schema> optionalSchema = token.getSchema() != null
+                ? Optional.of(token.getSchema()) : pathResolver.resolve(token.getLexeme());
 
         if (optionalSchema.isEmpty()) {
-            this.addError(String.format("Path '%s' is not valid.", token.getLexeme()));
+            this.addError(ErrorCode.INVALID_PATH, token);
+            return token;
+        }
+
+        if (optionalSchema.get() instanceof ObjectSchema
+                || optionalSchema.get() instanceof ArraySchema) {
+            this.addError(ErrorCode.NOT_SCALAR_PATH, token);
             return token;
         }
 
         TokenType type = TokenType.valueOf(optionalSchema.get().getType());
+        StatePath statePath = new StatePath(token.getLexeme());
         switch (type) {
             case INTEGER:
             case NUMBER:
-                return new Token(TokenType.NUMBER, token.getLexeme(), token.getLiteral());
+                return new Token(TokenType.NUMBER, token.getLexeme(), statePath,
+                        token.getOffset(), token.getSchema());
             case STRING:
-                return new Token(TokenType.STRING, token.getLexeme(), token.getLiteral());
+                return new Token(TokenType.STRING, token.getLexeme(), statePath,
+                        token.getOffset(), token.getSchema());
             case TRUE:
-                return new Token(TokenType.TRUE, token.getLexeme(), token.getLiteral());
+                return new Token(TokenType.TRUE, token.getLexeme(), statePath,
+                        token.getOffset(), token.getSchema());
             case FALSE:
-                return new Token(TokenType.FALSE, token.getLexeme(), token.getLiteral());
+                return new Token(TokenType.FALSE, token.getLexeme(), statePath,
+                        token.getOffset(), token.getSchema());
             case BOOLEAN:
-                return new Token(TokenType.BOOLEAN, token.getLexeme(), token.getLiteral());
+                return new Token(TokenType.BOOLEAN, token.getLexeme(), statePath,
+                        token.getOffset(), token.getSchema());
             default:
                 throw new InvalidStatePathTypeException(type.toString());
         }
     }
 
-    private void addError(String message) {
-        validatorContext.addError(
-                new ValidationError(message));
-    }
-
     /**
-     * @param statePath JSON_PATH from expression {@link StatePath}
-     * @param stateSchema Current input state schema {@link StateSchema}
-     * @return {@link Schema} if statePath exists in current State
+     * @param token Offending token, the subject and position of the error
      */
-    private Optional<Schema> getStateSchema(StatePath statePath, StateSchema stateSchema) {
-        return stateSchema.findSchemaByStatePath(statePath);
+    private void addError(ErrorCode code, Token token) {
+        validatorContext.addError(code, token.getLexeme(), token.getOffset(),
+                token.getLexeme().length());
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.dnevi.expression.validator.expression;
+
+import java.util.Arrays;
+
+/**
+ * Expression lowered to a flat program for a stack machine, see {@link ProgramCompiler} and
+ * {@link ProgramEvaluator}.
+ *
+ * <p>
+ * Every instruction is a single int - opcode in the lowest byte and operand, a {@link TokenType}
+ * ordinal, in the remaining bits. Operands of an instruction are popped from the stack and its
+ * result, a TRUE or FALSE type, is pushed back.
+ * </p>
+ */
+public final class Program {
+    /**
+     * Pushes literal type given by the operand
+     */
+    static final int PUSH = 0;
+    /**
+     * Operators <, <=, > and >=
+     */
+    static final int COMPARE = 1;
+    /**
+     * Operators != and ==
+     */
+    static final int EQUALITY = 2;
+    /**
+     * Operators && and ||
+     */
+    static final int LOGICAL = 3;
+
+    static final int OPCODE_BITS = 8;
+    static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+    private final int[] code;
+    private final int maxStack;
+
+    Program(int[] code, int maxStack) {
+        this.code = code;
+        this.maxStack = maxStack;
+    }
+
+    static int instruction(int opcode, TokenType operand) {
+        return (operand.ordinal() << OPCODE_BITS) | opcode;
+    }
+
+    int[] code() {
+        return this.code;
+    }
+
+    int length() {
+        return this.code.length;
+    }
+
+    public int getMaxStack() {
+        return this.maxStack;
+    }
+
+    public String toString() {
+        TokenType[] types = TokenType.values();
+        String[] opcodes = {"PUSH", "COMPARE", "EQUALITY", "LOGICAL"};
+        StringBuilder sb = new StringBuilder();
+        Arrays.stream(this.code).forEach(i -> sb.append(opcodes[i & OPCODE_MASK]).append(' ')
+                .append(types[i >>> OPCODE_BITS]).append('\n'));
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.expression.Expression.Binary;
+import com.dnevi.expression.validator.expression.Expression.Grouping;
+import com.dnevi.expression.validator.expression.Expression.Literal;
+import com.dnevi.expression.validator.expression.Expression.Logical;
+
+import java.util.Arrays;
+
+/**
+ * Lowers a syntax tree into a flat {@link Program} by emitting its nodes in post-order. Grouping
+ * nodes emit no instruction.
+ */
+public class ProgramCompiler implements Expression.Visitor<Void> {
+    private int[] code = new int[16];
+    private int length;
+    private int stackDepth;
+    private int maxStack;
+
+    /**
+     * @param expression Parsed syntax tree
+     * @return Program which evaluates to the same result as {@link Interpreter}
+     */
+    public static Program compile(Expression expression) {
+        ProgramCompiler compiler = new ProgramCompiler();
+        compiler.emitNode(expression);
+
+        return new Program(Arrays.copyOf(compiler.code, compiler.length), compiler.maxStack);
+    }
+
+    @Override
+    public Void visitLiteralExpr(Literal expr) {
+        this.emit(Program.instruction(Program.PUSH, expr.value), 1);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Grouping expr) {
+        this.emitNode(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Binary expr) {
+        this.emitNode(expr.left);
+        this.emitNode(expr.right);
+
+        switch (expr.operator.getType()) {
+            case GREATER:
+            case GREATER_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+                this.emit(Program.instruction(Program.COMPARE, expr.operator.getType()), -1);
+                break;
+            case BANG_EQUAL:
+            case EQUAL_EQUAL:
+                this.emit(Program.instruction(Program.EQUALITY, expr.operator.getType()), -1);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        String.format("Unknown binary operator '%s'.", expr.operator.getType()));
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Logical expr) {
+        this.emitNode(expr.left);
+        this.emitNode(expr.right);
+        this.emit(Program.instruction(Program.LOGICAL, expr.operator.getType()), -1);
+        return null;
+    }
+
+    private void emitNode(Expression expr) {
+        if (expr == null) {
+            throw new IllegalArgumentException("Incomplete expression can not be compiled.");
+        }
+
+        expr.accept(this);
+    }
+
+    private void emit(int instruction, int stackEffect) {
+        if (this.length == this.code.length) {
+            this.code = Arrays.copyOf(this.code, this.length * 2);
+        }
+        this.code[this.length++] = instruction;
+
+        this.stackDepth += stackEffect;
+        this.maxStack = Math.max(this.maxStack, this.stackDepth);
+    }
+}
@@ -0,0 +1,143 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.validation.ErrorCode;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+
+/**
+ * Evaluates a {@link Program} in a single loop over its instructions, with the same verdict and
+ * validation errors as the tree walking {@link Interpreter}.
+ *
+ * <p>
+ * The operand stack is reused between evaluations, so evaluation does not allocate unless
+ * validation errors are reported to a {@link ValidatorContext}. An evaluator is not thread-safe,
+ * use one per thread.
+ * </p>
+ */
+public class ProgramEvaluator {
+    private static final int TRUE = TokenType.TRUE.ordinal();
+    private static final int FALSE = TokenType.FALSE.ordinal();
+    private static final int BOOLEAN = TokenType.BOOLEAN.ordinal();
+    private static final int NUMBER = TokenType.NUMBER.ordinal();
+    private static final int STRING = TokenType.STRING.ordinal();
+    private static final int NIL = TokenType.NIL.ordinal();
+
+    private int[] stack = new int[16];
+    private int errorCount;
+    private long reportedCodes;
+    private ValidatorContext validatorContext;
+
+    /**
+     * Method will evaluate program and only count validation errors, see {@link #getErrorCount()}
+     *
+     * @return Verdict of the program
+     */
+    public boolean evaluate(Program program) {
+        return this.evaluate(program, null);
+    }
+
+    /**
+     * @param program Compiled expression
+     * @param validatorContext Context receiving validation errors, or null to only count them
+     * @return Verdict of the program
+     */
+    public boolean evaluate(Program program, ValidatorContext validatorContext) {
+        if (this.stack.length < program.getMaxStack()) {
+            this.stack = new int[program.getMaxStack()];
+        }
+        this.errorCount = 0;
+        this.reportedCodes = 0;
+        this.validatorContext = validatorContext;
+
+        int[] code = program.code();
+        int[] stack = this.stack;
+        int top = -1;
+
+        for (int pc = 0; pc < code.length; pc++) {
+            int instruction = code[pc];
+            int opcode = instruction & Program.OPCODE_MASK;
+
+            if (opcode == Program.PUSH) {
+                stack[++top] = instruction >>> Program.OPCODE_BITS;
+                continue;
+            }
+
+            int right = stack[top--];
+            int left = stack[top];
+            boolean result;
+            switch (opcode) {
+                case Program.COMPARE:
+                    result = left == NUMBER && right == NUMBER;
+                    if (!result) {
+                        this.addError(ErrorCode.NUMBER_OPERATORS);
+                    }
+                    break;
+                case Program.EQUALITY:
+                    result = this.isStringOrNull(left, right) || this.isBoolean(left, right)
+                            || this.isNumber(left, right);
+                    break;
+                case Program.LOGICAL:
+                    result = this.isBoolean(left, right) && left != FALSE && right != FALSE;
+                    break;
+                default:
+                    throw new IllegalStateException(
+                            String.format("Unknown opcode %d at %d.", opcode, pc));
+            }
+            stack[top] = result ? TRUE : FALSE;
+        }
+
+        this.validatorContext = null;
+        return top == 0 && stack[0] == TRUE;
+    }
+
+    /**
+     * @return Number of validation errors of the last evaluation
+     */
+    public int getErrorCount() {
+        return this.errorCount;
+    }
+
+    private boolean isStringOrNull(int left, int right) {
+        boolean isStringOrNull = (left == STRING || left == NIL) && (right == STRING || right == NIL);
+        if (!isStringOrNull) {
+            this.addError(ErrorCode.STRING_OR_NULL_OPERATORS);
+        }
+
+        return isStringOrNull;
+    }
+
+    private boolean isBoolean(int left, int right) {
+        boolean isBoolean = (left == TRUE || left == FALSE || left == BOOLEAN)
+                && (right == TRUE || right == FALSE || right == BOOLEAN);
+        if (!isBoolean) {
+            this.addError(ErrorCode.NOT_BOOLEAN);
+        }
+
+        return isBoolean;
+    }
+
+    private boolean isNumber(int left, int right) {
+        boolean isNumber = left == NUMBER && right == NUMBER;
+        if (!isNumber) {
+            this.addError(ErrorCode.NOT_NUMBER);
+        }
+
+        return isNumber;
+    }
+
+    /**
+     * Method will report error unless an error with the same code was already reported by this
+     * evaluation. Programs keep no positions, so errors have none.
+     */
+    private void addError(ErrorCode code) {
+        long bit = 1L << code.ordinal();
+        if ((this.reportedCodes & bit) != 0) {
+            return;
+        }
+
+        this.reportedCodes |= bit;
+        this.errorCount++;
+        if (this.validatorContext != null) {
+            this.validatorContext.addError(code, null, -1, 0);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.schema.Schema;
+import com.dnevi.expression.validator.schema.StatePath;
+import com.dnevi.expression.validator.schema.StateSchema;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves JSON_PATH lexemes to schemas of the current {@link StateSchema}.
+ *
+ * <p>
+ * A memoizing resolver remembers every resolved path, so expressions validated together against
+ * the same schema resolve each distinct path only once. It is safe to share between threads.
+ * </p>
+ */
+public class StatePathResolver {
+    private final StateSchema stateSchema;
+    private final Map<String, Optional<Schema>> resolvedPaths;
+
+    /**
+     * @param stateSchema Current input state schema
+     * @param memoize Whether resolved paths should be remembered
+     */
+    public StatePathResolver(StateSchema stateSchema, boolean memoize) {
+        this.stateSchema = stateSchema;
+        this.resolvedPaths = memoize ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * @param path JSON_PATH lexeme, i.e. {@code $.age}
+     * @return {@link Schema} if path exists in current State
+     */
+    public Optional<Schema> resolve(String path) {
+        if (this.resolvedPaths == null) {
+            return this.stateSchema.findSchemaByStatePath(new StatePath(path));
+        }
+
+        return this.resolvedPaths
+                .computeIfAbsent(path, p -> this.stateSchema.findSchemaByStatePath(new StatePath(p)));
+    }
+
+    public StateSchema getStateSchema() {
+        return this.stateSchema;
+    }
+}
@@ -1,5 +1,6 @@
 package com.dnevi.expression.validator.expression;
 
+import com.dnevi.expression.validator.schema.Schema;
 import lombok.Getter;
 
 @Getter
@@ -7,11 +8,26 @@ public class Token {
     private TokenType type;
     private final String lexeme;
     private final Object literal;
+    /**
+     * Index of the first character of the lexeme in the expression, or -1 if the token was not
+     * scanned from it
+     */
+    private final int offset;
+    /**
+     * Schema of a JSON_PATH resolved while it was scanned, or null if it was not resolved
+     */
+    private final Schema schema;
 
     Token(TokenType type, String lexeme, Object literal) {
+        this(type, lexeme, literal, -1, null);
+    }
+
+    Token(TokenType type, String lexeme, Object literal, int offset, Schema schema) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
+        this.offset = offset;
+        this.schema = schema;
     }
 
     public void setType(TokenType type) {
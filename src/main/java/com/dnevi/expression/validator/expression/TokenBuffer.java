@@ -0,0 +1,122 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable buffer of scanned tokens stored as (type, start, end) offsets into the source
+ * expression. Lexemes are materialized only on demand, so filling a warmed up buffer does not
+ * allocate. JSON_PATH tokens may keep the schema they were resolved to while scanned.
+ */
+public class TokenBuffer {
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 32;
+
+    private String source = "";
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private Schema[] schemas = new Schema[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Method will drop all tokens and point the buffer to a new source expression
+     *
+     * @param source Scanned expression
+     */
+    void reset(String source) {
+        this.source = source;
+        this.size = 0;
+    }
+
+    void add(TokenType type, int start, int end) {
+        this.add(type, start, end, null);
+    }
+
+    /**
+     * @param schema Schema of a JSON_PATH resolved while it was scanned, or null
+     */
+    void add(TokenType type, int start, int end, Schema schema) {
+        if (this.size == this.types.length) {
+            int capacity = this.size * 2;
+            this.types = Arrays.copyOf(this.types, capacity);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.ends = Arrays.copyOf(this.ends, capacity);
+            this.schemas = Arrays.copyOf(this.schemas, capacity);
+        }
+
+        this.types[this.size] = type.ordinal();
+        this.starts[this.size] = start;
+        this.ends[this.size] = end;
+        this.schemas[this.size] = schema;
+        this.size++;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public TokenType getType(int index) {
+        return TOKEN_TYPES[this.types[index]];
+    }
+
+    public int getStart(int index) {
+        return this.starts[index];
+    }
+
+    public int getEnd(int index) {
+        return this.ends[index];
+    }
+
+    /**
+     * @return Schema of a JSON_PATH resolved while it was scanned, otherwise null
+     */
+    public Schema getSchema(int index) {
+        return this.schemas[index];
+    }
+
+    public String getSource() {
+        return this.source;
+    }
+
+    /**
+     * @return Text of the token, i.e. {@code $.age} or {@code "name"}
+     */
+    public String getLexeme(int index) {
+        return this.source.substring(this.starts[index], this.ends[index]);
+    }
+
+    /**
+     * @return Value of a STRING token without quotes, otherwise null
+     */
+    public Object getLiteral(int index) {
+        if (this.getType(index) != TokenType.STRING) {
+            return null;
+        }
+
+        return this.source.substring(this.starts[index] + 1, this.ends[index] - 1);
+    }
+
+    /**
+     * @return Token with materialized lexeme and literal
+     */
+    public Token getToken(int index) {
+        return new Token(this.getType(index), this.getLexeme(index), this.getLiteral(index),
+                this.starts[index], this.schemas[index]);
+    }
+
+    /**
+     * @return Tokens with materialized lexemes and literals
+     */
+    public List<Token> toTokens() {
+        List<Token> tokens = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            tokens.add(this.getToken(i));
+        }
+
+        return tokens;
+    }
+}
@@ -0,0 +1,11 @@
+package com.dnevi.expression.validator.expression;
+
+/**
+ * Pull based source of tokens consumed by {@link Parser}. Once EOF is returned the stream is not
+ * pulled again.
+ */
+@FunctionalInterface
+public interface TokenStream {
+
+    Token next();
+}
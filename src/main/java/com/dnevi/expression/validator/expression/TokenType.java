@@ -1,6 +1,7 @@
 package com.dnevi.expression.validator.expression;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public enum TokenType {
@@ -31,13 +32,19 @@ public enum TokenType {
 
     EOF;
 
+    private static final List<TokenType> ALL_OPERATORS = Collections.unmodifiableList(
+            Arrays.asList(BANG_EQUAL, EQUAL_EQUAL,
+                    GREATER, GREATER_EQUAL,
+                    LESS, LESS_EQUAL, OR, AND));
+
+    private static final List<TokenType> BOOLEAN_AND_STRING_OPERATORS = Collections
+            .unmodifiableList(Arrays.asList(BANG_EQUAL, EQUAL_EQUAL));
+
     public static List<TokenType> getAllOperators() {
-        return Arrays.asList(BANG_EQUAL, EQUAL_EQUAL,
-                GREATER, GREATER_EQUAL,
-                LESS, LESS_EQUAL, OR, AND);
+        return ALL_OPERATORS;
     }
 
     public static List<TokenType> getBooleanAndStringOperators() {
-        return Arrays.asList(BANG_EQUAL, EQUAL_EQUAL);
+        return BOOLEAN_AND_STRING_OPERATORS;
     }
 }
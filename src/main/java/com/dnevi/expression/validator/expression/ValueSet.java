@@ -0,0 +1,314 @@
+package com.dnevi.expression.validator.expression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of values a state path may hold for an expression to be true. Values are coerced to the
+ * schema type of their path and anything else is null, so every set is a subset of that type
+ * together with null, and complements stay within it.
+ */
+abstract class ValueSet {
+
+    abstract ValueSet intersect(ValueSet other);
+
+    abstract ValueSet complement();
+
+    abstract boolean isEmpty();
+
+    abstract boolean isFull();
+
+    ValueSet union(ValueSet other) {
+        return this.complement().intersect(other.complement()).complement();
+    }
+
+    boolean isSubsetOf(ValueSet other) {
+        return this.intersect(other.complement()).isEmpty();
+    }
+
+    /**
+     * Finite union of disjoint intervals of numbers, sorted by their lower bounds, and null.
+     * Infinite values are included in the full set, {@code NaN} is never extracted.
+     */
+    static final class Numbers extends ValueSet {
+        private static final Interval ALL = new Interval(Double.NEGATIVE_INFINITY, true,
+                Double.POSITIVE_INFINITY, true);
+
+        private final List<Interval> intervals;
+        private final boolean nil;
+
+        private Numbers(List<Interval> intervals, boolean nil) {
+            this.intervals = intervals;
+            this.nil = nil;
+        }
+
+        /**
+         * @return Set of numbers {@code n} for which {@code n <operator> constant} is true
+         */
+        static Numbers of(TokenType operator, double constant) {
+            Interval point = new Interval(constant, true, constant, true);
+            switch (operator) {
+                case GREATER:
+                    return of(new Interval(constant, false, Double.POSITIVE_INFINITY, true));
+                case GREATER_EQUAL:
+                    return of(new Interval(constant, true, Double.POSITIVE_INFINITY, true));
+                case LESS:
+                    return of(new Interval(Double.NEGATIVE_INFINITY, true, constant, false));
+                case LESS_EQUAL:
+                    return of(new Interval(Double.NEGATIVE_INFINITY, true, constant, true));
+                case EQUAL_EQUAL:
+                    return of(point);
+                default:
+                    return (Numbers) of(point).complement();
+            }
+        }
+
+        static Numbers nil(boolean equal) {
+            return equal ? new Numbers(Collections.emptyList(), true) : of(ALL);
+        }
+
+        private static Numbers of(Interval interval) {
+            return new Numbers(Collections.singletonList(interval), false);
+        }
+
+        @Override
+        ValueSet intersect(ValueSet other) {
+            List<Interval> left = this.intervals;
+            List<Interval> right = ((Numbers) other).intervals;
+            List<Interval> intervals = new ArrayList<>();
+            int i = 0;
+            int j = 0;
+            while (i < left.size() && j < right.size()) {
+                Interval a = left.get(i);
+                Interval b = right.get(j);
+                Interval overlap = a.intersect(b);
+                if (!overlap.isEmpty()) {
+                    intervals.add(overlap);
+                }
+                if (a.endsBefore(b)) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+
+            return new Numbers(intervals, this.nil && ((Numbers) other).nil);
+        }
+
+        @Override
+        ValueSet complement() {
+            List<Interval> intervals = new ArrayList<>();
+            double lower = Double.NEGATIVE_INFINITY;
+            boolean lowerClosed = true;
+            for (Interval interval : this.intervals) {
+                Interval gap = new Interval(lower, lowerClosed, interval.lower,
+                        !interval.lowerClosed);
+                if (!gap.isEmpty()) {
+                    intervals.add(gap);
+                }
+                lower = interval.upper;
+                lowerClosed = !interval.upperClosed;
+            }
+
+            Interval gap = new Interval(lower, lowerClosed, Double.POSITIVE_INFINITY, true);
+            if (!gap.isEmpty()) {
+                intervals.add(gap);
+            }
+
+            return new Numbers(intervals, !this.nil);
+        }
+
+        @Override
+        boolean isEmpty() {
+            return this.intervals.isEmpty() && !this.nil;
+        }
+
+        @Override
+        boolean isFull() {
+            return this.nil && this.intervals.size() == 1 && this.intervals.get(0).equals(ALL);
+        }
+
+        public String toString() {
+            return this.intervals + (this.nil ? " or null" : "");
+        }
+    }
+
+    /**
+     * Finite set of strings, or all strings except a finite set, and null
+     */
+    static final class Strings extends ValueSet {
+        private final Set<String> values;
+        private final boolean excluded;
+        private final boolean nil;
+
+        private Strings(Set<String> values, boolean excluded, boolean nil) {
+            this.values = values;
+            this.excluded = excluded;
+            this.nil = nil;
+        }
+
+        /**
+         * @param constant String, or null for {@code == null}
+         */
+        static Strings of(boolean equal, String constant) {
+            Set<String> values = constant == null ? Collections.emptySet()
+                    : Collections.singleton(constant);
+            Strings strings = new Strings(values, false, constant == null);
+
+            return equal ? strings : (Strings) strings.complement();
+        }
+
+        @Override
+        ValueSet intersect(ValueSet other) {
+            Strings strings = (Strings) other;
+            boolean nil = this.nil && strings.nil;
+            if (this.excluded && strings.excluded) {
+                Set<String> values = new HashSet<>(this.values);
+                values.addAll(strings.values);
+                return new Strings(values, true, nil);
+            }
+            if (this.excluded) {
+                return strings.intersect(this);
+            }
+
+            Set<String> values = new HashSet<>(this.values);
+            if (strings.excluded) {
+                values.removeAll(strings.values);
+            } else {
+                values.retainAll(strings.values);
+            }
+
+            return new Strings(values, false, nil);
+        }
+
+        @Override
+        ValueSet complement() {
+            return new Strings(this.values, !this.excluded, !this.nil);
+        }
+
+        @Override
+        boolean isEmpty() {
+            return !this.excluded && this.values.isEmpty() && !this.nil;
+        }
+
+        @Override
+        boolean isFull() {
+            return this.excluded && this.values.isEmpty() && this.nil;
+        }
+
+        public String toString() {
+            return (this.excluded ? "not " : "") + this.values + (this.nil ? " or null" : "");
+        }
+    }
+
+    /**
+     * Subset of {@code false, true, null}
+     */
+    static final class Booleans extends ValueSet {
+        private static final int FALSE = 1;
+        private static final int TRUE = 2;
+        private static final int NIL = 4;
+        private static final int ALL = FALSE | TRUE | NIL;
+
+        private final int mask;
+
+        private Booleans(int mask) {
+            this.mask = mask;
+        }
+
+        /**
+         * @param constant Boolean, or null for {@code == null}
+         */
+        static Booleans of(boolean equal, Boolean constant) {
+            int mask = constant == null ? NIL : constant ? TRUE : FALSE;
+            return new Booleans(equal ? mask : ALL & ~mask);
+        }
+
+        @Override
+        ValueSet intersect(ValueSet other) {
+            return new Booleans(this.mask & ((Booleans) other).mask);
+        }
+
+        @Override
+        ValueSet complement() {
+            return new Booleans(ALL & ~this.mask);
+        }
+
+        @Override
+        boolean isEmpty() {
+            return this.mask == 0;
+        }
+
+        @Override
+        boolean isFull() {
+            return this.mask == ALL;
+        }
+
+        public String toString() {
+            return String.format("%s%s%s", (this.mask & FALSE) != 0 ? "false " : "",
+                    (this.mask & TRUE) != 0 ? "true " : "", (this.mask & NIL) != 0 ? "null" : "")
+                    .trim();
+        }
+    }
+
+    private static final class Interval {
+        private final double lower;
+        private final boolean lowerClosed;
+        private final double upper;
+        private final boolean upperClosed;
+
+        private Interval(double lower, boolean lowerClosed, double upper, boolean upperClosed) {
+            this.lower = lower;
+            this.lowerClosed = lowerClosed;
+            this.upper = upper;
+            this.upperClosed = upperClosed;
+        }
+
+        private boolean isEmpty() {
+            return this.lower > this.upper
+                    || (this.lower == this.upper && !(this.lowerClosed && this.upperClosed));
+        }
+
+        private Interval intersect(Interval other) {
+            double lower = Math.max(this.lower, other.lower);
+            boolean lowerClosed = (this.lower != lower || this.lowerClosed)
+                    && (other.lower != lower || other.lowerClosed);
+            double upper = Math.min(this.upper, other.upper);
+            boolean upperClosed = (this.upper != upper || this.upperClosed)
+                    && (other.upper != upper || other.upperClosed);
+
+            return new Interval(lower, lowerClosed, upper, upperClosed);
+        }
+
+        /**
+         * @return Whether no value above this interval is below the upper bound of other one
+         */
+        private boolean endsBefore(Interval other) {
+            return this.upper < other.upper || (this.upper == other.upper && !this.upperClosed);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Interval)) {
+                return false;
+            }
+
+            Interval interval = (Interval) o;
+            return this.lower == interval.lower && this.lowerClosed == interval.lowerClosed
+                    && this.upper == interval.upper && this.upperClosed == interval.upperClosed;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(this.lower) * 31 + Double.hashCode(this.upper);
+        }
+
+        public String toString() {
+            return String.format("%s%s, %s%s", this.lowerClosed ? "[" : "(", this.lower,
+                    this.upper, this.upperClosed ? "]" : ")");
+        }
+    }
+}
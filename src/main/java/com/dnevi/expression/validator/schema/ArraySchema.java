@@ -13,6 +13,11 @@ import java.io.Serializable;
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Getter
 public class ArraySchema extends Schema implements Serializable {
+    /**
+     * Last segment of the id of array items, which can not be a property name, i.e. {@code
+     * root/orders/[]} for items of {@code root/orders}
+     */
+    public static final String ITEMS_ID = "[]";
 
     private Schema items;
 
@@ -25,6 +30,10 @@ public class ArraySchema extends Schema implements Serializable {
 
     public void setId(String id) {
         this.id = id;
+        if (this.items != null) {
+            this.items.setId(id.concat("/").concat(ITEMS_ID));
+            this.items.setParentId(this.getId());
+        }
     }
 
     @Override
@@ -0,0 +1,149 @@
+package com.dnevi.expression.validator.schema;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable trie over property names of a schema, built once from the root schema.
+ *
+ * <p>
+ * Every object and array schema has a level {@link Node}. Property names of an object are spelled
+ * by character transitions from its level, and the node of the last character of a name leads to
+ * the level of the property. The level of an array leads to the level of its items. A state path
+ * such as {@code $.orders[0].total} is therefore resolved while it is scanned, one character at a
+ * time, without creating a string per segment:
+ * </p>
+ * <pre>
+ * {@code
+ * Node node = trie.getRoot();
+ * for (char c : "orders".toCharArray()) {
+ *     node = PathTrie.next(node, c);
+ * }
+ * node = PathTrie.items(PathTrie.property(node));
+ * ...
+ * Schema schema = PathTrie.schemaOf(node);
+ * }
+ * </pre>
+ * All steps accept and return null for a path which does not exist.
+ */
+public final class PathTrie implements Serializable {
+    private final Node root;
+
+    private PathTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @param root Root schema with already assigned ids
+     * @return Trie over all property names reachable through objects and arrays
+     */
+    static PathTrie build(Schema root) {
+        return new PathTrie(PathTrie.level(root));
+    }
+
+    /**
+     * @return Level of the root schema
+     */
+    public Node getRoot() {
+        return this.root;
+    }
+
+    /**
+     * @return Node after the next character of a property name, or null
+     */
+    public static Node next(Node node, char c) {
+        if (node == null) {
+            return null;
+        }
+
+        int index = Arrays.binarySearch(node.labels, c);
+        return index < 0 ? null : node.children[index];
+    }
+
+    /**
+     * @return Level of the property whose name ends at given node, or null
+     */
+    public static Node property(Node node) {
+        return node == null ? null : node.property;
+    }
+
+    /**
+     * @return Level of items of the array at given level, or null
+     */
+    public static Node items(Node node) {
+        return node == null ? null : node.items;
+    }
+
+    /**
+     * @return Schema of given level, or null if it is not a level
+     */
+    public static Schema schemaOf(Node node) {
+        return node == null ? null : node.schema;
+    }
+
+    private static Node level(Schema schema) {
+        Node level = new Node();
+        level.schema = schema;
+
+        if (schema instanceof ObjectSchema && ((ObjectSchema) schema).getProperties() != null) {
+            for (Map.Entry<String, Schema> property : ((ObjectSchema) schema).getProperties()
+                    .entrySet()) {
+                Node node = level;
+                for (int i = 0; i < property.getKey().length(); i++) {
+                    node = node.child(property.getKey().charAt(i));
+                }
+                if (property.getValue() != null) {
+                    node.property = PathTrie.level(property.getValue());
+                }
+            }
+        }
+
+        if (schema instanceof ArraySchema && ((ArraySchema) schema).getItems() != null) {
+            level.items = PathTrie.level(((ArraySchema) schema).getItems());
+        }
+
+        return level;
+    }
+
+    /**
+     * Node of the trie, either a level of a schema or a prefix of a property name
+     */
+    public static final class Node implements Serializable {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private Node property;
+        private Node items;
+        private Schema schema;
+
+        private Node() {
+        }
+
+        /**
+         * @return Existing or new child, children are kept sorted by their labels
+         */
+        private Node child(char c) {
+            int index = Arrays.binarySearch(this.labels, c);
+            if (index >= 0) {
+                return this.children[index];
+            }
+
+            int insertion = -index - 1;
+            Node child = new Node();
+            char[] labels = new char[this.labels.length + 1];
+            Node[] children = new Node[this.children.length + 1];
+            System.arraycopy(this.labels, 0, labels, 0, insertion);
+            System.arraycopy(this.children, 0, children, 0, insertion);
+            labels[insertion] = c;
+            children[insertion] = child;
+            System.arraycopy(this.labels, insertion, labels, insertion + 1,
+                    this.labels.length - insertion);
+            System.arraycopy(this.children, insertion, children, insertion + 1,
+                    this.children.length - insertion);
+            this.labels = labels;
+            this.children = children;
+
+            return child;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.dnevi.expression.validator.schema;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable lookup table from schema id to {@link Schema}, built once from the root schema.
+ *
+ * <p>
+ * Each entry remembers whether all of its ancestors are {@link ObjectSchema} or {@link
+ * ArraySchema} instances, so checking a {@link StatePath} is a single hash probe instead of a tree
+ * walk per path prefix.
+ * </p>
+ */
+class SchemaIndex implements Serializable {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<String, Entry> entries;
+    private final long fingerprint;
+
+    private SchemaIndex(Map<String, Entry> entries) {
+        this.entries = Collections.unmodifiableMap(entries);
+        this.fingerprint = SchemaIndex.fingerprint(entries);
+    }
+
+    /**
+     * @param root Root schema with already assigned ids
+     * @return Index over the root schema and all of its descendants
+     */
+    static SchemaIndex build(Schema root) {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        SchemaIndex.collect(entries, root, true);
+        return new SchemaIndex(entries);
+    }
+
+    Optional<Schema> findById(String id) {
+        Entry entry = this.entries.get(id);
+        return entry == null ? Optional.empty() : Optional.of(entry.schema);
+    }
+
+    /**
+     * @param id Schema id
+     * @return Schema with given id if it exists and all of its ancestors are {@link ObjectSchema}
+     * or {@link ArraySchema}
+     */
+    Optional<Schema> findReachableById(String id) {
+        Entry entry = this.entries.get(id);
+        if (entry == null || !entry.objectAncestors) {
+            return Optional.empty();
+        }
+
+        return Optional.of(entry.schema);
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    /**
+     * Fingerprint depends only on schema ids, types and constants, and not on property order, so
+     * two equal schemas loaded from different sources share cached artifacts.
+     */
+    private static long fingerprint(Map<String, Entry> entries) {
+        long fingerprint = 0L;
+        for (Entry entry : entries.values()) {
+            Schema schema = entry.schema;
+            long hash = SchemaIndex.hash(FNV_OFFSET_BASIS, schema.getId());
+            hash = SchemaIndex.hash(hash, schema.getType());
+            hash = SchemaIndex.hash(hash, String.valueOf(SchemaIndex.constantOf(schema)));
+            hash = SchemaIndex.hash(hash, String.valueOf(entry.objectAncestors));
+            fingerprint += hash * FNV_PRIME;
+        }
+
+        return fingerprint;
+    }
+
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return hash * FNV_PRIME;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    private static Object constantOf(Schema schema) {
+        if (schema instanceof BooleanSchema) {
+            return ((BooleanSchema) schema).getConstant();
+        }
+        if (schema instanceof IntegerSchema) {
+            return ((IntegerSchema) schema).getConstant();
+        }
+        if (schema instanceof NumberSchema) {
+            return ((NumberSchema) schema).getConstant();
+        }
+        if (schema instanceof StringSchema) {
+            return ((StringSchema) schema).getConstant();
+        }
+
+        return null;
+    }
+
+    private static void collect(Map<String, Entry> entries, Schema schema,
+            boolean objectAncestors) {
+        if (schema == null || schema.getId() == null) {
+            return;
+        }
+
+        entries.putIfAbsent(schema.getId(), new Entry(schema, objectAncestors));
+
+        boolean childObjectAncestors = objectAncestors
+                && (schema instanceof ObjectSchema || schema instanceof ArraySchema);
+        if (schema instanceof ObjectSchema) {
+            Map<String, Schema> properties = ((ObjectSchema) schema).getProperties();
+            if (properties != null) {
+                properties.values()
+                        .forEach(child -> SchemaIndex.collect(entries, child, childObjectAncestors));
+            }
+        }
+
+        if (schema instanceof ArraySchema) {
+            SchemaIndex.collect(entries, ((ArraySchema) schema).getItems(), childObjectAncestors);
+        }
+    }
+
+    private static final class Entry implements Serializable {
+        private final Schema schema;
+        private final boolean objectAncestors;
+
+        private Entry(Schema schema, boolean objectAncestors) {
+            this.schema = schema;
+            this.objectAncestors = objectAncestors;
+        }
+    }
+}
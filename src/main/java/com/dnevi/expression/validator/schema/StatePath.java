@@ -2,8 +2,11 @@ package com.dnevi.expression.validator.schema;
 
 import com.dnevi.expression.validator.exception.InvalidStatePathStringException;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -11,6 +14,11 @@ import java.util.regex.Pattern;
 @Getter
 public class StatePath {
 
+    private static final Pattern PATH_PREFIX = Pattern.compile("^\\$.");
+    public static final String WILDCARD = "[*]";
+    public static final String ALL_WILDCARD = "[all]";
+    private static final Pattern COUNT_WILDCARD = Pattern.compile("\\[(\\d+)\\+]");
+
     private String path;
 
     @JsonCreator
@@ -20,21 +28,110 @@ public class StatePath {
     }
 
     /**
-     * Method will make transformation from path to schema id string
+     * Method will make transformation from path to schema id string. Array subscripts select the
+     * items of an array, see {@link ArraySchema#ITEMS_ID}.
      *
-     * Path example: $.a.b.c.d
+     * Path example: $.a.b[0].c.d
      *
-     * Schema Id: root/a/b/c/d
+     * Schema Id: root/a/b/[]/c/d
      *
      * @return Transformed path to schema id
      */
     public String transformToSchemaId() {
-        return this.getPath().replaceFirst("^\\$.", "root/").replace(".", "/");
+        StringBuilder id = new StringBuilder("root");
+        for (String segment : this.getSegments()) {
+            id.append('/').append(StatePath.isSubscript(segment) ? ArraySchema.ITEMS_ID : segment);
+        }
+
+        return id.toString();
+    }
+
+    /**
+     * Path example: $.orders[0].total
+     *
+     * Segments: orders, [0], total
+     *
+     * @return Property names and array subscripts of the path
+     */
+    @JsonIgnore
+    public List<String> getSegments() {
+        List<String> segments = new ArrayList<>();
+        int start = 2;
+        for (int i = 2; i < this.path.length(); i++) {
+            char c = this.path.charAt(i);
+            if (c == '.' || c == '[') {
+                StatePath.addSegment(segments, this.path.substring(start, i));
+                start = i + (c == '.' ? 1 : 0);
+            } else if (c == ']') {
+                segments.add(this.path.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < this.path.length() || segments.isEmpty()) {
+            segments.add(this.path.substring(start));
+        }
+
+        return segments;
+    }
+
+    /**
+     * Comparisons of a path with {@link #WILDCARD} are true if any selected value matches, those
+     * of a path with {@link #ALL_WILDCARD} if all of them match, and those of a path with a count
+     * subscript such as {@code [3+]} if at least that many of them match.
+     *
+     * @return Whether the path selects all items of an array, i.e. {@code $.items[*].price}
+     */
+    @JsonIgnore
+    public boolean isWildcard() {
+        return this.path.contains(WILDCARD) || this.path.contains(ALL_WILDCARD)
+                || COUNT_WILDCARD.matcher(this.path).find();
+    }
+
+    /**
+     * @return Whether the segment is an array subscript, i.e. {@code [0]} or {@code [*]}
+     */
+    public static boolean isSubscript(String segment) {
+        return segment.startsWith("[");
+    }
+
+    /**
+     * @return Whether the segment is {@link #WILDCARD}, {@link #ALL_WILDCARD} or a count subscript
+     * such as {@code [3+]}
+     */
+    public static boolean isWildcard(String segment) {
+        return WILDCARD.equals(segment) || ALL_WILDCARD.equals(segment)
+                || COUNT_WILDCARD.matcher(segment).matches();
+    }
+
+    /**
+     * @return Number of values which have to match for a wildcard segment, i.e. 3 for {@code
+     * [3+]} and 1 for {@link #WILDCARD}, or -1 if all of them have to match
+     */
+    public static int minimumOf(String segment) {
+        if (ALL_WILDCARD.equals(segment)) {
+            return -1;
+        }
+
+        Matcher matcher = COUNT_WILDCARD.matcher(segment);
+        if (!matcher.matches()) {
+            return 1;
+        }
+
+        // No array has more items than fit into an int
+        String count = matcher.group(1);
+        return count.length() > 9 ? Integer.MAX_VALUE : Integer.parseInt(count);
+    }
+
+    private static void addSegment(List<String> segments, String segment) {
+        // A subscript is directly followed by a dot or another subscript
+        if (!segment.isEmpty() || segments.isEmpty()) {
+            segments.add(segment);
+        }
     }
 
     private void assertPath(String path) {
         Objects.requireNonNull(path, "Path cannot be null");
-        Matcher matcher = Pattern.compile("^\\$.").matcher(path);
+        Matcher matcher = PATH_PREFIX.matcher(path);
 
         if (!matcher.find()) {
             throw new InvalidStatePathStringException(path);
@@ -3,6 +3,7 @@ package com.dnevi.expression.validator.schema;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
 import lombok.Getter;
 
 import java.io.Serializable;
@@ -10,18 +11,42 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Getter
 public class StateSchema implements Serializable {
 
     private Schema definition;
 
+    @Getter(AccessLevel.NONE)
+    private final SchemaIndex schemaIndex;
+    @Getter(AccessLevel.NONE)
+    private final PathTrie pathTrie;
+
     @JsonCreator
     public StateSchema(@JsonProperty("definition") Schema definition) {
         this.definition = definition;
         definition.markAsRoot();
         definition.setId("root");
+        this.schemaIndex = SchemaIndex.build(definition);
+        this.pathTrie = PathTrie.build(definition);
+    }
+
+    /**
+     * @return Content based fingerprint of the schema, equal for schemas with the same ids, types
+     * and constants
+     */
+    @JsonIgnore
+    public long getFingerprint() {
+        return this.schemaIndex.getFingerprint();
+    }
+
+    /**
+     * @return Trie over property names of the schema, which resolves state paths while they are
+     * scanned
+     */
+    @JsonIgnore
+    public PathTrie getPathTrie() {
+        return this.pathTrie;
     }
 
     /**
@@ -69,27 +94,15 @@ public class StateSchema implements Serializable {
     }
 
     /**
-     * Method will check if all nodes except the last one are instance of {@link ObjectSchema} and
-     * the last one can be instance of {@link Schema}
+     * Method will check if all nodes except the last one are instance of {@link ObjectSchema} or
+     * {@link ArraySchema} and the last one can be instance of {@link Schema}
      *
      * @param path {@link StatePath}
      * @return Return boolean value
      */
     @JsonIgnore
     public boolean isValidStatePath(StatePath path) {
-        String destinationId = path.transformToSchemaId();
-        List<String> nodes = StateSchema.findAllIdsFromRootSchemaToSchemaWithId(destinationId);
-
-        int size = nodes.size();
-
-        String lastNode = nodes.stream().skip(size - 1L).findFirst()
-                .orElseThrow(RuntimeException::new);
-        List<String> objectNodes = nodes.stream().limit(size - 1L).collect(Collectors.toList());
-
-        Boolean allMatch = objectNodes.stream().allMatch(this::isSchemaIdTypeObject);
-        Boolean hasSchema = this.hasSchemaWith(lastNode);
-
-        return allMatch && hasSchema;
+        return this.findSchemaByStatePath(path).isPresent();
     }
 
     /**
@@ -127,32 +140,25 @@ public class StateSchema implements Serializable {
         return Optional.empty();
     }
 
+    /**
+     * Method will find schema by state path using precomputed schema index
+     *
+     * @param statePath {@link StatePath}
+     * @return Schema if path exists and all nodes except the last one are {@link ObjectSchema} or
+     * {@link ArraySchema}
+     */
     @JsonIgnore
     public Optional<Schema> findSchemaByStatePath(StatePath statePath) {
-        boolean isValid = this.isValidStatePath(statePath);
-
-        if (isValid) {
-            return StateSchema
-                    .findSchemaById(statePath.transformToSchemaId(), this.getDefinition());
-        }
-
-        return Optional.empty();
-    }
-
-    @JsonIgnore
-    private boolean isSchemaIdTypeObject(String schemaId) {
-        Optional<Schema> optionalSchema = StateSchema
-                .findSchemaById(schemaId, this.getDefinition());
-
-        return optionalSchema.isPresent() && optionalSchema.get() instanceof ObjectSchema;
+        return this.schemaIndex.findReachableById(statePath.transformToSchemaId());
     }
 
+    /**
+     * @param id Schema id
+     * @return Schema with given id from precomputed schema index
+     */
     @JsonIgnore
-    private boolean hasSchemaWith(String schemaId) {
-        Optional<Schema> optionalSchema = StateSchema
-                .findSchemaById(schemaId, this.getDefinition());
-
-        return optionalSchema.isPresent();
+    public Optional<Schema> findSchemaById(String id) {
+        return this.schemaIndex.findById(id);
     }
 
     // @formatter:off
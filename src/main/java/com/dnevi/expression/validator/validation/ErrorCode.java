@@ -0,0 +1,63 @@
+package com.dnevi.expression.validator.validation;
+
+/**
+ * Kind of a {@link ValidationError}, stable across releases so callers can react to errors
+ * without parsing their messages. Messages are rendered from the template of the code only when
+ * asked for, with the subject of the error as the only argument.
+ */
+public enum ErrorCode {
+    EMPTY_EXPRESSION("Expression is empty."),
+    /**
+     * Syntax tree misses an operand, so the expression is not interpreted
+     */
+    INCOMPLETE_EXPRESSION("Expression is not complete."),
+    /**
+     * Syntax tree deeper than stages after parsing accept, so the expression is not interpreted
+     */
+    EXPRESSION_TOO_DEEP("Expression is nested deeper than %s levels."),
+    /**
+     * Parenthesis without its counterpart, positioned at the unmatched parenthesis
+     */
+    UNBALANCED_PARENTHESES("Parenthesis is not matching."),
+    /**
+     * Identifier which is neither {@code true}, {@code false} nor {@code null}
+     */
+    UNKNOWN_TYPE("Unknown type '%s'."),
+    UNEXPECTED_CHARACTER("Unexpected character '%s'."),
+    UNTERMINATED_STRING("Unterminated string."),
+    UNEXPECTED_TOKEN("Unexpected token '%s'."),
+    EXPECTED_EXPRESSION("Expect expression."),
+    EXPECTED_RIGHT_PAREN("Expect ')' after expression."),
+    /**
+     * State path which is not defined by the state schema
+     */
+    INVALID_PATH("Path '%s' is not valid."),
+    /**
+     * State path of an object or an array, not of a single value
+     */
+    NOT_SCALAR_PATH("Path '%s' does not hold a single value."),
+    NUMBER_OPERATORS(
+            "The operators <, <=, > and >= can only be used for an INTEGER and NUMBER types."),
+    STRING_OR_NULL_OPERATORS(
+            "The operators != and == can only be used for a string and null types."),
+    NOT_BOOLEAN("Not a valid boolean."),
+    NOT_NUMBER("Not a valid number."),
+    UNEVALUABLE_EXPRESSION("Malformed expression. Interpreter could not evaluate %s."),
+    VALIDATION_TIMEOUT("Validation of expression timed out after %s ms."),
+    VALIDATION_FAILED("Validation of expression failed. %s");
+
+    private final String template;
+
+    ErrorCode(String template) {
+        this.template = template;
+    }
+
+    /**
+     * @param subject Offending lexeme or detail of the error
+     * @return Message of an error with given subject
+     */
+    public String render(String subject) {
+        return this.template.indexOf('%') < 0 ? this.template
+                : String.format(this.template, subject);
+    }
+}
@@ -1,12 +1,47 @@
 package com.dnevi.expression.validator.validation;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
+/**
+ * Validation error with its position in the expression. Errors keep only their {@link ErrorCode},
+ * the subject of the message and primitive position data, the message itself is rendered by
+ * {@link #getMessage()}. Errors of the interpreter are positioned at the offending operator, errors
+ * which are not about a part of the expression have an offset of -1.
+ */
 @Getter
 public class ValidationError {
-    private String message;
+    private final ErrorCode code;
+    @Getter(AccessLevel.NONE)
+    private final String subject;
+    private final int offset;
+    private final int length;
 
-    public ValidationError(String message) {
-        this.message = message;
+    /**
+     * @param subject Offending lexeme or detail of the error, or null if the message has none
+     * @param offset Index of the first offending character, or -1 if the error has no position
+     * @param length Number of offending characters
+     */
+    public ValidationError(ErrorCode code, String subject, int offset, int length) {
+        this.code = code;
+        this.subject = subject;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Creates error which is not about a part of the expression
+     */
+    public ValidationError(ErrorCode code, String subject) {
+        this(code, subject, -1, 0);
+    }
+
+    public String getMessage() {
+        return this.code.render(this.subject);
+    }
+
+    public String toString() {
+        return this.offset < 0 ? this.getMessage()
+                : String.format("%s at %d: %s", this.code, this.offset, this.getMessage());
     }
 }
@@ -0,0 +1,28 @@
+package com.dnevi.expression.validator.validation;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Immutable result of a single validation - verdict of the interpreted expression together with
+ * all validation errors collected while scanning, parsing and interpreting it.
+ */
+@Getter
+public class ValidationOutcome {
+    private final boolean valid;
+    private final ValidationResult validationResult;
+
+    public ValidationOutcome(boolean valid, ValidatorContext validatorContext) {
+        this.valid = valid;
+        this.validationResult = validatorContext.getValidationResult();
+    }
+
+    public boolean hasErrors() {
+        return this.validationResult.hasErrors();
+    }
+
+    public List<ValidationError> getValidationErrors() {
+        return this.validationResult.getValidationErrors();
+    }
+}
@@ -1,14 +1,14 @@
 package com.dnevi.expression.validator.validation;
 
-import lombok.Getter;
-
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-@Getter
 public class ValidationResult {
 
     private List<ValidationError> validationErrors;
+    private int errorCount;
+    private long errorCodes;
 
     ValidationResult() {
         this.validationErrors = new ArrayList<>();
@@ -16,10 +16,37 @@ public class ValidationResult {
 
     void addError(ValidationError error) {
         this.validationErrors.add(error);
+        this.countError(error.getCode());
+    }
+
+    void countError(ErrorCode code) {
+        this.errorCount++;
+        this.errorCodes |= 1L << code.ordinal();
+    }
+
+    /**
+     * @return Read-only view of collected validation errors, empty in verdict-only mode
+     */
+    public List<ValidationError> getValidationErrors() {
+        return Collections.unmodifiableList(this.validationErrors);
+    }
+
+    /**
+     * @return Number of reported validation errors, collected or not
+     */
+    public int getErrorCount() {
+        return this.errorCount;
     }
 
     public boolean hasErrors() {
-        return !this.getValidationErrors().isEmpty();
+        return this.errorCount > 0;
+    }
+
+    /**
+     * @return Whether an error with given code was reported, collected or not
+     */
+    public boolean hasError(ErrorCode code) {
+        return (this.errorCodes & 1L << code.ordinal()) != 0;
     }
 
 }
@@ -2,16 +2,55 @@ package com.dnevi.expression.validator.validation;
 
 import lombok.Getter;
 
+/**
+ * Collects validation errors of a single expression through all validation phases. It is not
+ * thread-safe - expressions validated concurrently must each use their own context.
+ *
+ * <p>
+ * A context created by {@link #verdictOnly()} only counts errors and their codes, so reporting an
+ * error through {@link #addError(ErrorCode, String, int, int)} does not allocate.
+ * </p>
+ */
 @Getter
 public class ValidatorContext {
 
     private ValidationResult validationResult;
+    private final boolean collecting;
 
     public ValidatorContext() {
+        this(true);
+    }
+
+    private ValidatorContext(boolean collecting) {
         this.validationResult = new ValidationResult();
+        this.collecting = collecting;
+    }
+
+    /**
+     * @return Context which counts errors without collecting them
+     */
+    public static ValidatorContext verdictOnly() {
+        return new ValidatorContext(false);
     }
 
     public void addError(ValidationError result) {
-        this.validationResult.addError(result);
+        if (this.collecting) {
+            this.validationResult.addError(result);
+        } else {
+            this.validationResult.countError(result.getCode());
+        }
+    }
+
+    /**
+     * @param subject Offending lexeme or detail of the error, or null if the message has none
+     * @param offset Index of the first offending character, or -1 if the error has no position
+     * @param length Number of offending characters
+     */
+    public void addError(ErrorCode code, String subject, int offset, int length) {
+        if (this.collecting) {
+            this.validationResult.addError(new ValidationError(code, subject, offset, length));
+        } else {
+            this.validationResult.countError(code);
+        }
     }
 }
@@ -1,9 +1,14 @@
 package com.dnevi.expression.validator;
 
+import com.dnevi.expression.validator.cache.ExpressionCache;
 import com.dnevi.expression.validator.exception.InvalidExpressionException;
 import com.dnevi.expression.validator.exception.UnknownExpressionTypeException;
 import com.dnevi.expression.validator.expression.ExpressionValidator;
+import com.dnevi.expression.validator.expression.Lexer;
 import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ErrorCode;
+import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ValidatorContext;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -13,6 +18,8 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -57,18 +64,149 @@ public class ValidatorApplicationTest {
         );
     }
 
+    @Test
+    public void shouldNotKeepStaleValidationResult() {
+        Assert.assertFalse(this.validator.validate("$.name > 5", this.schema));
+        Assert.assertTrue(this.validator.isInvalid());
+
+        Assert.assertTrue(this.validator.validate("$.age > 5", this.schema));
+        Assert.assertFalse(this.validator.isInvalid());
+    }
+
+    @Test
+    public void shouldValidateStreamingWithSameVerdict() {
+        List<String> expressions = new ArrayList<>();
+        expressions.add("($.age >= 30) || ($.age < 40)");
+        expressions.add("$.name != null");
+        expressions.add("$.name > 5");
+        expressions.add("((($.position != 4) || ($.position < 50)) != true)");
+        expressions.add("$.unknown == 1");
+
+        expressions.forEach(e -> Assert.assertEquals(this.validator.check(e, this.schema).isValid(),
+                this.validator.checkStreaming(e, this.schema).isValid()));
+    }
+
+    @Test
+    public void shouldStopStreamingAtFirstError() {
+        var outcome = this.validator.checkStreaming("($.age >= 30 || ($.age < 40)", this.schema);
+        Assert.assertFalse(outcome.isValid());
+        Assert.assertEquals(1, outcome.getValidationErrors().size());
+
+        outcome = this.validator.checkStreaming("$.age >= 30) || $.age < 40", this.schema);
+        Assert.assertFalse(outcome.isValid());
+        Assert.assertEquals("Unexpected token ')'.",
+                outcome.getValidationErrors().get(0).getMessage());
+    }
+
+    @Test
+    public void shouldReportMalformedExpressionsWithoutThrowing() {
+        var outcome = this.validator.check("($.age >= 30 || ($.age < 40)", this.schema);
+        Assert.assertFalse(outcome.isValid());
+        Assert.assertEquals(1, outcome.getValidationErrors().size());
+        ValidationError error = outcome.getValidationErrors().get(0);
+        Assert.assertEquals(ErrorCode.UNBALANCED_PARENTHESES, error.getCode());
+        Assert.assertEquals(0, error.getOffset());
+        Assert.assertEquals(1, error.getLength());
+
+        outcome = this.validator.check("$.age > 5 && ($.name != John)", this.schema);
+        Assert.assertFalse(outcome.isValid());
+        error = outcome.getValidationErrors().get(0);
+        Assert.assertEquals(ErrorCode.UNKNOWN_TYPE, error.getCode());
+        Assert.assertEquals(24, error.getOffset());
+        Assert.assertEquals(4, error.getLength());
+
+        outcome = this.validator.checkStreaming("$.age > 5 && $.name != John", this.schema);
+        Assert.assertEquals(ErrorCode.UNKNOWN_TYPE,
+                outcome.getValidationErrors().get(0).getCode());
+
+        outcome = this.validator.check("$.age >", this.schema);
+        Assert.assertFalse(outcome.isValid());
+        error = outcome.getValidationErrors().get(0);
+        Assert.assertEquals(ErrorCode.EXPECTED_EXPRESSION, error.getCode());
+        Assert.assertEquals(7, error.getOffset());
+
+        Assert.assertFalse(this.validator.validate("", this.schema));
+    }
+
+    @Test
+    public void shouldValidateWithoutCollectingErrors() {
+        var cachedValidator = new ExpressionValidator(new ExpressionCache(10, 1_000));
+        List<String> expressions = List.of("$.age > 60 && $.employed == true", "$.age > \"a\"",
+                "($.age > 60", "$.name == John", "$.age >", "");
+
+        for (String expression : expressions) {
+            boolean expected = this.validator.check(expression, this.schema).isValid();
+            Assert.assertEquals(expression, expected,
+                    this.validator.isValid(expression, this.schema));
+            Assert.assertEquals(expression, expected,
+                    cachedValidator.isValid(expression, this.schema));
+        }
+    }
+
     @Test
     public void shouldThrowInvalidExpressionException() {
         String expression = "($.age >= 30 || ($.age < 40)";
+        var validator = new ExpressionValidator(null, true);
 
         Assert.assertThrows(InvalidExpressionException.class,
-                () -> this.validator.validate(expression, this.schema));
+                () -> validator.validate(expression, this.schema));
     }
 
     @Test
     public void shouldThrowUnknownExpressionTypeException() {
         String expression = "($.name != John)";
+        var validator = new ExpressionValidator(new ExpressionCache(10, 1_000), true);
+
         Assert.assertThrows(UnknownExpressionTypeException.class,
-                () -> this.validator.validate(expression, this.schema));
+                () -> validator.validate(expression, this.schema));
+        Assert.assertThrows(UnknownExpressionTypeException.class,
+                () -> new Lexer(expression, new ValidatorContext(), true).scanTokens());
+    }
+
+    @Test
+    public void shouldValidateNestedAndArrayPaths() throws IOException {
+        InputStream inputStream = this.getClass().getResourceAsStream("/nested_state_schema.json");
+        StateSchema schema = new ObjectMapper().readValue(inputStream, new TypeReference<>() {
+        });
+        List<String> validExpressions = List.of("$.address.city == \"Split\"",
+                "$.item_count > 1", "$.orders[0].total > 10", "$.orders[*].paid == true",
+                "$.orders[all].total >= 0", "$.orders[2+].total >= 0",
+                "$.scores[1] > 5 && $.2024.visits > 0",
+                "$.address.zip_2 != null");
+
+        validExpressions.forEach(e -> Assert.assertTrue(e, this.validator.check(e, schema)
+                .isValid()));
+        Assert.assertTrue(this.validator.check("$.orders.total > 1", schema).getValidationResult()
+                .hasError(ErrorCode.INVALID_PATH));
+        Assert.assertTrue(this.validator.check("$.address == null", schema).getValidationResult()
+                .hasError(ErrorCode.NOT_SCALAR_PATH));
+        Assert.assertTrue(this.validator.check("$.scores[0] == \"a\"", schema)
+                .getValidationResult().hasError(ErrorCode.STRING_OR_NULL_OPERATORS));
+    }
+
+    @Test
+    public void shouldEvaluateNdjsonFilesFromCommandLine() throws IOException {
+        Path folder = Files.createTempDirectory("validator");
+        Path schema = folder.resolve("schema.json");
+        Path rules = folder.resolve("rules.txt");
+        Path states = folder.resolve("states.ndjson");
+        Path output = folder.resolve("matches.tsv");
+        try (InputStream inputStream = this.getClass()
+                .getResourceAsStream("/example_state_schema.json")) {
+            Files.copy(inputStream, schema);
+        }
+        Files.write(rules, List.of("# adults", "$.age >= 18", "", "$.employed == true"));
+        Files.write(states, List.of("{\"age\": 20, \"employed\": true}", "{\"age\": 10}",
+                "{\"employed\": true}"));
+
+        int exitCode = ValidatorApplication.run(new String[]{"-s", schema.toString(), "-r",
+                rules.toString(), "-o", output.toString(), "-t", "2", states.toString()},
+                System.out);
+
+        Assert.assertEquals(0, exitCode);
+        Assert.assertEquals(List.of(states + "\t0\t0,1", states + "\t42\t1"),
+                Files.readAllLines(output));
+        Assert.assertEquals(1, ValidatorApplication.run(new String[]{"-s", schema.toString()},
+                System.out));
     }
 }
@@ -0,0 +1,133 @@
+package com.dnevi.expression.validator.cache;
+
+import com.dnevi.expression.validator.evaluation.StateEvaluator;
+import com.dnevi.expression.validator.expression.ExpressionValidator;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+public class ExpressionCacheTest {
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldReuseCompiledExpression() {
+        ExpressionCache cache = new ExpressionCache(100, 10_000);
+        ExpressionValidator validator = new ExpressionValidator(cache);
+
+        Assert.assertTrue(validator.validate("$.age > 60", this.schema));
+        Assert.assertTrue(validator.validate("$.age > 60", this.schema));
+        Assert.assertTrue(validator.validate("$.employed == true", this.schema));
+
+        CacheStats stats = cache.stats();
+        Assert.assertEquals(1, stats.getHitCount());
+        Assert.assertEquals(2, stats.getMissCount());
+        Assert.assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void shouldCacheShortCircuitOutcomesSeparately() {
+        ExpressionCache cache = new ExpressionCache(100, 10_000);
+        ExpressionValidator validator = new ExpressionValidator(cache);
+        ExpressionValidator shortCircuit = new ExpressionValidator(cache, false, true);
+
+        Assert.assertFalse(validator.validate("$.age > 60 || false", this.schema));
+        Assert.assertTrue(shortCircuit.validate("$.age > 60 || false", this.schema));
+        Assert.assertTrue(shortCircuit.isValid("$.age > 60 || false", this.schema));
+        Assert.assertTrue(shortCircuit.validate("true || $.age > \"a\"", this.schema));
+        Assert.assertTrue(shortCircuit.isInvalid());
+
+        Assert.assertEquals(3, cache.stats().getSize());
+    }
+
+    @Test
+    public void shouldEvictBySizeAndWeight() {
+        ExpressionCache bySize = new ExpressionCache(1, 10_000);
+        ExpressionValidator sizeValidator = new ExpressionValidator(bySize);
+        sizeValidator.validate("$.age > 60", this.schema);
+        sizeValidator.validate("$.age < 60", this.schema);
+
+        Assert.assertEquals(1, bySize.stats().getSize());
+        Assert.assertEquals(1, bySize.stats().getEvictionCount());
+
+        ExpressionCache byWeight = new ExpressionCache(100, 1, e -> 1);
+        ExpressionValidator weightValidator = new ExpressionValidator(byWeight);
+        weightValidator.validate("$.age > 60", this.schema);
+        weightValidator.validate("$.age < 60", this.schema);
+
+        Assert.assertEquals(1, byWeight.stats().getWeight());
+        Assert.assertEquals(1, byWeight.stats().getEvictionCount());
+    }
+
+    @Test
+    public void shouldInvalidateReloadedSchema() {
+        ExpressionCache cache = new ExpressionCache(100, 10_000);
+        new ExpressionValidator(cache).validate("$.age > 60", this.schema);
+
+        cache.invalidate(this.schema);
+
+        Assert.assertEquals(0, cache.stats().getSize());
+        Assert.assertNull(cache.getIfPresent("$.age > 60", this.schema));
+    }
+
+    @Test
+    public void shouldInvalidatePreviousSchemaOnlyIfContentChanged() throws IOException {
+        ExpressionCache cache = new ExpressionCache(100, 10_000);
+        new ExpressionValidator(cache).validate("$.age > 60", this.schema);
+        StateSchema unchanged = this.load("/example_state_schema.json");
+        StateSchema changed = this.load("/const_state_schema.json");
+
+        cache.invalidate(this.schema, unchanged);
+        Assert.assertNotNull(cache.getIfPresent("$.age > 60", unchanged));
+
+        cache.invalidate(unchanged, changed);
+        Assert.assertEquals(0, cache.stats().getSize());
+    }
+
+    private StateSchema load(String resource) throws IOException {
+        InputStream inputStream = this.getClass().getResourceAsStream(resource);
+        return new ObjectMapper().readValue(inputStream, StateSchema.class);
+    }
+
+    @Test
+    public void shouldPromoteHotExpression() {
+        ExpressionCache cache = new ExpressionCache(100, 10_000, e -> 1, 3);
+        String expression = "$.age > 60 && $.employed == true";
+        StateEvaluator evaluator = StateEvaluator.compile(expression, this.schema, cache);
+        byte[] document = "{\"age\": 61, \"employed\": true}".getBytes();
+
+        evaluator.evaluate(document);
+        evaluator.evaluate(document);
+        Assert.assertFalse(cache.getIfPresent(expression, this.schema).isPromoted());
+        Assert.assertEquals(0, cache.stats().getPromotionCount());
+
+        evaluator.evaluate(document);
+        ForkJoinPool.commonPool().awaitQuiescence(10, TimeUnit.SECONDS);
+
+        Assert.assertTrue(cache.getIfPresent(expression, this.schema).isPromoted());
+        Assert.assertTrue(evaluator.evaluate(document));
+        Assert.assertEquals(1, cache.stats().getPromotionCount());
+    }
+
+    @Test
+    public void shouldRejectNegativePromotionThreshold() {
+        IllegalArgumentException e = Assert.assertThrows(IllegalArgumentException.class,
+                () -> new ExpressionCache(100, 10_000, cached -> 1, -1));
+        Assert.assertEquals("Promotion threshold must not be negative, was -1.", e.getMessage());
+    }
+}
@@ -0,0 +1,59 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.cache.ExpressionCache;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class AdaptiveConditionTest {
+    private static final String EXPRESSION =
+            "$.employed == true && $.name != \"John\" && $.age > 60";
+
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldRunDecisiveOperandFirst() {
+        StateEvaluator evaluator = StateEvaluator.compile(EXPRESSION, this.schema);
+        StateEvaluator adaptive = evaluator.adaptive();
+        AdaptiveCondition condition = (AdaptiveCondition) adaptive.getCondition();
+        Assert.assertEquals(3, condition.getOperands().size());
+
+        Random random = new Random(42);
+        for (int i = 0; i < 4 * AdaptiveCondition.REORDER_INTERVAL; i++) {
+            byte[] document = String.format("{\"age\": %d, \"employed\": true, \"name\": \"n%d\"}",
+                    random.nextInt(64), i).getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(evaluator.evaluate(document), adaptive.evaluate(document));
+        }
+
+        Assert.assertEquals("$.age > 60.0", condition.getOperands().get(0).toString());
+        Assert.assertTrue(condition.getAverageCost() < 2);
+    }
+
+    @Test
+    public void shouldKeepPlanInExpressionCache() {
+        ExpressionCache cache = new ExpressionCache(100, 10_000);
+        StateEvaluator evaluator = StateEvaluator.compile(EXPRESSION, this.schema, cache);
+
+        Assert.assertSame(evaluator, StateEvaluator.compile(EXPRESSION, this.schema, cache));
+        Assert.assertTrue(evaluator.getCondition() instanceof AdaptiveCondition);
+
+        cache.invalidate(this.schema);
+        Assert.assertNotSame(evaluator, StateEvaluator.compile(EXPRESSION, this.schema, cache));
+    }
+}
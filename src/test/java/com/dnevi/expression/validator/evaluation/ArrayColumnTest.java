@@ -0,0 +1,116 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.expression.TokenType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class ArrayColumnTest {
+    private static final List<TokenType> OPERATORS = List.of(TokenType.GREATER,
+            TokenType.GREATER_EQUAL, TokenType.LESS, TokenType.LESS_EQUAL, TokenType.EQUAL_EQUAL,
+            TokenType.BANG_EQUAL);
+
+    @Test
+    public void shouldAggregateLikeComparisonOfEveryValue() {
+        Random random = new Random(42);
+        ArrayColumn column = new ArrayColumn();
+        int[] sizes = {0, 1, 7, ArrayColumn.BLOCK_SIZE, 3 * ArrayColumn.BLOCK_SIZE + 5};
+        for (int size : sizes) {
+            column.clear();
+            for (int i = 0; i < size; i++) {
+                column.addNumber(random.nextInt(10) == 0 ? Double.NaN : random.nextInt(20));
+            }
+
+            for (TokenType operator : OPERATORS) {
+                for (double constant : new double[]{-1, 0, 10, 19, 20, Double.NaN}) {
+                    if (Double.isNaN(constant) && operator != TokenType.EQUAL_EQUAL
+                            && operator != TokenType.BANG_EQUAL) {
+                        continue;
+                    }
+
+                    int expected = 0;
+                    for (int i = 0; i < size; i++) {
+                        expected += this.compare(column.getNumber(i), operator, constant) ? 1 : 0;
+                    }
+
+                    String message = String.format("%d values %s %s", size, operator, constant);
+                    Assert.assertEquals(message, expected, column.count(operator, constant));
+                    Assert.assertEquals(message, expected > 0, column.any(operator, constant));
+                    Assert.assertEquals(message, expected == size,
+                            column.all(operator, constant));
+                    for (int minimum : new int[]{0, 2, expected, expected + 1}) {
+                        Assert.assertEquals(message, expected >= minimum,
+                                column.atLeast(operator, constant, minimum));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldCompareLongsExactly() {
+        ArrayColumn column = new ArrayColumn();
+        column.addLong(9007199254740993L);
+        column.addNumber(9007199254740992.0);
+        column.addLong(-9007199254740993L);
+        column.addNumber(Double.NaN);
+
+        Assert.assertEquals(1, column.count(TokenType.EQUAL_EQUAL, 9007199254740993L));
+        Assert.assertEquals(1, column.count(TokenType.EQUAL_EQUAL, 9007199254740992.0));
+        Assert.assertEquals(3, column.count(TokenType.BANG_EQUAL, 9007199254740992L));
+        Assert.assertEquals(2, column.count(TokenType.LESS, 9007199254740993L));
+        Assert.assertTrue(column.atLeast(TokenType.GREATER, 9007199254740992.0, 1));
+        Assert.assertFalse(column.all(TokenType.GREATER_EQUAL, -9007199254740993L));
+
+        ArrayColumn copy = new ArrayColumn();
+        copy.copy(column);
+        Assert.assertEquals(1, copy.count(TokenType.GREATER, 9007199254740992L));
+        column.clear();
+        column.addNumber(9007199254740992.0);
+        Assert.assertEquals(0, column.count(TokenType.GREATER, 9007199254740992L));
+    }
+
+    @Test
+    public void shouldCountEqualStrings() {
+        ArrayColumn column = new ArrayColumn();
+        column.addString("a");
+        column.addString(null);
+        column.addString("b");
+        column.addString("a");
+
+        Assert.assertEquals(2, column.count(TokenType.EQUAL_EQUAL, "a"));
+        Assert.assertEquals(2, column.count(TokenType.BANG_EQUAL, "a"));
+        Assert.assertEquals(1, column.count(TokenType.EQUAL_EQUAL, (String) null));
+
+        column.clear();
+        Assert.assertEquals(0, column.size());
+        Assert.assertEquals(0, column.count(TokenType.EQUAL_EQUAL, "a"));
+    }
+
+    /**
+     * Semantics of {@link Condition.Comparison} and {@link Condition.Equality}, with null as NaN
+     */
+    private boolean compare(double value, TokenType operator, double constant) {
+        boolean isNull = Double.isNaN(value);
+        if (Double.isNaN(constant)) {
+            return (operator == TokenType.EQUAL_EQUAL) == isNull;
+        }
+
+        switch (operator) {
+            case GREATER:
+                return !isNull && value > constant;
+            case GREATER_EQUAL:
+                return !isNull && value >= constant;
+            case LESS:
+                return !isNull && value < constant;
+            case LESS_EQUAL:
+                return !isNull && value <= constant;
+            case EQUAL_EQUAL:
+                return !isNull && value == constant;
+            default:
+                return isNull || value != constant;
+        }
+    }
+}
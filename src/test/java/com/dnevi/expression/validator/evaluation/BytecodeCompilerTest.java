@@ -0,0 +1,142 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Differential test of conditions compiled by {@link BytecodeCompiler} against the compiled
+ * condition trees
+ */
+public class BytecodeCompilerTest {
+    private static final String[] COMPARISONS = {"$.age > 30", "$.age <= 50", "$.position == 2",
+            "$.position != null", "$.name == \"a\"", "$.name != $.surname", "$.employed",
+            "$.employed == false", "($.age > 40) == $.employed"};
+
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldAgreeWithConditionTree() throws IOException {
+        Random random = new Random(11);
+        List<byte[]> documents = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            documents.add(BytecodeCompilerTest.document(random));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String expression = BytecodeCompilerTest.generate(random, 5);
+            StateEvaluator evaluator = StateEvaluator.compile(expression, this.schema);
+            // Operands of the adaptive plan are reordered before it is compiled
+            StateEvaluator adaptive = evaluator.adaptive();
+            for (int d = 0; d < AdaptiveCondition.REORDER_INTERVAL; d++) {
+                adaptive.evaluate(documents.get(d % documents.size()));
+            }
+
+            CompiledCondition compiled = BytecodeCompiler.compile(evaluator.getCondition());
+            CompiledCondition compiledPlan = BytecodeCompiler.compile(adaptive.getCondition());
+            Assert.assertEquals(evaluator.getCondition().toString(), compiled.toString());
+            for (byte[] document : documents) {
+                StateValues values = new StateValues(evaluator.getExtractor().getSlotCount());
+                evaluator.getExtractor().extract(StateEvaluator.JSON_FACTORY.createParser(document),
+                        values);
+
+                boolean expected = evaluator.getCondition().test(values);
+                Assert.assertEquals(expression, expected, compiled.test(values));
+                Assert.assertEquals(expression, expected, compiledPlan.test(values));
+            }
+        }
+    }
+
+    @Test
+    public void shouldCompileLargeConditions() {
+        Condition condition = BytecodeCompilerTest.chain(1000);
+        CompiledCondition compiled = BytecodeCompiler.compile(condition);
+
+        StateValues values = new StateValues(1);
+        for (int value = 0; value < 1010; value += 3) {
+            values.setNumber(0, value);
+            Assert.assertEquals(condition.test(values), compiled.test(values));
+        }
+    }
+
+    @Test
+    public void shouldRejectConditionTooLargeForOneMethod() {
+        Condition condition = BytecodeCompilerTest.balanced(0, 4096);
+
+        Assert.assertFalse(BytecodeCompiler.isCompilable(condition));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> BytecodeCompiler.compile(condition));
+    }
+
+    /**
+     * @return Alternating chain of {@code &&} and {@code ||} over leaves, i.e. {@code ((v != 0 ||
+     * v == 1) && v != 2) || v == 3}
+     */
+    private static Condition chain(int leaves) {
+        Condition condition = BytecodeCompilerTest.leaf(0, true);
+        for (int i = 1; i < leaves; i++) {
+            condition = i % 2 == 0
+                    ? new Condition.And(condition, BytecodeCompilerTest.leaf(i, true))
+                    : new Condition.Or(condition, BytecodeCompilerTest.leaf(i, false));
+        }
+
+        return condition;
+    }
+
+    private static Condition balanced(int from, int to) {
+        if (to - from == 1) {
+            return BytecodeCompilerTest.leaf(from, false);
+        }
+
+        int middle = (from + to) / 2;
+        return new Condition.Or(BytecodeCompilerTest.balanced(from, middle),
+                BytecodeCompilerTest.balanced(middle, to));
+    }
+
+    private static Condition leaf(int constant, boolean negated) {
+        return new Condition() {
+            @Override
+            public boolean test(StateValues values) {
+                return (values.getNumber(0) == constant) != negated;
+            }
+        };
+    }
+
+    private static String generate(Random random, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return COMPARISONS[random.nextInt(COMPARISONS.length)];
+        }
+
+        String operator = random.nextBoolean() ? " && " : " || ";
+        String expression = BytecodeCompilerTest.generate(random, depth - 1) + operator
+                + BytecodeCompilerTest.generate(random, depth - 1);
+        return random.nextBoolean() ? "(" + expression + ")" : expression;
+    }
+
+    private static byte[] document(Random random) {
+        String[] names = {"\"a\"", "\"b\"", "null", "1"};
+        return String.format("{\"age\": %d, \"position\": %s, \"name\": %s, \"surname\": %s,"
+                        + " \"employed\": %s}", random.nextInt(80),
+                random.nextBoolean() ? "2" : "null", names[random.nextInt(names.length)],
+                names[random.nextInt(names.length)], random.nextBoolean())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+public class NdjsonEvaluatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RuleSet ruleSet;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() throws IOException {
+        InputStream inputStream = this.getClass().getResourceAsStream("/nested_state_schema.json");
+        StateSchema schema = new ObjectMapper().readValue(inputStream, new TypeReference<>() {
+        });
+        this.ruleSet = RuleSet.compile(Arrays.asList(
+                "$.item_count > 3",
+                "$.name == \"a\" || $.address.city != null",
+                "$.orders[*].total > 50",
+                "$.scores[all] >= 1"), schema);
+        this.executor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldEvaluateMappedChunksLikeSingleDocuments() throws IOException {
+        String[] values = {null, "1", "5", "\"a\"", "\"b\""};
+        Random random = new Random(7);
+        StringBuilder lines = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        Path file = this.folder.getRoot().toPath().resolve("states.ndjson");
+        for (int d = 0; d < 500; d++) {
+            String document = String.format("{\"name\": %s, \"item_count\": %s, \"address\":"
+                            + " {\"city\": %s}, \"orders\": [{\"total\": %d}], \"scores\": [%s]}",
+                    values[random.nextInt(values.length)], values[random.nextInt(values.length)],
+                    values[random.nextInt(values.length)], random.nextInt(100),
+                    d % 50 == 0 ? "2,".repeat(200) + "2" : values[random.nextInt(values.length)]);
+            NdjsonEvaluatorTest.expect(expected, file, lines.length(),
+                    this.ruleSet.evaluate(document.getBytes(StandardCharsets.UTF_8)));
+            lines.append(document).append('\n');
+            if (d % 70 == 0) {
+                lines.append(" \r\n[1, 2]\n\n");
+            }
+        }
+        Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8));
+
+        NdjsonEvaluator evaluator = new NdjsonEvaluator(this.ruleSet, this.executor, 3, 256);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        evaluator.evaluate(file, output);
+
+        Assert.assertEquals(expected.toString(), output.toString(StandardCharsets.UTF_8));
+        Assert.assertEquals(500, evaluator.getDocumentCount());
+        Assert.assertEquals(8, evaluator.getInvalidCount());
+        Assert.assertEquals(expected.toString().lines().count(), evaluator.getMatchingCount());
+    }
+
+    @Test
+    public void shouldEvaluateLastDocumentWithoutNewline() throws IOException {
+        Path file = this.folder.newFile("last.ndjson").toPath();
+        Files.write(file, "{\"item_count\": 1}\n{\"item_count\": 4}".getBytes(
+                StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new NdjsonEvaluator(this.ruleSet, this.executor, 1, 8).evaluate(file, output);
+
+        Assert.assertEquals(String.format("%s\t0\t3\n%s\t18\t0,3\n", file, file),
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    private static void expect(StringBuilder expected, Path file, int offset, BitSet matches) {
+        if (!matches.isEmpty()) {
+            expected.append(String.format("%s\t%d\t%s\n", file, offset, matches.stream()
+                    .mapToObj(String::valueOf)
+                    .collect(Collectors.joining(","))));
+        }
+    }
+}
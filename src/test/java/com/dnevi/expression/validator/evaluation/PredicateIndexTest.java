@@ -0,0 +1,130 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Differential test of {@link PredicateIndex} against the {@link RuleSet} it indexes
+ */
+public class PredicateIndexTest {
+    private static final String[] NAMES = {"\"John\"", "\"Jane\"", "\"Ann\"", "null"};
+
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldShareAndIndexPredicates() {
+        RuleSet ruleSet = RuleSet.compile(Arrays.asList(
+                "$.age > 60",
+                "60 < $.age && $.employed == true",
+                "$.age >= 30 || $.name == \"John\"",
+                "$.age > $.position"), this.schema);
+        PredicateIndex index = PredicateIndex.build(ruleSet);
+
+        Assert.assertEquals(4, index.getPredicateCount());
+        Assert.assertEquals(1, index.getResidualCount());
+        Assert.assertEquals(1, index.getWalkedCount());
+        Assert.assertEquals(ruleSet.evaluate("{\"age\": 61, \"position\": 3}".getBytes()),
+                index.evaluate("{\"age\": 61, \"position\": 3}".getBytes()));
+    }
+
+    @Test
+    public void shouldSelectSinglePredicateRules() {
+        RuleSet ruleSet = RuleSet.compile(Arrays.asList(
+                "$.age > 10",
+                "$.age > 20",
+                "$.age > 10 && $.age > 10",
+                "$.age <= 20",
+                "$.name != \"John\"",
+                "$.name != \"Jane\"",
+                "$.name == \"John\""), this.schema);
+        PredicateIndex index = PredicateIndex.build(ruleSet);
+
+        Assert.assertEquals(0, index.getWalkedCount());
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b1101101}),
+                index.evaluate("{\"age\": 20, \"name\": \"John\"}".getBytes()));
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b0110111}),
+                index.evaluate("{\"age\": 21.5, \"name\": \"Ann\"}".getBytes()));
+    }
+
+    @Test
+    public void shouldAgreeWithRuleSet() {
+        Random random = new Random(42);
+        List<String> expressions = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // Conjunctions, disjunctions and rules mixing both operators
+            StringBuilder expression = new StringBuilder(this.clause(random));
+            for (int clauses = random.nextInt(4); clauses > 0; clauses--) {
+                expression.append(random.nextBoolean() ? " && " : " || ")
+                        .append(this.clause(random));
+            }
+            expressions.add(expression.toString());
+        }
+        RuleSet ruleSet = RuleSet.compile(expressions, this.schema);
+        PredicateIndex index = PredicateIndex.build(ruleSet);
+
+        for (int d = 0; d < 200; d++) {
+            byte[] document = this.document(random);
+            Assert.assertEquals(new String(document), ruleSet.evaluate(document),
+                    index.evaluate(document));
+        }
+    }
+
+    private String clause(Random random) {
+        switch (random.nextInt(5)) {
+            case 0:
+                return "$.age " + new String[]{">", ">=", "<", "<="}[random.nextInt(4)] + " "
+                        + random.nextInt(20);
+            case 1:
+                return random.nextInt(20) + " " + new String[]{">", "<="}[random.nextInt(2)]
+                        + " $.position";
+            case 2:
+                return "$.name " + (random.nextBoolean() ? "==" : "!=") + " "
+                        + NAMES[random.nextInt(NAMES.length)];
+            case 3:
+                return "$.age " + (random.nextBoolean() ? "==" : "!=") + " " + random.nextInt(20);
+            default:
+                return "$.employed " + (random.nextBoolean() ? "==" : "!=") + " "
+                        + random.nextBoolean();
+        }
+    }
+
+    private byte[] document(Random random) {
+        List<String> fields = new ArrayList<>();
+        if (random.nextInt(4) > 0) {
+            fields.add("\"age\": " + random.nextInt(20));
+        }
+        if (random.nextInt(4) > 0) {
+            fields.add("\"position\": " + (random.nextBoolean() ? random.nextInt(20) + ".5"
+                    : "\"" + random.nextInt(20) + "\""));
+        }
+        if (random.nextInt(4) > 0) {
+            fields.add("\"name\": " + NAMES[random.nextInt(NAMES.length)]);
+        }
+        if (random.nextInt(4) > 0) {
+            fields.add("\"employed\": " + random.nextBoolean());
+        }
+
+        return ("{" + String.join(", ", fields) + "}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,112 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.exception.UnevaluableExpressionException;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+public class RuleNetworkTest {
+    private static final byte[] DOCUMENT = "{\"age\": 61, \"employed\": true}".getBytes();
+
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldEvaluateSharedNodeOnce() {
+        RuleNetwork network = new RuleNetwork(this.schema);
+        network.addRule("$.employed == true && $.age > 60");
+        network.addRule("($.age > 60) && ($.employed == true)");
+        network.addRule("$.employed == true && $.age > 70");
+
+        BitSet matches = network.evaluate(DOCUMENT);
+        NetworkStats stats = network.stats();
+
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b011}), matches);
+        Assert.assertEquals(5, stats.getNodeCount());
+        Assert.assertEquals(9, stats.getReferenceCount());
+        Assert.assertEquals(5, stats.getEvaluationCount());
+        Assert.assertEquals(2, stats.getSavedEvaluationCount());
+    }
+
+    @Test
+    public void shouldReleaseNodesOfRemovedRules() {
+        RuleNetwork network = new RuleNetwork(this.schema);
+        int first = network.addRule("$.employed == true && $.age > 60");
+        int second = network.addRule("$.employed == true && $.age > 70");
+
+        Assert.assertTrue(network.removeRule(first));
+        Assert.assertFalse(network.removeRule(first));
+        Assert.assertEquals(3, network.stats().getNodeCount());
+        Assert.assertEquals(new BitSet(), network.evaluate(DOCUMENT));
+
+        int third = network.addRule("$.age > 60 && $.employed == true");
+        Assert.assertEquals(5, network.stats().getNodeCount());
+        Assert.assertTrue(network.evaluate(DOCUMENT).get(third));
+
+        network.removeRule(second);
+        network.removeRule(third);
+        Assert.assertEquals(0, network.stats().getNodeCount());
+    }
+
+    @Test
+    public void shouldReuseSlotsAndIndexesOfRemovedRules() {
+        byte[] document = ("{\"age\": 61, \"employed\": true, \"name\": \"m\", \"position\": 3,"
+                + " \"surname\": \"t\"}").getBytes(StandardCharsets.UTF_8);
+        RuleNetwork network = new RuleNetwork(this.schema);
+        int kept = network.addRule("$.employed == true");
+        for (int i = 0; i < 10; i++) {
+            int rule = network.addRule(i % 2 == 0 ? "$.age > 60 && $.name != \"n\""
+                    : "$.position == 3 || $.surname == \"s\"");
+            Assert.assertEquals(1, rule);
+            Assert.assertTrue(network.evaluate(document).get(rule));
+            Assert.assertEquals(3, network.stats().getSlotCount());
+            network.removeRule(rule);
+        }
+
+        Assert.assertThrows(UnevaluableExpressionException.class,
+                () -> network.addRule("$.age > \"a\""));
+        int rule = network.addRule("$.age < 60 || $.surname == \"s\"");
+        Assert.assertEquals(3, network.stats().getSlotCount());
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b01}), network.evaluate(document));
+        Assert.assertEquals("$.age < 60 || $.surname == \"s\"", network.getExpression(rule));
+    }
+
+    @Test
+    public void shouldAgreeWithRuleSet() {
+        Random random = new Random(42);
+        List<String> expressions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            expressions.add(String.format("($.age > %d || $.employed == %s) && $.name != \"n%d\"",
+                    random.nextInt(5), random.nextBoolean(), random.nextInt(3)));
+        }
+        RuleSet ruleSet = RuleSet.compile(expressions, this.schema);
+        RuleNetwork network = new RuleNetwork(this.schema);
+        expressions.forEach(network::addRule);
+
+        for (int d = 0; d < 50; d++) {
+            byte[] document = String.format("{\"age\": %d, \"employed\": %s, \"name\": \"n%d\"}",
+                    random.nextInt(6), random.nextBoolean(), random.nextInt(3))
+                    .getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(ruleSet.evaluate(document), network.evaluate(document));
+        }
+        Assert.assertTrue(network.stats().sharingRatio() > 10);
+    }
+}
@@ -0,0 +1,125 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.schema.StatePath;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class RulePackTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadRuleSetEqualToWrittenOne() throws IOException {
+        StateSchema schema = RulePackTest.schema("/nested_state_schema.json");
+        RuleSet ruleSet = RuleSet.compile(Arrays.asList(
+                "$.item_count > 3",
+                "$.item_count <= $.2024.visits",
+                "$.name == \"a\" || $.address.city != null",
+                "$.name == $.address.city",
+                "($.item_count > 2) == ($.2024.visits < 5)",
+                "$.orders[*].total > 50 && $.orders[0].paid == true",
+                "$.scores[all] >= 1",
+                "$.scores[2+] >= 2 || $.orders[1+].paid",
+                "$.orders[1].paid != false",
+                "$.item_count != 9007199254740993",
+                "$.item_count > 2 && $.item_count < 1"), schema);
+        Path file = this.folder.getRoot().toPath().resolve("rules.pack");
+
+        RulePack.write(ruleSet, file);
+        RuleSet read = RulePack.read(file, schema);
+
+        Assert.assertEquals(ruleSet.size(), read.size());
+        Assert.assertEquals(RulePackTest.paths(ruleSet), RulePackTest.paths(read));
+        Assert.assertEquals(ruleSet.getNeverMatching(), read.getNeverMatching());
+        for (int rule = 0; rule < ruleSet.size(); rule++) {
+            Assert.assertEquals(ruleSet.getExpression(rule), read.getExpression(rule));
+            Assert.assertEquals(ruleSet.getCondition(rule).toString(),
+                    read.getCondition(rule).toString());
+        }
+
+        String[] values = {null, "1", "5", "\"a\"", "true", "false"};
+        Random random = new Random(3);
+        for (int d = 0; d < 100; d++) {
+            byte[] document = String.format("{\"name\": %s, \"item_count\": %s, \"2024\":"
+                            + " {\"visits\": %s}, \"address\": {\"city\": %s}, \"orders\":"
+                            + " [{\"total\": %d, \"paid\": %s}, {\"paid\": %s}], \"scores\": [%s]}",
+                    values[random.nextInt(values.length)], values[random.nextInt(values.length)],
+                    values[random.nextInt(values.length)], values[random.nextInt(values.length)],
+                    random.nextInt(100), values[random.nextInt(values.length)],
+                    values[random.nextInt(values.length)], values[random.nextInt(values.length)])
+                    .getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(ruleSet.evaluate(document), read.evaluate(document));
+        }
+    }
+
+    @Test
+    public void shouldCompileAgainIfSchemaChanged() throws IOException {
+        List<String> rules = Arrays.asList("$.age > 60", "$.employed == false");
+        StateSchema schema = RulePackTest.schema("/example_state_schema.json");
+        Path file = this.folder.getRoot().toPath().resolve("rules.pack");
+        RulePack.write(RuleSet.compile(rules, RulePackTest.schema("/const_state_schema.json")),
+                file);
+
+        RuleSet read = RulePack.read(file, schema);
+
+        Assert.assertEquals(schema.getFingerprint(), read.getSchemaFingerprint());
+        Assert.assertEquals(RulePackTest.paths(RuleSet.compile(rules, schema)),
+                RulePackTest.paths(read));
+        Assert.assertEquals(2, read.evaluate("{\"age\": 61, \"employed\": false}".getBytes())
+                .cardinality());
+    }
+
+    @Test
+    public void shouldRejectFileWhichIsNotRulePack() throws IOException {
+        Path file = this.folder.newFile("rules.txt").toPath();
+        Files.write(file, List.of("$.age > 60"));
+
+        Assert.assertThrows(IOException.class, () -> RulePack.read(file,
+                RulePackTest.schema("/example_state_schema.json")));
+    }
+
+    @Test
+    public void shouldWriteStableOperatorCodes() throws IOException {
+        StateSchema schema = RulePackTest.schema("/example_state_schema.json");
+        Path file = this.folder.getRoot().toPath().resolve("rules.pack");
+        RulePack.write(RuleSet.compile(List.of("$.age > 60"), schema), file);
+        byte[] pack = Files.readAllBytes(file);
+        // The rule ends with the operator code and a constant of 14 bytes
+        int operator = pack.length - 15;
+
+        Assert.assertEquals(1, pack[operator]);
+        pack[operator] = 99;
+        Files.write(file, pack);
+        Assert.assertThrows(IOException.class, () -> RulePack.read(file, schema));
+    }
+
+    private static List<String> paths(RuleSet ruleSet) {
+        StatePathExtractor extractor = ruleSet.getExtractor();
+        return Stream.concat(extractor.getPaths().stream(), extractor.getColumnPaths().stream())
+                .map(StatePath::getPath)
+                .collect(Collectors.toList());
+    }
+
+    private static StateSchema schema(String resource) throws IOException {
+        try (InputStream inputStream = RulePackTest.class.getResourceAsStream(resource)) {
+            return new ObjectMapper().readValue(inputStream, new TypeReference<>() {
+            });
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+public class RuleSetTest {
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldExtractSharedPathsOnce() {
+        RuleSet ruleSet = RuleSet.compile(Arrays.asList(
+                "$.age > 60",
+                "$.age > 60 && $.employed == true",
+                "$.name == \"John\" || $.age < 18",
+                "$.employed == false"), this.schema);
+
+        BitSet matches = ruleSet.evaluate(
+                "{\"name\": \"Jane\", \"age\": 61, \"employed\": true}".getBytes());
+
+        Assert.assertEquals(3, ruleSet.getExtractor().getSlotCount());
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b0011}), matches);
+    }
+
+    @Test
+    public void shouldReportRulesWhichNeverOrAlwaysMatch() {
+        RuleSet ruleSet = RuleSet.compile(Arrays.asList(
+                "$.age > 60 && $.age < 30",
+                "$.age > 60",
+                "$.name != \"John\" || $.name != \"Jane\"",
+                "$.employed == true && ($.employed == false || $.age > 1)"), this.schema);
+
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b0001}), ruleSet.getNeverMatching());
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b0100}), ruleSet.getAlwaysMatching());
+        Assert.assertEquals(BitSet.valueOf(new long[]{0b0110}),
+                ruleSet.evaluate("{\"age\": 61}".getBytes()));
+    }
+
+    @Test
+    public void shouldAgreeWithSingleRuleEvaluation() {
+        Random random = new Random(42);
+        List<String> expressions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            expressions.add(String.format("$.age %s %d %s $.employed == %s",
+                    random.nextBoolean() ? ">" : "<=", random.nextInt(100),
+                    random.nextBoolean() ? "&&" : "||", random.nextBoolean()));
+        }
+        RuleSet ruleSet = RuleSet.compile(expressions, this.schema);
+        List<StateEvaluator> evaluators = new ArrayList<>();
+        for (String expression : expressions) {
+            evaluators.add(StateEvaluator.compile(expression, this.schema));
+        }
+
+        for (int d = 0; d < 50; d++) {
+            byte[] document = String.format("{\"age\": %d, \"employed\": %s}", random.nextInt(100),
+                    random.nextBoolean()).getBytes(StandardCharsets.UTF_8);
+            BitSet matches = ruleSet.evaluate(document);
+
+            for (int i = 0; i < expressions.size(); i++) {
+                boolean expected = evaluators.get(i).evaluate(document);
+                Assert.assertEquals(expressions.get(i), expected, matches.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void shouldCompareLargeIntegersExactlyInBlocksAndIndexes() {
+        RuleSet ruleSet = RuleSet.compile(Arrays.asList(
+                "$.position == 9007199254740993",
+                "$.position > 9007199254740992",
+                "$.position <= 9007199254740992.0",
+                "$.age < $.position",
+                "$.age == 9007199254740992"), this.schema);
+        PredicateIndex index = PredicateIndex.build(ruleSet);
+        String[] documents = {
+                "{\"position\": 9007199254740993, \"age\": 9007199254740992}",
+                "{\"position\": 9007199254740992, \"age\": 9007199254740993}",
+                "{\"position\": \"-9007199254740993\", \"age\": 1.5}"};
+
+        StateBlock block = new StateBlock(ruleSet.getExtractor(), documents.length);
+        for (String document : documents) {
+            block.add(document.getBytes(StandardCharsets.UTF_8), 0, document.length());
+        }
+        BitSet[] selections = ruleSet.evaluate(block);
+        boolean[][] expected = {
+                {true, true, false, true, true},
+                {false, false, true, false, false},
+                {false, false, true, false, false}};
+        for (int row = 0; row < documents.length; row++) {
+            byte[] document = documents[row].getBytes(StandardCharsets.UTF_8);
+            BitSet matches = ruleSet.evaluate(document);
+            for (int rule = 0; rule < ruleSet.size(); rule++) {
+                Assert.assertEquals(documents[row] + " " + ruleSet.getExpression(rule),
+                        expected[row][rule], matches.get(rule));
+                Assert.assertEquals(expected[row][rule], selections[rule].get(row));
+            }
+            Assert.assertEquals(matches, index.evaluate(document));
+        }
+    }
+
+    @Test
+    public void shouldEvaluateBlocksLikeSingleDocuments() throws IOException {
+        InputStream inputStream = this.getClass().getResourceAsStream("/nested_state_schema.json");
+        StateSchema schema = new ObjectMapper().readValue(inputStream, new TypeReference<>() {
+        });
+        RuleSet ruleSet = RuleSet.compile(Arrays.asList(
+                "$.item_count > 3",
+                "$.item_count <= $.2024.visits",
+                "$.name == \"a\" || $.address.city != null",
+                "$.name == $.address.city",
+                "$.item_count == null || $.2024.visits != 2",
+                "($.item_count > 2) == ($.2024.visits < 5)",
+                "$.orders[*].total > 50 && $.orders[0].paid == true",
+                "$.scores[all] >= 1",
+                "$.orders[1].paid != false",
+                "$.name != \"b\" && $.item_count != 4",
+                "$.item_count > 2 && $.item_count < 1"), schema);
+        String[] values = {null, "1", "3", "5", "\"a\"", "\"b\"", "\"4\"", "true", "false",
+                "[1]", "{}"};
+
+        Random random = new Random(42);
+        StringBuilder lines = new StringBuilder();
+        for (int d = 0; d < 150; d++) {
+            lines.append(String.format("{\"name\": %s, \"item_count\": %s, \"2024\": {\"visits\":"
+                            + " %s}, \"address\": {\"city\": %s}, \"orders\": [{\"total\": %d,"
+                            + " \"paid\": %s}, {\"paid\": %s}], \"scores\": [%d, %s]}\n",
+                    values[random.nextInt(values.length)], values[random.nextInt(values.length)],
+                    values[random.nextInt(values.length)], values[random.nextInt(values.length)],
+                    random.nextInt(100), values[random.nextInt(values.length)],
+                    values[random.nextInt(values.length)], random.nextInt(3),
+                    values[random.nextInt(values.length)]));
+            if (d % 40 == 0) {
+                lines.append("\n \r\n");
+            }
+        }
+        byte[] data = lines.toString().getBytes(StandardCharsets.UTF_8);
+        String[] documents = lines.toString().lines()
+                .filter(line -> !line.isBlank())
+                .toArray(String[]::new);
+
+        StateBlock block = new StateBlock(ruleSet.getExtractor(), 64);
+        int offset = 0;
+        int row = 0;
+        while (offset < data.length) {
+            block.clear();
+            offset = block.addLines(data, offset, data.length - offset);
+            BitSet[] selections = ruleSet.evaluate(block);
+
+            for (int i = 0; i < block.size(); i++, row++) {
+                BitSet matches = ruleSet.evaluate(documents[row].getBytes(StandardCharsets.UTF_8));
+                for (int rule = 0; rule < ruleSet.size(); rule++) {
+                    Assert.assertEquals(documents[row] + " " + ruleSet.getExpression(rule),
+                            matches.get(rule), selections[rule].get(i));
+                }
+            }
+        }
+        Assert.assertEquals(documents.length, row);
+    }
+}
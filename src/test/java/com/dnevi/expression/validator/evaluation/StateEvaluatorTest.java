@@ -0,0 +1,215 @@
+package com.dnevi.expression.validator.evaluation;
+
+import com.dnevi.expression.validator.exception.InvalidStateDocumentException;
+import com.dnevi.expression.validator.exception.UnevaluableExpressionException;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StateEvaluatorTest {
+    private static final String DOCUMENT = "{\"name\": \"John\", \"history\": {\"jobs\": [1, 2, 3]},"
+            + " \"age\": 61, \"employed\": true, \"address\": \"Main street\"}";
+
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldEvaluateAgainstDocument() {
+        Assert.assertTrue(this.evaluate("$.age > 60", DOCUMENT));
+        Assert.assertFalse(this.evaluate("$.age > 61", DOCUMENT));
+        Assert.assertTrue(this.evaluate("$.age >= 61 && $.name == \"John\"", DOCUMENT));
+        Assert.assertTrue(this.evaluate("$.age < 30 || $.employed == true", DOCUMENT));
+        Assert.assertFalse(this.evaluate("$.age < 30 || $.employed == false", DOCUMENT));
+        Assert.assertTrue(this.evaluate("($.age > 60) == true && $.name != \"Jane\"", DOCUMENT));
+    }
+
+    @Test
+    public void shouldCoerceValuesBySchemaType() {
+        String document = "{\"age\": \"61\", \"employed\": \"TRUE\", \"name\": 42}";
+
+        Assert.assertTrue(this.evaluate("$.age > 60", document));
+        Assert.assertTrue(this.evaluate("$.employed == true", document));
+        Assert.assertTrue(this.evaluate("$.name == \"42\"", document));
+    }
+
+    @Test
+    public void shouldEvaluateNestedAndArrayPaths() throws IOException {
+        InputStream inputStream = this.getClass().getResourceAsStream("/nested_state_schema.json");
+        StateSchema schema = new ObjectMapper().readValue(inputStream, new TypeReference<>() {
+        });
+        byte[] document = ("{\"orders\": [{\"total\": 5}, {\"paid\": true, \"total\": 25.5}],"
+                + " \"address\": {\"city\": \"Split\"}, \"item_count\": 2,"
+                + " \"2024\": {\"visits\": 7}, \"scores\": [1, [2], 3]}")
+                .getBytes(StandardCharsets.UTF_8);
+
+        Assert.assertTrue(StateEvaluator.compile("$.orders[1].total > 25 && $.orders[1].paid"
+                + " == true && $.orders[0].paid == null", schema).evaluate(document));
+        Assert.assertTrue(StateEvaluator.compile("$.address.city == \"Split\" && $.item_count"
+                + " == 2 && $.2024.visits > 6", schema).evaluate(document));
+        Assert.assertTrue(StateEvaluator.compile("$.scores[0] == 1 && $.scores[1] == null"
+                + " && $.scores[2] == 3 && $.scores[3] == null", schema).evaluate(document));
+    }
+
+    @Test
+    public void shouldEvaluateWildcardPaths() throws IOException {
+        InputStream inputStream = this.getClass().getResourceAsStream("/nested_state_schema.json");
+        StateSchema schema = new ObjectMapper().readValue(inputStream, new TypeReference<>() {
+        });
+        byte[] document = ("{\"orders\": [{\"total\": 5, \"paid\": true}, {\"total\": \"x\"},"
+                + " {\"paid\": \"false\", \"total\": 25.5}], \"scores\": [3, 9, null]}")
+                .getBytes(StandardCharsets.UTF_8);
+        Map<String, Boolean> expected = new LinkedHashMap<>();
+        expected.put("$.orders[*].total > 25", true);
+        expected.put("$.orders[all].total > 1", false);
+        expected.put("$.orders[*].total == null", true);
+        expected.put("$.orders[*].paid", true);
+        expected.put("$.orders[all].paid != null", true);
+        expected.put("25 < $.orders[0].total || 25 < $.orders[*].total", true);
+        expected.put("$.orders[all].paid == true", false);
+        expected.put("$.scores[*] >= 9 && $.scores[0] == 3 && $.scores[all] < 10", false);
+        expected.put("$.scores[all] != 4", true);
+        expected.put("$.address.city == \"Split\" || $.scores[*] == null", true);
+        expected.put("$.orders[2+].total > 1", true);
+        expected.put("$.orders[3+].total > 1", false);
+        expected.put("$.orders[2+].paid", false);
+        expected.put("$.scores[2+] != null && $.scores[0+] > 100", true);
+        expected.put("2 <= $.scores[3+]", false);
+        expected.put("($.scores[*]) < 9007199254740993", true);
+
+        expected.forEach((expression, result) -> Assert.assertEquals(expression, result,
+                StateEvaluator.compile(expression, schema).evaluate(document)));
+        Assert.assertFalse(StateEvaluator.compile("$.scores[*] == 9007199254740993", schema)
+                .evaluate("{\"scores\": [9007199254740992]}".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(1, StateEvaluator.compile("$.scores[*] > 1 && $.scores[all] > 1"
+                + " && $.scores[2+] > 1", schema).getExtractor().getColumnCount());
+        Assert.assertTrue(StateEvaluator.compile("$.orders[all].total > 1", schema)
+                .evaluate("{\"orders\": []}".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertThrows(UnevaluableExpressionException.class,
+                () -> StateEvaluator.compile("$.orders[*].total > $.item_count", schema));
+    }
+
+    @Test
+    public void shouldCompareLargeIntegersExactly() {
+        String document = "{\"position\": 9007199254740992, \"age\": \"9007199254740993\"}";
+
+        Assert.assertFalse(this.evaluate("$.position == 9007199254740993", document));
+        Assert.assertTrue(this.evaluate("$.position < 9007199254740993", document));
+        Assert.assertTrue(this.evaluate("$.age > $.position", document));
+        Assert.assertTrue(this.evaluate("$.age != 9007199254740992.0", document));
+        Assert.assertTrue(this.evaluate("$.age == 9007199254740993", document));
+    }
+
+    @Test
+    public void shouldTreatMissingAndMistypedValuesAsNull() {
+        String document = "{\"age\": {\"years\": 61}, \"name\": null}";
+
+        Assert.assertFalse(this.evaluate("$.age > 60", document));
+        Assert.assertFalse(this.evaluate("$.position > 0", document));
+        Assert.assertTrue(this.evaluate("$.name == null", document));
+        Assert.assertTrue(this.evaluate("$.surname == null", document));
+    }
+
+    @Test
+    public void shouldReadAllDocumentSources() {
+        StateEvaluator evaluator = StateEvaluator.compile("$.age > 60", this.schema);
+        byte[] bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+
+        Assert.assertTrue(evaluator.evaluate(new ByteArrayInputStream(bytes)));
+        Assert.assertTrue(evaluator.evaluate(ByteBuffer.wrap(bytes)));
+        Assert.assertTrue(evaluator.evaluate(direct));
+        Assert.assertEquals(0, direct.position());
+    }
+
+    @Test
+    public void shouldReuseStateValuesBetweenDocuments() throws IOException {
+        StateEvaluator evaluator = StateEvaluator.compile("$.age > 60 || $.name == \"John\"",
+                this.schema);
+        StateValues values = evaluator.getExtractor().newValues();
+
+        Assert.assertTrue(evaluator.evaluate(StateEvaluator.JSON_FACTORY.createParser(DOCUMENT),
+                values));
+        // Values of the previous document are not kept
+        Assert.assertFalse(evaluator.evaluate(StateEvaluator.JSON_FACTORY.createParser(
+                "{\"age\": 30}"), values));
+        Assert.assertTrue(this.evaluate("$.age > 60 || $.name == \"John\"", DOCUMENT));
+        Assert.assertThrows(IllegalArgumentException.class, () -> evaluator.evaluate(
+                StateEvaluator.JSON_FACTORY.createParser(DOCUMENT), new StateValues(1)));
+    }
+
+    @Test
+    public void shouldStopAfterAllPathsAreExtracted() {
+        StateEvaluator evaluator = StateEvaluator.compile("$.age > 60", this.schema);
+
+        Assert.assertTrue(evaluator.evaluate("{\"age\": 61, \"rest\": [1, 2,".getBytes()));
+    }
+
+    @Test
+    public void shouldNotReadDocumentForFixedVerdict() {
+        StateEvaluator evaluator = StateEvaluator.compile("$.age > 60 || (1 < 2)", this.schema);
+
+        Assert.assertTrue(evaluator.getCondition() instanceof Condition.Fixed);
+        Assert.assertEquals(0, evaluator.getExtractor().getSlotCount());
+        Assert.assertTrue(evaluator.evaluate("not a document".getBytes()));
+    }
+
+    @Test
+    public void shouldPromoteHotConditionToBytecode() {
+        List<Runnable> promotions = new ArrayList<>();
+        StateEvaluator evaluator = StateEvaluator.compile("$.age > 60 && $.employed", this.schema)
+                .adaptive()
+                .promoting(3, promotions::add);
+        byte[] document = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+
+        evaluator.evaluate(document);
+        evaluator.evaluate(document);
+        Assert.assertTrue(promotions.isEmpty());
+        Assert.assertTrue(evaluator.evaluate(document));
+        Assert.assertEquals(1, promotions.size());
+        Assert.assertFalse(evaluator.isPromoted());
+
+        promotions.get(0).run();
+        Assert.assertTrue(evaluator.isPromoted());
+        Assert.assertEquals("($.age > 60.0 && $.employed)", evaluator.getCondition().toString());
+        Assert.assertTrue(evaluator.evaluate(document));
+        Assert.assertFalse(evaluator.evaluate("{\"age\": 61, \"employed\": false}".getBytes()));
+        Assert.assertEquals(1, promotions.size());
+    }
+
+    @Test(expected = UnevaluableExpressionException.class)
+    public void shouldNotCompileInvalidExpression() {
+        StateEvaluator.compile("$.name > 60", this.schema);
+    }
+
+    @Test(expected = InvalidStateDocumentException.class)
+    public void shouldRejectDocumentWhichIsNotObject() {
+        this.evaluate("$.age > 60", "[61]");
+    }
+
+    private boolean evaluate(String expression, String document) {
+        return StateEvaluator.compile(expression, this.schema)
+                .evaluate(document.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,47 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+public class BatchValidatorTest {
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldValidateBatchInInputOrder() {
+        List<String> expressions = Arrays.asList(
+                "$.age > 60",
+                "$.name > 5",
+                "$.age > 60",
+                "($.age >= 30 || ($.age < 40)",
+                "$.employed == true");
+
+        BatchResult result = new BatchValidator(this.schema).validateAll(expressions);
+
+        Assert.assertEquals(5, result.getTotalCount());
+        Assert.assertEquals(4, result.getDistinctCount());
+        Assert.assertEquals(2, result.getInvalidCount());
+        Assert.assertTrue(result.getOutcomes().get(0).isValid());
+        Assert.assertFalse(result.getOutcomes().get(1).isValid());
+        Assert.assertSame(result.getOutcomes().get(0), result.getOutcomes().get(2));
+        Assert.assertFalse(result.getOutcomes().get(3).isValid());
+        Assert.assertTrue(result.getOutcomes().get(3).hasErrors());
+        Assert.assertTrue(result.getOutcomes().get(4).isValid());
+    }
+}
@@ -0,0 +1,139 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.evaluation.Condition;
+import com.dnevi.expression.validator.evaluation.ConditionCompiler;
+import com.dnevi.expression.validator.evaluation.StatePathExtractor;
+import com.dnevi.expression.validator.evaluation.StateValues;
+import com.dnevi.expression.validator.expression.ExpressionAnalyzer.Analysis;
+import com.dnevi.expression.validator.expression.ExpressionAnalyzer.Satisfiability;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit and differential tests of {@link ExpressionAnalyzer} against unsimplified conditions
+ */
+public class ExpressionAnalyzerTest {
+    private static final String[] NAMES = {"\"John\"", "\"Jane\"", "null"};
+
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldFindRulesWhichNeverOrAlwaysMatch() {
+        Assert.assertEquals(Satisfiability.NEVER, this.satisfiability("$.age > 60 && $.age < 30"));
+        Assert.assertEquals(Satisfiability.NEVER,
+                this.satisfiability("$.age >= 5 && $.employed && ($.age < 5 || $.age == null)"));
+        Assert.assertEquals(Satisfiability.NEVER,
+                this.satisfiability("$.name == \"John\" && $.name == \"Jane\""));
+        Assert.assertEquals(Satisfiability.NEVER,
+                this.satisfiability("$.employed && $.employed == false"));
+        Assert.assertEquals(Satisfiability.ALWAYS,
+                this.satisfiability("$.age > 60 || $.age <= 60 || $.age == null"));
+        Assert.assertEquals(Satisfiability.ALWAYS,
+                this.satisfiability("$.name != \"John\" || $.name != \"Jane\""));
+        Assert.assertEquals(Satisfiability.SOMETIMES,
+                this.satisfiability("$.age > 60 || $.age <= 60"));
+        Assert.assertEquals(Satisfiability.SOMETIMES,
+                this.satisfiability("$.age > $.position && $.position > $.age"));
+    }
+
+    @Test
+    public void shouldRemoveRedundantOperands() {
+        Analysis analysis = ExpressionAnalyzer.analyze(
+                this.parse("$.age > 60 && $.employed && $.age > 30 && $.age != 10"));
+
+        Assert.assertEquals(Satisfiability.SOMETIMES, analysis.getSatisfiability());
+        Assert.assertEquals(2, analysis.getRemovedCount());
+        Assert.assertEquals("($.age > 60.0 && $.employed)", this.compile(analysis.getExpression(),
+                new StatePathExtractor()).toString());
+    }
+
+    @Test
+    public void shouldAgreeWithUnsimplifiedConditions() throws IOException {
+        Random random = new Random(42);
+        StatePathExtractor extractor = new StatePathExtractor();
+        List<Condition> original = new ArrayList<>();
+        List<Condition> simplified = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            StringBuilder expression = new StringBuilder(this.clause(random));
+            for (int c = random.nextInt(4); c >= 0; c--) {
+                expression.append(random.nextBoolean() ? " && " : " || ").append(this.clause(random));
+            }
+
+            Expression parsed = this.parse(expression.toString());
+            original.add(this.compile(parsed, extractor));
+            simplified.add(this.compile(ExpressionAnalyzer.analyze(parsed).getExpression(),
+                    extractor));
+        }
+
+        JsonFactory factory = new JsonFactory();
+        StateValues values = new StateValues(extractor.getSlotCount());
+        for (int d = 0; d < 100; d++) {
+            String document = String.format("{%s \"name\": %s, \"employed\": %s}",
+                    random.nextBoolean() ? "\"age\": " + random.nextInt(12) + "," : "",
+                    NAMES[random.nextInt(NAMES.length)], random.nextBoolean());
+            try (JsonParser parser = factory.createParser(document)) {
+                extractor.extract(parser, values);
+            }
+
+            for (int i = 0; i < original.size(); i++) {
+                Assert.assertEquals(original.get(i) + " " + document, original.get(i).test(values),
+                        simplified.get(i).test(values));
+            }
+        }
+    }
+
+    private String clause(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return "$.age " + new String[]{">", ">=", "<", "<=", "==", "!="}[random.nextInt(6)]
+                        + " " + random.nextInt(12);
+            case 1:
+                return (random.nextBoolean() ? "$.age" : "$.name") + " "
+                        + (random.nextBoolean() ? "==" : "!=") + " null";
+            case 2:
+                return "$.name " + (random.nextBoolean() ? "==" : "!=") + " "
+                        + NAMES[random.nextInt(NAMES.length - 1)];
+            default:
+                return "(" + this.clause(random) + (random.nextBoolean() ? " && " : " || ")
+                        + this.clause(random) + ")";
+        }
+    }
+
+    private Satisfiability satisfiability(String expression) {
+        return ExpressionAnalyzer.analyze(this.parse(expression)).getSatisfiability();
+    }
+
+    private Condition compile(Expression expression, StatePathExtractor extractor) {
+        return ConditionCompiler.compile(expression, extractor);
+    }
+
+    private Expression parse(String expression) {
+        var validatorContext = new ValidatorContext();
+        List<Token> tokens = new Lexer(expression, validatorContext).scanTokens();
+        Expression parsed = new Parser(tokens, this.schema, validatorContext).parse();
+        Assert.assertFalse(expression, validatorContext.getValidationResult().hasErrors());
+
+        return parsed;
+    }
+}
@@ -0,0 +1,78 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+public class ExpressionOptimizerTest {
+    private StatePathResolver pathResolver;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/const_state_schema.json");
+        StateSchema schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+        this.pathResolver = new StatePathResolver(schema, false);
+    }
+
+    @Test
+    public void shouldFoldIntoVerdict() {
+        Assert.assertEquals(TokenType.TRUE, this.verdict("(true == true)"));
+        Assert.assertEquals(TokenType.FALSE, this.verdict("5 > 7 || null != null"));
+        Assert.assertEquals(TokenType.TRUE, this.verdict("$.version >= 2 || $.age > 5"));
+        Assert.assertEquals(TokenType.FALSE, this.verdict("$.age > 5 && $.beta"));
+        Assert.assertEquals(TokenType.TRUE, this.verdict("$.region != \"us\" && $.beta == false"));
+        Assert.assertEquals(TokenType.FALSE, this.verdict("$.region == null"));
+    }
+
+    @Test
+    public void shouldDropNeutralOperands() {
+        Expression optimized = this.optimize("($.region == \"eu\") && ($.age > 5) == true");
+        Assert.assertTrue(optimized instanceof Expression.Grouping);
+
+        optimized = ((Expression.Grouping) optimized).getExpression();
+        Assert.assertTrue(optimized instanceof Expression.Binary);
+        Assert.assertEquals(TokenType.GREATER,
+                ((Expression.Binary) optimized).getOperator().getType());
+        Assert.assertTrue(this.optimize("$.version == 2 && $.employed")
+                instanceof Expression.Literal);
+    }
+
+    @Test
+    public void shouldNotFoldOperandsOfWrongTypes() {
+        String expression = "false && $.age > \"text\"";
+        Expression parsed = this.parse(expression);
+
+        Assert.assertSame(parsed, ExpressionOptimizer.optimize(parsed, this.pathResolver));
+    }
+
+    private TokenType verdict(String expression) {
+        Expression optimized = this.optimize(expression);
+        Assert.assertTrue(expression, optimized instanceof Expression.Literal);
+        Assert.assertNull(expression, ((Expression.Literal) optimized).getToken().getLiteral());
+
+        return ((Expression.Literal) optimized).getValue();
+    }
+
+    private Expression optimize(String expression) {
+        return ExpressionOptimizer.optimize(this.parse(expression), this.pathResolver);
+    }
+
+    private Expression parse(String expression) {
+        var validatorContext = new ValidatorContext();
+        List<Token> tokens = new Lexer(expression, validatorContext).scanTokens();
+        Expression parsed = new Parser(tokens, this.pathResolver, validatorContext).parse();
+        Assert.assertFalse(expression, validatorContext.getValidationResult().hasErrors());
+
+        return parsed;
+    }
+}
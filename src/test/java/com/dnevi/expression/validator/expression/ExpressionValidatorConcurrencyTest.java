@@ -0,0 +1,96 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.cache.ExpressionCache;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ValidationOutcome;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ExpressionValidatorConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 2_000;
+
+    private static final String[] EXPRESSIONS = {
+            "$.age > 60",
+            "$.name > 5",
+            "$.name == \"someCoolName\"",
+            "$.employed > \"yes\"",
+            "($.age >= 30) || ($.age < 40)",
+            "$.unknown == 1"
+    };
+
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldNotShareResultsBetweenConcurrentCalls() throws Exception {
+        this.assertIsolated(new ExpressionValidator());
+    }
+
+    @Test
+    public void shouldNotShareResultsBetweenConcurrentCachedCalls() throws Exception {
+        this.assertIsolated(new ExpressionValidator(new ExpressionCache(2, 1_000)));
+    }
+
+    private void assertIsolated(ExpressionValidator validator) throws Exception {
+        ValidationOutcome[] expected = new ValidationOutcome[EXPRESSIONS.length];
+        for (int i = 0; i < EXPRESSIONS.length; i++) {
+            expected[i] = new ExpressionValidator().check(EXPRESSIONS[i], this.schema);
+        }
+        Assert.assertTrue(expected[0].isValid());
+        Assert.assertFalse(expected[0].hasErrors());
+        Assert.assertFalse(expected[1].isValid());
+        Assert.assertTrue(expected[1].hasErrors());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            Callable<Integer> worker = () -> {
+                start.await();
+                int mismatches = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    int index = (i + offset) % EXPRESSIONS.length;
+                    ValidationOutcome outcome = validator.check(EXPRESSIONS[index], this.schema);
+                    if (outcome.isValid() != expected[index].isValid()
+                            || outcome.getValidationErrors().size()
+                            != expected[index].getValidationErrors().size()) {
+                        mismatches++;
+                    }
+                }
+                return mismatches;
+            };
+            futures.add(executor.submit(worker));
+        }
+
+        start.countDown();
+        int mismatches = 0;
+        for (Future<Integer> future : futures) {
+            mismatches += future.get();
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(0, mismatches);
+    }
+}
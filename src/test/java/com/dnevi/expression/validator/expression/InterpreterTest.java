@@ -0,0 +1,98 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ErrorCode;
+import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class InterpreterTest {
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldTreatOrAsAndByDefault() {
+        var validatorContext = new ValidatorContext();
+
+        Assert.assertFalse(this.interpret("false || true", validatorContext, false));
+        Assert.assertFalse(validatorContext.getValidationResult().hasErrors());
+    }
+
+    @Test
+    public void shouldShortCircuitLogicalOperators() {
+        var validatorContext = new ValidatorContext();
+
+        Assert.assertTrue(this.interpret("false || true", validatorContext, true));
+        Assert.assertTrue(this.interpret("$.employed || false", validatorContext, true));
+        Assert.assertFalse(this.interpret("false || false", validatorContext, true));
+        Assert.assertTrue(this.interpret("$.employed && true", validatorContext, true));
+        Assert.assertFalse(validatorContext.getValidationResult().hasErrors());
+
+        // Operands are type checked even if the other one decides the result
+        List<String> expressions = List.of("true || $.age > \"text\"",
+                "false && $.age > \"text\"", "$.age > \"text\" || true");
+        List<Boolean> verdicts = List.of(true, false, true);
+        for (int i = 0; i < expressions.size(); i++) {
+            String expression = expressions.get(i);
+            var context = new ValidatorContext();
+            Assert.assertEquals(expression, verdicts.get(i),
+                    this.interpret(expression, context, true));
+            Assert.assertTrue(expression,
+                    context.getValidationResult().hasError(ErrorCode.NUMBER_OPERATORS));
+        }
+    }
+
+    @Test
+    public void shouldReportEachErrorCodeOnce() {
+        var validatorContext = new ValidatorContext();
+        String expression = "$.name == 5 && $.age == \"a\" && 2 > \"b\" && 3 > \"c\"";
+
+        Assert.assertFalse(this.interpret(expression, validatorContext, false));
+        List<ValidationError> errors = validatorContext.getValidationResult()
+                .getValidationErrors();
+        Assert.assertEquals(List.of(ErrorCode.STRING_OR_NULL_OPERATORS, ErrorCode.NOT_BOOLEAN,
+                ErrorCode.NOT_NUMBER, ErrorCode.NUMBER_OPERATORS),
+                errors.stream().map(ValidationError::getCode).collect(Collectors.toList()));
+        Assert.assertEquals(7, errors.get(0).getOffset());
+        Assert.assertEquals(2, errors.get(0).getLength());
+        Assert.assertEquals("Not a valid boolean.", errors.get(1).getMessage());
+    }
+
+    @Test
+    public void shouldCountErrorsInVerdictOnlyMode() {
+        var verdictOnly = ValidatorContext.verdictOnly();
+        var collecting = new ValidatorContext();
+        String expression = "$.name == 5 && $.unknown > 3";
+
+        Assert.assertEquals(this.interpret(expression, collecting, false),
+                this.interpret(expression, verdictOnly, false));
+        Assert.assertEquals(collecting.getValidationResult().getErrorCount(),
+                verdictOnly.getValidationResult().getErrorCount());
+        Assert.assertTrue(verdictOnly.getValidationResult().hasError(ErrorCode.INVALID_PATH));
+        Assert.assertTrue(verdictOnly.getValidationResult().getValidationErrors().isEmpty());
+    }
+
+    private boolean interpret(String expression, ValidatorContext validatorContext,
+            boolean shortCircuit) {
+        List<Token> tokens = new Lexer(expression, validatorContext).scanTokens();
+        Expression expr = new Parser(tokens, this.schema, validatorContext).parse();
+
+        return new Interpreter(validatorContext, shortCircuit).interpret(expr);
+    }
+}
@@ -0,0 +1,104 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.schema.StatePath;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ErrorCode;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+public class LexerTest {
+    private static final List<String> PATHS = List.of("$.name", "$.item_count", "$.address.city",
+            "$.address.zip_2", "$.orders[0].total", "$.orders[12].paid", "$.orders[*].total",
+            "$.orders[all].paid", "$.orders[2+].paid", "$.scores[3]", "$.2024.visits", "$.address.country",
+            "$.orders.total", "$.orders[0]", "$.orders", "$.scores[0].value", "$.nam", "$.names");
+
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/nested_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldScanNestedAndArrayPaths() {
+        var validatorContext = new ValidatorContext();
+        List<Token> tokens = new Lexer("$.orders[0].total>$.address.zip_2 && $.a[*].b_1",
+                validatorContext).scanTokens();
+
+        Assert.assertEquals("$.orders[0].total", tokens.get(0).getLexeme());
+        Assert.assertEquals(TokenType.GREATER, tokens.get(1).getType());
+        Assert.assertEquals("$.address.zip_2", tokens.get(2).getLexeme());
+        Assert.assertEquals("$.a[*].b_1", tokens.get(4).getLexeme());
+        Assert.assertFalse(validatorContext.getValidationResult().hasErrors());
+    }
+
+    @Test
+    public void shouldReportMalformedSegments() {
+        for (String expression : List.of("$.b. == 1", "$.a[x] == 1", "$.a[1 == 1",
+                "$.a[+] == 1")) {
+            var validatorContext = new ValidatorContext();
+            new Lexer(expression, validatorContext).scanTokens();
+
+            Assert.assertEquals(expression, ErrorCode.UNEXPECTED_CHARACTER, validatorContext
+                    .getValidationResult().getValidationErrors().get(0).getCode());
+        }
+    }
+
+    @Test
+    public void shouldResolvePathsWithTrieLikeSchemaIndex() {
+        var buffer = new TokenBuffer();
+        var lexer = new Lexer(new ValidatorContext(), this.schema.getPathTrie());
+
+        for (String path : PATHS) {
+            lexer.scanTokens(path + " == null", buffer);
+
+            Assert.assertEquals(path, buffer.getLexeme(0));
+            Assert.assertEquals(path, this.schema.findSchemaByStatePath(new StatePath(path))
+                    .orElse(null), buffer.getSchema(0));
+        }
+        Assert.assertNotNull(this.schema.findSchemaByStatePath(new StatePath("$.orders[*].paid"))
+                .orElse(null));
+    }
+
+    @Test
+    public void shouldReportPathsWithoutSingleValue() {
+        var validatorContext = new ValidatorContext();
+        List<Token> tokens = new Lexer("$.orders == null", validatorContext,
+                this.schema.getPathTrie()).scanTokens();
+        new Parser(tokens, this.schema, validatorContext).parse();
+
+        Assert.assertEquals(ErrorCode.NOT_SCALAR_PATH, validatorContext.getValidationResult()
+                .getValidationErrors().get(0).getCode());
+    }
+
+    @Test
+    public void shouldOnlyCountStoppingErrorsOfVerdictOnlyContext() {
+        for (String expression : List.of("$.age == nul", "($.age > 1")) {
+            var collecting = new ValidatorContext();
+            var verdictOnly = ValidatorContext.verdictOnly();
+            new Lexer(expression, collecting).scanTokens();
+            new Lexer(expression, verdictOnly).scanTokens();
+
+            ErrorCode code = collecting.getValidationResult().getValidationErrors().get(0)
+                    .getCode();
+            Assert.assertEquals(1, verdictOnly.getValidationResult().getErrorCount());
+            Assert.assertTrue(verdictOnly.getValidationResult().hasError(code));
+            Assert.assertTrue(verdictOnly.getValidationResult().getValidationErrors().isEmpty());
+        }
+        var collecting = new ValidatorContext();
+        new Lexer("$.age == nul", collecting).scanTokens();
+        Assert.assertEquals("Unknown type 'nul'.", collecting.getValidationResult()
+                .getValidationErrors().get(0).getMessage());
+    }
+}
@@ -0,0 +1,140 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.schema.PathTrie;
+import com.dnevi.expression.validator.schema.Schema;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ErrorCode;
+import com.dnevi.expression.validator.validation.ValidationOutcome;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelBatchValidatorTest {
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldMatchSequentialBatchInInputOrder() {
+        List<String> expressions = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            expressions.add(i % 3 == 0 ? "$.name > " + i : "$.age > " + i);
+        }
+
+        BatchResult sequential = new BatchValidator(this.schema).validateAll(expressions);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        BatchResult parallel = new ParallelBatchValidator(this.schema, executor,
+                Duration.ofSeconds(10)).validateAll(expressions);
+        executor.shutdown();
+
+        Assert.assertEquals(sequential.getTotalCount(), parallel.getTotalCount());
+        for (int i = 0; i < expressions.size(); i++) {
+            Assert.assertEquals(sequential.getOutcomes().get(i).isValid(),
+                    parallel.getOutcomes().get(i).isValid());
+        }
+    }
+
+    @Test
+    public void shouldReportExpressionsWhichTimeOut() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        StateSchema blocking = this.schema(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        BatchResult result = new ParallelBatchValidator(blocking, executor,
+                Duration.ofMillis(50)).validateAll(List.of("$.age > 1"));
+        release.countDown();
+        executor.shutdown();
+
+        ValidationOutcome outcome = result.getOutcomes().get(0);
+        Assert.assertFalse(outcome.isValid());
+        Assert.assertTrue(outcome.getValidationResult().hasError(ErrorCode.VALIDATION_TIMEOUT));
+    }
+
+    @Test
+    public void shouldSkipTasksOfCancelledBatch() throws Exception {
+        AtomicInteger validations = new AtomicInteger();
+        StateSchema counting = this.schema(validations::incrementAndGet);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CompletableFuture<BatchResult> result = new ParallelBatchValidator(counting, executor,
+                null).submit(List.of("$.age > 1", "$.age > 2", "$.name == \"a\""));
+        result.cancel(false);
+        release.countDown();
+        executor.shutdown();
+
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertTrue(result.isCancelled());
+        Assert.assertEquals(0, validations.get());
+    }
+
+    @Test
+    public void shouldReportFailingTasksAndRejectedExecution() throws IOException {
+        StateSchema failing = this.schema(() -> {
+            throw new StackOverflowError();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        BatchResult result = new ParallelBatchValidator(failing, executor, null)
+                .submit(List.of("$.age > 1", "$.age > 2"))
+                .orTimeout(10, TimeUnit.SECONDS)
+                .join();
+        executor.shutdown();
+
+        Assert.assertEquals(2, result.getTotalCount());
+        result.getOutcomes().forEach(outcome -> Assert.assertTrue(outcome.getValidationResult()
+                .hasError(ErrorCode.VALIDATION_FAILED)));
+        CompletableFuture<BatchResult> rejected = new ParallelBatchValidator(this.schema,
+                executor, null).submit(List.of("$.age > 1"));
+        Assert.assertTrue(rejected.isCompletedExceptionally());
+    }
+
+    /**
+     * @return Example schema which runs the action whenever an expression is scanned against it
+     */
+    private StateSchema schema(Runnable action) throws IOException {
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        Schema definition = new ObjectMapper().readValue(inputStream, StateSchema.class)
+                .getDefinition();
+        return new StateSchema(definition) {
+            @Override
+            public PathTrie getPathTrie() {
+                action.run();
+                return super.getPathTrie();
+            }
+        };
+    }
+}
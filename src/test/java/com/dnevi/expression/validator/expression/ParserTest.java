@@ -0,0 +1,233 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.evaluation.StateEvaluator;
+import com.dnevi.expression.validator.exception.UnevaluableExpressionException;
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ErrorCode;
+import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ValidationOutcome;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Differential test of {@link Parser#parseIteratively()} against recursive {@link Parser#parse()}
+ */
+public class ParserTest {
+    private static final String[] OPERANDS = {"$.age", "$.name", "$.employed", "$.unknown", "5",
+            "\"text\"", "true", "false", "null"};
+    private static final String[] OPERATORS = {">", ">=", "<", "<=", "==", "!=", "&&", "||"};
+
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldBuildSameTreesAsRecursiveParser() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            String expression = this.generate(random, 5);
+            this.assertSameResult(expression, false);
+            this.assertSameResult(expression, true);
+        }
+    }
+
+    @Test
+    public void shouldBuildSameTreesForMalformedExpressions() {
+        Random random = new Random(7);
+        String[] pieces = {"$.age", "5", "(", ")", ">", "==", "&&", "||", "$.unknown", "\"x\""};
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder expression = new StringBuilder();
+            for (int p = random.nextInt(8); p >= 0; p--) {
+                expression.append(pieces[random.nextInt(pieces.length)]).append(' ');
+            }
+            this.assertSameResult(expression.toString(), true);
+
+            TokenStream stream = new Lexer(new ValidatorContext()).stream(expression.toString());
+            List<Token> tokens = new ArrayList<>();
+            do {
+                tokens.add(stream.next());
+            } while (tokens.get(tokens.size() - 1).getType() != TokenType.EOF);
+            this.assertSameTokenResult(expression.toString(), tokens);
+        }
+    }
+
+    @Test
+    public void shouldParseDeeplyNestedExpression() {
+        int depth = 100_000;
+        String expression = "(".repeat(depth) + "$.age > 5" + ")".repeat(depth);
+        var validatorContext = new ValidatorContext();
+        List<Token> tokens = new Lexer(expression, validatorContext).scanTokens();
+
+        Expression expr = new Parser(tokens, this.schema, validatorContext).parseIteratively();
+
+        Assert.assertFalse(validatorContext.getValidationResult().hasErrors());
+        for (int i = 0; i < depth; i++) {
+            expr = ((Expression.Grouping) expr).getExpression();
+        }
+        Assert.assertEquals(TokenType.GREATER, ((Expression.Binary) expr).getOperator().getType());
+    }
+
+    @Test
+    public void shouldReportTooDeepExpressions() {
+        String nested = "(".repeat(50_000) + "$.age > 5" + ")".repeat(50_000);
+        String chained = "$.age > 5" + " && $.age < 9".repeat(50_000);
+        for (String expression : List.of(nested, chained)) {
+            var validatorContext = new ValidatorContext();
+            List<Token> tokens = new Lexer(expression, validatorContext).scanTokens();
+
+            Assert.assertNull(new Parser(tokens, this.schema, validatorContext)
+                    .parseIteratively(Parser.MAX_DEPTH));
+            List<ValidationError> errors = validatorContext.getValidationResult()
+                    .getValidationErrors();
+            Assert.assertEquals(1, errors.size());
+            Assert.assertEquals(ErrorCode.EXPRESSION_TOO_DEEP, errors.get(0).getCode());
+            Assert.assertEquals("Expression is nested deeper than 500 levels.",
+                    errors.get(0).getMessage());
+
+            ValidationOutcome outcome = new ExpressionValidator().check(expression, this.schema);
+            Assert.assertFalse(outcome.isValid());
+            Assert.assertTrue(outcome.getValidationResult()
+                    .hasError(ErrorCode.EXPRESSION_TOO_DEEP));
+            Assert.assertTrue(new ExpressionValidator().checkStreaming(expression, this.schema)
+                    .getValidationResult().hasError(ErrorCode.EXPRESSION_TOO_DEEP));
+            Assert.assertThrows(UnevaluableExpressionException.class,
+                    () -> StateEvaluator.compile(expression, this.schema));
+        }
+    }
+
+    @Test
+    public void shouldValidateAndEvaluateExpressionsOfMaximumDepth() throws InterruptedException {
+        // Every parenthesis adds one level to the three of the && and its comparison
+        int groups = Parser.MAX_DEPTH - 3;
+        String nested = "(".repeat(groups) + "$.age > 5 && $.employed" + ")".repeat(groups);
+        String chained = "$.age > 5" + " && $.age < 99".repeat(Parser.MAX_DEPTH - 2);
+        byte[] document = "{\"age\": 61, \"employed\": true}".getBytes();
+        List<Throwable> failures = new ArrayList<>();
+
+        // Half of the default stack size of threads of 64 bit JVMs
+        Thread thread = new Thread(null, () -> {
+            try {
+                for (String expression : List.of(nested, chained)) {
+                    Assert.assertTrue(expression.substring(0, 20),
+                            new ExpressionValidator().validate(expression, this.schema));
+                    Assert.assertTrue(StateEvaluator.compile(expression, this.schema).adaptive()
+                            .evaluate(document));
+                }
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        }, "deep-expression", 512 * 1024);
+        thread.start();
+        thread.join();
+
+        Assert.assertEquals(List.of(), failures);
+    }
+
+    private void assertSameResult(String expression, boolean streaming) {
+        var recursiveContext = new ValidatorContext();
+        var iterativeContext = new ValidatorContext();
+        Parser recursive = this.parser(expression, streaming, recursiveContext);
+        Parser iterative = this.parser(expression, streaming, iterativeContext);
+        if (recursive == null) {
+            return;
+        }
+
+        Assert.assertEquals(expression, this.print(recursive.parse()),
+                this.print(iterative.parseIteratively()));
+        Assert.assertEquals(expression, this.messages(recursiveContext),
+                this.messages(iterativeContext));
+    }
+
+    private void assertSameTokenResult(String expression, List<Token> tokens) {
+        var recursiveContext = new ValidatorContext();
+        var iterativeContext = new ValidatorContext();
+
+        Assert.assertEquals(expression,
+                this.print(new Parser(tokens, this.schema, recursiveContext).parse()),
+                this.print(new Parser(tokens, this.schema, iterativeContext).parseIteratively()));
+        Assert.assertEquals(expression, this.messages(recursiveContext),
+                this.messages(iterativeContext));
+    }
+
+    /**
+     * @return Parser of the expression, or null if the lexer rejects it
+     */
+    private Parser parser(String expression, boolean streaming, ValidatorContext validatorContext) {
+        StatePathResolver pathResolver = new StatePathResolver(this.schema, false);
+        if (streaming) {
+            return new Parser(new Lexer(validatorContext).stream(expression), pathResolver,
+                    validatorContext);
+        }
+
+        try {
+            return new Parser(new Lexer(expression, validatorContext).scanTokens(), pathResolver,
+                    validatorContext);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private String generate(Random random, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return OPERANDS[random.nextInt(OPERANDS.length)];
+        }
+
+        String expression = this.generate(random, depth - 1) + " "
+                + OPERATORS[random.nextInt(OPERATORS.length)] + " "
+                + this.generate(random, depth - 1);
+        return random.nextBoolean() ? "(" + expression + ")" : expression;
+    }
+
+    private List<String> messages(ValidatorContext validatorContext) {
+        return validatorContext.getValidationResult().getValidationErrors().stream()
+                .map(ValidationError::getMessage)
+                .collect(Collectors.toList());
+    }
+
+    private String print(Expression expression) {
+        if (expression == null) {
+            return "null";
+        }
+
+        return expression.accept(new Expression.Visitor<>() {
+            @Override
+            public String visitBinaryExpr(Expression.Binary expr) {
+                return String.format("(%s %s %s)", print(expr.getLeft()),
+                        expr.getOperator().getLexeme(), print(expr.getRight()));
+            }
+
+            @Override
+            public String visitGroupingExpr(Expression.Grouping expr) {
+                return String.format("group(%s)", print(expr.getExpression()));
+            }
+
+            @Override
+            public String visitLiteralExpr(Expression.Literal expr) {
+                return expr.getValue() + ":" + expr.getToken().getLexeme();
+            }
+
+            @Override
+            public String visitLogicalExpr(Expression.Logical expr) {
+                return String.format("[%s %s %s]", print(expr.getLeft()),
+                        expr.getOperator().getLexeme(), print(expr.getRight()));
+            }
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.schema.StateSchema;
+import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Differential test of {@link ProgramEvaluator} against the reference {@link Interpreter}
+ */
+public class ProgramEvaluatorTest {
+    private static final String[] OPERANDS = {"$.age", "$.name", "$.employed", "$.position",
+            "$.unknown", "5", "2.5", "\"text\"", "true", "false", "null"};
+    private static final String[] OPERATORS = {">", ">=", "<", "<=", "==", "!=", "&&", "||"};
+
+    private StateSchema schema;
+
+    @Before
+    public void setup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        InputStream inputStream = this.getClass().getResourceAsStream("/example_state_schema.json");
+        this.schema = mapper.readValue(inputStream, new TypeReference<>() {
+        });
+    }
+
+    @Test
+    public void shouldAgreeWithInterpreter() {
+        Random random = new Random(42);
+        ProgramEvaluator evaluator = new ProgramEvaluator();
+
+        for (int i = 0; i < 5_000; i++) {
+            String expression = this.generate(random, 4);
+            Expression expr = this.parse(expression);
+
+            var reference = new ValidatorContext();
+            boolean expected = new Interpreter(reference).interpret(expr);
+
+            var compiled = new ValidatorContext();
+            Program program = ProgramCompiler.compile(expr);
+            boolean actual = evaluator.evaluate(program, compiled);
+
+            Assert.assertEquals(expression, expected, actual);
+            Assert.assertEquals(expression, this.messages(reference), this.messages(compiled));
+            Assert.assertEquals(expression, expected, evaluator.evaluate(program));
+            Assert.assertEquals(expression, reference.getValidationResult().getErrorCount(),
+                    evaluator.getErrorCount());
+        }
+    }
+
+    private Expression parse(String expression) {
+        var validatorContext = new ValidatorContext();
+        List<Token> tokens = new Lexer(expression, validatorContext).scanTokens();
+        return new Parser(tokens, this.schema, validatorContext).parse();
+    }
+
+    private List<String> messages(ValidatorContext validatorContext) {
+        return validatorContext.getValidationResult().getValidationErrors().stream()
+                .map(ValidationError::getMessage)
+                .collect(Collectors.toList());
+    }
+
+    private String generate(Random random, int depth) {
+        if (depth == 0 || random.nextInt(10) < 3) {
+            return OPERANDS[random.nextInt(OPERANDS.length)];
+        }
+        if (random.nextInt(10) < 2) {
+            return "(" + this.generate(random, depth - 1) + ")";
+        }
+
+        return this.generate(random, depth - 1) + " " + OPERATORS[random.nextInt(OPERATORS.length)]
+                + " " + this.generate(random, depth - 1);
+    }
+}
@@ -0,0 +1,79 @@
+package com.dnevi.expression.validator.expression;
+
+import com.dnevi.expression.validator.validation.ErrorCode;
+import com.dnevi.expression.validator.validation.ValidationError;
+import com.dnevi.expression.validator.validation.ValidatorContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TokenBufferTest {
+
+    @Test
+    public void shouldKeepOffsetsOfTokens() {
+        String expression = "$.age >= 10 && $.name == \"a b\"";
+        TokenBuffer buffer = new Lexer(new ValidatorContext())
+                .scanTokens(expression, new TokenBuffer());
+
+        Assert.assertEquals(8, buffer.size());
+        Assert.assertSame(expression, buffer.getSource());
+        Assert.assertEquals(TokenType.GREATER_EQUAL, buffer.getType(1));
+        Assert.assertEquals(6, buffer.getStart(1));
+        Assert.assertEquals(8, buffer.getEnd(1));
+        Assert.assertEquals("$.name", buffer.getLexeme(4));
+        Assert.assertEquals(15, buffer.getStart(4));
+        Assert.assertEquals("\"a b\"", buffer.getLexeme(6));
+        Assert.assertEquals("a b", buffer.getLiteral(6));
+        Assert.assertNull(buffer.getLiteral(4));
+        Assert.assertEquals(TokenType.EOF, buffer.getType(7));
+        Assert.assertEquals(expression.length(), buffer.getStart(7));
+        for (int i = 0; i < buffer.size(); i++) {
+            Assert.assertEquals(buffer.getLexeme(i), buffer.getToken(i).getLexeme());
+        }
+    }
+
+    @Test
+    public void shouldResetReusedBuffer() {
+        var validatorContext = new ValidatorContext();
+        var lexer = new Lexer(validatorContext);
+        var buffer = new TokenBuffer();
+
+        lexer.scanTokens("$.age > 1 && $.age < 10 || $.name == \"x\"", buffer);
+        lexer.scanTokens("(($.age > 1)", buffer);
+        Assert.assertTrue(lexer.hasFailed());
+
+        lexer.scanTokens("$.name != null", buffer);
+
+        Assert.assertFalse(lexer.hasFailed());
+        Assert.assertEquals(4, buffer.size());
+        Assert.assertEquals("$.name", buffer.getLexeme(0));
+        Assert.assertEquals(TokenType.BANG_EQUAL, buffer.getType(1));
+        Assert.assertEquals(TokenType.NIL, buffer.getType(2));
+        Assert.assertEquals(TokenType.EOF, buffer.getType(3));
+        Assert.assertEquals("$.name != null", buffer.getSource());
+    }
+
+    @Test
+    public void shouldCheckNestedAndUnbalancedParentheses() {
+        var validatorContext = new ValidatorContext();
+        var lexer = new Lexer(validatorContext);
+        lexer.scanTokens("((($.age > 1) && ($.age < 3)) || (($.name == \"a\")))",
+                new TokenBuffer());
+        Assert.assertFalse(validatorContext.getValidationResult().hasErrors());
+
+        // Offset of the first unmatched closing, otherwise of the last unclosed opening one
+        List<String> expressions = List.of("($.age > 1))", ")($.age > 1", "(($.age > 1)",
+                "($.age > 1) && (($.age < 3)");
+        List<Integer> offsets = List.of(11, 0, 0, 15);
+        for (int i = 0; i < expressions.size(); i++) {
+            var context = new ValidatorContext();
+            new Lexer(context).scanTokens(expressions.get(i), new TokenBuffer());
+
+            ValidationError error = context.getValidationResult().getValidationErrors().get(0);
+            Assert.assertEquals(expressions.get(i), ErrorCode.UNBALANCED_PARENTHESES,
+                    error.getCode());
+            Assert.assertEquals(expressions.get(i), (int) offsets.get(i), error.getOffset());
+        }
+    }
+}